@@ -0,0 +1,139 @@
+package benchmarks;
+
+import engine.core.Engine;
+import engine.exception.FunctionAlreadyExist;
+import engine.exception.FunctionNotFound;
+import engine.exception.LabelNotExist;
+import engine.generated_2.SProgram;
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Unmarshaller;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The sample programs the benchmarks run, read from the {@code system/src/system/file} directory.
+ * <p>
+ * Each benchmark program is built in a catalog of its own, after the sample programs whose functions it calls,
+ * like the server builds an uploaded program after the programs already uploaded. the directory can be changed with
+ * the {@value #PROGRAMS_DIRECTORY_PROPERTY} system property, e.g. when the benchmarks do not run from the project root.
+ * </p>
+ */
+public enum BenchmarkPrograms {
+    // region basic programs
+    SANITY_BASIC("test/basic.xml"),
+    MINUS("test/minus.xml"),
+    // endregion
+
+    // region quote heavy programs
+    COMPOSITION("test2/composition.xml"),
+    SELF_COMPOSITION("test2/self-composition.xml"),
+    DIVIDE("test2/divide.xml"),
+    REMAINDER("test3/remainder.xml", "test3/math.xml", "test3/predicates.xml");
+    // endregion
+
+    public static final String PROGRAMS_DIRECTORY_PROPERTY = "benchmarks.programsDirectory";
+    private static final String DEFAULT_PROGRAMS_DIRECTORY = "system/src/system/file";
+    private static final String JAXB_GENERATED_PACKAGE_LOC = "engine.generated_2";
+    private static final String BENCHMARK_USER = "benchmark";
+
+    private final @NotNull String file;
+    private final @NotNull List<String> dependencyFiles;
+
+    BenchmarkPrograms(@NotNull String file, @NotNull String... dependencyFiles) {
+        this.file = file;
+        this.dependencyFiles = List.of(dependencyFiles);
+    }
+
+    /**
+     * Reads the program from its file, unbuilt.
+     *
+     * @return the program as read by JAXB
+     */
+    public @NotNull SProgram read() throws IOException, JAXBException {
+        return readProgram(file);
+    }
+
+    /**
+     * Builds the programs whose functions the program calls into a new catalog.
+     *
+     * @return the catalog of all the programs and functions, without the program itself
+     */
+    public @NotNull Map<String, Engine> buildDependencies() throws IOException, JAXBException, LabelNotExist,
+            FunctionNotFound, FunctionAlreadyExist {
+        Map<String, Engine> allFunctionsAndPrograms = new HashMap<>();
+        Map<String, Engine> functions = new HashMap<>();
+        for (String dependencyFile : dependencyFiles) {
+            Engine dependency = Engine.createMainProgramEngine(readProgram(dependencyFile), allFunctionsAndPrograms,
+                    BENCHMARK_USER);
+            dependency.addProgramAndFunctionsToSystem(allFunctionsAndPrograms, functions);
+        }
+        return allFunctionsAndPrograms;
+    }
+
+    /**
+     * Reads and builds the program, with all its expand levels.
+     *
+     * @return the engine of the program
+     */
+    public @NotNull Engine build() throws IOException, JAXBException, LabelNotExist, FunctionNotFound,
+            FunctionAlreadyExist {
+        return build(read(), buildDependencies());
+    }
+
+    /**
+     * Builds an already read program in a copy of a catalog, so the catalog can be built once and reused.
+     *
+     * @param sProgram     the program, see {@link #read()}
+     * @param dependencies the catalog, see {@link #buildDependencies()}
+     * @return the engine of the program
+     */
+    public static @NotNull Engine build(@NotNull SProgram sProgram, @NotNull Map<String, Engine> dependencies)
+            throws LabelNotExist, FunctionNotFound, FunctionAlreadyExist {
+        return Engine.createMainProgramEngine(sProgram, new HashMap<>(dependencies), BENCHMARK_USER);
+    }
+
+    /**
+     * Gives the first argument of a program the input, and its other arguments half of it, so a larger input makes
+     * a longer run of every sample program.
+     *
+     * @param engine the engine of the program
+     * @param input  the input of the run
+     * @return the arguments of the run
+     */
+    public static @NotNull Map<String, Integer> arguments(@NotNull Engine engine, int input) {
+        Map<String, Integer> arguments = new LinkedHashMap<>();
+        for (String argumentName : engine.getSortedProgramArgsNames()) {
+            arguments.put(argumentName, arguments.isEmpty() ? input : Math.max(1, input / 2));
+        }
+        return arguments;
+    }
+
+    private static @NotNull SProgram readProgram(@NotNull String file) throws IOException, JAXBException {
+        Path programsDirectory = Path.of(System.getProperty(PROGRAMS_DIRECTORY_PROPERTY, DEFAULT_PROGRAMS_DIRECTORY));
+        Unmarshaller unmarshaller = JAXBContextHolder.INSTANCE.createUnmarshaller();
+        try (InputStream xmlFile = Files.newInputStream(programsDirectory.resolve(file))) {
+            return (SProgram) unmarshaller.unmarshal(xmlFile);
+        }
+    }
+
+    private static class JAXBContextHolder {
+        private static final JAXBContext INSTANCE;
+
+        static {
+            try {
+                INSTANCE = JAXBContext.newInstance(JAXB_GENERATED_PACKAGE_LOC);
+            } catch (JAXBException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package benchmarks;
+
+import dto.engine.DebugStateChangeResultDTO;
+import engine.core.Engine;
+import engine.core.ProgramDebugger;
+import engine.utils.ArchitectureType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Debugs a program step by step, like a user of the client clicking through it. each step keeps a copy of the
+ * program state for stepping back, so the allocation rate matters here as much as the time.
+ * <p>
+ * An operation is a single step: a session is started, stepped over a fixed number of times, and then stepped back
+ * as many times, so the start of the session is spread over its steps. the input is large enough for the programs
+ * not to finish within the steps.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DebuggerBenchmark {
+    private static final int STEPS = 32;
+    private static final int INPUT = 16;
+
+    @Param({"MINUS", "DIVIDE"})
+    private BenchmarkPrograms program;
+
+    private Engine engine;
+    private int expandLevel;
+    private Map<String, Integer> arguments;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        engine = program.build();
+        expandLevel = engine.getMaxExpandLevel();
+        arguments = BenchmarkPrograms.arguments(engine, INPUT);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STEPS)
+    public DebugStateChangeResultDTO stepOver() {
+        return stepOver(startDebugSession());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2 * STEPS)
+    public DebugStateChangeResultDTO stepOverAndBack() {
+        ProgramDebugger debugger = startDebugSession();
+        DebugStateChangeResultDTO state = stepOver(debugger);
+        for (int i = 0; i < STEPS; i++) {
+            state = debugger.stepBack();
+        }
+        return state;
+    }
+
+    private ProgramDebugger startDebugSession() {
+        return engine.startDebugSession(expandLevel, arguments, Integer.MAX_VALUE, ArchitectureType.ARCHITECTURE_IV);
+    }
+
+    private static DebugStateChangeResultDTO stepOver(ProgramDebugger debugger) {
+        DebugStateChangeResultDTO state = null;
+        for (int i = 0; i < STEPS; i++) {
+            state = debugger.stepOver();
+            if (state.isFinished()) {
+                // a finished session cannot step back, and would measure fewer steps than it reports
+                throw new IllegalStateException("The program finished within " + STEPS + " steps, " +
+                        "the input of the benchmark is too small for it");
+            }
+        }
+        return state;
+    }
+}
@@ -0,0 +1,38 @@
+package benchmarks;
+
+import engine.core.Engine;
+import engine.generated_2.SProgram;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the engine of a program from its already read XML, like an upload does after parsing: creating the
+ * {@code InstructionSequence} of the program and of its functions, and expanding them to the max expand level.
+ * the programs it calls functions of are built once, outside of the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpansionBenchmark {
+    @Param({"SANITY_BASIC", "MINUS", "COMPOSITION", "SELF_COMPOSITION", "DIVIDE", "REMAINDER"})
+    private BenchmarkPrograms program;
+
+    private SProgram sProgram;
+    private Map<String, Engine> dependencies;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        sProgram = program.read();
+        dependencies = program.buildDependencies();
+    }
+
+    @Benchmark
+    public Engine buildAndExpandToMax() throws Exception {
+        return BenchmarkPrograms.build(sProgram, dependencies);
+    }
+}
@@ -0,0 +1,47 @@
+package benchmarks;
+
+import com.google.gson.Gson;
+import dto.engine.ProgramDTO;
+import engine.core.Engine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the {@link ProgramDTO} of a program at an expand level, alone and serialized by Gson, like the server
+ * answers a client showing the instructions of a program.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProgramDTOBenchmark {
+    private static final Gson gson = new Gson();
+
+    @Param({"MINUS", "DIVIDE", "REMAINDER"})
+    private BenchmarkPrograms program;
+
+    @Param({"false", "true"})
+    private boolean expanded;
+
+    private Engine engine;
+    private int expandLevel;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        engine = program.build();
+        expandLevel = expanded ? engine.getMaxExpandLevel() : 0;
+    }
+
+    @Benchmark
+    public ProgramDTO programDTO() {
+        return engine.getProgramByExpandLevelDTO(expandLevel);
+    }
+
+    @Benchmark
+    public String programDTOToJson() {
+        return gson.toJson(engine.getProgramByExpandLevelDTO(expandLevel));
+    }
+}
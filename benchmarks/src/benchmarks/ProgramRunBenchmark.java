@@ -0,0 +1,43 @@
+package benchmarks;
+
+import dto.engine.FullExecutionResultDTO;
+import engine.core.Engine;
+import engine.utils.ArchitectureType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the basic arithmetic programs fully expanded, so every executed instruction is a basic one, over increasing
+ * inputs. the run goes through {@code ProgramRunner.run()} like a validated run of the server does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProgramRunBenchmark {
+    @Param({"SANITY_BASIC", "MINUS"})
+    private BenchmarkPrograms program;
+
+    @Param({"10", "100", "1000"})
+    private int input;
+
+    private Engine engine;
+    private int expandLevel;
+    private Map<String, Integer> arguments;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        engine = program.build();
+        expandLevel = engine.getMaxExpandLevel();
+        arguments = BenchmarkPrograms.arguments(engine, input);
+    }
+
+    @Benchmark
+    public FullExecutionResultDTO run() {
+        return engine.runValidated(expandLevel, arguments, Integer.MAX_VALUE, ArchitectureType.ARCHITECTURE_IV, null);
+    }
+}
@@ -0,0 +1,46 @@
+package benchmarks;
+
+import dto.engine.FullExecutionResultDTO;
+import engine.core.Engine;
+import engine.utils.ArchitectureType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the sample programs that call functions. unexpanded, every {@code Quote} runs its function in an inner run,
+ * and expanded, the functions are inlined as basic instructions, so the two show what the inner runs cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuoteBenchmark {
+    @Param({"COMPOSITION", "SELF_COMPOSITION", "DIVIDE", "REMAINDER"})
+    private BenchmarkPrograms program;
+
+    @Param({"2", "8", "32"})
+    private int input;
+
+    @Param({"false", "true"})
+    private boolean expanded;
+
+    private Engine engine;
+    private int expandLevel;
+    private Map<String, Integer> arguments;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        engine = program.build();
+        expandLevel = expanded ? engine.getMaxExpandLevel() : 0;
+        arguments = BenchmarkPrograms.arguments(engine, input);
+    }
+
+    @Benchmark
+    public FullExecutionResultDTO run() {
+        return engine.runValidated(expandLevel, arguments, Integer.MAX_VALUE, ArchitectureType.ARCHITECTURE_IV, null);
+    }
+}
@@ -0,0 +1,26 @@
+package benchmarks.generator;
+
+/**
+ * The shape of the calls between the functions of a generated program.
+ * <p>
+ * A function only calls functions with a larger index than its own, and the main program calls the first ones.
+ * expanding a program inlines its functions, so a function calling itself would never finish expanding, and the
+ * shapes keep the calls acyclic instead.
+ * </p>
+ */
+public enum CallShape {
+    /**
+     * Every function calls the next one, a single chain as long as the number of functions.
+     */
+    CHAIN,
+    /**
+     * Every function calls its own children, fan-out of them, like a balanced tree: every function is called from
+     * a single place, and the depth grows with the log of the number of functions.
+     */
+    TREE,
+    /**
+     * Every function may call any of the functions after it, so the same functions are called from many places and
+     * the expansion grows exponentially with the number of functions.
+     */
+    SHARED
+}
@@ -0,0 +1,98 @@
+package benchmarks.generator;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The size parameters of a generated program, see {@link ProgramGenerator}.
+ *
+ * @param instructionCount         the instructions of the main program
+ * @param functionCount            the functions of the program
+ * @param functionInstructionCount the instructions of every function
+ * @param compositionDepth         the nesting of the calls in the arguments of a QUOTE, 1 for arguments that are
+ *                                 only variables, 2 for arguments that are calls of variables, etc.
+ * @param fanOut                   the number of arguments of every function and of every call, and the number of
+ *                                 children of a function in a {@link CallShape#TREE}
+ * @param constantMagnitude        the largest constant of a CONSTANT_ASSIGNMENT or a JUMP_EQUAL_CONSTANT, and of
+ *                                 the iterations of a loop
+ * @param labelDensity             the share of the instructions that have a label, between 0 and 1
+ * @param callShape                the shape of the calls between the functions
+ * @param seed                     the seed of the random choices, the same settings generate the same program
+ */
+public record GeneratorSettings(int instructionCount,
+                                int functionCount,
+                                int functionInstructionCount,
+                                int compositionDepth,
+                                int fanOut,
+                                int constantMagnitude,
+                                double labelDensity,
+                                @NotNull CallShape callShape,
+                                long seed) {
+
+    public GeneratorSettings {
+        if (instructionCount < 1 || functionInstructionCount < 1) {
+            throw new IllegalArgumentException("A program and a function must have at least one instruction");
+        }
+        if (functionCount < 0 || compositionDepth < 1 || fanOut < 1 || constantMagnitude < 0) {
+            throw new IllegalArgumentException("Invalid generator settings: functionCount=" + functionCount +
+                    ", compositionDepth=" + compositionDepth + ", fanOut=" + fanOut +
+                    ", constantMagnitude=" + constantMagnitude);
+        }
+        if (labelDensity < 0 || labelDensity > 1) {
+            throw new IllegalArgumentException("The label density must be between 0 and 1, got " + labelDensity);
+        }
+    }
+
+    /**
+     * @return settings of a small program, close to the size of the sample programs
+     */
+    public static @NotNull GeneratorSettings defaults() {
+        return new GeneratorSettings(50, 4, 10, 1, 2, 10, 0.2, CallShape.CHAIN, 1);
+    }
+
+    // region withers
+    public @NotNull GeneratorSettings withInstructionCount(int instructionCount) {
+        return new GeneratorSettings(instructionCount, functionCount, functionInstructionCount, compositionDepth,
+                fanOut, constantMagnitude, labelDensity, callShape, seed);
+    }
+
+    public @NotNull GeneratorSettings withFunctionCount(int functionCount) {
+        return new GeneratorSettings(instructionCount, functionCount, functionInstructionCount, compositionDepth,
+                fanOut, constantMagnitude, labelDensity, callShape, seed);
+    }
+
+    public @NotNull GeneratorSettings withFunctionInstructionCount(int functionInstructionCount) {
+        return new GeneratorSettings(instructionCount, functionCount, functionInstructionCount, compositionDepth,
+                fanOut, constantMagnitude, labelDensity, callShape, seed);
+    }
+
+    public @NotNull GeneratorSettings withCompositionDepth(int compositionDepth) {
+        return new GeneratorSettings(instructionCount, functionCount, functionInstructionCount, compositionDepth,
+                fanOut, constantMagnitude, labelDensity, callShape, seed);
+    }
+
+    public @NotNull GeneratorSettings withFanOut(int fanOut) {
+        return new GeneratorSettings(instructionCount, functionCount, functionInstructionCount, compositionDepth,
+                fanOut, constantMagnitude, labelDensity, callShape, seed);
+    }
+
+    public @NotNull GeneratorSettings withConstantMagnitude(int constantMagnitude) {
+        return new GeneratorSettings(instructionCount, functionCount, functionInstructionCount, compositionDepth,
+                fanOut, constantMagnitude, labelDensity, callShape, seed);
+    }
+
+    public @NotNull GeneratorSettings withLabelDensity(double labelDensity) {
+        return new GeneratorSettings(instructionCount, functionCount, functionInstructionCount, compositionDepth,
+                fanOut, constantMagnitude, labelDensity, callShape, seed);
+    }
+
+    public @NotNull GeneratorSettings withCallShape(@NotNull CallShape callShape) {
+        return new GeneratorSettings(instructionCount, functionCount, functionInstructionCount, compositionDepth,
+                fanOut, constantMagnitude, labelDensity, callShape, seed);
+    }
+
+    public @NotNull GeneratorSettings withSeed(long seed) {
+        return new GeneratorSettings(instructionCount, functionCount, functionInstructionCount, compositionDepth,
+                fanOut, constantMagnitude, labelDensity, callShape, seed);
+    }
+    // endregion
+}
@@ -0,0 +1,492 @@
+package benchmarks.generator;
+
+import engine.generated_2.*;
+import engine.utils.ProgramUtils;
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.StringJoiner;
+
+/**
+ * Generates valid S-Emulator v2 programs of any size, to test and benchmark the engine on programs far larger than
+ * the sample ones: deep compositions, large constants, thousands of labels and long function chains.
+ * <p>
+ * Every generated program finishes on any input: a jump only goes forward, to a later label or to EXIT, except for
+ * the loops, which count down a counter of their own from a constant, and the calls between the functions are
+ * acyclic, see {@link CallShape}. every function first reads all its arguments, and calls each of the functions it
+ * must call, so the whole call shape is executed by every run. the other instructions are random, of all the
+ * instruction types, except for JUMP_EQUAL_FUNCTION which only the main program has, and the same settings always
+ * generate the same program.
+ * </p>
+ * The program is returned as the JAXB objects the server gets from parsing an uploaded file, and can be written to
+ * an XML file to upload, see {@link #toXml(SProgram)}.
+ */
+public class ProgramGenerator {
+    // region instruction weights, out of 100
+    private static final int BASIC_WEIGHT = 30;
+    private static final int ZERO_WEIGHT = 5;
+    private static final int ASSIGNMENT_WEIGHT = 10;
+    private static final int CONSTANT_ASSIGNMENT_WEIGHT = 10;
+    private static final int JUMP_WEIGHT = 20;
+    private static final int QUOTE_WEIGHT = 12;
+    private static final int JUMP_EQUAL_FUNCTION_WEIGHT = 5;
+    // the rest are loops
+    // endregion
+    private static final String JAXB_GENERATED_PACKAGE_LOC = "engine.generated_2";
+    private static final String BASIC_TYPE = "basic";
+    private static final String SYNTHETIC_TYPE = "synthetic";
+    private static final String OUTPUT_NAME = "y";
+    private static final String EXIT_LABEL_NAME = "EXIT";
+    private static final int WORK_VARIABLES = 8;
+    private static final int LOOP_SIZE = 4;
+    private static final int EXIT_JUMP_PERCENT = 10;
+    // the basic instructions of an expanded ASSIGNMENT and JUMP_EQUAL_VARIABLE
+    private static final int EXPANDED_ASSIGNMENT = 13;
+    private static final int EXPANDED_JUMP_EQUAL_VARIABLE = 43;
+
+    private final @NotNull GeneratorSettings settings;
+    private final @NotNull Random random;
+
+    public ProgramGenerator(@NotNull GeneratorSettings settings) {
+        this.settings = settings;
+        this.random = new Random(settings.seed());
+    }
+
+    /**
+     * Generates a program by the settings. its functions are named after it, so programs of different names can be
+     * uploaded to the same server.
+     *
+     * @param programName the name of the program
+     * @return the program
+     */
+    public static @NotNull SProgram generate(@NotNull String programName, @NotNull GeneratorSettings settings) {
+        return new ProgramGenerator(settings).generate(programName);
+    }
+
+    public @NotNull SProgram generate(@NotNull String programName) {
+        int functionCount = settings.functionCount();
+        List<String> functionNames = new ArrayList<>(functionCount);
+        for (int i = 1; i <= functionCount; i++) {
+            functionNames.add(programName + "_F" + i);
+        }
+
+        SProgram sProgram = new SProgram();
+        sProgram.setName(programName);
+        sProgram.setSInstructions(new SequenceBuilder(settings.instructionCount(),
+                getCallees(-1, functionNames), true).build());
+        if (functionCount > 0) {
+            SFunctions sFunctions = new SFunctions();
+            for (int i = 0; i < functionCount; i++) {
+                SFunction sFunction = new SFunction();
+                sFunction.setName(functionNames.get(i));
+                sFunction.setUserString("F" + (i + 1));
+                sFunction.setSInstructions(new SequenceBuilder(settings.functionInstructionCount(),
+                        getCallees(i, functionNames), false).build());
+                sFunctions.getSFunction().add(sFunction);
+            }
+            sProgram.setSFunctions(sFunctions);
+        }
+        return sProgram;
+    }
+
+    /**
+     * @param functionIndex the index of the calling function, -1 for the main program
+     * @return the functions the caller may call, by the call shape
+     */
+    private @NotNull List<String> getCallees(int functionIndex, @NotNull List<String> functionNames) {
+        int functionCount = functionNames.size();
+        if (functionCount == 0) {
+            return List.of();
+        }
+        return switch (settings.callShape()) {
+            case CHAIN -> functionIndex + 1 < functionCount ? List.of(functionNames.get(functionIndex + 1)) :
+                    List.of();
+            case TREE -> {
+                // the main program is the parent of the first function only, so the tree has a single root
+                if (functionIndex < 0) {
+                    yield List.of(functionNames.getFirst());
+                }
+                int firstChild = Math.min(functionCount, functionIndex * settings.fanOut() + 1);
+                int lastChild = Math.min(functionCount, firstChild + settings.fanOut());
+                yield functionNames.subList(firstChild, lastChild);
+            }
+            case SHARED -> functionNames.subList(functionIndex + 1, functionCount);
+        };
+    }
+
+    // region expanded size
+
+    /**
+     * Estimates the instructions of a program expanded to its max level, from the basic instructions each
+     * synthetic instruction expands to and the inlined functions, without expanding it. expanding a program is
+     * exponential in the nesting of its calls, so the estimate lets a caller skip the programs too large to build.
+     * <p>
+     * The estimate is of the order of the real size, not exact, e.g. it assumes every JUMP_EQUAL_CONSTANT
+     * compares to its constant in full.
+     * </p>
+     *
+     * @param sProgram a program, generated or not, whose functions are all its own
+     * @return the estimated number of instructions, infinite if the program calls itself
+     */
+    public static double estimateExpandedInstructions(@NotNull SProgram sProgram) {
+        Map<String, SInstructions> functions = new HashMap<>();
+        if (sProgram.getSFunctions() != null) {
+            for (SFunction sFunction : sProgram.getSFunctions().getSFunction()) {
+                functions.put(sFunction.getName(), sFunction.getSInstructions());
+            }
+        }
+        return estimateExpandedInstructions(sProgram.getSInstructions(), functions, new HashMap<>());
+    }
+
+    private static double estimateExpandedInstructions(@NotNull SInstructions sInstructions,
+                                                       @NotNull Map<String, SInstructions> functions,
+                                                       @NotNull Map<String, Double> functionSizes) {
+        double size = 0;
+        for (SInstruction sInstruction : sInstructions.getSInstruction()) {
+            Map<String, String> arguments = new HashMap<>();
+            if (sInstruction.getSInstructionArguments() != null) {
+                for (SInstructionArgument sArgument :
+                        sInstruction.getSInstructionArguments().getSInstructionArgument()) {
+                    arguments.put(sArgument.getName().trim(), sArgument.getValue().trim());
+                }
+            }
+            size += switch (sInstruction.getName().trim()) {
+                case "ZERO_VARIABLE", "GOTO_LABEL" -> 2;
+                case "JUMP_ZERO" -> 4;
+                case "ASSIGNMENT" -> EXPANDED_ASSIGNMENT;
+                case "CONSTANT_ASSIGNMENT" -> 2 + parseConstant(arguments.get("constantValue"));
+                case "JUMP_EQUAL_CONSTANT" ->
+                        EXPANDED_ASSIGNMENT + 5 * (1 + parseConstant(arguments.get("constantValue")));
+                case "JUMP_EQUAL_VARIABLE" -> EXPANDED_JUMP_EQUAL_VARIABLE;
+                case "QUOTE" -> estimateExpandedCall(arguments.get("functionName"),
+                        arguments.get("functionArguments"), functions, functionSizes);
+                case "JUMP_EQUAL_FUNCTION" -> EXPANDED_JUMP_EQUAL_VARIABLE + estimateExpandedCall(
+                        arguments.get("functionName"), arguments.get("functionArguments"), functions, functionSizes);
+                default -> 1;
+            };
+        }
+        return size;
+    }
+
+    /**
+     * @return the estimated instructions of a call: the assignments of its arguments, the calls in its arguments,
+     * the inlined function and the assignment of its result
+     */
+    private static double estimateExpandedCall(@Nullable String functionName, @Nullable String functionArguments,
+                                               @NotNull Map<String, SInstructions> functions,
+                                               @NotNull Map<String, Double> functionSizes) {
+        double size = 1 + EXPANDED_ASSIGNMENT + estimateFunctionSize(functionName, functions, functionSizes);
+        if (functionArguments == null || functionArguments.isBlank()) {
+            return size;
+        }
+        for (String argument : ProgramUtils.splitArgs(functionArguments)) {
+            if (ProgramUtils.isFunctionCall(argument)) {
+                List<String> call = ProgramUtils.splitArgs(ProgramUtils.extractFunctionContent(argument));
+                String arguments = String.join(",", call.subList(1, call.size()));
+                size += estimateExpandedCall(call.getFirst(), arguments, functions, functionSizes);
+            } else {
+                size += EXPANDED_ASSIGNMENT;
+            }
+        }
+        return size;
+    }
+
+    private static double estimateFunctionSize(@Nullable String functionName,
+                                               @NotNull Map<String, SInstructions> functions,
+                                               @NotNull Map<String, Double> functionSizes) {
+        SInstructions sInstructions = functions.get(functionName);
+        if (sInstructions == null) {
+            // a function of another program, its size is unknown
+            return 0;
+        }
+        Double size = functionSizes.get(functionName);
+        if (size == null) {
+            // a call back to a function being estimated never finishes expanding
+            functionSizes.put(functionName, Double.POSITIVE_INFINITY);
+            size = estimateExpandedInstructions(sInstructions, functions, functionSizes);
+            functionSizes.put(functionName, size);
+        }
+        return size;
+    }
+
+    private static int parseConstant(@Nullable String constant) {
+        try {
+            return constant == null ? 0 : Integer.parseInt(constant);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    // endregion
+
+    // region XML
+
+    /**
+     * Writes a program as an XML document, like a file the client uploads.
+     *
+     * @return the UTF-8 bytes of the XML document
+     */
+    public static byte @NotNull [] toXml(@NotNull SProgram sProgram) throws JAXBException {
+        Marshaller marshaller = JAXBContextHolder.INSTANCE.createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+        ByteArrayOutputStream xmlBytes = new ByteArrayOutputStream(16 * 1024);
+        marshaller.marshal(sProgram, xmlBytes);
+        return xmlBytes.toByteArray();
+    }
+
+    /**
+     * Writes a program to an XML file.
+     *
+     * @param file the file to write, replaced if it exists
+     */
+    public static void write(@NotNull SProgram sProgram, @NotNull Path file) throws JAXBException, IOException {
+        Files.write(file, toXml(sProgram));
+    }
+
+    private static class JAXBContextHolder {
+        private static final JAXBContext INSTANCE;
+
+        static {
+            try {
+                INSTANCE = JAXBContext.newInstance(JAXB_GENERATED_PACKAGE_LOC);
+            } catch (JAXBException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+    }
+    // endregion
+
+    /**
+     * Builds the instructions of the main program or of a function.
+     * <p>
+     * The instructions are built in order, and the targets of the jumps are chosen once all the labels are known,
+     * among the labels after the jump. the labels are not used inside a loop, other than at its head, so a jump
+     * never enters a loop past the reset of its counter.
+     * </p>
+     */
+    private class SequenceBuilder {
+        private final int instructionCount;
+        private final @NotNull List<String> callees;
+        private final boolean useJumpEqualFunction;
+        private final @NotNull List<SInstruction> instructions = new ArrayList<>();
+        private final @NotNull List<@Nullable String> labels = new ArrayList<>();
+        private final @NotNull List<SInstructionArgument> jumpTargets = new ArrayList<>();
+        private final @NotNull List<Integer> jumpIndexes = new ArrayList<>();
+        private int nextLabel = 1;
+        private int nextLoopCounter = WORK_VARIABLES + 1;
+
+        /**
+         * @param useJumpEqualFunction whether to use JUMP_EQUAL_FUNCTION, the engine fails to expand a call of a
+         *                             function that has one (a {@code ClassCastException} when inlining it), so
+         *                             only the main program has them
+         */
+        private SequenceBuilder(int instructionCount, @NotNull List<String> callees, boolean useJumpEqualFunction) {
+            this.instructionCount = instructionCount;
+            this.callees = callees;
+            this.useJumpEqualFunction = useJumpEqualFunction;
+        }
+
+        private @NotNull SInstructions build() {
+            // every argument is read, so the function has all of them
+            for (int i = 1; i <= settings.fanOut(); i++) {
+                add(SYNTHETIC_TYPE, "ASSIGNMENT", randomWorkVariable(), false, "assignedVariable", "x" + i);
+            }
+            // every callee is called, so the whole call shape is executed
+            for (String callee : callees) {
+                add(SYNTHETIC_TYPE, "QUOTE", randomWorkVariable(), false,
+                        "functionName", callee, "functionArguments", randomArguments(settings.compositionDepth()));
+            }
+            while (instructions.size() < instructionCount) {
+                addRandomInstruction();
+            }
+            resolveJumpTargets();
+
+            SInstructions sInstructions = new SInstructions();
+            sInstructions.getSInstruction().addAll(instructions);
+            return sInstructions;
+        }
+
+        private void addRandomInstruction() {
+            int kind = random.nextInt(100);
+            if (kind < BASIC_WEIGHT) {
+                String[] basicNames = {"INCREASE", "DECREASE", "NEUTRAL"};
+                add(BASIC_TYPE, basicNames[random.nextInt(basicNames.length)], randomWrittenVariable(), true);
+            } else if ((kind -= BASIC_WEIGHT) < ZERO_WEIGHT) {
+                add(SYNTHETIC_TYPE, "ZERO_VARIABLE", randomWrittenVariable(), true);
+            } else if ((kind -= ZERO_WEIGHT) < ASSIGNMENT_WEIGHT) {
+                add(SYNTHETIC_TYPE, "ASSIGNMENT", randomWrittenVariable(), true,
+                        "assignedVariable", randomReadVariable());
+            } else if ((kind -= ASSIGNMENT_WEIGHT) < CONSTANT_ASSIGNMENT_WEIGHT) {
+                add(SYNTHETIC_TYPE, "CONSTANT_ASSIGNMENT", randomWrittenVariable(), true,
+                        "constantValue", String.valueOf(randomConstant()));
+            } else if ((kind -= CONSTANT_ASSIGNMENT_WEIGHT) < JUMP_WEIGHT) {
+                addRandomJump();
+            } else if ((kind -= JUMP_WEIGHT) < QUOTE_WEIGHT && !callees.isEmpty()) {
+                add(SYNTHETIC_TYPE, "QUOTE", randomWrittenVariable(), true,
+                        "functionName", randomCallee(), "functionArguments",
+                        randomArguments(settings.compositionDepth()));
+            } else if ((kind -= QUOTE_WEIGHT) < JUMP_EQUAL_FUNCTION_WEIGHT && !callees.isEmpty() &&
+                    useJumpEqualFunction) {
+                addJump(SYNTHETIC_TYPE, "JUMP_EQUAL_FUNCTION", randomReadVariable(), "JEFunctionLabel",
+                        "functionName", randomCallee(), "functionArguments",
+                        randomArguments(settings.compositionDepth()));
+            } else if (instructions.size() + LOOP_SIZE <= instructionCount) {
+                addLoop();
+            } else {
+                add(BASIC_TYPE, "INCREASE", OUTPUT_NAME, true);
+            }
+        }
+
+        private void addRandomJump() {
+            switch (random.nextInt(5)) {
+                case 0 -> addJump(BASIC_TYPE, "JUMP_NOT_ZERO", randomReadVariable(), "JNZLabel");
+                case 1 -> addJump(SYNTHETIC_TYPE, "JUMP_ZERO", randomReadVariable(), "JZLabel");
+                case 2 -> addJump(SYNTHETIC_TYPE, "GOTO_LABEL", randomWorkVariable(), "gotoLabel");
+                case 3 -> addJump(SYNTHETIC_TYPE, "JUMP_EQUAL_CONSTANT", randomReadVariable(), "JEConstantLabel",
+                        "constantValue", String.valueOf(randomConstant()));
+                default -> addJump(SYNTHETIC_TYPE, "JUMP_EQUAL_VARIABLE", randomReadVariable(), "JEVariableLabel",
+                        "variableName", randomReadVariable());
+            }
+        }
+
+        /**
+         * Adds a loop counting down from a random constant, with a counter no other instruction uses.
+         */
+        private void addLoop() {
+            String counter = "z" + nextLoopCounter++;
+            add(SYNTHETIC_TYPE, "CONSTANT_ASSIGNMENT", counter, true,
+                    "constantValue", String.valueOf(randomConstant()));
+            String head = "L" + nextLabel++;
+            int headIndex = add(BASIC_TYPE, "DECREASE", counter, false);
+            setLabel(headIndex, head);
+            add(BASIC_TYPE, "INCREASE", OUTPUT_NAME, false);
+            add(BASIC_TYPE, "JUMP_NOT_ZERO", counter, false, "JNZLabel", head);
+        }
+
+        /**
+         * Adds a jump whose target is chosen later, see {@link #resolveJumpTargets()}.
+         */
+        private void addJump(@NotNull String type, @NotNull String name, @NotNull String variable,
+                             @NotNull String targetArgumentName, @NotNull String... otherArguments) {
+            String[] arguments = new String[otherArguments.length + 2];
+            arguments[0] = targetArgumentName;
+            arguments[1] = EXIT_LABEL_NAME;
+            System.arraycopy(otherArguments, 0, arguments, 2, otherArguments.length);
+            int index = add(type, name, variable, true, arguments);
+            jumpTargets.add(instructions.get(index).getSInstructionArguments().getSInstructionArgument().getFirst());
+            jumpIndexes.add(index);
+        }
+
+        /**
+         * Points every jump to a random label after it, or to EXIT.
+         */
+        private void resolveJumpTargets() {
+            List<List<String>> labelsAfter = new ArrayList<>(instructions.size());
+            List<String> later = new ArrayList<>();
+            for (int i = instructions.size() - 1; i >= 0; i--) {
+                labelsAfter.add(List.copyOf(later));
+                if (labels.get(i) != null) {
+                    later.add(labels.get(i));
+                }
+            }
+            for (int i = 0; i < jumpIndexes.size(); i++) {
+                List<String> targets = labelsAfter.get(instructions.size() - 1 - jumpIndexes.get(i));
+                if (!targets.isEmpty() && random.nextInt(100) >= EXIT_JUMP_PERCENT) {
+                    jumpTargets.get(i).setValue(targets.get(random.nextInt(targets.size())));
+                }
+            }
+        }
+
+        /**
+         * Adds an instruction, with a label by the label density if it may be a jump target.
+         *
+         * @param arguments the names and values of the arguments, alternately
+         * @return the index of the instruction
+         */
+        private int add(@NotNull String type, @NotNull String name, @NotNull String variable, boolean mayBeLabeled,
+                        @NotNull String... arguments) {
+            SInstruction sInstruction = new SInstruction();
+            sInstruction.setType(type);
+            sInstruction.setName(name);
+            sInstruction.setSVariable(variable);
+            if (arguments.length > 0) {
+                SInstructionArguments sArguments = new SInstructionArguments();
+                for (int i = 0; i < arguments.length; i += 2) {
+                    SInstructionArgument sArgument = new SInstructionArgument();
+                    sArgument.setName(arguments[i]);
+                    sArgument.setValue(arguments[i + 1]);
+                    sArguments.getSInstructionArgument().add(sArgument);
+                }
+                sInstruction.setSInstructionArguments(sArguments);
+            }
+            instructions.add(sInstruction);
+            labels.add(null);
+            int index = instructions.size() - 1;
+            if (mayBeLabeled && random.nextDouble() < settings.labelDensity()) {
+                setLabel(index, "L" + nextLabel++);
+            }
+            return index;
+        }
+
+        private void setLabel(int index, @NotNull String label) {
+            instructions.get(index).setSLabel(label);
+            labels.set(index, label);
+        }
+
+        // region random parts
+
+        /**
+         * @param depth the nesting of the calls, 1 for variables only
+         * @return the arguments of a call, fan-out of them, e.g. {@code x1,(F2,z3,y)}
+         */
+        private @NotNull String randomArguments(int depth) {
+            StringJoiner arguments = new StringJoiner(",");
+            for (int i = 0; i < settings.fanOut(); i++) {
+                if (depth > 1 && !callees.isEmpty()) {
+                    arguments.add("(" + randomCallee() + "," + randomArguments(depth - 1) + ")");
+                } else {
+                    arguments.add(randomReadVariable());
+                }
+            }
+            return arguments.toString();
+        }
+
+        private @NotNull String randomCallee() {
+            return callees.get(random.nextInt(callees.size()));
+        }
+
+        private @NotNull String randomReadVariable() {
+            int variable = random.nextInt(settings.fanOut() + WORK_VARIABLES + 1);
+            if (variable < settings.fanOut()) {
+                return "x" + (variable + 1);
+            }
+            variable -= settings.fanOut();
+            return variable < WORK_VARIABLES ? "z" + (variable + 1) : OUTPUT_NAME;
+        }
+
+        private @NotNull String randomWrittenVariable() {
+            int variable = random.nextInt(WORK_VARIABLES + 1);
+            return variable < WORK_VARIABLES ? "z" + (variable + 1) : OUTPUT_NAME;
+        }
+
+        private @NotNull String randomWorkVariable() {
+            return "z" + (random.nextInt(WORK_VARIABLES) + 1);
+        }
+
+        private int randomConstant() {
+            return random.nextInt(settings.constantMagnitude() + 1);
+        }
+        // endregion
+    }
+}
@@ -0,0 +1,447 @@
+package benchmarks.generator;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import dto.engine.ProgramDTO;
+import engine.core.Engine;
+import engine.core.ExecutionMonitor;
+import engine.core.PreparedRun;
+import engine.exception.ExecutionCancelled;
+import engine.generated_2.SFunction;
+import engine.generated_2.SInstruction;
+import engine.generated_2.SInstructions;
+import engine.generated_2.SProgram;
+import engine.utils.ArchitectureType;
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Measures how the engine scales with the size of a program: grows each size parameter of the
+ * {@link ProgramGenerator} in turn, from the {@link GeneratorSettings#defaults()}, and for every generated program
+ * reports the upload time, the memory of the program and of each expand level, and the run throughput.
+ * <p>
+ * The upload is parsing the XML and building the engine, like the server does. the memory of the program is the heap
+ * it keeps once built, measured between full collections, so it is approximate. for each expand level the report
+ * gives the instructions and the bytes allocated to answer a client showing it, the {@link ProgramDTO} and its JSON.
+ * the runs are repeated for a while at expand level 0 and at the max level.
+ * </p>
+ * Expanding is exponential in the nesting of the calls, and building is superlinear in the expanded size, so a
+ * program whose estimated expanded size is over a limit is reported as skipped instead of built, see
+ * {@link ProgramGenerator#estimateExpandedInstructions(SProgram)}.
+ */
+public class ScalingReport {
+    public static final String USAGE = """
+            Usage: benchmarks.generator.ScalingReport [options]
+              --parameter <name>         a parameter to grow, repeatable (default all): %s
+              --max-expanded <n>         skip programs estimated larger when expanded (default 50000)
+              --run-millis <millis>      time the runs of each level are repeated (default 500)
+              --run-time-limit <millis>  time a single run may take (default 5000)
+              --input <n>                value of every argument of a run (default 3)
+              --seed <n>                 seed of the generated programs (default 1)
+              --report <file>            write the JSON report to a file
+            """;
+    private static final String JAXB_GENERATED_PACKAGE_LOC = "engine.generated_2";
+    private static final int UPLOAD_REPETITIONS = 3;
+    private static final long UPLOAD_REPETITIONS_MILLIS = 2000;
+    private static final Gson gson = new Gson();
+
+    // region series
+    private static final Map<String, Series> SERIES = new LinkedHashMap<>();
+
+    static {
+        addSeries("instructions", settings -> settings::withInstructionCount, 25, 50, 100, 200, 400);
+        addSeries("functions", settings -> settings::withFunctionCount, 0, 2, 4, 8, 16);
+        addSeries("compositionDepth", settings -> settings::withCompositionDepth, 1, 2, 3);
+        addSeries("fanOut", settings -> settings::withFanOut, 1, 2, 3, 4);
+        addSeries("constants", settings -> settings::withConstantMagnitude, 10, 100, 1000, 10000);
+        SERIES.put("labelDensity", new Series("labelDensity", List.of("0", "0.25", "0.5", "1"),
+                (settings, value) -> settings.withLabelDensity(Double.parseDouble(value))));
+        SERIES.put("callShape", new Series("callShape",
+                Arrays.stream(CallShape.values()).map(CallShape::name).toList(),
+                (settings, value) -> settings.withCallShape(CallShape.valueOf(value))));
+    }
+
+    private static void addSeries(@NotNull String name,
+                                  @NotNull Function<GeneratorSettings, Function<Integer, GeneratorSettings>> wither,
+                                  int @NotNull ... values) {
+        SERIES.put(name, new Series(name, Arrays.stream(values).mapToObj(String::valueOf).toList(),
+                (settings, value) -> wither.apply(settings).apply(Integer.parseInt(value))));
+    }
+
+    private record Series(@NotNull String parameter, @NotNull List<String> values,
+                          @NotNull SettingsWither wither) {
+    }
+
+    private interface SettingsWither {
+        @NotNull GeneratorSettings with(@NotNull GeneratorSettings settings, @NotNull String value);
+    }
+    // endregion
+
+    private final @NotNull List<String> parameters;
+    private final int maxExpandedInstructions;
+    private final long runMillis;
+    private final long runTimeLimitMillis;
+    private final int input;
+    private final long seed;
+    private final @NotNull JAXBContext jaxbContext;
+
+    public ScalingReport(@NotNull List<String> parameters, int maxExpandedInstructions, long runMillis,
+                         long runTimeLimitMillis, int input, long seed) throws JAXBException {
+        this.parameters = parameters;
+        this.maxExpandedInstructions = maxExpandedInstructions;
+        this.runMillis = runMillis;
+        this.runTimeLimitMillis = runTimeLimitMillis;
+        this.input = input;
+        this.seed = seed;
+        this.jaxbContext = JAXBContext.newInstance(JAXB_GENERATED_PACKAGE_LOC);
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> parameters = new ArrayList<>();
+        int maxExpandedInstructions = 50_000;
+        long runMillis = 500;
+        long runTimeLimitMillis = 5000;
+        int input = 3;
+        long seed = 1;
+        Path reportFile = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value of option " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--parameter" -> {
+                        if (!SERIES.containsKey(value)) {
+                            throw new IllegalArgumentException("Unknown parameter " + value);
+                        }
+                        parameters.add(value);
+                    }
+                    case "--max-expanded" -> maxExpandedInstructions = Integer.parseInt(value);
+                    case "--run-millis" -> runMillis = Long.parseLong(value);
+                    case "--run-time-limit" -> runTimeLimitMillis = Long.parseLong(value);
+                    case "--input" -> input = Integer.parseInt(value);
+                    case "--seed" -> seed = Long.parseLong(value);
+                    case "--report" -> reportFile = Path.of(value);
+                    default -> throw new IllegalArgumentException("Unknown option " + option);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.printf(USAGE, String.join(", ", SERIES.keySet()));
+            System.exit(2);
+            return;
+        }
+        if (parameters.isEmpty()) {
+            parameters.addAll(SERIES.keySet());
+        }
+
+        ScalingReport scalingReport = new ScalingReport(parameters, maxExpandedInstructions, runMillis,
+                runTimeLimitMillis, input, seed);
+        // the first program would otherwise also measure loading the classes and compiling the engine
+        scalingReport.measurePoint("warmup", GeneratorSettings.defaults().withSeed(seed));
+        List<SeriesResult> results = new ArrayList<>();
+        for (String parameter : parameters) {
+            SeriesResult result = scalingReport.measureSeries(SERIES.get(parameter));
+            System.out.print(result.toText());
+            results.add(result);
+        }
+        if (reportFile != null) {
+            Files.writeString(reportFile, new GsonBuilder().setPrettyPrinting().create().toJson(results));
+            System.out.println("Report written to " + reportFile);
+        }
+    }
+
+    // region measurements
+    private @NotNull SeriesResult measureSeries(@NotNull Series series) {
+        List<PointResult> points = new ArrayList<>();
+        for (String value : series.values()) {
+            GeneratorSettings settings = series.wither().with(GeneratorSettings.defaults().withSeed(seed), value);
+            points.add(measurePoint(value, settings));
+        }
+        return new SeriesResult(series.parameter(), GeneratorSettings.defaults().withSeed(seed), points);
+    }
+
+    private @NotNull PointResult measurePoint(@NotNull String value, @NotNull GeneratorSettings settings) {
+        String programName = "Scaling";
+        SProgram generated = ProgramGenerator.generate(programName, settings);
+        double estimatedExpanded = ProgramGenerator.estimateExpandedInstructions(generated);
+        int[] instructionsAndLabels = countInstructionsAndLabels(generated);
+        PointResult.Builder point = new PointResult.Builder(value, instructionsAndLabels[0], instructionsAndLabels[1],
+                (long) Math.min(Long.MAX_VALUE, estimatedExpanded));
+        if (estimatedExpanded > maxExpandedInstructions) {
+            return point.skipped("estimated " + (long) estimatedExpanded + " expanded instructions, over " +
+                    maxExpandedInstructions);
+        }
+        try {
+            byte[] xml = ProgramGenerator.toXml(generated);
+            point.xmlBytes(xml.length);
+
+            // region upload
+            long heapBefore = usedHeapAfterGc();
+            Engine engine = null;
+            long minUploadNanos = Long.MAX_VALUE;
+            long uploadsStartNanos = System.nanoTime();
+            for (int i = 0; i < UPLOAD_REPETITIONS && (i == 0 || System.nanoTime() - uploadsStartNanos <
+                    TimeUnit.MILLISECONDS.toNanos(UPLOAD_REPETITIONS_MILLIS)); i++) {
+                engine = null;
+                long startNanos = System.nanoTime();
+                SProgram sProgram = (SProgram) jaxbContext.createUnmarshaller()
+                        .unmarshal(new ByteArrayInputStream(xml));
+                engine = Engine.createMainProgramEngine(sProgram, new HashMap<>(), programName);
+                minUploadNanos = Math.min(minUploadNanos, System.nanoTime() - startNanos);
+            }
+            long retainedHeap = usedHeapAfterGc() - heapBefore;
+            point.upload(minUploadNanos / 1e6, Math.max(0, retainedHeap));
+            // endregion
+
+            for (int level = 0; level <= engine.getMaxExpandLevel(); level++) {
+                long allocatedBefore = currentThreadAllocatedBytes();
+                ProgramDTO program = engine.getProgramByExpandLevelDTO(level);
+                String json = gson.toJson(program);
+                long allocated = currentThreadAllocatedBytes() - allocatedBefore;
+                point.level(new LevelResult(level, program.instructions().size(), json.length(),
+                        allocatedBefore < 0 ? -1 : allocated));
+            }
+            point.runs(measureRuns(engine, 0), measureRuns(engine, engine.getMaxExpandLevel()));
+        } catch (Exception | StackOverflowError | OutOfMemoryError e) {
+            return point.failed(e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+        return point.build();
+    }
+
+    /**
+     * Runs the program at an expand level again and again for the run time.
+     */
+    private @NotNull RunResult measureRuns(@NotNull Engine engine, int expandLevel) {
+        Map<String, Integer> arguments = new LinkedHashMap<>();
+        for (String argumentName : engine.getSortedProgramArgsNames()) {
+            arguments.put(argumentName, input);
+        }
+        long runs = 0;
+        long executedInstructions = 0;
+        long cycles = 0;
+        long startNanos = System.nanoTime();
+        long endNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(runMillis);
+        do {
+            PreparedRun run = engine.prepareValidatedRun(expandLevel, arguments, Integer.MAX_VALUE,
+                    ArchitectureType.ARCHITECTURE_IV, new ExecutionMonitor(runTimeLimitMillis));
+            try {
+                run.runToCompletion();
+            } catch (ExecutionCancelled e) {
+                return RunResult.timedOut(expandLevel, runTimeLimitMillis);
+            }
+            runs++;
+            executedInstructions += run.getExecutedInstructionsCount();
+            cycles += run.getCyclesExecuted();
+        } while (System.nanoTime() < endNanos);
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return new RunResult(expandLevel, runs, runs / seconds, executedInstructions / seconds,
+                executedInstructions / runs, cycles / runs, null);
+    }
+
+    private static int @NotNull [] countInstructionsAndLabels(@NotNull SProgram sProgram) {
+        List<SInstructions> sequences = new ArrayList<>();
+        sequences.add(sProgram.getSInstructions());
+        if (sProgram.getSFunctions() != null) {
+            sProgram.getSFunctions().getSFunction().stream().map(SFunction::getSInstructions).forEach(sequences::add);
+        }
+        int instructions = 0;
+        int labels = 0;
+        for (SInstructions sequence : sequences) {
+            for (SInstruction sInstruction : sequence.getSInstruction()) {
+                instructions++;
+                if (sInstruction.getSLabel() != null) {
+                    labels++;
+                }
+            }
+        }
+        return new int[]{instructions, labels};
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 2; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * @return the bytes the current thread allocated so far, -1 if the JVM does not count them
+     */
+    private static long currentThreadAllocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadMXBean &&
+                threadMXBean.isThreadAllocatedMemoryEnabled()) {
+            return threadMXBean.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+    // endregion
+
+    // region results
+
+    /**
+     * @param parameter the parameter grown in the series
+     * @param defaults  the settings of the other parameters
+     * @param points    the results of every value of the parameter
+     */
+    public record SeriesResult(@NotNull String parameter, @NotNull GeneratorSettings defaults,
+                               @NotNull List<PointResult> points) {
+
+        public @NotNull String toText() {
+            StringBuilder text = new StringBuilder();
+            text.append(String.format("%n%s (others as %s)%n", parameter, defaults));
+            text.append(String.format("%-10s %8s %7s %8s %10s %9s %10s %9s %11s %11s %11s %11s%n",
+                    parameter, "instrs", "labels", "xml KB", "expanded", "max level", "upload ms", "heap MB",
+                    "L0 runs/s", "L0 Kinstr/s", "max runs/s", "max Kinstr/s"));
+            for (PointResult point : points) {
+                text.append(String.format("%-10s %8d %7d %8s %10d ", point.value(), point.instructions(),
+                        point.labels(), point.xmlBytes() < 0 ? "-" : String.format("%.1f", point.xmlBytes() / 1024.0),
+                        point.estimatedExpandedInstructions()));
+                if (point.error() != null) {
+                    text.append(point.error()).append(System.lineSeparator());
+                    continue;
+                }
+                text.append(String.format("%9d %10.1f %9.2f %11s %11s %11s %11s%n", point.levels().size() - 1,
+                        point.uploadMillis(), point.retainedHeapBytes() / (1024.0 * 1024),
+                        formatRuns(point.levelZeroRuns()), formatInstructions(point.levelZeroRuns()),
+                        formatRuns(point.maxLevelRuns()), formatInstructions(point.maxLevelRuns())));
+                StringJoiner levels = new StringJoiner("  ", "           levels (instructions / KB allocated): ",
+                        System.lineSeparator());
+                for (LevelResult level : point.levels()) {
+                    levels.add(level.level() + ": " + level.instructions() + " / " +
+                            (level.allocatedBytes() < 0 ? "-" : String.format("%.0f", level.allocatedBytes() / 1024.0)));
+                }
+                text.append(levels);
+            }
+            return text.toString();
+        }
+
+        private static @NotNull String formatRuns(@Nullable RunResult run) {
+            if (run == null) {
+                return "-";
+            }
+            return run.error() != null ? "timeout" : String.format("%.1f", run.runsPerSecond());
+        }
+
+        private static @NotNull String formatInstructions(@Nullable RunResult run) {
+            if (run == null || run.error() != null) {
+                return "-";
+            }
+            return String.format("%.1f", run.instructionsPerSecond() / 1e3);
+        }
+    }
+
+    /**
+     * The measurements of a generated program.
+     *
+     * @param value                         the value of the grown parameter
+     * @param instructions                  the instructions of the program and its functions, as written
+     * @param labels                        the labels of the program and its functions, as written
+     * @param estimatedExpandedInstructions the estimated instructions at the max expand level
+     * @param xmlBytes                      the size of the XML file, -1 if skipped
+     * @param uploadMillis                  the fastest time to parse and build the program
+     * @param retainedHeapBytes             the heap the built program keeps, approximate
+     * @param levels                        the instructions and memory of each expand level
+     * @param levelZeroRuns                 the runs at expand level 0
+     * @param maxLevelRuns                  the runs at the max expand level
+     * @param error                         why the program was not measured, null if it was
+     */
+    public record PointResult(@NotNull String value, int instructions, int labels,
+                              long estimatedExpandedInstructions, int xmlBytes, double uploadMillis,
+                              long retainedHeapBytes, @NotNull List<LevelResult> levels,
+                              @Nullable RunResult levelZeroRuns, @Nullable RunResult maxLevelRuns,
+                              @Nullable String error) {
+
+        private static class Builder {
+            private final @NotNull String value;
+            private final int instructions;
+            private final int labels;
+            private final long estimatedExpandedInstructions;
+            private int xmlBytes = -1;
+            private double uploadMillis = -1;
+            private long retainedHeapBytes = -1;
+            private final @NotNull List<LevelResult> levels = new ArrayList<>();
+            private @Nullable RunResult levelZeroRuns;
+            private @Nullable RunResult maxLevelRuns;
+
+            private Builder(@NotNull String value, int instructions, int labels, long estimatedExpandedInstructions) {
+                this.value = value;
+                this.instructions = instructions;
+                this.labels = labels;
+                this.estimatedExpandedInstructions = estimatedExpandedInstructions;
+            }
+
+            private void xmlBytes(int xmlBytes) {
+                this.xmlBytes = xmlBytes;
+            }
+
+            private void upload(double uploadMillis, long retainedHeapBytes) {
+                this.uploadMillis = uploadMillis;
+                this.retainedHeapBytes = retainedHeapBytes;
+            }
+
+            private void level(@NotNull LevelResult level) {
+                levels.add(level);
+            }
+
+            private void runs(@NotNull RunResult levelZeroRuns, @NotNull RunResult maxLevelRuns) {
+                this.levelZeroRuns = levelZeroRuns;
+                this.maxLevelRuns = maxLevelRuns;
+            }
+
+            private @NotNull PointResult skipped(@NotNull String reason) {
+                return failed("skipped, " + reason);
+            }
+
+            private @NotNull PointResult failed(@NotNull String error) {
+                return new PointResult(value, instructions, labels, estimatedExpandedInstructions, xmlBytes, -1, -1,
+                        List.of(), null, null, error);
+            }
+
+            private @NotNull PointResult build() {
+                return new PointResult(value, instructions, labels, estimatedExpandedInstructions, xmlBytes,
+                        uploadMillis, retainedHeapBytes, List.copyOf(levels), levelZeroRuns, maxLevelRuns, null);
+            }
+        }
+    }
+
+    /**
+     * @param level          the expand level
+     * @param instructions   the instructions at the level
+     * @param jsonChars      the size of the JSON of the level sent to a client
+     * @param allocatedBytes the bytes allocated to create the level's DTO and JSON, -1 if not counted
+     */
+    public record LevelResult(int level, int instructions, int jsonChars, long allocatedBytes) {
+    }
+
+    /**
+     * @param expandLevel           the expand level of the runs
+     * @param runs                  the number of runs
+     * @param runsPerSecond         the runs per second
+     * @param instructionsPerSecond the executed instructions per second
+     * @param instructionsPerRun    the executed instructions of a run
+     * @param cyclesPerRun          the cycles of a run
+     * @param error                 why the runs stopped, null if they were all measured
+     */
+    public record RunResult(int expandLevel, long runs, double runsPerSecond, double instructionsPerSecond,
+                            long instructionsPerRun, long cyclesPerRun, @Nullable String error) {
+
+        private static @NotNull RunResult timedOut(int expandLevel, long timeLimitMillis) {
+            return new RunResult(expandLevel, 0, 0, 0, 0, 0, "a run took over " + timeLimitMillis + " ms");
+        }
+    }
+    // endregion
+}
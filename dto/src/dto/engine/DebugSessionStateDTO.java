@@ -0,0 +1,44 @@
+package dto.engine;
+
+import engine.utils.ArchitectureType;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A Data Transfer Object (DTO) holding the complete state of a debug session, so the session can be saved and
+ * continued later, by the same server or by another one that has the same program.
+ *
+ * @param innerProgramName          The name of the program or function being debugged.
+ * @param displayName               The display name of the program or function being debugged.
+ * @param isMainProgram             Whether a main program is debugged, and not a function.
+ * @param expandLevel               The expand level of the debugged instructions.
+ * @param architectureType          The architecture the session was started on.
+ * @param instructionsFingerprint   A hash of the debugged instructions, so the session is not continued on another
+ *                                  version of the program.
+ * @param initialCredits            The credits of the user when the session started, after the architecture cost.
+ * @param runningCredits            The credits left to the session.
+ * @param cyclesCount               The cycles the session executed, stepping back included.
+ * @param executedInstructionsCount The instructions the session executed.
+ * @param arguments                 The arguments the session was started with.
+ * @param contextMap                The current values of the variables and the pc.
+ * @param stateHistory              The values of the variables and the pc before every step, and the current ones
+ *                                  last, used to step back.
+ * @param cyclesHistory             The cycles of every step, used to charge stepping back.
+ */
+public record DebugSessionStateDTO(@NotNull String innerProgramName,
+                                   @NotNull String displayName,
+                                   boolean isMainProgram,
+                                   int expandLevel,
+                                   @NotNull ArchitectureType architectureType,
+                                   int instructionsFingerprint,
+                                   int initialCredits,
+                                   int runningCredits,
+                                   int cyclesCount,
+                                   long executedInstructionsCount,
+                                   @NotNull Map<String, Integer> arguments,
+                                   @NotNull Map<String, Integer> contextMap,
+                                   @NotNull List<Map<String, Integer>> stateHistory,
+                                   @NotNull List<Integer> cyclesHistory) {
+}
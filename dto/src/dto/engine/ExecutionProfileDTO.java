@@ -0,0 +1,57 @@
+package dto.engine;
+
+/**
+ * Data Transfer Object representing where a profiled run spent its cycles.
+ * <p>
+ * The per-instruction arrays are indexed by the PC of the instruction at the expand level of the run,
+ * the per-original-instruction arrays by the index of the instruction of the program it was expanded from.
+ * </p>
+ *
+ * @param expandLevel                     the expand level of the run
+ * @param totalCycles                     the cycles of the whole run
+ * @param executionsByInstruction         the number of times each instruction was executed
+ * @param cyclesByInstruction             the cycles each instruction used
+ * @param executionsByOriginalInstruction the number of times the instructions expanded from each original
+ *                                        instruction were executed
+ * @param cyclesByOriginalInstruction     the cycles the instructions expanded from each original instruction used
+ */
+public record ExecutionProfileDTO(int expandLevel,
+                                  long totalCycles,
+                                  long[] executionsByInstruction,
+                                  long[] cyclesByInstruction,
+                                  long[] executionsByOriginalInstruction,
+                                  long[] cyclesByOriginalInstruction) {
+
+    /**
+     * @param instructionIndex the PC of an instruction at the expand level of the run
+     * @return the part of the run's cycles the instruction used, between 0 and 1
+     */
+    public double cyclesShareOf(int instructionIndex) {
+        if (totalCycles == 0 || instructionIndex < 0 || instructionIndex >= cyclesByInstruction.length) {
+            return 0;
+        }
+        return (double) cyclesByInstruction[instructionIndex] / totalCycles;
+    }
+
+    /**
+     * @param instructionIndex the PC of an instruction at the expand level of the run
+     * @return the number of times the instruction was executed
+     */
+    public long executionsOf(int instructionIndex) {
+        if (instructionIndex < 0 || instructionIndex >= executionsByInstruction.length) {
+            return 0;
+        }
+        return executionsByInstruction[instructionIndex];
+    }
+
+    /**
+     * @return the largest part of the run's cycles a single instruction used, between 0 and 1
+     */
+    public double maxCyclesShare() {
+        long maxCycles = 0;
+        for (long cycles : cyclesByInstruction) {
+            maxCycles = Math.max(maxCycles, cycles);
+        }
+        return totalCycles == 0 ? 0 : (double) maxCycles / totalCycles;
+    }
+}
@@ -0,0 +1,17 @@
+package dto.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * Data Transfer Object representing the run statistics of a program or function.
+ *
+ * @param total                       the statistics of all the runs since the server started
+ * @param byArchitectureAndExpandLevel the statistics of the runs of each architecture and expand level,
+ *                                     keyed by {@code "<architecture>/<expand level>"}, e.g. {@code "III/2"}
+ */
+public record ExecutionStatisticsDTO(@NotNull RunStatisticsDTO total,
+                                     @NotNull Map<String, RunStatisticsDTO> byArchitectureAndExpandLevel) {
+    public static final ExecutionStatisticsDTO EMPTY = new ExecutionStatisticsDTO(RunStatisticsDTO.EMPTY, Map.of());
+}
@@ -3,6 +3,7 @@ package dto.engine;
 import engine.utils.ArchitectureType;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -21,6 +22,7 @@ import static engine.utils.ProgramUtils.OUTPUT_NAME;
  * @param expandLevel      The level of expansion used during execution.
  * @param cycleCount       The number of cycles taken during execution.
  * @param creditsCost      The cost in credits for executing the program.
+ * @param profile          Where the execution spent its cycles, or null if it was not profiled.
  */
 public record FullExecutionResultDTO(boolean isMainProgram,
                                      String innerName,
@@ -31,13 +33,15 @@ public record FullExecutionResultDTO(boolean isMainProgram,
                                      int output,
                                      int expandLevel,
                                      int cycleCount,
-                                     int creditsCost) {
+                                     int creditsCost,
+                                     @Nullable ExecutionProfileDTO profile) {
 
-    @Contract("_, _, _, _ , _, _ -> new")
+    @Contract("_, _, _, _ , _, _, _ -> new")
     private static @NotNull FullExecutionResultDTO from(@NotNull ExecutionResultValuesDTO valuesDTO, int expandLevel,
                                                         boolean isMainProgram,
                                                         String innerName, String displayName,
-                                                        ArchitectureType architectureType) {
+                                                        ArchitectureType architectureType,
+                                                        @Nullable ExecutionProfileDTO profile) {
         return new FullExecutionResultDTO(
                 isMainProgram,
                 innerName,
@@ -48,7 +52,8 @@ public record FullExecutionResultDTO(boolean isMainProgram,
                 valuesDTO.output(),
                 expandLevel,
                 valuesDTO.cycleCount(),
-                valuesDTO.creditsCost()
+                valuesDTO.creditsCost(),
+                profile
         );
     }
 
@@ -77,6 +82,7 @@ public record FullExecutionResultDTO(boolean isMainProgram,
         private String innerName;
         private String displayName;
         private ArchitectureType architectureType;
+        private ExecutionProfileDTO profile;
 
         public Builder valuesDTO(ExecutionResultValuesDTO valuesDTO) {
             this.valuesDTO = valuesDTO;
@@ -108,9 +114,14 @@ public record FullExecutionResultDTO(boolean isMainProgram,
             return this;
         }
 
+        public Builder profile(ExecutionProfileDTO profile) {
+            this.profile = profile;
+            return this;
+        }
+
         public FullExecutionResultDTO build() {
             return FullExecutionResultDTO.from(valuesDTO, expandLevel, isMainProgram, innerName, displayName,
-                    architectureType);
+                    architectureType, profile);
         }
     }
 }
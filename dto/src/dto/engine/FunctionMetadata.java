@@ -14,6 +14,8 @@ import java.util.Set;
  * @param functionsToRun    A set of sub-function names that this function calls.
  * @param numOfInstructions The number of instructions in the function.
  * @param maxExpandLevel    The maximum level of expansion for the function.
+ * @param executionStatistics The distributions of the runs of the function since the server started,
+ *                            with their p50/p95/p99.
  */
 public record FunctionMetadata(@NotNull String name,
                                @NotNull String displayName,
@@ -21,5 +23,6 @@ public record FunctionMetadata(@NotNull String name,
                                @NotNull String uploadedBy,
                                @NotNull Set<String> functionsToRun,
                                int numOfInstructions,
-                               int maxExpandLevel) {
+                               int maxExpandLevel,
+                               @NotNull ExecutionStatisticsDTO executionStatistics) {
 }
@@ -0,0 +1,20 @@
+package dto.engine;
+
+/**
+ * Data Transfer Object representing the distribution of a measure of the runs of a program.
+ *
+ * @param count the number of recorded values
+ * @param mean  the mean of the values
+ * @param p50   the median value
+ * @param p95   the 95th percentile
+ * @param p99   the 99th percentile
+ * @param max   the largest value
+ */
+public record PercentilesDTO(long count,
+                             double mean,
+                             long p50,
+                             long p95,
+                             long p99,
+                             long max) {
+    public static final PercentilesDTO EMPTY = new PercentilesDTO(0, 0, 0, 0, 0, 0);
+}
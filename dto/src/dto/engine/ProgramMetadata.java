@@ -14,6 +14,8 @@ import java.util.Set;
  * @param maxExpandLevel     The maximum expansion level of the program.
  * @param numberOfExecutions The total number of times the program has been executed.
  * @param averageCreditsCost The average credits cost for executing the program.
+ * @param executionStatistics The distributions of the runs of the program since the server started,
+ *                            with their p50/p95/p99.
  */
 public record ProgramMetadata(@NotNull String name,
                               @NotNull String uploadedBy,
@@ -21,5 +23,6 @@ public record ProgramMetadata(@NotNull String name,
                               int numOfInstructions,
                               int maxExpandLevel,
                               int numberOfExecutions,
-                              float averageCreditsCost) {
+                              float averageCreditsCost,
+                              @NotNull ExecutionStatisticsDTO executionStatistics) {
 }
@@ -0,0 +1,28 @@
+package dto.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object representing a page of the instructions of a program at an expand level.
+ *
+ * @param programName              the name of the program
+ * @param expandLevel              the expand level of the instructions
+ * @param totalInstructions        the number of instructions at the expand level
+ * @param matchingInstructions     the number of instructions matching the filter of the page, equal to
+ *                                 {@code totalInstructions} when the page is not filtered
+ * @param originalInstructionIndex the index of the original instruction the instructions were expanded from,
+ *                                 or -1 if the page is not filtered
+ * @param offset                   the position of the first instruction of the page among the matching ones
+ * @param instructions             the instructions of the page, with their index at the expand level
+ * @see InstructionDTO
+ */
+public record ProgramPageDTO(@NotNull String programName,
+                             int expandLevel,
+                             int totalInstructions,
+                             int matchingInstructions,
+                             int originalInstructionIndex,
+                             int offset,
+                             @NotNull List<InstructionDTO> instructions) {
+}
@@ -0,0 +1,22 @@
+package dto.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Data Transfer Object representing the statistics of the runs of a program or function.
+ *
+ * @param executions            the number of runs
+ * @param creditsCost           the credits cost of the runs
+ * @param cycles                the cycles of the runs
+ * @param wallTimeMicros        the time the runs spent executing, in microseconds. runs of debug sessions are not
+ *                              included, their time is mostly spent waiting for the user
+ * @param instructionsPerSecond the rate the runs executed instructions at
+ */
+public record RunStatisticsDTO(long executions,
+                               @NotNull PercentilesDTO creditsCost,
+                               @NotNull PercentilesDTO cycles,
+                               @NotNull PercentilesDTO wallTimeMicros,
+                               @NotNull PercentilesDTO instructionsPerSecond) {
+    public static final RunStatisticsDTO EMPTY = new RunStatisticsDTO(0, PercentilesDTO.EMPTY, PercentilesDTO.EMPTY,
+            PercentilesDTO.EMPTY, PercentilesDTO.EMPTY);
+}
@@ -0,0 +1,23 @@
+package dto.server;
+
+/**
+ * Data Transfer Object (DTO) representing a program run currently executing on the server.
+ *
+ * @param runId            The id of the run, used to kill it.
+ * @param username         The name of the user running the program.
+ * @param programName      The name of the program or function being run.
+ * @param architectureType The symbol of the architecture the program runs on.
+ * @param runningMillis    The wall-clock time since the run started.
+ * @param cyclesExecuted   The number of cycles executed so far.
+ * @param creditsConsumed  The number of credits consumed so far.
+ * @param cancelRequested  Whether the run was asked to stop and did not stop yet.
+ */
+public record ActiveRunDTO(String runId,
+                           String username,
+                           String programName,
+                           String architectureType,
+                           long runningMillis,
+                           int cyclesExecuted,
+                           int creditsConsumed,
+                           boolean cancelRequested) {
+}
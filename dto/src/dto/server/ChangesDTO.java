@@ -0,0 +1,17 @@
+package dto.server;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) representing the changes of a collection since a version the client has.
+ *
+ * @param version The current version of the collection, to ask for the next changes since.
+ * @param resync  Whether the changes since the client's version are no longer kept, in which case the entries are
+ *                the whole collection and replace everything the client has.
+ * @param entries The entries added or changed since the client's version, each once in its latest state.
+ * @param <T>     The type of the entries.
+ */
+public record ChangesDTO<T>(long version,
+                            boolean resync,
+                            List<T> entries) {
+}
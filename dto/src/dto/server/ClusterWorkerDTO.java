@@ -0,0 +1,27 @@
+package dto.server;
+
+/**
+ * Data Transfer Object (DTO) representing a worker process of the server's cluster.
+ *
+ * @param workerId                  The id of the worker.
+ * @param alive                     Whether the worker is connected and sending heartbeats.
+ * @param interpreterWorkers        The number of threads of the worker executing run slices.
+ * @param activeRuns                The number of runs executing a slice on the worker.
+ * @param queuedRuns                The number of runs waiting for a slice on the worker.
+ * @param dispatchedRuns            The number of runs dispatched to the worker that did not finish yet.
+ * @param runsCompleted             The total number of runs the worker finished.
+ * @param instructionsExecuted      The total number of instructions the worker executed.
+ * @param heapUsedBytes             The used heap memory of the worker.
+ * @param millisSinceLastHeartbeat  The time since the last heartbeat of the worker.
+ */
+public record ClusterWorkerDTO(String workerId,
+                               boolean alive,
+                               int interpreterWorkers,
+                               int activeRuns,
+                               int queuedRuns,
+                               int dispatchedRuns,
+                               long runsCompleted,
+                               long instructionsExecuted,
+                               long heapUsedBytes,
+                               long millisSinceLastHeartbeat) {
+}
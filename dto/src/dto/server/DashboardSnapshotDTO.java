@@ -0,0 +1,19 @@
+package dto.server;
+
+import dto.engine.FunctionMetadata;
+import dto.engine.ProgramMetadata;
+
+import java.util.Set;
+
+/**
+ * Data Transfer Object (DTO) representing the full state shown by a dashboard,
+ * sent when a client subscribes to the server events and whenever it falls too far behind them.
+ *
+ * @param programs  The metadata of all the programs in the system.
+ * @param functions The metadata of all the functions in the system.
+ * @param users     All the users in the system, in registration order.
+ */
+public record DashboardSnapshotDTO(Set<ProgramMetadata> programs,
+                                   Set<FunctionMetadata> functions,
+                                   Set<UserDTO> users) {
+}
@@ -0,0 +1,21 @@
+package dto.server;
+
+/**
+ * Data Transfer Object (DTO) representing an active debug session on the server.
+ *
+ * @param username         The name of the user debugging.
+ * @param programName      The name of the program or function being debugged.
+ * @param architectureType The symbol of the architecture the session runs on.
+ * @param expandLevel      The expand level of the debugged instructions.
+ * @param pc               The index of the next instruction to execute.
+ * @param cyclesExecuted   The number of cycles executed so far, stepping back included.
+ * @param creditsConsumed  The number of credits consumed so far.
+ */
+public record DebugSessionDTO(String username,
+                              String programName,
+                              String architectureType,
+                              int expandLevel,
+                              int pc,
+                              int cyclesExecuted,
+                              int creditsConsumed) {
+}
@@ -0,0 +1,15 @@
+package dto.server;
+
+import dto.engine.ExecutionResultStatisticsDTO;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) representing runs added to a user's execution history.
+ *
+ * @param username         The name of the user who ran the programs.
+ * @param executionResults The statistics of the new runs, in run number order.
+ */
+public record HistoryAppendedDTO(String username,
+                                 List<ExecutionResultStatisticsDTO> executionResults) {
+}
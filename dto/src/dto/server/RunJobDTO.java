@@ -0,0 +1,24 @@
+package dto.server;
+
+import dto.engine.FullExecutionResultDTO;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Data Transfer Object (DTO) representing a program run submitted as a job.
+ *
+ * @param jobId           The id of the job, used to poll, stream or cancel it.
+ * @param programName     The name of the program or function being run.
+ * @param status          The current status of the job.
+ * @param cyclesExecuted  The number of cycles executed so far.
+ * @param creditsConsumed The number of credits consumed so far.
+ * @param message         A message describing why the job failed or was cancelled, empty otherwise.
+ * @param result          The execution result, only available once the job is {@link RunJobStatus#DONE}.
+ */
+public record RunJobDTO(String jobId,
+                        String programName,
+                        RunJobStatus status,
+                        int cyclesExecuted,
+                        int creditsConsumed,
+                        String message,
+                        @Nullable FullExecutionResultDTO result) {
+}
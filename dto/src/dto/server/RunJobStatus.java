@@ -0,0 +1,16 @@
+package dto.server;
+
+/**
+ * The lifecycle states of a run job.
+ */
+public enum RunJobStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED,
+    CANCELLED;
+
+    public boolean isFinished() {
+        return this == DONE || this == FAILED || this == CANCELLED;
+    }
+}
@@ -0,0 +1,29 @@
+package dto.server;
+
+/**
+ * Data Transfer Object (DTO) representing the state of one of the server's run schedulers.
+ *
+ * @param workers                The number of threads executing run slices.
+ * @param workerPriority         The priority of the threads executing run slices.
+ * @param queueCapacity          The number of runs that may wait for a slice.
+ * @param sliceCycleBudget       The number of cycles a run executes before yielding to other runs.
+ * @param activeFlows            The number of users with runs waiting or in progress.
+ * @param waitingRuns            The number of runs waiting for a slice (the queue depth).
+ * @param runningSlices          The number of slices executing right now.
+ * @param slicesExecuted         The total number of slices executed.
+ * @param averageSliceWaitMillis The average time a run waited for its next slice.
+ * @param maxSliceWaitMillis     The longest time a run waited for its next slice.
+ * @param averageStartWaitMillis The average time a run waited for its first slice.
+ */
+public record SchedulerStatisticsDTO(int workers,
+                                     int workerPriority,
+                                     int queueCapacity,
+                                     long sliceCycleBudget,
+                                     int activeFlows,
+                                     int waitingRuns,
+                                     int runningSlices,
+                                     long slicesExecuted,
+                                     double averageSliceWaitMillis,
+                                     double maxSliceWaitMillis,
+                                     double averageStartWaitMillis) {
+}
@@ -26,12 +26,15 @@ import java.util.List;
  *                                  can be null if not needed.
  * @param fullExecutionResultDTO    A FullExecutionResultDTO object representing the full execution result.
  * @param creditsLeft               An integer representing the number of credits left for the user
+ * @param runJobDTO                 An optional RunJobDTO object representing a submitted run job.
+ *                                  can be null if not needed.
  */
 public record SystemResponse(boolean isSuccess, @NotNull String message, @Nullable ProgramDTO programDTO,
                              @Nullable DebugStateChangeResultDTO debugStateChangeResultDTO,
                              @Nullable List<ExecutionResultStatisticsDTO> userStatisticsDTOList,
                              @Nullable FullExecutionResultDTO fullExecutionResultDTO,
-                             Integer creditsLeft) {
+                             Integer creditsLeft,
+                             @Nullable RunJobDTO runJobDTO) {
 
     /**
      * Returns the ProgramDTO object associated with the response.
@@ -87,6 +90,19 @@ public record SystemResponse(boolean isSuccess, @NotNull String message, @Nullab
         return fullExecutionResultDTO;
     }
 
+    /**
+     * Returns the RunJobDTO object associated with the response.
+     *
+     * @return the RunJobDTO object
+     * @throws IllegalStateException if the RunJobDTO is not available in this response
+     */
+    public @NotNull RunJobDTO getSafeRunJobDTO() {
+        if (runJobDTO == null) {
+            throw new IllegalStateException("RunJobDTO is not available in this response.");
+        }
+        return runJobDTO;
+    }
+
     public boolean isCreditsIncluded() {
         return creditsLeft != null;
     }
@@ -109,6 +125,7 @@ public record SystemResponse(boolean isSuccess, @NotNull String message, @Nullab
         private @Nullable List<ExecutionResultStatisticsDTO> userStatisticsDTOList;
         private @Nullable FullExecutionResultDTO fullExecutionResultDTO;
         private @Nullable Integer creditsLeft;
+        private @Nullable RunJobDTO runJobDTO;
 
         /**
          * Sets the {@link SystemResponse#isSuccess} for the SystemResponse.
@@ -192,6 +209,19 @@ public record SystemResponse(boolean isSuccess, @NotNull String message, @Nullab
             return this;
         }
 
+        /**
+         * Sets the {@link SystemResponse#runJobDTO} for the SystemResponse
+         *
+         * @param runJobDTO the RunJobDTO to set
+         * @return the Builder instance
+         * @see RunJobDTO
+         * @see SystemResponse
+         */
+        public Builder runJobDTO(@NotNull RunJobDTO runJobDTO) {
+            this.runJobDTO = runJobDTO;
+            return this;
+        }
+
         /**
          * Builds and returns the SystemResponse object.
          *
@@ -202,7 +232,7 @@ public record SystemResponse(boolean isSuccess, @NotNull String message, @Nullab
                 throw new IllegalStateException("isSuccess must be set");
             }
             return new SystemResponse(isSuccess, message, programDTO, debugStateChangeResultDTO,
-                    userStatisticsDTOList, fullExecutionResultDTO, creditsLeft);
+                    userStatisticsDTOList, fullExecutionResultDTO, creditsLeft, runJobDTO);
         }
     }
 }
@@ -2,19 +2,24 @@ package engine.core;
 
 import dto.engine.*;
 import engine.core.info.InnerRunResult;
+import engine.core.stats.ExecutionStatistics;
 import engine.exception.*;
 import engine.generated_2.SFunction;
 import engine.generated_2.SProgram;
+import engine.metrics.EngineMetrics;
 import engine.utils.ArchitectureType;
+import engine.utils.CompiledProgramCodec;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
-import java.util.stream.IntStream;
 
 /**
  * The Engine class represents a program engine that can execute SPrograms and SFunctions.
@@ -31,9 +36,9 @@ public class Engine {
     private final @NotNull InstructionSequence instructionSequence;
     private final @NotNull FunctionManager functionManager;
     private @Nullable SFunction originalSFunction;
+    private @Nullable SProgram originalSProgram;
     private @Nullable String funcName;
-    private float averageCreditsCost = 0;
-    private int numberOfExecutions = 0;
+    private final @NotNull ExecutionStatistics executionStatistics = new ExecutionStatistics();
 
     private Engine(@NotNull SProgram program,
                    @NotNull Map<String, Engine> allFunctionAndProgramsInSystem,
@@ -41,6 +46,7 @@ public class Engine {
             throws LabelNotExist, FunctionNotFound, FunctionAlreadyExist {
         this.programName = this.mainProgramName = program.getName();
         this.userUploadedBy = uploadedBy;
+        this.originalSProgram = program;
         // only for main program
         functionManager = FunctionManager.createForProgram(program, allFunctionAndProgramsInSystem,
                 this, mainProgramName);
@@ -130,13 +136,139 @@ public class Engine {
                                                    int userCredits,
                                                    @NotNull ArchitectureType architectureType)
             throws ExpandLevelOutOfBounds, IllegalArchitectureType, InsufficientCredits {
+        return mainRun(expandLevel, arguments, userCredits, architectureType, null);
+    }
+
+    /**
+     * Runs the program like {@link #mainRun(int, Map, int, ArchitectureType)}, while reporting its progress to
+     * the given monitor, which can also be used to cancel the run.
+     *
+     * @param monitor the monitor of the run, or null if the run is not observed
+     * @throws ExecutionCancelled if the run was cancelled through the monitor
+     */
+    public @NotNull FullExecutionResultDTO mainRun(int expandLevel, @NotNull Map<String, Integer> arguments,
+                                                   int userCredits,
+                                                   @NotNull ArchitectureType architectureType,
+                                                   @Nullable ExecutionMonitor monitor)
+            throws ExpandLevelOutOfBounds, IllegalArchitectureType, InsufficientCredits, ExecutionCancelled {
+        return prepareRun(expandLevel, arguments, userCredits, architectureType, monitor).runToCompletion();
+    }
+
+    /**
+     * Validates a run like {@link #mainRun(int, Map, int, ArchitectureType)} does, and prepares it without running
+     * it, so the caller can execute it in slices.
+     *
+     * @param monitor the monitor of the run, or null if the run is not observed
+     * @return the prepared run
+     */
+    public @NotNull PreparedRun prepareRun(int expandLevel, @NotNull Map<String, Integer> arguments,
+                                           int userCredits,
+                                           @NotNull ArchitectureType architectureType,
+                                           @Nullable ExecutionMonitor monitor)
+            throws ExpandLevelOutOfBounds, IllegalArchitectureType, InsufficientCredits {
+        return prepareRun(expandLevel, arguments, userCredits, architectureType, monitor, false);
+    }
+
+    /**
+     * Prepares a run like {@link #prepareRun(int, Map, int, ArchitectureType, ExecutionMonitor)},
+     * optionally profiling it.
+     *
+     * @param profile whether to count the executions and cycles of each instruction,
+     *                the profile is then returned in {@link FullExecutionResultDTO#profile()}
+     * @return the prepared run
+     */
+    public @NotNull PreparedRun prepareRun(int expandLevel, @NotNull Map<String, Integer> arguments,
+                                           int userCredits,
+                                           @NotNull ArchitectureType architectureType,
+                                           @Nullable ExecutionMonitor monitor,
+                                           boolean profile)
+            throws ExpandLevelOutOfBounds, IllegalArchitectureType, InsufficientCredits {
         userCredits -= validateRunPossibilityAndGetCreditCost(expandLevel, userCredits, architectureType, arguments);
+        return prepareValidatedRun(expandLevel, arguments, userCredits, architectureType, monitor, profile);
+    }
+
+    /**
+     * Validates a batch of runs of the program/function once, instead of once per run.
+     * each run of the batch is given the same number of credits.
+     *
+     * @param expandLevel        the level of expansion for the program/function
+     * @param creditsPerRun      the number of credits each run of the batch is given
+     * @param loadedArchitecture the architecture type loaded for execution
+     * @param argumentsList      the arguments of every run in the batch
+     * @return the architecture credit cost of a single run, to subtract from its credits before running it
+     * @throws ExpandLevelOutOfBounds   if the expand level is out of bounds
+     * @throws IllegalArchitectureType  if the architecture type is not sufficient
+     * @throws InsufficientCredits      if the credits of a single run do not cover the architecture cost
+     * @throws IllegalArgumentException if any argument of any run is negative
+     */
+    public int validateBatchRunAndGetCreditCost(int expandLevel, int creditsPerRun,
+                                                @NotNull ArchitectureType loadedArchitecture,
+                                                @NotNull List<Map<String, Integer>> argumentsList)
+            throws ExpandLevelOutOfBounds, IllegalArchitectureType, InsufficientCredits {
+        int requiredCredits = validateRunPossibilityAndGetCreditCost(expandLevel, creditsPerRun, loadedArchitecture,
+                Map.of());
+        for (Map<String, Integer> arguments : argumentsList) {
+            if (arguments.values().stream().anyMatch(value -> (value == null) || (value < 0))) {
+                throw new IllegalArgumentException("All arguments must be non-negative integers.");
+            }
+        }
+        return requiredCredits;
+    }
+
+    /**
+     * Runs the program/function after the run was validated,
+     * see {@link #validateBatchRunAndGetCreditCost(int, int, ArchitectureType, List)}.
+     *
+     * @param expandLevel      the level of expansion for the program/function
+     * @param arguments        a map of argument names to their integer values
+     * @param runCredits       the credits left for the run's instructions, after the architecture cost
+     * @param architectureType the architecture type loaded for execution
+     * @param monitor          the monitor of the run, or null if the run is not observed
+     * @return the full execution result
+     */
+    public @NotNull FullExecutionResultDTO runValidated(int expandLevel, @NotNull Map<String, Integer> arguments,
+                                                        int runCredits,
+                                                        @NotNull ArchitectureType architectureType,
+                                                        @Nullable ExecutionMonitor monitor)
+            throws InsufficientCredits, InstructionExecutionException, ExecutionCancelled {
+        return prepareValidatedRun(expandLevel, arguments, runCredits, architectureType, monitor).runToCompletion();
+    }
+
+    /**
+     * Prepares a run that was already validated, see {@link #runValidated}, without running it.
+     *
+     * @return the prepared run
+     */
+    public @NotNull PreparedRun prepareValidatedRun(int expandLevel, @NotNull Map<String, Integer> arguments,
+                                                    int runCredits,
+                                                    @NotNull ArchitectureType architectureType,
+                                                    @Nullable ExecutionMonitor monitor) {
+        return prepareValidatedRun(expandLevel, arguments, runCredits, architectureType, monitor, false);
+    }
+
+    /**
+     * Prepares a run that was already validated, optionally profiling it.
+     *
+     * @param profile whether to count the executions and cycles of each instruction
+     * @return the prepared run
+     */
+    public @NotNull PreparedRun prepareValidatedRun(int expandLevel, @NotNull Map<String, Integer> arguments,
+                                                    int runCredits,
+                                                    @NotNull ArchitectureType architectureType,
+                                                    @Nullable ExecutionMonitor monitor,
+                                                    boolean profile) {
         ProgramExecutable executable = instructionSequence.getProgramExecutableAtExpandLevel(expandLevel);
-        ProgramRunner runner = ProgramRunner.createMainRunner(executable, arguments, userCredits);
-        ExecutionResultValuesDTO valuesResult = runner.run();
-        averageCreditsCost = calcAverageCredits(valuesResult.creditsCost());
-        numberOfExecutions++;
+        ProgramRunner runner = ProgramRunner.createMainRunner(executable, arguments, runCredits, monitor);
+        if (profile) {
+            runner.enableProfiling();
+        }
+        return new PreparedRun(this, runner, expandLevel, architectureType);
+    }
 
+    @NotNull FullExecutionResultDTO toFullExecutionResult(@NotNull ExecutionResultValuesDTO valuesResult,
+                                                          int expandLevel,
+                                                          @NotNull ArchitectureType architectureType,
+                                                          @Nullable ExecutionProfiler profiler) {
         return FullExecutionResultDTO.builder()
                 .valuesDTO(valuesResult)
                 .expandLevel(expandLevel)
@@ -144,12 +276,38 @@ public class Engine {
                 .innerName(programName)
                 .displayName(getDisplayName())
                 .architectureType(architectureType)
+                .profile(profiler == null ? null : profiler.toDTO(expandLevel,
+                        instructionSequence.getOriginalIndexes(expandLevel),
+                        instructionSequence.getOriginalInstructionCount()))
                 .build();
     }
 
-    public void addExecutionStats(int creditsCost) {
-        averageCreditsCost = calcAverageCredits(creditsCost);
-        numberOfExecutions++;
+    /**
+     * Records a finished execution in the program statistics.
+     * lock-free, runs of the same program may finish concurrently on different threads.
+     *
+     * @param creditsCost          the credits the execution cost
+     * @param cycles               the cycles of the execution
+     * @param architectureType     the architecture the execution used
+     * @param expandLevel          the expand level of the execution
+     * @param executedInstructions the number of instructions the execution executed, negative if unknown
+     * @param executionNanos       the time the execution spent running, negative if unknown
+     */
+    public void addExecutionStats(int creditsCost, int cycles, @NotNull ArchitectureType architectureType,
+                                  int expandLevel, long executedInstructions, long executionNanos) {
+        executionStatistics.recordRun(creditsCost, cycles, architectureType, expandLevel, executedInstructions,
+                executionNanos);
+        EngineMetrics.runs(architectureType).increment();
+    }
+
+    /**
+     * Restores the program statistics saved before the server restarted.
+     *
+     * @param numberOfExecutions the number of executions of the program
+     * @param averageCreditsCost the average credits cost of an execution
+     */
+    public void restoreExecutionStats(int numberOfExecutions, float averageCreditsCost) {
+        executionStatistics.restore(numberOfExecutions, averageCreditsCost);
     }
 
     /**
@@ -206,6 +364,7 @@ public class Engine {
      * @return InnerRunResult containing output and cycle count
      */
     public @NotNull InnerRunResult innerRun(@NotNull Map<String, Integer> arguments) {
+        EngineMetrics.QUOTE_CALLS.increment();
         ProgramRunner innerRunner = ProgramRunner.createInnerRunner(
                 instructionSequence.getBasicProgramExecutable(),
                 arguments);
@@ -213,10 +372,6 @@ public class Engine {
         return new InnerRunResult(valuesResult.output(), valuesResult.cycleCount());
     }
 
-    private float calcAverageCredits(int latestRunCreditsCost) {
-        return (averageCreditsCost * numberOfExecutions + latestRunCreditsCost) / (numberOfExecutions + 1);
-    }
-
     public @NotNull ProgramDebugger startDebugSession(int expandLevel, @NotNull Map<String, Integer> arguments,
                                                       int userCredits, @NotNull ArchitectureType architectureType)
             throws ExpandLevelOutOfBounds, IllegalArchitectureType, InsufficientCredits {
@@ -233,6 +388,31 @@ public class Engine {
         return debugger.start(arguments);
     }
 
+    /**
+     * Continues a debug session of the program/function that was saved by {@link ProgramDebugger#exportState()},
+     * possibly by another server.
+     *
+     * @param state the saved state of the session
+     * @return the debugger of the continued session
+     * @throws ExpandLevelOutOfBounds   if the expand level of the session is out of bounds
+     * @throws IllegalArchitectureType  if the architecture of the session is not sufficient
+     * @throws IllegalArgumentException if the session was started on other instructions than the current ones
+     */
+    public @NotNull ProgramDebugger restoreDebugSession(@NotNull DebugSessionStateDTO state)
+            throws ExpandLevelOutOfBounds, IllegalArchitectureType {
+        getAndValidateArchitecture(state.expandLevel(), state.architectureType());
+
+        ProgramExecutable executable = instructionSequence.getProgramExecutableAtExpandLevel(state.expandLevel());
+
+        ProgramDebugger debugger = ProgramDebugger.builder(executable, state.initialCredits(), state.expandLevel())
+                .isMainProgram(isMainProgram())
+                .innerProgramName(programName)
+                .displayName(getDisplayName())
+                .architectureType(state.architectureType())
+                .build();
+        return debugger.restore(state);
+    }
+
     public @NotNull ProgramDTO getProgramByExpandLevelDTO(int expandLevel) {
         List<Instruction> instructionsAtLevel = instructionSequence.getInstructionsCopy(expandLevel);
         return new ProgramDTO(
@@ -241,9 +421,45 @@ public class Engine {
                 new ArrayList<>(instructionSequence.getAllVariablesAndLabelsNamesSorted(expandLevel)),
                 instructionSequence.getMaxExpandLevel(),
                 instructionSequence.getMinimumArchitectureTypeNeededAtExpandLevel(expandLevel),
-                IntStream.range(0, instructionsAtLevel.size())
-                        .mapToObj(i -> instructionsAtLevel.get(i).toDTO(i))
-                        .toList()
+                new InstructionDTOView(instructionsAtLevel, 0)
+        );
+    }
+
+    /**
+     * Gets a page of the instructions at an expand level, optionally only the ones expanded from an original
+     * instruction, without creating the DTOs of the whole level.
+     *
+     * @param expandLevel              the expand level of the instructions
+     * @param offset                   the position of the first instruction of the page among the matching ones
+     * @param limit                    the maximum number of instructions in the page
+     * @param originalInstructionIndex the index of the original instruction to filter by, or -1 for no filter
+     * @return the page of instructions
+     * @throws IllegalArgumentException if the expand level is out of bounds, or the offset or limit are negative
+     */
+    public @NotNull ProgramPageDTO getProgramPageDTO(int expandLevel, int offset, int limit,
+                                                     int originalInstructionIndex) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must be non-negative");
+        }
+        int totalInstructions = instructionSequence.getInstructionsCount(expandLevel);
+        int rangeStart = 0;
+        int rangeEnd = totalInstructions;
+        if (originalInstructionIndex >= 0) {
+            int[] range = instructionSequence.getRangeOfOriginalInstruction(expandLevel, originalInstructionIndex);
+            rangeStart = range[0];
+            rangeEnd = range[1];
+        }
+        int pageStart = (int) Math.min((long) rangeStart + offset, rangeEnd);
+        int pageEnd = (int) Math.min((long) pageStart + limit, rangeEnd);
+        return new ProgramPageDTO(
+                programName,
+                expandLevel,
+                totalInstructions,
+                rangeEnd - rangeStart,
+                originalInstructionIndex,
+                offset,
+                List.copyOf(new InstructionDTOView(
+                        instructionSequence.getInstructionsRange(expandLevel, pageStart, pageEnd), pageStart))
         );
     }
 
@@ -319,7 +535,8 @@ public class Engine {
             return new ProgramMetadata(programName, userUploadedBy,
                     functionManager.getCalledFunctionsOf(getInternalName()),
                     instructionSequence.getOriginalInstructionCount(), instructionSequence.getMaxExpandLevel(),
-                    numberOfExecutions, averageCreditsCost);
+                    executionStatistics.getExecutions(), executionStatistics.getAverageCreditsCost(),
+                    executionStatistics.toDTO());
         } else {
             throw new IllegalStateException("Cannot get metadata for a function from a program");
         }
@@ -329,12 +546,37 @@ public class Engine {
         if (isFunction()) {
             return new FunctionMetadata(programName, getFuncName(), mainProgramName, userUploadedBy,
                     functionManager.getCalledFunctionsOf(getInternalName()),
-                    instructionSequence.getOriginalInstructionCount(), instructionSequence.getMaxExpandLevel());
+                    instructionSequence.getOriginalInstructionCount(), instructionSequence.getMaxExpandLevel(),
+                    executionStatistics.toDTO());
         } else {
             throw new IllegalStateException("Cannot get metadata for a program from a function");
         }
     }
 
+    /**
+     * @return the program this main program was created from
+     */
+    public @NotNull SProgram getSourceProgram() {
+        if (originalSProgram == null) {
+            throw new IllegalStateException("Not a main program");
+        }
+        return originalSProgram;
+    }
+
+    /**
+     * Exports this main program in its compiled form, see {@link CompiledProgramCodec}.
+     *
+     * @return the compiled program
+     */
+    public byte @NotNull [] exportCompiledProgram() {
+        Map<String, Integer> maxExpandLevels = new LinkedHashMap<>();
+        maxExpandLevels.put(programName, getMaxExpandLevel());
+        for (Engine functionEngine : functionManager.getFunctionsInCurrentProgram()) {
+            maxExpandLevels.put(functionEngine.getInternalName(), functionEngine.getMaxExpandLevel());
+        }
+        return CompiledProgramCodec.encode(getSourceProgram(), maxExpandLevels);
+    }
+
     public @NotNull String getUserUploadedBy() {
         return userUploadedBy;
     }
@@ -342,4 +584,28 @@ public class Engine {
     public int getMaxExpandLevel() {
         return instructionSequence.getMaxExpandLevel();
     }
-}
\ No newline at end of file
+
+    /**
+     * A read-only list creating the DTO of an instruction when it is read, so serializing a huge expand level
+     * does not hold the DTOs of all of its instructions in memory at once.
+     */
+    private static final class InstructionDTOView extends AbstractList<InstructionDTO> implements RandomAccess {
+        private final @NotNull List<Instruction> instructions;
+        private final int firstIndex;
+
+        private InstructionDTOView(@NotNull List<Instruction> instructions, int firstIndex) {
+            this.instructions = instructions;
+            this.firstIndex = firstIndex;
+        }
+
+        @Override
+        public InstructionDTO get(int index) {
+            return instructions.get(index).toDTO(firstIndex + index);
+        }
+
+        @Override
+        public int size() {
+            return instructions.size();
+        }
+    }
+}
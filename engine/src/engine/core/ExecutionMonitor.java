@@ -0,0 +1,107 @@
+package engine.core;
+
+import engine.exception.ExecutionCancelled;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A handle to a running program that lets other threads observe its progress and ask it to stop.
+ * <p>
+ * The runner publishes its progress and checks for a cancel request every {@link #CHECK_INTERVAL}
+ * instructions, so observing a run costs the interpreter loop close to nothing.
+ * the inner runs of the program (functions called by QUOTE / JUMP_EQUAL_FUNCTION) check the monitor of the
+ * main run as well, so a function that never returns can be stopped too.
+ * a monitor may carry a wall-clock time limit, counted from the moment the run starts.
+ * </p>
+ */
+public class ExecutionMonitor {
+    /**
+     * The number of executed instructions between two progress publications / cancel checks.
+     */
+    public static final int CHECK_INTERVAL = 1024;
+
+    private final long timeLimitNanos;
+    private volatile long deadlineNanos = Long.MAX_VALUE;
+    private volatile @Nullable ExecutionCancelled.Reason cancelReason;
+    private volatile int cyclesExecuted = 0;
+    private volatile int creditsConsumed = 0;
+
+    /**
+     * Creates a monitor without a time limit.
+     */
+    public ExecutionMonitor() {
+        this(0);
+    }
+
+    /**
+     * @param timeLimitMillis the wall-clock time the run may take, 0 or less for no limit
+     */
+    public ExecutionMonitor(long timeLimitMillis) {
+        this.timeLimitNanos = timeLimitMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(timeLimitMillis) : 0;
+    }
+
+    /**
+     * Asks the run to stop. the run stops at the next check, and throws
+     * {@link ExecutionCancelled} with the cycles and credits consumed until then.
+     */
+    public void requestCancel() {
+        requestCancel(ExecutionCancelled.Reason.CANCELLED);
+    }
+
+    /**
+     * Asks the run to stop for the given reason. only the first reason is kept.
+     *
+     * @param reason the reason the run is stopped
+     */
+    public synchronized void requestCancel(@NotNull ExecutionCancelled.Reason reason) {
+        if (cancelReason == null) {
+            cancelReason = reason;
+        }
+    }
+
+    public boolean isCancelRequested() {
+        return cancelReason != null;
+    }
+
+    /**
+     * Starts the time limit of the run. called by the runner when the run is created.
+     */
+    void markStarted() {
+        if (timeLimitNanos > 0) {
+            deadlineNanos = System.nanoTime() + timeLimitNanos;
+        }
+    }
+
+    /**
+     * @return the reason the run should stop, or null if it should keep running
+     */
+    @Nullable ExecutionCancelled.Reason checkCancelReason() {
+        if (cancelReason == null && deadlineNanos != Long.MAX_VALUE && System.nanoTime() - deadlineNanos >= 0) {
+            requestCancel(ExecutionCancelled.Reason.TIMED_OUT);
+        }
+        return cancelReason;
+    }
+
+    /**
+     * Publishes the progress of the run. called by the runner, or by whoever follows a run executing in another
+     * process.
+     */
+    public void publishProgress(int cyclesExecuted, int creditsConsumed) {
+        this.cyclesExecuted = cyclesExecuted;
+        this.creditsConsumed = creditsConsumed;
+    }
+
+    public @Nullable ExecutionCancelled.Reason getCancelReason() {
+        return cancelReason;
+    }
+
+    public int getCyclesExecuted() {
+        return cyclesExecuted;
+    }
+
+    public int getCreditsConsumed() {
+        return creditsConsumed;
+    }
+}
@@ -0,0 +1,46 @@
+package engine.core;
+
+import dto.engine.ExecutionProfileDTO;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@code Package-private} counter of the executions and cycles of each instruction of a run.
+ * <p>
+ * The counters are primitive arrays indexed by the PC, so profiling a run costs two array increments per executed
+ * instruction and no allocation, cheap enough to leave on for real runs. like its runner, a profiler is confined to
+ * one thread at a time.
+ * </p>
+ */
+final class ExecutionProfiler {
+    private final long @NotNull [] executions;
+    private final long @NotNull [] cycles;
+
+    ExecutionProfiler(int instructionsCount) {
+        executions = new long[instructionsCount];
+        cycles = new long[instructionsCount];
+    }
+
+    void record(int pc, int instructionCycles) {
+        executions[pc]++;
+        cycles[pc] += instructionCycles;
+    }
+
+    /**
+     * @param expandLevel     the expand level of the run
+     * @param originalIndexes the index of the original instruction each instruction was expanded from
+     * @param originalCount   the number of original instructions
+     * @return the profile of the run, with the counters aggregated to the original instructions
+     */
+    @NotNull ExecutionProfileDTO toDTO(int expandLevel, int @NotNull [] originalIndexes, int originalCount) {
+        long[] originalExecutions = new long[originalCount];
+        long[] originalCycles = new long[originalCount];
+        long totalCycles = 0;
+        for (int pc = 0; pc < cycles.length; pc++) {
+            originalExecutions[originalIndexes[pc]] += executions[pc];
+            originalCycles[originalIndexes[pc]] += cycles[pc];
+            totalCycles += cycles[pc];
+        }
+        return new ExecutionProfileDTO(expandLevel, totalCycles, executions.clone(), cycles.clone(),
+                originalExecutions, originalCycles);
+    }
+}
@@ -163,6 +163,10 @@ public class FunctionManager {
                 allFunctionsAndProgramsInSystem.get(programName));
     }
 
+    public @NotNull Collection<Engine> getFunctionsInCurrentProgram() {
+        return Collections.unmodifiableCollection(functionsInCurrentProgram.values());
+    }
+
     public int getFunctionCount() {
         return functionsInCurrentProgram.size();
     }
@@ -5,6 +5,7 @@ import engine.exception.LabelNotExist;
 import engine.generated_2.SFunction;
 import engine.generated_2.SInstruction;
 import engine.generated_2.SProgram;
+import engine.metrics.EngineMetrics;
 import engine.utils.ArchitectureType;
 import engine.utils.ProgramUtils;
 import org.jetbrains.annotations.Contract;
@@ -12,6 +13,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static engine.utils.ProgramUtils.EXIT_LABEL_NAME;
 import static engine.utils.ProgramUtils.extractAllVariables;
@@ -34,6 +36,11 @@ final class InstructionSequence {
     private final List<Set<String>> labelsByExpandLevel = new ArrayList<>();
     private int maxExpandLevel = -1;
     private final List<ArchitectureType> minimumArchitectureTypeNeededByExpandLevel = new ArrayList<>();
+    /**
+     * For each expand level, the index of the original instruction every instruction was expanded from.
+     * expanding keeps the order of the instructions, so each array is sorted.
+     */
+    private final List<int[]> originalIndexesByExpandLevel = new ArrayList<>();
     // endregion
 
     // region Constructors and Initialization
@@ -120,7 +127,15 @@ final class InstructionSequence {
     }
 
     public void finalizeInitialization() {
+        long expandStartNanos = System.nanoTime();
         expandToMax();
+        EngineMetrics.EXPANSION_NANOS.add(System.nanoTime() - expandStartNanos);
+        EngineMetrics.EXPANSIONS.increment();
+        long expandedInstructions = 0;
+        for (List<Instruction> levelInstructions : instructionExpansionLevels) {
+            expandedInstructions += levelInstructions.size();
+        }
+        EngineMetrics.EXPANDED_INSTRUCTIONS.add(expandedInstructions);
         calcMinimumArchitectureForEachExpandLevel();
     }
 
@@ -180,17 +195,26 @@ final class InstructionSequence {
         if (maxExpandLevel == -1) {
             maxExpandLevel = ProgramUtils.getMaxExpandLevel(originalInstructions);
         }
+        if (originalIndexesByExpandLevel.isEmpty()) {
+            originalIndexesByExpandLevel.add(IntStream.range(0, originalInstructions.size()).toArray());
+        }
         if (maxExpandLevel > 0) {
             for (int currLevel = instructionExpansionLevels.size(); currLevel <= maxExpandLevel; currLevel++) {
                 List<Instruction> tempExpanded = new ArrayList<>();
+                IntStream.Builder originalIndexes = IntStream.builder();
                 List<Instruction> previouslyExpanded = instructionExpansionLevels.getLast();
+                int[] previousOriginalIndexes = originalIndexesByExpandLevel.getLast();
                 Map<String, Integer> latestContextMap = new HashMap<>(contextMapsByExpandLevel.getLast());
                 for (int i = 0; i < previouslyExpanded.size(); i++) {
                     Instruction instruction = previouslyExpanded.get(i);
                     List<Instruction> furtherExpanded = instruction.expand(latestContextMap, i);
                     tempExpanded.addAll(furtherExpanded);
+                    for (int j = 0; j < furtherExpanded.size(); j++) {
+                        originalIndexes.add(previousOriginalIndexes[i]);
+                    }
                 }
                 instructionExpansionLevels.add(tempExpanded);
+                originalIndexesByExpandLevel.add(originalIndexes.build().toArray());
                 contextMapsByExpandLevel.add(latestContextMap);
                 updateLabelsAfterExpanding();
             }
@@ -198,6 +222,23 @@ final class InstructionSequence {
     }
 
 
+    /**
+     * @return the index of the first element of the sorted array that is not smaller than the value
+     */
+    private static int lowerBound(int @NotNull [] sorted, int value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
     private boolean validateLabel(String labelName) {
         return originalLabels.contains(labelName);
     }
@@ -257,6 +298,59 @@ final class InstructionSequence {
         return new ArrayList<>(instructionExpansionLevels.get(expandLevel));
     }
 
+    public int getInstructionsCount(int expandLevel) {
+        if (expandLevel < 0 || expandLevel >= instructionExpansionLevels.size()) {
+            throw new IllegalArgumentException("Invalid expand level: " + expandLevel);
+        }
+        return instructionExpansionLevels.get(expandLevel).size();
+    }
+
+    /**
+     * Retrieves a range of the instructions at the given expand level, without copying the whole level.
+     *
+     * @param expandLevel The expand level of the instructions.
+     * @param from        The index of the first instruction, inclusive.
+     * @param to          The index of the last instruction, exclusive.
+     * @return A copy of the instructions in the range.
+     * @throws IllegalArgumentException if the expand level is out of bounds.
+     */
+    public @NotNull List<Instruction> getInstructionsRange(int expandLevel, int from, int to) {
+        if (expandLevel < 0 || expandLevel >= instructionExpansionLevels.size()) {
+            throw new IllegalArgumentException("Invalid expand level: " + expandLevel);
+        }
+        return new ArrayList<>(instructionExpansionLevels.get(expandLevel).subList(from, to));
+    }
+
+    /**
+     * Finds the instructions at the given expand level that were expanded from an original instruction.
+     * as expanding keeps the order of the instructions, they form a single range.
+     *
+     * @param expandLevel   The expand level of the instructions.
+     * @param originalIndex The index of the original instruction.
+     * @return The start (inclusive) and end (exclusive) of the range, empty if the original index does not exist.
+     * @throws IllegalArgumentException if the expand level is out of bounds.
+     */
+    public int @NotNull [] getRangeOfOriginalInstruction(int expandLevel, int originalIndex) {
+        if (expandLevel < 0 || expandLevel >= originalIndexesByExpandLevel.size()) {
+            throw new IllegalArgumentException("Invalid expand level: " + expandLevel);
+        }
+        int[] originalIndexes = originalIndexesByExpandLevel.get(expandLevel);
+        return new int[]{lowerBound(originalIndexes, originalIndex), lowerBound(originalIndexes, originalIndex + 1)};
+    }
+
+    /**
+     * @param expandLevel The expand level of the instructions.
+     * @return The index of the original instruction each instruction at the expand level was expanded from,
+     * shared and must not be modified.
+     * @throws IllegalArgumentException if the expand level is out of bounds.
+     */
+    int @NotNull [] getOriginalIndexes(int expandLevel) {
+        if (expandLevel < 0 || expandLevel >= originalIndexesByExpandLevel.size()) {
+            throw new IllegalArgumentException("Invalid expand level: " + expandLevel);
+        }
+        return originalIndexesByExpandLevel.get(expandLevel);
+    }
+
     public @NotNull List<Instruction> getBasicInstructionsCopy() {
         return getInstructionsCopy(0);
     }
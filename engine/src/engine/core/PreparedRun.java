@@ -0,0 +1,108 @@
+package engine.core;
+
+import dto.engine.ExecutionResultValuesDTO;
+import dto.engine.FullExecutionResultDTO;
+import engine.exception.ExecutionCancelled;
+import engine.exception.InstructionExecutionException;
+import engine.exception.InsufficientCredits;
+import engine.metrics.EngineMetrics;
+import engine.utils.ArchitectureType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A validated run of a program that can be executed in slices.
+ * <p>
+ * Created by {@link Engine#prepareRun}, it lets the caller decide when each slice of the run executes,
+ * so a scheduler can interleave many long runs on a few threads.
+ * a prepared run is not thread-safe, but its slices may execute on different threads one after the other.
+ * </p>
+ */
+public class PreparedRun {
+    private final @NotNull Engine engine;
+    private final @NotNull ProgramRunner runner;
+    private final int expandLevel;
+    private final @NotNull ArchitectureType architectureType;
+    private @Nullable FullExecutionResultDTO result;
+    // the time spent in the slices of the run, without the time waiting between them
+    private long executionNanos = 0;
+
+    PreparedRun(@NotNull Engine engine, @NotNull ProgramRunner runner, int expandLevel,
+                @NotNull ArchitectureType architectureType) {
+        this.engine = engine;
+        this.runner = runner;
+        this.expandLevel = expandLevel;
+        this.architectureType = architectureType;
+    }
+
+    /**
+     * Executes the next slice of the run.
+     *
+     * @param cycleBudget the number of cycles the slice may use
+     * @return true if the run finished, its result is then available from {@link #getResult()}
+     */
+    public boolean runSlice(long cycleBudget) throws InstructionExecutionException, InsufficientCredits,
+            ExecutionCancelled {
+        if (result != null) {
+            return true;
+        }
+        long sliceStartNanos = System.nanoTime();
+        long executedBeforeSlice = runner.getExecutedInstructionsCount();
+        boolean finished;
+        try {
+            finished = runner.runSlice(cycleBudget);
+        } finally {
+            executionNanos += System.nanoTime() - sliceStartNanos;
+            EngineMetrics.INSTRUCTIONS_EXECUTED.add(runner.getExecutedInstructionsCount() - executedBeforeSlice);
+        }
+        if (!finished) {
+            return false;
+        }
+        ExecutionResultValuesDTO valuesResult = runner.getResultValues();
+        engine.addExecutionStats(valuesResult.creditsCost(), valuesResult.cycleCount(), architectureType, expandLevel,
+                runner.getExecutedInstructionsCount(), executionNanos);
+        result = engine.toFullExecutionResult(valuesResult, expandLevel, architectureType, runner.getProfiler());
+        return true;
+    }
+
+    /**
+     * Executes the rest of the run in one go.
+     *
+     * @return the result of the run
+     */
+    public @NotNull FullExecutionResultDTO runToCompletion() throws InstructionExecutionException,
+            InsufficientCredits, ExecutionCancelled {
+        runSlice(Long.MAX_VALUE);
+        return getResult();
+    }
+
+    /**
+     * @return the result of the run
+     * @throws IllegalStateException if the run did not finish yet
+     */
+    public @NotNull FullExecutionResultDTO getResult() {
+        if (result == null) {
+            throw new IllegalStateException("The run did not finish yet");
+        }
+        return result;
+    }
+
+    public int getCyclesExecuted() {
+        return runner.getCyclesCount();
+    }
+
+    public long getExecutedInstructionsCount() {
+        return runner.getExecutedInstructionsCount();
+    }
+
+    /**
+     * @return the time spent in the slices of the run so far, without the time waiting between them
+     */
+    public long getExecutionNanos() {
+        return executionNanos;
+    }
+
+    public @NotNull ArchitectureType getArchitectureType() {
+        return architectureType;
+    }
+}
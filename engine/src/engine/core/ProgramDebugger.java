@@ -1,12 +1,15 @@
 package engine.core;
 
+import dto.engine.DebugSessionStateDTO;
 import dto.engine.DebugStateChangeResultDTO;
 import dto.engine.FullExecutionResultDTO;
+import engine.exception.ExecutionCancelled;
 import engine.exception.InstructionExecutionException;
 import engine.exception.InsufficientCredits;
 import engine.utils.ArchitectureType;
 import engine.utils.ProgramUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -22,6 +25,8 @@ import static engine.utils.ProgramUtils.PC_NAME;
  * <p>
  * Tracks execution state history and cycle counts.
  * Supports starting, stepping, resuming, and stopping debug sessions.
+ * a step or a resume may be given an {@link ExecutionMonitor}, whose time limit counts from the start of the action,
+ * so an action running into a function that never returns can be stopped.
  * </p>
  */
 public class ProgramDebugger extends ProgramExecutor {
@@ -38,6 +43,7 @@ public class ProgramDebugger extends ProgramExecutor {
     private final @NotNull List<Integer> debugCyclesHistory = new ArrayList<>();
     private @NotNull Map<String, Integer> debugArguments = new HashMap<>();
     private boolean debugMode = false;
+    private boolean handedOff = false;
     // endregion
 
     // region class ctor and builder
@@ -80,16 +86,66 @@ public class ProgramDebugger extends ProgramExecutor {
         debugMode = true;
         return this;
     }
+
+    /**
+     * Continues a saved debug session, see {@link #exportState()}.
+     *
+     * @param state the saved state of the session
+     * @return ProgramDebugger instance for method chaining.
+     * @throws IllegalArgumentException if the state does not match the debugged instructions
+     * @throws IllegalStateException    if a debug session is already active.
+     */
+    ProgramDebugger restore(@NotNull DebugSessionStateDTO state) {
+        if (debugMode) {
+            throw new IllegalStateException("Debug session already started");
+        }
+        if (state.instructionsFingerprint() != getInstructionsFingerprint()) {
+            throw new IllegalArgumentException("The debug session of " + state.innerProgramName() +
+                    " was started on other instructions than the current ones");
+        }
+        Integer pc = state.contextMap().get(PC_NAME);
+        if (pc == null || pc < 0 || pc > executedInstructions.size() ||
+                state.stateHistory().size() != state.cyclesHistory().size() + 1) {
+            throw new IllegalArgumentException("Corrupted debug session state of " + state.innerProgramName());
+        }
+        executedContextMap.putAll(state.contextMap());
+        debugArguments = new HashMap<>(state.arguments());
+        for (Map<String, Integer> savedState : state.stateHistory()) {
+            debugStateHistory.add(new HashMap<>(savedState));
+        }
+        debugCyclesHistory.addAll(state.cyclesHistory());
+        runningUserCredits = state.runningCredits();
+        cyclesCount = state.cyclesCount();
+        executedInstructionsCount = state.executedInstructionsCount();
+        debugMode = true;
+        return this;
+    }
     // endregion
 
     // region debug actions
 
     public DebugStateChangeResultDTO stepOver() {
-        if (!debugMode) {
-            throw new IllegalStateException("Debug session not started");
-        }
+        return stepOver(null);
+    }
+
+    /**
+     * Executes the current instruction.
+     *
+     * @param monitor the monitor of the step, or null if the step is not observed
+     * @throws ExecutionCancelled if the monitor stopped the step, the session should not go on then
+     */
+    public synchronized DebugStateChangeResultDTO stepOver(@Nullable ExecutionMonitor monitor) {
+        checkDebugMode();
         // Execute current instruction
-        executeStep();
+        startMonitoring(monitor);
+        ExecutionMonitor outerMonitor = ProgramRunner.setCurrentMonitor(monitor);
+        try {
+            executeStep();
+        } catch (ExecutionCancelled executionCancelled) {
+            throw stoppedAt(executionCancelled.getReason());
+        } finally {
+            ProgramRunner.setCurrentMonitor(outerMonitor);
+        }
         // Prepare result DTO
         return new DebugStateChangeResultDTO(
                 ProgramUtils.extractSortedVariables(executedContextMap),
@@ -100,10 +156,8 @@ public class ProgramDebugger extends ProgramExecutor {
         );
     }
 
-    public DebugStateChangeResultDTO stepBack() {
-        if (!debugMode) {
-            throw new IllegalStateException("Debug session not started");
-        }
+    public synchronized DebugStateChangeResultDTO stepBack() {
+        checkDebugMode();
 
         if (getPC() == 0) {
             // Can't go back further than the first instruction
@@ -141,15 +195,39 @@ public class ProgramDebugger extends ProgramExecutor {
     }
 
     public DebugStateChangeResultDTO resume() {
-        if (!debugMode) {
-            throw new IllegalStateException("Debug session not started");
-        }
-
-        // Reset breakpoint statuses at start of resume
+        return resume(null);
+    }
 
-        // Execute remaining instructions, stopping at breakpoints
-        while (getPC() < executedInstructions.size()) {
-            executeStep();
+    /**
+     * Executes the remaining instructions.
+     *
+     * @param monitor the monitor of the resume, or null if the resume is not observed
+     * @throws ExecutionCancelled if the monitor stopped the resume, the session should not go on then
+     */
+    public synchronized DebugStateChangeResultDTO resume(@Nullable ExecutionMonitor monitor) {
+        checkDebugMode();
+
+        // Execute remaining instructions
+        startMonitoring(monitor);
+        ExecutionMonitor outerMonitor = ProgramRunner.setCurrentMonitor(monitor);
+        try {
+            int executedSinceCheck = 0;
+            while (getPC() < executedInstructions.size()) {
+                executeStep();
+                if (monitor != null && ++executedSinceCheck == ExecutionMonitor.CHECK_INTERVAL) {
+                    executedSinceCheck = 0;
+                    monitor.publishProgress(cyclesCount, getCreditCost());
+                    ExecutionCancelled.Reason cancelReason = monitor.checkCancelReason();
+                    if (cancelReason != null) {
+                        throw stoppedAt(cancelReason);
+                    }
+                }
+            }
+        } catch (ExecutionCancelled executionCancelled) {
+            // thrown by an inner run, reported with the progress of the session
+            throw stoppedAt(executionCancelled.getReason());
+        } finally {
+            ProgramRunner.setCurrentMonitor(outerMonitor);
         }
 
         // Prepare result DTO
@@ -162,10 +240,8 @@ public class ProgramDebugger extends ProgramExecutor {
         );
     }
 
-    public DebugStateChangeResultDTO stop() {
-        if (!debugMode) {
-            throw new IllegalStateException("Debug session not started");
-        }
+    public synchronized DebugStateChangeResultDTO stop() {
+        checkDebugMode();
         // prepare result DTO
         return new DebugStateChangeResultDTO(
                 ProgramUtils.extractSortedVariables(executedContextMap),
@@ -182,7 +258,7 @@ public class ProgramDebugger extends ProgramExecutor {
      *
      * @return ExecutionResultDTO with current debug information.
      */
-    public FullExecutionResultDTO getDebugFinishedExecutionResult() {
+    public synchronized FullExecutionResultDTO getDebugFinishedExecutionResult() {
         return new FullExecutionResultDTO(
                 isMainProgram,
                 innerProgramName,
@@ -193,9 +269,53 @@ public class ProgramDebugger extends ProgramExecutor {
                 executedContextMap.get(OUTPUT_NAME),
                 expandLevel,
                 initialUserCredits - runningUserCredits,
-                initialUserCredits - runningUserCredits
+                initialUserCredits - runningUserCredits,
+                null
         );
     }
+
+    /**
+     * Saves the complete state of the session, the session itself goes on.
+     *
+     * @return the state of the session, to continue it by {@link Engine#restoreDebugSession(DebugSessionStateDTO)}
+     * @throws IllegalStateException if the debug session is not active
+     */
+    public synchronized @NotNull DebugSessionStateDTO exportState() {
+        checkDebugMode();
+        return new DebugSessionStateDTO(
+                innerProgramName,
+                displayName,
+                isMainProgram,
+                expandLevel,
+                architectureType,
+                getInstructionsFingerprint(),
+                initialUserCredits,
+                runningUserCredits,
+                cyclesCount,
+                executedInstructionsCount,
+                new HashMap<>(debugArguments),
+                new HashMap<>(executedContextMap),
+                debugStateHistory.stream().<Map<String, Integer>>map(HashMap::new).toList(),
+                new ArrayList<>(debugCyclesHistory)
+        );
+    }
+
+    /**
+     * Saves the complete state of the session and ends it here, so it is continued only where the state is
+     * restored. any later action on this debugger fails.
+     *
+     * @return the state of the session
+     * @throws IllegalStateException if the debug session is not active, or it already finished
+     */
+    public synchronized @NotNull DebugSessionStateDTO handOff() {
+        if (isDebugFinished()) {
+            throw new IllegalStateException("Debug session already finished");
+        }
+        DebugSessionStateDTO state = exportState();
+        debugMode = false;
+        handedOff = true;
+        return state;
+    }
     // endregion
 
     // region public getters
@@ -204,7 +324,35 @@ public class ProgramDebugger extends ProgramExecutor {
         return innerProgramName;
     }
 
+    public @NotNull ArchitectureType getArchitectureType() {
+        return architectureType;
+    }
+
     // region private helpers
+    private void checkDebugMode() {
+        if (handedOff) {
+            throw new IllegalStateException("Debug session was handed off to another server");
+        }
+        if (!debugMode) {
+            throw new IllegalStateException("Debug session not started");
+        }
+    }
+
+    private static void startMonitoring(@Nullable ExecutionMonitor monitor) {
+        if (monitor != null) {
+            monitor.markStarted();
+        }
+    }
+
+    private @NotNull ExecutionCancelled stoppedAt(@NotNull ExecutionCancelled.Reason reason) {
+        return new ExecutionCancelled(reason, "Debug action stopped at PC = " + getPC(), cyclesCount,
+                getCreditCost());
+    }
+
+    private int getInstructionsFingerprint() {
+        return executedInstructions.stream().map(Instruction::getStringRepresentation).toList().hashCode();
+    }
+
     private void executeStep() throws InsufficientCredits, InstructionExecutionException {
         Instruction currentInstruction = executedInstructions.get(executedContextMap.get(PC_NAME));
         int creditCost = executeInstruction(currentInstruction);
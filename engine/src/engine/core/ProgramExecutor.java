@@ -3,6 +3,7 @@ package engine.core;
 import engine.exception.InstructionExecutionException;
 import engine.exception.InsufficientCredits;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.HashMap;
 import java.util.List;
@@ -16,6 +17,9 @@ public class ProgramExecutor {
     protected final int initialUserCredits;
     protected int runningUserCredits;
     protected int cyclesCount = 0;
+    protected long executedInstructionsCount = 0;
+    // counts the executions and cycles of each instruction, null when the run is not profiled
+    protected @Nullable ExecutionProfiler profiler = null;
 
     protected ProgramExecutor(@NotNull List<Instruction> executedInstructions,
                               @NotNull Map<String, Integer> executedContextMap,
@@ -37,6 +41,10 @@ public class ProgramExecutor {
             runningUserCredits -= creditCost;
             cyclesCount += creditCost; // credit = cycles
             instruction.execute(executedContextMap);
+            executedInstructionsCount++;
+            if (profiler != null) {
+                profiler.record(currentPC, creditCost);
+            }
             return creditCost;
 
         } catch (IllegalArgumentException e) {
@@ -51,6 +59,10 @@ public class ProgramExecutor {
         return instruction.getCycles();
     }
 
+    public long getExecutedInstructionsCount() {
+        return executedInstructionsCount;
+    }
+
     public int getCreditCost() {
         return initialUserCredits - runningUserCredits;
     }
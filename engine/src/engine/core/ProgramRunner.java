@@ -2,11 +2,13 @@ package engine.core;
 
 
 import dto.engine.ExecutionResultValuesDTO;
+import engine.exception.ExecutionCancelled;
 import engine.exception.InstructionExecutionException;
 import engine.exception.InsufficientCredits;
 import engine.utils.ProgramUtils;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
 import java.util.Map;
@@ -18,13 +20,40 @@ import static engine.utils.ProgramUtils.PC_NAME;
  * and maintaining the execution context. doesn't affect's the original instructions or context.
  */
 public class ProgramRunner extends ProgramExecutor {
+    /**
+     * The monitor of the main run executing on this thread, picked up by the inner runs it starts.
+     */
+    private static final ThreadLocal<ExecutionMonitor> currentMonitor = new ThreadLocal<>();
+
+    private final @Nullable ExecutionMonitor monitor;
+    private final boolean isInnerRun;
+    private int executedSinceCheck = 0;
 
     private ProgramRunner(@NotNull List<Instruction> executedInstructions,
                           @NotNull Map<String, Integer> executedContextMap,
                           @NotNull Map<String, Integer> arguments,
-                          int userCredits) {
+                          int userCredits,
+                          @Nullable ExecutionMonitor monitor,
+                          boolean isInnerRun) {
         super(executedInstructions, executedContextMap, userCredits);
+        this.monitor = monitor;
+        this.isInnerRun = isInnerRun;
         executedContextMap.putAll(arguments);
+        if (monitor != null && !isInnerRun) {
+            monitor.markStarted();
+        }
+    }
+
+    /**
+     * Sets the monitor the inner runs started on this thread check, for executors that are not runners themselves.
+     *
+     * @param monitor the monitor, or null for none
+     * @return the monitor that was set before, to set back once done
+     */
+    static @Nullable ExecutionMonitor setCurrentMonitor(@Nullable ExecutionMonitor monitor) {
+        ExecutionMonitor previous = currentMonitor.get();
+        currentMonitor.set(monitor);
+        return previous;
     }
 
     static @NotNull ProgramRunner createInnerRunner(@NotNull ProgramExecutable executable,
@@ -33,24 +62,110 @@ public class ProgramRunner extends ProgramExecutor {
                 executable.instructions(),
                 executable.contextMap(),
                 arguments,
-                Integer.MAX_VALUE);  // no credit limit for inner runs
+                Integer.MAX_VALUE,  // no credit limit for inner runs
+                currentMonitor.get(), // but stopped with the main run
+                true);
     }
 
     static @NotNull ProgramRunner createMainRunner(@NotNull ProgramExecutable executable,
                                                    @NotNull Map<String, Integer> arguments,
                                                    int userCredits) {
+        return createMainRunner(executable, arguments, userCredits, null);
+    }
+
+    static @NotNull ProgramRunner createMainRunner(@NotNull ProgramExecutable executable,
+                                                   @NotNull Map<String, Integer> arguments,
+                                                   int userCredits,
+                                                   @Nullable ExecutionMonitor monitor) {
 
         return new ProgramRunner(
                 executable.instructions(),
                 executable.contextMap(),
                 arguments,
-                userCredits);
+                userCredits,
+                monitor,
+                false);
+    }
+
+    /**
+     * Counts the executions and cycles of each instruction from now on, see {@link #getProfiler()}.
+     */
+    void enableProfiling() {
+        if (profiler == null) {
+            profiler = new ExecutionProfiler(executedInstructions.size());
+        }
+    }
+
+    /**
+     * @return the profiler of the run, or null if the run is not profiled
+     */
+    @Nullable ExecutionProfiler getProfiler() {
+        return profiler;
     }
 
     @Contract(pure = true)
-    public @NotNull ExecutionResultValuesDTO run() throws InstructionExecutionException, InsufficientCredits {
-        while (executedContextMap.get(PC_NAME) < executedInstructions.size()) {
-            executeInstruction(executedInstructions.get(executedContextMap.get(PC_NAME)));
+    public @NotNull ExecutionResultValuesDTO run() throws InstructionExecutionException, InsufficientCredits,
+            ExecutionCancelled {
+        runSlice(Long.MAX_VALUE);
+        return getResultValues();
+    }
+
+    /**
+     * Runs the program until it finishes or until it used at least the given number of cycles.
+     * the run can be continued by calling this method again, which lets a scheduler interleave long runs.
+     * an instruction is never split, so a slice may exceed its budget by the cycles of its last instruction.
+     *
+     * @param cycleBudget the number of cycles this slice may use
+     * @return true if the program finished, false if the budget ran out first
+     */
+    public boolean runSlice(long cycleBudget) throws InstructionExecutionException, InsufficientCredits,
+            ExecutionCancelled {
+        long sliceEnd = cyclesCount + cycleBudget;
+        ExecutionMonitor outerMonitor = currentMonitor.get();
+        if (!isInnerRun) {
+            currentMonitor.set(monitor);
+        }
+        try {
+            while (!isFinished() && cyclesCount < sliceEnd) {
+                executeInstruction(executedInstructions.get(executedContextMap.get(PC_NAME)));
+                if (monitor != null && ++executedSinceCheck == ExecutionMonitor.CHECK_INTERVAL) {
+                    executedSinceCheck = 0;
+                    checkMonitor(monitor);
+                }
+            }
+        } catch (ExecutionCancelled executionCancelled) {
+            if (isInnerRun) {
+                throw executionCancelled;
+            }
+            // thrown by an inner run, reported with the progress of the main run
+            throw new ExecutionCancelled(executionCancelled.getReason(), "Execution stopped at PC = " + getPC(),
+                    cyclesCount, getCreditCost());
+        } finally {
+            if (!isInnerRun) {
+                currentMonitor.set(outerMonitor);
+            }
+        }
+        if (monitor != null && !isInnerRun) {
+            monitor.publishProgress(cyclesCount, getCreditCost());
+        }
+        return isFinished();
+    }
+
+    public boolean isFinished() {
+        return executedContextMap.get(PC_NAME) >= executedInstructions.size();
+    }
+
+    public int getCyclesCount() {
+        return cyclesCount;
+    }
+
+    /**
+     * @return the result of the run
+     * @throws IllegalStateException if the run did not finish yet
+     */
+    public @NotNull ExecutionResultValuesDTO getResultValues() {
+        if (!isFinished()) {
+            throw new IllegalStateException("The run did not finish yet");
         }
         return new ExecutionResultValuesDTO(
                 executedContextMap.get(ProgramUtils.OUTPUT_NAME),
@@ -61,5 +176,15 @@ public class ProgramRunner extends ProgramExecutor {
         );
     }
 
+    private void checkMonitor(@NotNull ExecutionMonitor monitor) throws ExecutionCancelled {
+        if (!isInnerRun) {
+            monitor.publishProgress(cyclesCount, getCreditCost());
+        }
+        ExecutionCancelled.Reason cancelReason = monitor.checkCancelReason();
+        if (cancelReason != null) {
+            throw new ExecutionCancelled(cancelReason, "Execution stopped at PC = " + getPC(), cyclesCount,
+                    getCreditCost());
+        }
+    }
 }
 
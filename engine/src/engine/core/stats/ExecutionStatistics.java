@@ -0,0 +1,117 @@
+package engine.core.stats;
+
+import dto.engine.ExecutionStatisticsDTO;
+import dto.engine.RunStatisticsDTO;
+import engine.utils.ArchitectureType;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The run statistics of a program or function, recorded without locks so concurrent runs never lose an update.
+ * <p>
+ * The runs are recorded per architecture and expand level, the totals are merged from them when read.
+ * the executions and credits of the runs before the server restarted are restored as plain counts,
+ * only the runs since the server started have their distributions.
+ * </p>
+ */
+public class ExecutionStatistics {
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final @NotNull ConcurrentMap<RunConfiguration, RunHistograms> runsByConfiguration =
+            new ConcurrentHashMap<>();
+    private final @NotNull LongAdder executions = new LongAdder();
+    private final @NotNull LongAdder creditsCost = new LongAdder();
+
+    /**
+     * Records a finished run.
+     *
+     * @param creditsCost          the credits the run cost
+     * @param cycles               the cycles of the run
+     * @param architectureType     the architecture the run used
+     * @param expandLevel          the expand level of the run
+     * @param executedInstructions the number of instructions the run executed, negative if unknown
+     * @param executionNanos       the time the run spent executing, negative if unknown
+     */
+    public void recordRun(int creditsCost, int cycles, @NotNull ArchitectureType architectureType, int expandLevel,
+                          long executedInstructions, long executionNanos) {
+        executions.increment();
+        this.creditsCost.add(creditsCost);
+        RunHistograms runHistograms = runsByConfiguration.computeIfAbsent(
+                new RunConfiguration(architectureType, expandLevel), k -> new RunHistograms());
+        runHistograms.creditsCost.record(creditsCost);
+        runHistograms.cycles.record(cycles);
+        if (executionNanos >= 0) {
+            runHistograms.wallTimeMicros.record(TimeUnit.NANOSECONDS.toMicros(executionNanos));
+            if (executedInstructions >= 0) {
+                runHistograms.instructionsPerSecond.record(
+                        executedInstructions * NANOS_PER_SECOND / Math.max(1, executionNanos));
+            }
+        }
+    }
+
+    /**
+     * Adds the runs recorded before the server restarted.
+     *
+     * @param executions         the number of runs
+     * @param averageCreditsCost the average credits cost of a run
+     */
+    public void restore(int executions, float averageCreditsCost) {
+        this.executions.add(executions);
+        this.creditsCost.add(Math.round((double) averageCreditsCost * executions));
+    }
+
+    public int getExecutions() {
+        return executions.intValue();
+    }
+
+    public float getAverageCreditsCost() {
+        long executionsCount = executions.sum();
+        return executionsCount == 0 ? 0 : (float) ((double) creditsCost.sum() / executionsCount);
+    }
+
+    public @NotNull ExecutionStatisticsDTO toDTO() {
+        if (runsByConfiguration.isEmpty()) {
+            return ExecutionStatisticsDTO.EMPTY;
+        }
+        RunHistograms total = new RunHistograms();
+        Map<String, RunStatisticsDTO> byConfiguration = new TreeMap<>();
+        for (Map.Entry<RunConfiguration, RunHistograms> entry : runsByConfiguration.entrySet()) {
+            RunHistograms runHistograms = entry.getValue();
+            total.merge(runHistograms);
+            byConfiguration.put(entry.getKey().toString(), runHistograms.toDTO());
+        }
+        return new ExecutionStatisticsDTO(total.toDTO(), byConfiguration);
+    }
+
+    private record RunConfiguration(@NotNull ArchitectureType architectureType, int expandLevel) {
+        @Override
+        public @NotNull String toString() {
+            return architectureType.getSymbol() + "/" + expandLevel;
+        }
+    }
+
+    private static final class RunHistograms {
+        private final @NotNull LogHistogram creditsCost = new LogHistogram();
+        private final @NotNull LogHistogram cycles = new LogHistogram();
+        private final @NotNull LogHistogram wallTimeMicros = new LogHistogram();
+        private final @NotNull LogHistogram instructionsPerSecond = new LogHistogram();
+
+        private void merge(@NotNull RunHistograms other) {
+            creditsCost.merge(other.creditsCost);
+            cycles.merge(other.cycles);
+            wallTimeMicros.merge(other.wallTimeMicros);
+            instructionsPerSecond.merge(other.instructionsPerSecond);
+        }
+
+        private @NotNull RunStatisticsDTO toDTO() {
+            return new RunStatisticsDTO(creditsCost.getCount(), creditsCost.toPercentiles(), cycles.toPercentiles(),
+                    wallTimeMicros.toPercentiles(), instructionsPerSecond.toPercentiles());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package engine.core.stats;
+
+import dto.engine.PercentilesDTO;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative values, with buckets growing exponentially.
+ * <p>
+ * Values below {@code 2 * SUB_BUCKETS} have a bucket each, larger values are split into {@code SUB_BUCKETS}
+ * buckets per power of two, so a percentile is off by at most 1/{@code SUB_BUCKETS} of its value whatever the range.
+ * recording is an increment of a bucket and of striped adders, never a lock, and histograms are mergeable,
+ * so the histograms of separate recorders can be summed into one.
+ * </p>
+ */
+public final class LogHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+    // the linear buckets, then SUB_BUCKETS buckets for each power of two up to 2^62
+    private static final int BUCKETS_COUNT = LINEAR_LIMIT + (63 - (SUB_BUCKET_BITS + 1)) * SUB_BUCKETS;
+
+    private final @NotNull AtomicLongArray buckets = new AtomicLongArray(BUCKETS_COUNT);
+    private final @NotNull LongAdder count = new LongAdder();
+    private final @NotNull LongAdder sum = new LongAdder();
+    private final @NotNull LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param value the value to record, negative values are recorded as 0
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        buckets.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Adds the values recorded by another histogram to this one.
+     */
+    public void merge(@NotNull LogHistogram other) {
+        for (int i = 0; i < BUCKETS_COUNT; i++) {
+            long bucketCount = other.buckets.get(i);
+            if (bucketCount != 0) {
+                buckets.addAndGet(i, bucketCount);
+            }
+        }
+        count.add(other.count.sum());
+        sum.add(other.sum.sum());
+        max.accumulate(other.max.get());
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * The percentiles of the recorded values. a percentile is the middle of its bucket, capped by the max value.
+     * values recorded while this runs may be partly counted.
+     */
+    public @NotNull PercentilesDTO toPercentiles() {
+        long[] counts = new long[BUCKETS_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKETS_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return PercentilesDTO.EMPTY;
+        }
+        long maxValue = max.get();
+        return new PercentilesDTO(total, (double) sum.sum() / total,
+                percentile(counts, total, 0.50, maxValue),
+                percentile(counts, total, 0.95, maxValue),
+                percentile(counts, total, 0.99, maxValue),
+                maxValue);
+    }
+
+    private static long percentile(long @NotNull [] counts, long total, double quantile, long maxValue) {
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketMiddle(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    // region buckets
+    static int bucketOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketMiddle(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        int subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lowest = (SUB_BUCKETS + subBucket) * width;
+        return lowest + width / 2;
+    }
+    // endregion
+}
@@ -29,7 +29,8 @@ public class Quote extends Instruction {
     private String allArgsString;
     private List<String> funcArgsNames;
     private final List<Quote> subfunctionCalls = new ArrayList<>();
-    private int executedCycles = 0;
+    // the same quote instance is shared between concurrent runs of the program, so the cycles are per thread
+    private final ThreadLocal<Integer> executedCycles = ThreadLocal.withInitial(() -> 0);
     // endregion
 
     // region Constructors
@@ -170,12 +171,12 @@ public class Quote extends Instruction {
         if (functionToRun == null) {
             throw new IllegalStateException("Quote functionToRun is not initialized");
         }
-        executedCycles = 0;
+        executedCycles.set(0);
         List<Integer> arguments = getArgumentsValues(contextMap);
         Map<String, Integer> functionToRunNeededArguments = functionToRun.getSortedArgumentsMap();
         prepareArguments(functionToRunNeededArguments, arguments);
         InnerRunResult result = functionToRun.innerRun(functionToRunNeededArguments);
-        executedCycles = result.cyclesUsed();
+        executedCycles.set(result.cyclesUsed());
         return result.output();
     }
 
@@ -273,21 +274,21 @@ public class Quote extends Instruction {
     }
 
     public int getExecutedCycles() {
-        return executedCycles;
+        return executedCycles.get();
     }
 
     @Override
     public int getCycles() {
         if (isFinishedInitialization) {
             final int quoteOverhead = 5;
-            return quoteOverhead + executedCycles + calcSubFunctionCycles();
+            return quoteOverhead + executedCycles.get() + calcSubFunctionCycles();
         }
         return 0; // not initialized yet
     }
 
     public int getFunctionCycles() {
         if (isFinishedInitialization) {
-            return executedCycles;
+            return executedCycles.get();
         }
         return 0; // not initialized yet
     }
@@ -0,0 +1,50 @@
+package engine.exception;
+
+public class ExecutionCancelled extends RuntimeException {
+    private final Reason reason;
+    private final int cyclesExecuted;
+    private final int creditsConsumed;
+
+    public ExecutionCancelled(String message, int cyclesExecuted, int creditsConsumed) {
+        this(Reason.CANCELLED, message, cyclesExecuted, creditsConsumed);
+    }
+
+    public ExecutionCancelled(Reason reason, String message, int cyclesExecuted, int creditsConsumed) {
+        super(String.format("%s (%s): stopped after %d cycles, %d credits consumed", message,
+                reason.getDescription(), cyclesExecuted, creditsConsumed));
+        this.reason = reason;
+        this.cyclesExecuted = cyclesExecuted;
+        this.creditsConsumed = creditsConsumed;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public int getCyclesExecuted() {
+        return cyclesExecuted;
+    }
+
+    public int getCreditsConsumed() {
+        return creditsConsumed;
+    }
+
+    /**
+     * Why the run was stopped.
+     */
+    public enum Reason {
+        CANCELLED("cancelled by the user"),
+        TIMED_OUT("time limit exceeded"),
+        KILLED("killed by an administrator");
+
+        private final String description;
+
+        Reason(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+}
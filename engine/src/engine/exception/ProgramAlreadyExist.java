@@ -0,0 +1,10 @@
+package engine.exception;
+
+import org.jetbrains.annotations.NotNull;
+
+public class ProgramAlreadyExist extends Exception {
+    public ProgramAlreadyExist(@NotNull String programName) {
+        super("A program or function with the name '" + programName + "' already exists in the server, " +
+                "please choose a different name or file");
+    }
+}
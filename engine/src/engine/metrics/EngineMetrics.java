@@ -0,0 +1,47 @@
+package engine.metrics;
+
+import engine.utils.ArchitectureType;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The metrics recorded by the engine, see {@link MetricsRegistry}.
+ */
+public final class EngineMetrics {
+    private static final MetricsRegistry registry = MetricsRegistry.getInstance();
+    private static final Map<ArchitectureType, MetricsRegistry.Counter> runsByArchitecture =
+            new EnumMap<>(ArchitectureType.class);
+
+    static {
+        for (ArchitectureType architectureType : ArchitectureType.values()) {
+            runsByArchitecture.put(architectureType, registry.counter("semulator_runs_total",
+                    "Finished runs and debug sessions of programs and functions, by architecture",
+                    "architecture", architectureType.getSymbol()));
+        }
+    }
+
+    public static final MetricsRegistry.Counter INSTRUCTIONS_EXECUTED = registry.counter(
+            "semulator_instructions_executed_total",
+            "Instructions executed by runs and debug sessions, without the instructions of quoted functions");
+    public static final MetricsRegistry.Counter QUOTE_CALLS = registry.counter("semulator_quote_calls_total",
+            "Inner runs of quoted functions, including the dry runs pricing a quote");
+    public static final MetricsRegistry.Counter EXPANSIONS = registry.counter("semulator_expansions_total",
+            "Programs and functions expanded to their max expand level");
+    public static final MetricsRegistry.Counter EXPANSION_NANOS = registry.scaledCounter(
+            "semulator_expansion_seconds_total", "Time spent expanding programs and functions", 1e-9);
+    public static final MetricsRegistry.Counter EXPANDED_INSTRUCTIONS = registry.upDownGauge(
+            "semulator_expanded_instructions",
+            "Instructions held in memory across all the expand levels of the built programs and functions");
+
+    private EngineMetrics() {
+    }
+
+    /**
+     * @return the counter of the finished runs of an architecture
+     */
+    public static @NotNull MetricsRegistry.Counter runs(@NotNull ArchitectureType architectureType) {
+        return runsByArchitecture.get(architectureType);
+    }
+}
@@ -0,0 +1,190 @@
+package engine.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * The metrics of the process, shared by the engine and the server, written in the Prometheus text format.
+ * <p>
+ * A metric is a family of series with the same name, one series per set of label values.
+ * counters and up-down gauges are striped adders, so recording never takes a lock and never contends,
+ * gauges read a value only when the metrics are written. registering the same metric again returns the existing one,
+ * so callers may register their series lazily.
+ * </p>
+ */
+public final class MetricsRegistry {
+    private static final String COUNTER_TYPE = "counter";
+    private static final String GAUGE_TYPE = "gauge";
+
+    // families by name, written in name order
+    private final @NotNull Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * Private constructor to prevent instantiation from outside the class.
+     */
+    private MetricsRegistry() {
+    }
+
+    public static MetricsRegistry getInstance() {
+        return MetricsRegistryHolder.INSTANCE;
+    }
+
+    // region registration
+
+    /**
+     * Registers a counter, a value that only grows. a counter named {@code x_total} is read as a rate of x.
+     *
+     * @param name   the name of the metric
+     * @param help   the description of the metric
+     * @param labels the label names and values of the series, in pairs, e.g. {@code "architecture", "III"}
+     * @return the counter of the series
+     */
+    public @NotNull Counter counter(@NotNull String name, @NotNull String help, @NotNull String... labels) {
+        return scaledCounter(name, help, 1, labels);
+    }
+
+    /**
+     * Registers a counter that is recorded in a smaller unit than it is exported in,
+     * e.g. recorded in nanoseconds and exported in seconds.
+     *
+     * @param scale the exported value of a recorded unit, e.g. 1e-9 for nanoseconds exported as seconds
+     */
+    public @NotNull Counter scaledCounter(@NotNull String name, @NotNull String help, double scale,
+                                          @NotNull String... labels) {
+        return (Counter) getFamily(name, help, COUNTER_TYPE).series.computeIfAbsent(formatLabels(labels),
+                k -> new Counter(scale));
+    }
+
+    /**
+     * Registers a gauge that goes up and down with the recorded changes, e.g. the number of open sessions.
+     */
+    public @NotNull Counter upDownGauge(@NotNull String name, @NotNull String help, @NotNull String... labels) {
+        return (Counter) getFamily(name, help, GAUGE_TYPE).series.computeIfAbsent(formatLabels(labels),
+                k -> new Counter(1));
+    }
+
+    /**
+     * Registers a gauge read from its source whenever the metrics are written. registering it again replaces
+     * its source.
+     *
+     * @param valueSupplier reads the current value, called from the thread writing the metrics
+     */
+    public void gauge(@NotNull String name, @NotNull String help, @NotNull DoubleSupplier valueSupplier,
+                      @NotNull String... labels) {
+        getFamily(name, help, GAUGE_TYPE).series.put(formatLabels(labels), valueSupplier::getAsDouble);
+    }
+
+    private @NotNull Family getFamily(@NotNull String name, @NotNull String help, @NotNull String type) {
+        Family family = families.computeIfAbsent(name, k -> new Family(help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    private static @NotNull String formatLabels(@NotNull String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be pairs of a name and a value");
+        }
+        if (labels.length == 0) {
+            return "";
+        }
+        StringBuilder formatted = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                formatted.append(',');
+            }
+            formatted.append(labels[i]).append("=\"").append(escapeLabelValue(labels[i + 1])).append('"');
+        }
+        return formatted.append('}').toString();
+    }
+
+    private static @NotNull String escapeLabelValue(@NotNull String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+    // endregion
+
+    /**
+     * Writes all the metrics in the Prometheus text exposition format.
+     */
+    public void writePrometheus(@NotNull StringBuilder out) {
+        for (Map.Entry<String, Family> familyEntry : families.entrySet()) {
+            String name = familyEntry.getKey();
+            Family family = familyEntry.getValue();
+            out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Series> seriesEntry : family.series.entrySet()) {
+                out.append(name).append(seriesEntry.getKey()).append(' ')
+                        .append(formatValue(seriesEntry.getValue().getValue())).append('\n');
+            }
+        }
+    }
+
+    private static @NotNull String formatValue(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    // region series
+
+    private interface Series {
+        double getValue();
+    }
+
+    /**
+     * A series recorded by adding to it, for counters and up-down gauges.
+     */
+    public static final class Counter implements Series {
+        private final @NotNull LongAdder value = new LongAdder();
+        private final double scale;
+
+        private Counter(double scale) {
+            this.scale = scale;
+        }
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void decrement() {
+            value.decrement();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        /**
+         * @return the recorded value, in the recorded unit
+         */
+        public long get() {
+            return value.sum();
+        }
+
+        @Override
+        public double getValue() {
+            return value.sum() * scale;
+        }
+    }
+
+    private record Family(@NotNull String help, @NotNull String type, @NotNull Map<String, Series> series) {
+        private Family(@NotNull String help, @NotNull String type) {
+            this(help, type, new ConcurrentSkipListMap<>());
+        }
+    }
+    // endregion
+    // region singleton pattern
+    private static class MetricsRegistryHolder {
+        private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+    }
+    // endregion
+}
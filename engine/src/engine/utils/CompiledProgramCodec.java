@@ -0,0 +1,265 @@
+package engine.utils;
+
+import engine.generated_2.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * The compiled form of a program: a compact binary alternative to the XML document of the program, which is read
+ * without any XML parsing.
+ * <p>
+ * A compiled program is a header followed by the payload:
+ * <pre>
+ * int    magic ("SEMP")
+ * short  format version
+ * int    payload length
+ * int    CRC32 of the payload
+ * </pre>
+ * the payload:
+ * <pre>
+ * int    symbols count, then every symbol as a string
+ * int    program name (symbol)
+ * int    max expand level of the program
+ * instructions of the program
+ * int    functions count, then for every function:
+ *        int name (symbol), int user string (symbol), int max expand level, instructions of the function
+ * </pre>
+ * instructions are their count, then for every instruction:
+ * <pre>
+ * int    name, type, variable and label (symbols, -1 for no label)
+ * int    arguments count, then (int name, int value) symbols for every argument
+ * </pre>
+ * every name, variable, label and argument is written once in the symbol table and referenced by its index,
+ * a string is written by {@link DataOutputStream#writeUTF}.
+ * the max expand levels are informative, for tools listing compiled programs without building them.
+ * </p>
+ */
+public final class CompiledProgramCodec {
+    public static final String FILE_EXTENSION = ".semc";
+    private static final int MAGIC = 0x53454D50; // "SEMP"
+    private static final short FORMAT_VERSION = 1;
+    private static final int NO_SYMBOL = -1;
+    // the fewest payload bytes an entry of each count takes, to reject a count the payload cannot hold
+    private static final int MIN_SYMBOL_BYTES = 2;
+    private static final int MIN_FUNCTION_BYTES = 16;
+    private static final int MIN_INSTRUCTION_BYTES = 20;
+    private static final int MIN_ARGUMENT_BYTES = 8;
+
+    private CompiledProgramCodec() {
+    }
+
+    /**
+     * A program read from its compiled form.
+     *
+     * @param program         the program, as if it was read from its XML document
+     * @param maxExpandLevels the max expand level of the program and of each of its functions, by name
+     */
+    public record CompiledProgram(@NotNull SProgram program, @NotNull Map<String, Integer> maxExpandLevels) {
+    }
+
+    // region encoding
+
+    /**
+     * Compiles a program.
+     *
+     * @param program         the program to compile
+     * @param maxExpandLevels the max expand level of the program and of each of its functions, by name
+     * @return the compiled program
+     */
+    public static byte @NotNull [] encode(@NotNull SProgram program, @NotNull Map<String, Integer> maxExpandLevels) {
+        SymbolTable symbols = new SymbolTable();
+        ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream(4096);
+        try (DataOutputStream body = new DataOutputStream(bodyBytes)) {
+            body.writeInt(symbols.indexOf(program.getName()));
+            body.writeInt(maxExpandLevels.getOrDefault(program.getName(), 0));
+            writeInstructions(body, program.getSInstructions(), symbols);
+            List<SFunction> functions = program.getSFunctions() == null ?
+                    List.of() : program.getSFunctions().getSFunction();
+            body.writeInt(functions.size());
+            for (SFunction function : functions) {
+                body.writeInt(symbols.indexOf(function.getName()));
+                body.writeInt(symbols.indexOf(function.getUserString()));
+                body.writeInt(maxExpandLevels.getOrDefault(function.getName(), 0));
+                writeInstructions(body, function.getSInstructions(), symbols);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(bodyBytes.size() + symbols.size() * 8);
+        try (DataOutputStream payload = new DataOutputStream(payloadBytes)) {
+            payload.writeInt(symbols.size());
+            for (String symbol : symbols.symbols) {
+                payload.writeUTF(symbol);
+            }
+            bodyBytes.writeTo(payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] payloadArray = payloadBytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payloadArray);
+
+        ByteArrayOutputStream compiledBytes = new ByteArrayOutputStream(payloadArray.length + 14);
+        try (DataOutputStream out = new DataOutputStream(compiledBytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(FORMAT_VERSION);
+            out.writeInt(payloadArray.length);
+            out.writeInt((int) crc.getValue());
+            out.write(payloadArray);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compiledBytes.toByteArray();
+    }
+
+    private static void writeInstructions(@NotNull DataOutputStream out, @NotNull SInstructions instructions,
+                                          @NotNull SymbolTable symbols) throws IOException {
+        List<SInstruction> instructionsList = instructions.getSInstruction();
+        out.writeInt(instructionsList.size());
+        for (SInstruction instruction : instructionsList) {
+            out.writeInt(symbols.indexOf(instruction.getName()));
+            out.writeInt(symbols.indexOf(instruction.getType()));
+            out.writeInt(symbols.indexOf(instruction.getSVariable()));
+            out.writeInt(instruction.getSLabel() == null ? NO_SYMBOL : symbols.indexOf(instruction.getSLabel()));
+            List<SInstructionArgument> arguments = instruction.getSInstructionArguments() == null ?
+                    List.of() : instruction.getSInstructionArguments().getSInstructionArgument();
+            out.writeInt(arguments.size());
+            for (SInstructionArgument argument : arguments) {
+                out.writeInt(symbols.indexOf(argument.getName()));
+                out.writeInt(symbols.indexOf(argument.getValue()));
+            }
+        }
+    }
+    // endregion
+
+    // region decoding
+
+    /**
+     * Reads a compiled program, checking its format version and checksum.
+     *
+     * @param compiled the compiled program
+     * @return the program and its expand metadata
+     * @throws IOException if the bytes are not a compiled program of the current format, or they are corrupted
+     */
+    public static @NotNull CompiledProgram decode(byte @NotNull [] compiled) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(compiled));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a compiled program");
+            }
+            short formatVersion = in.readShort();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported compiled program version " + formatVersion);
+            }
+            int payloadLength = in.readInt();
+            int expectedCrc = in.readInt();
+            if (payloadLength != in.available()) {
+                throw new IOException("Corrupted compiled program: length mismatch");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(compiled, compiled.length - payloadLength, payloadLength);
+            if ((int) crc.getValue() != expectedCrc) {
+                throw new IOException("Corrupted compiled program: checksum mismatch");
+            }
+
+            String[] symbols = new String[readCount(in, MIN_SYMBOL_BYTES)];
+            for (int i = 0; i < symbols.length; i++) {
+                symbols[i] = in.readUTF();
+            }
+            Map<String, Integer> maxExpandLevels = new LinkedHashMap<>();
+            SProgram program = new SProgram();
+            program.setName(readSymbol(in, symbols));
+            maxExpandLevels.put(program.getName(), in.readInt());
+            program.setSInstructions(readInstructions(in, symbols));
+            int functionsCount = readCount(in, MIN_FUNCTION_BYTES);
+            if (functionsCount > 0) {
+                SFunctions functions = new SFunctions();
+                for (int i = 0; i < functionsCount; i++) {
+                    SFunction function = new SFunction();
+                    function.setName(readSymbol(in, symbols));
+                    function.setUserString(readSymbol(in, symbols));
+                    maxExpandLevels.put(function.getName(), in.readInt());
+                    function.setSInstructions(readInstructions(in, symbols));
+                    functions.getSFunction().add(function);
+                }
+                program.setSFunctions(functions);
+            }
+            return new CompiledProgram(program, maxExpandLevels);
+        } catch (EOFException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupted compiled program: " + e.getMessage(), e);
+        }
+    }
+
+    private static @NotNull SInstructions readInstructions(@NotNull DataInputStream in, String @NotNull [] symbols)
+            throws IOException {
+        int instructionsCount = readCount(in, MIN_INSTRUCTION_BYTES);
+        SInstructions instructions = new SInstructions();
+        List<SInstruction> instructionsList = instructions.getSInstruction();
+        for (int i = 0; i < instructionsCount; i++) {
+            SInstruction instruction = new SInstruction();
+            instruction.setName(readSymbol(in, symbols));
+            instruction.setType(readSymbol(in, symbols));
+            instruction.setSVariable(readSymbol(in, symbols));
+            int labelSymbol = in.readInt();
+            if (labelSymbol != NO_SYMBOL) {
+                instruction.setSLabel(symbols[labelSymbol]);
+            }
+            int argumentsCount = readCount(in, MIN_ARGUMENT_BYTES);
+            if (argumentsCount > 0) {
+                SInstructionArguments arguments = new SInstructionArguments();
+                for (int j = 0; j < argumentsCount; j++) {
+                    SInstructionArgument argument = new SInstructionArgument();
+                    argument.setName(readSymbol(in, symbols));
+                    argument.setValue(readSymbol(in, symbols));
+                    arguments.getSInstructionArgument().add(argument);
+                }
+                instruction.setSInstructionArguments(arguments);
+            }
+            instructionsList.add(instruction);
+        }
+        return instructions;
+    }
+
+    /**
+     * Reads the count of the entries that follow, which the rest of the payload must be able to hold.
+     *
+     * @param minEntryBytes the fewest bytes an entry takes
+     * @throws IOException if the count is negative or larger than the rest of the payload can hold
+     */
+    private static int readCount(@NotNull DataInputStream in, int minEntryBytes) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > in.available() / minEntryBytes) {
+            throw new IOException("Corrupted compiled program: invalid count " + count);
+        }
+        return count;
+    }
+
+    private static @NotNull String readSymbol(@NotNull DataInputStream in, String @NotNull [] symbols)
+            throws IOException {
+        return symbols[in.readInt()];
+    }
+    // endregion
+
+    /**
+     * The distinct strings of a program, in order of first use.
+     */
+    private static final class SymbolTable {
+        private final @NotNull List<String> symbols = new ArrayList<>();
+        private final @NotNull Map<String, Integer> indexes = new HashMap<>();
+
+        private int indexOf(@NotNull String symbol) {
+            return indexes.computeIfAbsent(symbol, k -> {
+                symbols.add(k);
+                return symbols.size() - 1;
+            });
+        }
+
+        private int size() {
+            return symbols.size();
+        }
+    }
+}
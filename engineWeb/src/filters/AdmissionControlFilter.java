@@ -0,0 +1,47 @@
+package filters;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import logic.User;
+import logic.admission.AdmissionController;
+import logic.admission.EndpointClass;
+import utils.ServletUtils;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Sheds the requests of users calling the endpoints that execute programs faster than they are allowed to,
+ * with a 429 and the time to retry after, before the request reaches its servlet.
+ * requests of users that are not logged in pass through, their servlet rejects them anyway.
+ */
+@WebFilter(filterName = "AdmissionControlFilter", asyncSupported = true, urlPatterns = {"/runProgram",
+        "/runProgram/batch", "/jobs/submit", "/debugger/start", "/debugger/action"})
+public class AdmissionControlFilter extends HttpFilter {
+    private static final Map<String, EndpointClass> endpointClassesByPath = Map.of(
+            "/runProgram", EndpointClass.RUN,
+            "/runProgram/batch", EndpointClass.RUN,
+            "/jobs/submit", EndpointClass.RUN,
+            "/debugger/start", EndpointClass.RUN,
+            "/debugger/action", EndpointClass.DEBUG_ACTION);
+
+    @Override
+    protected void doFilter(HttpServletRequest req, HttpServletResponse resp, FilterChain chain)
+            throws IOException, ServletException {
+        EndpointClass endpointClass = endpointClassesByPath.get(req.getServletPath());
+        User user = ServletUtils.getUser(req, getServletContext());
+        if (endpointClass != null && user != null) {
+            AdmissionController admissionController = ServletUtils.getAdmissionController(getServletContext());
+            long retryAfterMillis = admissionController.admit(user, endpointClass);
+            if (retryAfterMillis > 0) {
+                ServletUtils.handelTooManyRequests(resp, retryAfterMillis);
+                return;
+            }
+        }
+        chain.doFilter(req, resp);
+    }
+}
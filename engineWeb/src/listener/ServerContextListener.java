@@ -0,0 +1,69 @@
+package listener;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+import logic.cluster.ClusterCoordinator;
+import logic.execution.ExecutionPoolManager;
+import logic.manager.ExecutionHistoryManager;
+import logic.metrics.ServerMetrics;
+import logic.snapshot.DebugSessionsManager;
+import logic.snapshot.ServerSnapshotManager;
+import utils.ServletUtils;
+
+import static utils.ServletConstants.DEBUG_SESSIONS_MANAGER_ATTRIBUTE_NAME;
+import static utils.ServletConstants.EXECUTION_POOL_MANAGER_ATTRIBUTE_NAME;
+import static utils.ServletConstants.SERVER_SNAPSHOT_MANAGER_ATTRIBUTE_NAME;
+
+/**
+ * Creates the server-wide resources when the web application starts and releases them when it stops.
+ */
+@WebListener
+public class ServerContextListener implements ServletContextListener {
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        ServletContext servletContext = sce.getServletContext();
+        ExecutionPoolManager executionPoolManager = ServletUtils.getExecutionPoolManager(servletContext);
+        servletContext.log("Execution pools started");
+        ServerMetrics.registerGauges(executionPoolManager, ServletUtils.getResponseCache(servletContext));
+        ServletUtils.getExecutionHistoryManager(servletContext);
+        // after the history, so the restored users get their history
+        ServletUtils.getServerSnapshotManager(servletContext).restoreAndStart();
+        // after the snapshot, so the debug sessions find their users and programs
+        ServletUtils.getDebugSessionsManager(servletContext).importAndStart();
+        // after the snapshot, so the restored programs are replicated to the workers once they are built
+        if (ServletUtils.startClusterCoordinator(servletContext) != null) {
+            servletContext.log("Cluster coordinator started");
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        ServletContext servletContext = sce.getServletContext();
+        // first, so the runs of the workers fail before the local pools stop
+        ClusterCoordinator clusterCoordinator = ServletUtils.getClusterCoordinator(servletContext);
+        if (clusterCoordinator != null) {
+            clusterCoordinator.shutdown();
+            servletContext.log("Cluster coordinator stopped");
+        }
+        // before the snapshot, so it saves the users as their drained debug sessions left them
+        Object debugSessionsManager = servletContext.getAttribute(DEBUG_SESSIONS_MANAGER_ATTRIBUTE_NAME);
+        if (debugSessionsManager instanceof DebugSessionsManager debugSessions) {
+            debugSessions.shutdown();
+        }
+        Object executionPoolManager = servletContext.getAttribute(EXECUTION_POOL_MANAGER_ATTRIBUTE_NAME);
+        if (executionPoolManager instanceof ExecutionPoolManager pools) {
+            pools.shutdown();
+            servletContext.log("Execution pools stopped");
+        }
+        // after the pools, so the statistics of the runs that were stopped are saved too
+        Object serverSnapshotManager = servletContext.getAttribute(SERVER_SNAPSHOT_MANAGER_ATTRIBUTE_NAME);
+        if (serverSnapshotManager instanceof ServerSnapshotManager snapshots) {
+            snapshots.shutdown();
+        }
+        // after the pools, so the runs that were stopped are recorded first
+        ExecutionHistoryManager.getInstance().closeStore();
+        servletContext.log("Execution history closed");
+    }
+}
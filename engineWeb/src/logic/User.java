@@ -1,7 +1,12 @@
 package logic;
 
+import dto.engine.DebugSessionStateDTO;
 import dto.server.UserDTO;
 import engine.core.ProgramDebugger;
+import engine.exception.InsufficientCredits;
+import engine.utils.ArchitectureType;
+import logic.manager.UserManager;
+import logic.metrics.ServerMetrics;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -19,61 +24,172 @@ public class User {
         this.name = name;
     }
 
+    /**
+     * Recreates a user from the state saved in a snapshot of the server.
+     *
+     * @param savedState the saved state of the user
+     */
+    public User(@NotNull UserDTO savedState) {
+        this.name = savedState.name();
+        this.mainProgramsUploaded = savedState.mainProgramsUploaded();
+        this.subFunctionsContributed = savedState.subFunctionsContributed();
+        this.currentCredits = savedState.currentCredits();
+        this.usedCredits = savedState.creditSpend();
+        this.totalRuns = savedState.totalRuns();
+    }
+
     public @NotNull String getName() {
         return name;
     }
 
-    public void setDebugger(@NotNull ProgramDebugger debugger) {
+    public synchronized void setDebugger(@NotNull ProgramDebugger debugger) {
         if (this.debugger != null) {
             throw new IllegalStateException("Debugger is already set for user: " + name);
         }
         this.debugger = debugger;
+        ServerMetrics.ACTIVE_DEBUG_SESSIONS.increment();
     }
 
-    public void clearDebugger() {
+    public synchronized void clearDebugger() {
+        if (this.debugger != null) {
+            ServerMetrics.ACTIVE_DEBUG_SESSIONS.decrement();
+        }
         this.debugger = null;
     }
 
-    public @Nullable ProgramDebugger getDebugger() {
+    public synchronized @Nullable ProgramDebugger getDebugger() {
         return debugger;
     }
 
-    public int getCurrentCredits() {
+    /**
+     * Ends a debug session of the user and charges the credits its cycles consumed. the credits are charged once,
+     * by whichever action ends the session first.
+     *
+     * @param endedDebugger   the debugger of the session
+     * @param consumedCredits the credits consumed by the cycles of the session
+     * @return true if the session was still the user's session, false if it already ended or was handed off
+     */
+    public synchronized boolean endDebugSession(@NotNull ProgramDebugger endedDebugger, int consumedCredits) {
+        if (debugger != endedDebugger) {
+            return false;
+        }
+        clearDebugger();
+        chargeCredits(consumedCredits);
+        return true;
+    }
+
+    /**
+     * Ends the debug session of the user on this server and returns its state, so it is continued on another
+     * server or after a restart. a debug action already holding the debugger fails from now on.
+     *
+     * the user is not locked meanwhile, as handing off waits for a debug action in progress to end.
+     *
+     * @return the state of the session, or null if the user has no active debug session
+     */
+    public @Nullable DebugSessionStateDTO handOffDebugSession() {
+        ProgramDebugger handedOffDebugger = getDebugger();
+        if (handedOffDebugger == null) {
+            return null;
+        }
+        DebugSessionStateDTO state;
+        try {
+            state = handedOffDebugger.handOff();
+        } catch (IllegalStateException e) {
+            // the session just finished, it is recorded by the action that finished it
+            return null;
+        }
+        synchronized (this) {
+            if (debugger == handedOffDebugger) {
+                clearDebugger();
+            }
+        }
+        return state;
+    }
+
+    public synchronized int getCurrentCredits() {
         return currentCredits;
     }
 
-    public void addFunctionsCount(int subFunctionsContributed) {
+    public synchronized void addFunctionsCount(int subFunctionsContributed) {
         this.subFunctionsContributed += subFunctionsContributed;
+        publishChanged();
     }
 
-    public void incrementMainProgramsUploaded() {
+    public synchronized void incrementMainProgramsUploaded() {
         this.mainProgramsUploaded++;
+        publishChanged();
     }
 
-    public void addCredits(int currentCredits) {
+    public synchronized void addCredits(int currentCredits) {
         this.currentCredits += currentCredits;
+        publishChanged();
     }
 
-    public void chargeCredits(int chargedCredits) {
+    public synchronized void chargeCredits(int chargedCredits) {
         this.currentCredits -= chargedCredits;
         this.usedCredits += chargedCredits;
+        ServerMetrics.CREDITS_CHARGED.add(chargedCredits);
+        publishChanged();
+    }
+
+    /**
+     * Takes credits aside for runs in progress, so other runs of the user cannot spend them meanwhile.
+     * must be followed by {@link #settleReservedCredits(int, int)} once the runs finish.
+     *
+     * @param reservedCredits the credits to reserve
+     */
+    public synchronized void reserveCredits(int reservedCredits) {
+        this.currentCredits -= reservedCredits;
+        publishChanged();
     }
 
     /**
-     * Set the remaining credits of the user after an insufficient credits exception.
+     * Reserves the credits of a single run: its architecture cost and its cycles, up to the limit of a run, so the
+     * other runs and the debug sessions of the user can go on with the rest meanwhile.
+     * a run that needs more cycles than the limit fails with {@link InsufficientCredits} like a run of a user
+     * without credits. must be followed by {@link #settleReservedCredits(int, int)} once the run ends.
      *
-     * @param remainingCredits the remaining credits to set
+     * @param architectureType the architecture the run executes on
+     * @param architectureCost the credit cost of the architecture
+     * @param runCreditLimit   the most credits the cycles of a run may consume
+     * @return the reserved credits, the run is given them less the architecture cost
+     * @throws InsufficientCredits if the user does not have the architecture cost
      */
-    public void setRemainingCredits(int remainingCredits) {
-        this.usedCredits = this.usedCredits + (this.currentCredits - remainingCredits);
-        this.currentCredits = remainingCredits;
+    public synchronized int reserveRunCredits(@NotNull ArchitectureType architectureType, int architectureCost,
+                                              int runCreditLimit) throws InsufficientCredits {
+        if (currentCredits < architectureCost) {
+            throw new InsufficientCredits("Not enough credits to run the program/function at the given " +
+                    "architecture type (" + architectureType + ")", currentCredits, architectureCost);
+        }
+        int reservedCredits = (int) Math.min(currentCredits, (long) architectureCost + runCreditLimit);
+        reserveCredits(reservedCredits);
+        return reservedCredits;
     }
 
-    public void incrementTotalRuns() {
+    /**
+     * Returns the unused part of reserved credits and charges the used part.
+     *
+     * @param reservedCredits the credits that were reserved
+     * @param consumedCredits the credits consumed out of the reserved ones
+     */
+    public synchronized void settleReservedCredits(int reservedCredits, int consumedCredits) {
+        this.currentCredits += reservedCredits - consumedCredits;
+        this.usedCredits += consumedCredits;
+        ServerMetrics.CREDITS_CHARGED.add(consumedCredits);
+        publishChanged();
+    }
+
+    public synchronized void addTotalRuns(int runs) {
+        this.totalRuns += runs;
+        publishChanged();
+    }
+
+    public synchronized void incrementTotalRuns() {
         this.totalRuns++;
+        publishChanged();
     }
 
-    public @NotNull UserDTO getUserDTO() {
+    public synchronized @NotNull UserDTO getUserDTO() {
         return new UserDTO(
                 name,
                 mainProgramsUploaded,
@@ -84,11 +200,20 @@ public class User {
         );
     }
 
-    public int getTotalRuns() {
+    /**
+     * Records the user's current state in the users change log and pushes it to the subscribed clients,
+     * called after every change.
+     */
+    private void publishChanged() {
+        UserManager.getInstance().userChanged(getUserDTO());
+    }
+
+    public synchronized int getTotalRuns() {
         return totalRuns;
     }
 
-    public void setAvailableCredits(int creditsToSet) {
+    public synchronized void setAvailableCredits(int creditsToSet) {
         this.currentCredits = creditsToSet;
+        publishChanged();
     }
 }
@@ -0,0 +1,95 @@
+package logic.admission;
+
+import logic.User;
+import logic.execution.ExecutionPoolManager;
+import logic.metrics.ServerMetrics;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Decides whether a request to an expensive endpoint is admitted, so a single client cannot flood the server.
+ * <p>
+ * Each user has a token bucket per {@link EndpointClass}, and every admitted request takes a token from it.
+ * the cost of a run grows with the load of the interpreter workers: once more runs are in flight than there are
+ * workers, a run costs as many tokens as there are runs in flight per worker, so every user's rate shrinks in
+ * proportion to the backlog instead of the queue filling up.
+ * a user without credits cannot run anything, so their run requests, most likely a client retrying in a loop,
+ * cost {@link #NO_CREDITS_COST_FACTOR} times more.
+ * </p>
+ */
+public class AdmissionController {
+    private static final double NO_CREDITS_COST_FACTOR = 4;
+
+    private final @NotNull ExecutionPoolManager executionPoolManager;
+    private final @NotNull Map<EndpointClass, Limit> limits;
+
+    // region data structures
+    private final @NotNull ConcurrentMap<BucketKey, TokenBucket> buckets = new ConcurrentHashMap<>();
+    // endregion
+
+    /**
+     * @param executionPoolManager  the pools whose load raises the cost of a run
+     * @param runsPerSecond         the rate of run requests of a user
+     * @param runsBurst             the number of run requests a user may make at once
+     * @param debugActionsPerSecond the rate of debug actions of a user
+     * @param debugActionsBurst     the number of debug actions a user may make at once
+     */
+    public AdmissionController(@NotNull ExecutionPoolManager executionPoolManager,
+                               double runsPerSecond, int runsBurst,
+                               double debugActionsPerSecond, int debugActionsBurst) {
+        this.executionPoolManager = executionPoolManager;
+        limits = new EnumMap<>(EndpointClass.class);
+        limits.put(EndpointClass.RUN, new Limit(runsPerSecond, runsBurst));
+        limits.put(EndpointClass.DEBUG_ACTION, new Limit(debugActionsPerSecond, debugActionsBurst));
+    }
+
+    /**
+     * Admits a request of a user, or counts it as rejected.
+     *
+     * @param user          the user making the request
+     * @param endpointClass the class of the requested endpoint
+     * @return 0 if the request is admitted, otherwise the milliseconds until it would be
+     */
+    public long admit(@NotNull User user, @NotNull EndpointClass endpointClass) {
+        TokenBucket bucket = buckets.computeIfAbsent(new BucketKey(user.getName(), endpointClass),
+                key -> limits.get(endpointClass).newBucket());
+        long waitNanos = bucket.tryAcquire(getCost(user, endpointClass));
+        if (waitNanos > 0) {
+            ServerMetrics.admissionRejected(endpointClass).increment();
+            return Math.max(1, waitNanos / 1_000_000);
+        }
+        return 0;
+    }
+
+    private double getCost(@NotNull User user, @NotNull EndpointClass endpointClass) {
+        if (endpointClass != EndpointClass.RUN) {
+            return 1;
+        }
+        double runsPerWorker = (double) (executionPoolManager.getActiveRuns() + executionPoolManager.getQueuedRuns())
+                / executionPoolManager.getInterpreterWorkers();
+        double cost = Math.max(1, runsPerWorker);
+        if (user.getCurrentCredits() <= 0) {
+            cost *= NO_CREDITS_COST_FACTOR;
+        }
+        return cost;
+    }
+
+    private record BucketKey(@NotNull String username, @NotNull EndpointClass endpointClass) {
+    }
+
+    private record Limit(double tokensPerSecond, int burst) {
+        private Limit {
+            if (tokensPerSecond <= 0 || burst <= 0) {
+                throw new IllegalArgumentException("Admission rates and bursts must be positive");
+            }
+        }
+
+        private @NotNull TokenBucket newBucket() {
+            return new TokenBucket(burst, tokensPerSecond);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package logic.admission;
+
+/**
+ * The classes of endpoints rate limited together, each user has a token bucket per class.
+ */
+public enum EndpointClass {
+    /**
+     * Requests starting an execution: runs, batch runs, run jobs and debug sessions.
+     */
+    RUN,
+    /**
+     * Actions of an open debug session, e.g. a step over.
+     */
+    DEBUG_ACTION
+}
@@ -0,0 +1,51 @@
+package logic.admission;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket, refilled at a fixed rate up to its capacity.
+ * <p>
+ * A request takes tokens from the bucket, so a client may burst up to the capacity and then continue at the refill
+ * rate. the bucket is refilled lazily, from the time passed since it was last used, so idle buckets cost nothing.
+ * </p>
+ */
+class TokenBucket {
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param capacity        the maximum number of tokens, the size of the largest burst
+     * @param tokensPerSecond the refill rate
+     */
+    TokenBucket(double capacity, double tokensPerSecond) {
+        if (capacity <= 0 || tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("Token bucket capacity and rate must be positive");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / NANOS_PER_SECOND;
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Takes tokens from the bucket if it holds enough of them, otherwise takes nothing.
+     *
+     * @param cost the number of tokens to take, capped by the capacity so any request can eventually be admitted
+     * @return 0 if the tokens were taken, otherwise the nanoseconds until the bucket holds enough of them
+     */
+    synchronized long tryAcquire(double cost) {
+        cost = Math.min(cost, capacity);
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+        if (tokens >= cost) {
+            tokens -= cost;
+            return 0;
+        }
+        return (long) Math.ceil((cost - tokens) / tokensPerNano);
+    }
+}
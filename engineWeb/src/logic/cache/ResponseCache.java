@@ -0,0 +1,276 @@
+package logic.cache;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import logic.metrics.ServerMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A cache of serialized JSON responses of data that never changes once created, like the info of an uploaded
+ * program, and of versioned data, like the lists of the server, which is cached per version.
+ * <p>
+ * Bodies are kept gzip-compressed together with a strong ETag, so serving a cached response is a byte copy, and a
+ * client holding the same version gets a 304 without a body at all. the ETag of data that never changes is a hash of
+ * the uncompressed JSON, the ETag of versioned data is derived from its version, see {@link #getVersionETag}.
+ * the cache is bounded by the total size of the compressed bodies and evicts the least recently used entries.
+ * a body larger than {@link #maxEntryBytes} is not cached, and is streamed by the caller instead. its key is
+ * remembered, so it is not serialized again only to find it is too large.
+ * </p>
+ */
+public class ResponseCache {
+    // region fields
+    private final long maxTotalBytes;
+    private final int maxEntryBytes;
+    // the creation time of the cache, so an ETag of a version from before a restart of the server never matches
+    private final @NotNull String versionETagPrefix = "\"" + Long.toHexString(System.currentTimeMillis()) + "-";
+    private long totalBytes = 0;
+    // endregion
+
+    // region data structures
+    private final @NotNull LinkedHashMap<Key, CachedResponse> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final @NotNull Set<Key> oversizeKeys = new HashSet<>();
+    // endregion
+
+    /**
+     * @param maxTotalBytes the maximum total size of the cached compressed bodies
+     * @param maxEntryBytes the maximum size of a single compressed body
+     */
+    public ResponseCache(long maxTotalBytes, int maxEntryBytes) {
+        if (maxTotalBytes <= 0 || maxEntryBytes <= 0) {
+            throw new IllegalArgumentException("Response cache sizes must be positive");
+        }
+        this.maxTotalBytes = maxTotalBytes;
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    /**
+     * Gets the cached response of the key, serializing and caching the body if it is not cached yet.
+     * concurrent misses of the same key may serialize the body more than once, the last one is kept.
+     *
+     * @param key          the key of the response
+     * @param bodySupplier creates the object to serialize on a miss
+     * @param gson         the Gson instance serializing the body
+     * @return the cached response, or null if the body is too large to cache, in which case the key is remembered and
+     * the body is not serialized on its next requests
+     */
+    public @Nullable CachedResponse getOrCreate(@NotNull Key key, @NotNull Supplier<Object> bodySupplier,
+                                                @NotNull Gson gson) {
+        return getOrCreate(key, null, bodySupplier, gson);
+    }
+
+    /**
+     * Gets the cached response of the key at a version of its data, serializing and caching the body if the cached
+     * one is of another version. the body is not hashed, its ETag is the ETag of the version.
+     *
+     * @param key          the key of the response
+     * @param version      the version of the data, read before the body is created
+     * @param bodySupplier creates the object to serialize on a miss
+     * @param gson         the Gson instance serializing the body
+     * @return the cached response, or null if the body is too large to cache, like in
+     * {@link #getOrCreate(Key, Supplier, Gson)}
+     */
+    public @Nullable CachedResponse getOrCreate(@NotNull Key key, long version, @NotNull Supplier<Object> bodySupplier,
+                                                @NotNull Gson gson) {
+        return getOrCreate(key, getVersionETag(version), bodySupplier, gson);
+    }
+
+    private @Nullable CachedResponse getOrCreate(@NotNull Key key, @Nullable String versionETag,
+                                                 @NotNull Supplier<Object> bodySupplier, @NotNull Gson gson) {
+        synchronized (this) {
+            CachedResponse cachedResponse = entries.get(key);
+            if (cachedResponse != null && (versionETag == null || cachedResponse.eTag().equals(versionETag))) {
+                ServerMetrics.RESPONSE_CACHE_HITS.increment();
+                return cachedResponse;
+            }
+            if (oversizeKeys.contains(key)) {
+                return null;
+            }
+        }
+        ServerMetrics.RESPONSE_CACHE_MISSES.increment();
+
+        // serialized outside the lock, a large program should not block every other request
+        CachedResponse cachedResponse = serialize(bodySupplier.get(), gson, maxEntryBytes, versionETag);
+        if (cachedResponse == null) {
+            synchronized (this) {
+                oversizeKeys.add(key);
+            }
+            return null;
+        }
+        synchronized (this) {
+            CachedResponse previous = entries.put(key, cachedResponse);
+            if (previous != null) {
+                totalBytes -= previous.gzipBody().length;
+            }
+            totalBytes += cachedResponse.gzipBody().length;
+            evictOverBudget();
+        }
+        return cachedResponse;
+    }
+
+    /**
+     * Gets the strong ETag of a version of versioned data. the versions of a change log restart after a restart of
+     * the server, so the ETag also holds the creation time of the cache.
+     *
+     * @param version the version of the data
+     * @return the ETag, quoted
+     */
+    public @NotNull String getVersionETag(long version) {
+        return versionETagPrefix + version + "\"";
+    }
+
+    /**
+     * @return the maximum size of a single compressed body in the cache
+     */
+    public int getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    public synchronized int getEntriesCount() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Evicts the least recently used entries until the cache fits its budget. must be called while holding the lock.
+     */
+    private void evictOverBudget() {
+        var iterator = entries.entrySet().iterator();
+        while (totalBytes > maxTotalBytes && iterator.hasNext()) {
+            Map.Entry<Key, CachedResponse> eldest = iterator.next();
+            totalBytes -= eldest.getValue().gzipBody().length;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Serializes an object to gzip-compressed JSON, computing the strong ETag of the uncompressed JSON on the way.
+     *
+     * @param body          the object to serialize
+     * @param gson          the Gson instance serializing the body
+     * @param maxGzipBytes  the maximum size of the compressed body
+     * @return the serialized response, or null if the compressed body is larger than the maximum
+     */
+    public static @Nullable CachedResponse serialize(@NotNull Object body, @NotNull Gson gson, int maxGzipBytes) {
+        return serialize(body, gson, maxGzipBytes, null);
+    }
+
+    /**
+     * @param eTag the ETag of the response, or null to hash the JSON for it
+     */
+    private static @Nullable CachedResponse serialize(@NotNull Object body, @NotNull Gson gson, int maxGzipBytes,
+                                                      @Nullable String eTag) {
+        MessageDigest digest = eTag == null ? newDigest() : null;
+        BoundedByteArrayOutputStream gzipBytes = new BoundedByteArrayOutputStream(maxGzipBytes);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(gzipBytes);
+             OutputStream json = digest == null ? gzip : new DigestingOutputStream(gzip, digest);
+             Writer writer = new OutputStreamWriter(json, StandardCharsets.UTF_8)) {
+            JsonWriter jsonWriter = new JsonWriter(writer);
+            gson.toJson(body, body.getClass(), jsonWriter);
+            jsonWriter.flush();
+        } catch (BoundedByteArrayOutputStream.LimitExceeded limitExceeded) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (digest != null) {
+            eTag = "\"" + HexFormat.of().formatHex(digest.digest()) + "\"";
+        }
+        return new CachedResponse(gzipBytes.toByteArray(), eTag);
+    }
+
+    private static @NotNull MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    /**
+     * The key of a cached response.
+     *
+     * @param programName the program the response describes, empty for a list of the whole server
+     * @param info        the kind of info in the response
+     * @param expandLevel the expand level of the info, 0 if the info does not depend on it
+     */
+    public record Key(@NotNull String programName, @NotNull String info, int expandLevel) {
+    }
+
+    /**
+     * A serialized response.
+     *
+     * @param gzipBody the gzip-compressed JSON body
+     * @param eTag     the strong ETag of the body, quoted
+     */
+    public record CachedResponse(byte @NotNull [] gzipBody, @NotNull String eTag) {
+    }
+
+    private static class DigestingOutputStream extends FilterOutputStream {
+        private final @NotNull MessageDigest digest;
+
+        private DigestingOutputStream(@NotNull OutputStream out, @NotNull MessageDigest digest) {
+            super(out);
+            this.digest = digest;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            digest.update((byte) b);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte @NotNull [] b, int off, int len) throws IOException {
+            digest.update(b, off, len);
+            out.write(b, off, len);
+        }
+    }
+
+    private static class BoundedByteArrayOutputStream extends ByteArrayOutputStream {
+        private final int maxBytes;
+
+        private BoundedByteArrayOutputStream(int maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            ensureCapacity(1);
+            super.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte @NotNull [] b, int off, int len) {
+            ensureCapacity(len);
+            super.write(b, off, len);
+        }
+
+        private void ensureCapacity(int extraBytes) {
+            if (count + extraBytes > maxBytes) {
+                throw new LimitExceeded();
+            }
+        }
+
+        private static class LimitExceeded extends RuntimeException {
+            private LimitExceeded() {
+                super(null, null, false, false);
+            }
+        }
+    }
+}
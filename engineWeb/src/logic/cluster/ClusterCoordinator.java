@@ -0,0 +1,491 @@
+package logic.cluster;
+
+import dto.server.ClusterWorkerDTO;
+import engine.core.Engine;
+import engine.core.ExecutionMonitor;
+import engine.exception.ExecutionCancelled;
+import engine.utils.ArchitectureType;
+import logic.manager.ProgramManager;
+import logic.metrics.ServerMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.*;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static utils.ServletConstants.*;
+
+/**
+ * Spreads the runs of the server over worker processes, so the number of runs executing at once is not limited
+ * by a single JVM.
+ * <p>
+ * The server stays the only owner of the users, the credits and the history: it validates a run and reserves its
+ * credits, the coordinator dispatches it to the least loaded {@link ClusterWorker} over a loopback socket, and
+ * the server settles the credits once the result comes back, exactly as for a local run.
+ * every main program of the catalog is replicated to every worker in publish order, before any run of it.
+ * </p>
+ * <p>
+ * A worker sends a heartbeat every {@code CLUSTER_HEARTBEAT_INTERVAL_MILLIS}, with its load and the progress of
+ * its runs. a worker that misses its heartbeats for {@code CLUSTER_HEARTBEAT_TIMEOUT_MILLIS}, or whose connection
+ * breaks, is lost: its runs are dispatched again to the other workers, up to
+ * {@code CLUSTER_MAX_DISPATCH_ATTEMPTS} times, and the worker processes started by the coordinator are restarted.
+ * a run starts over on its new worker, its credits are charged once, from its final result.
+ * </p>
+ */
+public class ClusterCoordinator {
+    // region fields
+    private final int requestedPort;
+    private final @NotNull ProgramManager programManager;
+    private final @NotNull Consumer<Engine> programPublishedListener = this::programPublished;
+    private final @NotNull AtomicLong nextJobId = new AtomicLong();
+    private final @NotNull AtomicInteger acceptedRuns = new AtomicInteger();
+    private final @NotNull ExecutorService connectionThreads =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("cluster-connection-", 0).factory());
+    private final @NotNull ScheduledExecutorService heartbeatMonitor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("cluster-heartbeat-monitor").daemon().factory());
+    private @Nullable ServerSocket serverSocket;
+    private volatile boolean shuttingDown = false;
+    // endregion
+
+    // region data structures
+    private final @NotNull List<WorkerConnection> workers = new CopyOnWriteArrayList<>();
+    // the main programs to replicate to a new worker, in publish order, guarded by replicationLock
+    private final @NotNull List<Engine> publishedPrograms = new ArrayList<>();
+    private final @NotNull Object replicationLock = new Object();
+    private final @NotNull Map<Engine, byte[]> compiledPrograms = new ConcurrentHashMap<>();
+    private final @NotNull Map<String, LocalWorker> localWorkers = new ConcurrentHashMap<>();
+    // endregion
+
+    /**
+     * @param port           the loopback port the workers connect to, 0 for any free port
+     * @param programManager the catalog whose programs are replicated to the workers
+     */
+    public ClusterCoordinator(int port, @NotNull ProgramManager programManager) {
+        this.requestedPort = port;
+        this.programManager = programManager;
+    }
+
+    /**
+     * Starts accepting workers and replicating the programs of the catalog to them.
+     *
+     * @throws IOException if the cluster port cannot be bound
+     */
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(requestedPort, 50, InetAddress.getLoopbackAddress());
+        List<Engine> programsPublishedBefore = programManager.addProgramPublishedListener(programPublishedListener);
+        synchronized (replicationLock) {
+            // the programs published since the listener was added come after them
+            publishedPrograms.addAll(0, programsPublishedBefore);
+        }
+        Thread.ofPlatform().name("cluster-accept").daemon().start(this::acceptLoop);
+        heartbeatMonitor.scheduleAtFixedRate(this::checkWorkers, CLUSTER_HEARTBEAT_INTERVAL_MILLIS,
+                CLUSTER_HEARTBEAT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        System.out.println("Cluster coordinator listening on port " + getPort());
+    }
+
+    /**
+     * Starts worker processes on this machine, running with the class path of the server.
+     *
+     * @param count              the number of worker processes
+     * @param interpreterWorkers the number of interpreter threads of each worker
+     */
+    public void startLocalWorkers(int count, int interpreterWorkers) {
+        for (int i = 1; i <= count; i++) {
+            LocalWorker localWorker = new LocalWorker("local-" + i, interpreterWorkers);
+            localWorkers.put(localWorker.workerId, localWorker);
+            localWorker.start();
+        }
+    }
+
+    // region dispatching
+
+    /**
+     * Starts a run if the workers can queue one more run.
+     *
+     * @param run starts the run
+     * @param <T> the type of the run's result
+     * @return a future of the run's result
+     * @throws RejectedExecutionException if the workers already have as many runs as they can queue
+     */
+    public <T> @NotNull CompletableFuture<T> runInSlot(@NotNull Supplier<CompletableFuture<T>> run)
+            throws RejectedExecutionException {
+        acquireRunSlot();
+        CompletableFuture<T> started;
+        try {
+            started = run.get();
+        } catch (RuntimeException startFailure) {
+            started = CompletableFuture.failedFuture(startFailure);
+        }
+        return started.whenComplete((value, failure) -> acceptedRuns.decrementAndGet());
+    }
+
+    private void acquireRunSlot() throws RejectedExecutionException {
+        int capacity = workers.stream().filter(WorkerConnection::isReady)
+                .mapToInt(WorkerConnection::getQueueCapacity).sum();
+        if (acceptedRuns.incrementAndGet() > capacity) {
+            acceptedRuns.decrementAndGet();
+            throw new RejectedExecutionException("The cluster workers cannot accept more runs");
+        }
+    }
+
+    /**
+     * Dispatches a run that was validated, and whose credits were reserved, to a worker.
+     *
+     * @param username         the user running
+     * @param programName      the program or function to run
+     * @param expandLevel      the expand level of the run
+     * @param architectureType the architecture of the run
+     * @param arguments        the arguments of the run
+     * @param runCredits       the credits left for the run's instructions, after the architecture cost
+     * @param timeLimitMillis  the wall-clock time the run may take, 0 for no limit
+     * @param profile          whether to profile the run
+     * @param monitor          the monitor of the run, a cancel request on it stops the run on its worker
+     * @return a future of the run's result, failed with the exception the run failed with on its worker,
+     * or with {@link RejectedExecutionException} if no worker could run it
+     */
+    public @NotNull CompletableFuture<RemoteRunResult> dispatch(@NotNull String username,
+                                                                @NotNull String programName, int expandLevel,
+                                                                @NotNull ArchitectureType architectureType,
+                                                                @NotNull Map<String, Integer> arguments,
+                                                                int runCredits, long timeLimitMillis,
+                                                                boolean profile, @NotNull ExecutionMonitor monitor) {
+        RemoteJob job = new RemoteJob(new ClusterProtocol.RunJobRequest(nextJobId.incrementAndGet(), username,
+                programName, expandLevel, architectureType.getSymbol(), arguments, runCredits, timeLimitMillis,
+                profile), monitor);
+        dispatch(job);
+        return job.getFuture();
+    }
+
+    private void dispatch(@NotNull RemoteJob job) {
+        while (true) {
+            if (job.getDispatchAttempts() >= CLUSTER_MAX_DISPATCH_ATTEMPTS) {
+                job.getFuture().completeExceptionally(new RejectedExecutionException("Run of " +
+                        job.getRequest().programName() + " failed on " + job.getDispatchAttempts() +
+                        " cluster workers"));
+                return;
+            }
+            WorkerConnection worker = workers.stream().filter(WorkerConnection::isReady)
+                    .min(Comparator.comparingDouble(WorkerConnection::getLoad)).orElse(null);
+            if (worker == null) {
+                job.getFuture().completeExceptionally(new RejectedExecutionException(
+                        "No cluster worker is available"));
+                return;
+            }
+            if (job.dispatched() > 1) {
+                ServerMetrics.CLUSTER_JOBS_REDISPATCHED.increment();
+            }
+            worker.getDispatchedJobs().put(job.getJobId(), job);
+            // the worker may have been lost meanwhile, after its jobs were dispatched again
+            if (!worker.isAlive() && worker.getDispatchedJobs().remove(job.getJobId(), job)) {
+                continue;
+            }
+            worker.send(ClusterProtocol.RUN_JOB, () -> ClusterProtocol.toJson(job.getRequest()));
+            ServerMetrics.CLUSTER_JOBS_DISPATCHED.increment();
+            return;
+        }
+    }
+
+    private void jobFinished(@NotNull WorkerConnection worker, @NotNull ClusterProtocol.JobResult jobResult) {
+        RemoteJob job = worker.getDispatchedJobs().remove(jobResult.jobId());
+        if (job == null) {
+            return;
+        }
+        if (jobResult.rejected()) {
+            System.out.println("Cluster worker " + worker.getWorkerId() + " rejected job " + job.getJobId() +
+                    ": " + jobResult.failureMessage());
+            connectionThreads.execute(() -> dispatch(job));
+            return;
+        }
+        // completed off the connection's thread, the server settles the run's credits on completion
+        connectionThreads.execute(() -> {
+            if (jobResult.result() != null) {
+                job.getFuture().complete(new RemoteRunResult(jobResult.result(), jobResult.executedInstructions(),
+                        jobResult.executionNanos()));
+            } else {
+                job.getFuture().completeExceptionally(ClusterProtocol.deserializeFailure(jobResult));
+            }
+        });
+    }
+    // endregion
+
+    // region workers
+
+    private void acceptLoop() {
+        ServerSocket currentServerSocket = serverSocket;
+        while (!shuttingDown && currentServerSocket != null) {
+            try {
+                Socket socket = currentServerSocket.accept();
+                WorkerConnection worker = new WorkerConnection(socket);
+                connectionThreads.execute(() -> serveWorker(worker));
+            } catch (IOException e) {
+                if (!shuttingDown) {
+                    System.out.println("Failed to accept a cluster worker: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the frames of a worker until its connection is closed, run by the connection's reading thread.
+     */
+    private void serveWorker(@NotNull WorkerConnection worker) {
+        try {
+            ClusterProtocol.Frame helloFrame = worker.readFrame();
+            if (helloFrame.type() != ClusterProtocol.HELLO) {
+                throw new IOException("Expected a hello frame, got frame type " + helloFrame.type());
+            }
+            ClusterProtocol.Hello hello = ClusterProtocol.fromJson(helloFrame.payload(), ClusterProtocol.Hello.class);
+            if (hello.protocolVersion() != ClusterProtocol.PROTOCOL_VERSION) {
+                throw new IOException("Unsupported cluster protocol version " + hello.protocolVersion());
+            }
+            worker.helloReceived(hello);
+            connectionThreads.execute(worker::writeLoop);
+            synchronized (replicationLock) {
+                // queued before the worker is added, so it loads every program before any run
+                for (Engine programEngine : publishedPrograms) {
+                    replicateTo(worker, programEngine);
+                }
+                workers.add(worker);
+            }
+            ServerMetrics.registerClusterWorkerGauges(worker.getWorkerId(), worker::toDTO);
+            System.out.println("Cluster worker " + worker.getWorkerId() + " joined with " +
+                    hello.interpreterWorkers() + " interpreter workers");
+
+            while (worker.isAlive()) {
+                ClusterProtocol.Frame frame = worker.readFrame();
+                switch (frame.type()) {
+                    case ClusterProtocol.HEARTBEAT -> heartbeatReceived(worker,
+                            ClusterProtocol.fromJson(frame.payload(), ClusterProtocol.WorkerStatus.class));
+                    case ClusterProtocol.JOB_RESULT -> jobFinished(worker,
+                            ClusterProtocol.fromJson(frame.payload(), ClusterProtocol.JobResult.class));
+                    default -> throw new IOException("Unexpected cluster frame type " + frame.type());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            if (worker.isAlive() && !shuttingDown) {
+                System.out.println("Lost cluster worker " + worker.getWorkerId() + ": " + e);
+            }
+        } finally {
+            workerLost(worker);
+        }
+    }
+
+    private void heartbeatReceived(@NotNull WorkerConnection worker,
+                                   @NotNull ClusterProtocol.WorkerStatus status) {
+        worker.heartbeatReceived(status);
+        for (ClusterProtocol.JobProgress progress : status.progress()) {
+            RemoteJob job = worker.getDispatchedJobs().get(progress.jobId());
+            if (job != null) {
+                job.getMonitor().publishProgress(progress.cyclesExecuted(), progress.creditsConsumed());
+            }
+        }
+    }
+
+    /**
+     * Removes a lost worker and dispatches its runs to the other workers.
+     */
+    private void workerLost(@NotNull WorkerConnection worker) {
+        boolean wasReady = worker.isReady();
+        worker.close();
+        if (!workers.remove(worker)) {
+            return;
+        }
+        if (wasReady && !shuttingDown) {
+            ServerMetrics.CLUSTER_WORKERS_LOST.increment();
+        }
+        for (RemoteJob job : worker.getDispatchedJobs().values()) {
+            if (!worker.getDispatchedJobs().remove(job.getJobId(), job)) {
+                continue;
+            }
+            ExecutionMonitor monitor = job.getMonitor();
+            ExecutionCancelled.Reason cancelReason = monitor.getCancelReason();
+            if (cancelReason != null) {
+                // stopped anyway, charged for the progress last reported by the worker
+                job.getFuture().completeExceptionally(new ExecutionCancelled(cancelReason, "Execution of " +
+                        job.getRequest().programName() + " stopped", monitor.getCyclesExecuted(),
+                        monitor.getCreditsConsumed()));
+            } else if (shuttingDown) {
+                job.getFuture().completeExceptionally(new RejectedExecutionException("The server is shutting down"));
+            } else {
+                dispatch(job);
+            }
+        }
+    }
+
+    /**
+     * Closes the connections of the workers that stopped sending heartbeats, forwards the cancel requests of the
+     * dispatched runs and restarts the local worker processes that exited. run every heartbeat interval.
+     */
+    private void checkWorkers() {
+        try {
+            for (WorkerConnection worker : workers) {
+                if (worker.getMillisSinceLastHeartbeat() > CLUSTER_HEARTBEAT_TIMEOUT_MILLIS) {
+                    System.out.println("Cluster worker " + worker.getWorkerId() + " missed its heartbeats for " +
+                            worker.getMillisSinceLastHeartbeat() + " ms");
+                    // the reading thread fails, and dispatches the worker's runs again
+                    worker.close();
+                    continue;
+                }
+                for (RemoteJob job : worker.getDispatchedJobs().values()) {
+                    ExecutionCancelled.Reason cancelReason = job.getMonitor().getCancelReason();
+                    if (cancelReason != null && job.markCancelSent()) {
+                        worker.send(ClusterProtocol.CANCEL_JOB, () -> ClusterProtocol.toJson(
+                                new ClusterProtocol.CancelJob(job.getJobId(), cancelReason.name())));
+                    }
+                }
+            }
+            if (!shuttingDown) {
+                localWorkers.values().forEach(LocalWorker::restartIfExited);
+            }
+        } catch (RuntimeException e) {
+            // a failed check must not stop the next ones
+            System.out.println("Failed to check the cluster workers: " + e.getMessage());
+        }
+    }
+    // endregion
+
+    // region replication
+
+    /**
+     * Replicates a newly published program to the workers, called under the catalog's lock.
+     */
+    private void programPublished(@NotNull Engine programEngine) {
+        synchronized (replicationLock) {
+            publishedPrograms.add(programEngine);
+            for (WorkerConnection worker : workers) {
+                replicateTo(worker, programEngine);
+            }
+        }
+    }
+
+    private void replicateTo(@NotNull WorkerConnection worker, @NotNull Engine programEngine) {
+        worker.send(ClusterProtocol.LOAD_PROGRAM, () -> ClusterProtocol.encodeLoadProgram(
+                new ClusterProtocol.LoadProgram(programEngine.getInternalName(), programEngine.getUserUploadedBy(),
+                        compiledPrograms.computeIfAbsent(programEngine, Engine::exportCompiledProgram))));
+    }
+    // endregion
+
+    // region status
+
+    public int getPort() {
+        ServerSocket currentServerSocket = serverSocket;
+        return currentServerSocket == null ? requestedPort : currentServerSocket.getLocalPort();
+    }
+
+    /**
+     * @return true if a worker can be dispatched runs
+     */
+    public boolean hasReadyWorkers() {
+        return workers.stream().anyMatch(WorkerConnection::isReady);
+    }
+
+    public int getReadyWorkersCount() {
+        return (int) workers.stream().filter(WorkerConnection::isReady).count();
+    }
+
+    /**
+     * @return the state of the connected workers
+     */
+    public @NotNull List<ClusterWorkerDTO> getWorkers() {
+        return workers.stream().map(WorkerConnection::toDTO).toList();
+    }
+    // endregion
+
+    /**
+     * Stops accepting workers, fails the dispatched runs and stops the local worker processes.
+     * called when the server shuts down.
+     */
+    public void shutdown() {
+        shuttingDown = true;
+        programManager.removeProgramPublishedListener(programPublishedListener);
+        heartbeatMonitor.shutdownNow();
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException ignored) {
+        }
+        for (WorkerConnection worker : workers) {
+            workerLost(worker);
+        }
+        localWorkers.values().forEach(LocalWorker::stop);
+        connectionThreads.shutdownNow();
+    }
+
+    /**
+     * A worker process started by the coordinator, restarted if it exits.
+     */
+    private final class LocalWorker {
+        private final @NotNull String workerId;
+        private final int interpreterWorkers;
+        private @Nullable Process process;
+
+        private LocalWorker(@NotNull String workerId, int interpreterWorkers) {
+            this.workerId = workerId;
+            this.interpreterWorkers = interpreterWorkers;
+        }
+
+        private synchronized void start() {
+            ProcessBuilder processBuilder = new ProcessBuilder(getJavaCommand(), "-cp", getClassPath(),
+                    ClusterWorker.class.getName(), InetAddress.getLoopbackAddress().getHostAddress(),
+                    String.valueOf(getPort()), workerId, String.valueOf(interpreterWorkers)).inheritIO();
+            try {
+                process = processBuilder.start();
+                System.out.println("Started cluster worker process " + workerId + " (pid " + process.pid() + ")");
+            } catch (IOException e) {
+                System.out.println("Failed to start cluster worker process " + workerId + ": " + e.getMessage());
+            }
+        }
+
+        private synchronized void restartIfExited() {
+            if (process == null || !process.isAlive()) {
+                System.out.println("Cluster worker process " + workerId + " exited, restarting it");
+                start();
+            }
+        }
+
+        private synchronized void stop() {
+            if (process != null) {
+                process.destroy();
+            }
+        }
+
+        private static @NotNull String getJavaCommand() {
+            return ProcessHandle.current().info().command()
+                    .orElse(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        }
+
+        /**
+         * @return the class path of the server: the URLs of the web application's class loaders, then the class
+         * path of the JVM
+         */
+        private static @NotNull String getClassPath() {
+            Set<String> entries = new LinkedHashSet<>();
+            for (ClassLoader loader = ClusterWorker.class.getClassLoader(); loader != null;
+                 loader = loader.getParent()) {
+                if (loader instanceof URLClassLoader urlClassLoader) {
+                    for (URL url : urlClassLoader.getURLs()) {
+                        try {
+                            entries.add(Path.of(url.toURI()).toString());
+                        } catch (URISyntaxException | IllegalArgumentException ignored) {
+                            // not a local file
+                        }
+                    }
+                }
+            }
+            String jvmClassPath = System.getProperty("java.class.path");
+            if (jvmClassPath != null && !jvmClassPath.isBlank()) {
+                entries.addAll(List.of(jvmClassPath.split(File.pathSeparator)));
+            }
+            return String.join(File.pathSeparator, entries);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package logic.cluster;
+
+import com.google.gson.Gson;
+import dto.engine.FullExecutionResultDTO;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The messages exchanged between the {@link ClusterCoordinator} and its {@link ClusterWorker}s over a socket.
+ * <p>
+ * Every message is a frame:
+ * <pre>
+ * int    frame length, the length of the type and the payload
+ * byte   frame type
+ * bytes  payload
+ * </pre>
+ * the payload of a {@link #LOAD_PROGRAM} frame is binary:
+ * <pre>
+ * string program name
+ * string uploaded by
+ * int    compiled program length, then the compiled program, see {@link engine.utils.CompiledProgramCodec}
+ * </pre>
+ * the payload of every other frame is the UTF-8 JSON of its message record.
+ * a string is written by {@link DataOutputStream#writeUTF}. both sides reject a {@link Hello} of another protocol
+ * version, so a change of the messages must come with a new version.
+ * </p>
+ */
+final class ClusterProtocol {
+    static final int PROTOCOL_VERSION = 1;
+    private static final int MAX_FRAME_BYTES = 256 * 1024 * 1024;
+    // the failures of the runs are exceptions of the engine, anything else is read back as its message only
+    private static final ObjectInputFilter FAILURE_FILTER = ObjectInputFilter.Config.createFilter(
+            "engine.exception.*;java.lang.*;java.util.*;maxdepth=20;!*");
+    private static final Gson gson = new Gson();
+
+    // region frame types
+    /**
+     * Worker to coordinator, the first frame of a connection.
+     */
+    static final byte HELLO = 1;
+    /**
+     * Worker to coordinator, the status of the worker, sent every heartbeat interval.
+     */
+    static final byte HEARTBEAT = 2;
+    /**
+     * Coordinator to worker, a main program to build, sent in publish order.
+     */
+    static final byte LOAD_PROGRAM = 3;
+    /**
+     * Coordinator to worker, a run to execute.
+     */
+    static final byte RUN_JOB = 4;
+    /**
+     * Coordinator to worker, a run to stop.
+     */
+    static final byte CANCEL_JOB = 5;
+    /**
+     * Worker to coordinator, the result or failure of a run.
+     */
+    static final byte JOB_RESULT = 6;
+    // endregion
+
+    private ClusterProtocol() {
+    }
+
+    // region messages
+    record Frame(byte type, byte @NotNull [] payload) {
+    }
+
+    /**
+     * @param protocolVersion    the protocol version of the worker
+     * @param workerId           the id of the worker, unique in the cluster
+     * @param interpreterWorkers the number of interpreter threads of the worker
+     * @param queueCapacity      the number of runs the worker accepts at once
+     */
+    record Hello(int protocolVersion, @NotNull String workerId, int interpreterWorkers, int queueCapacity) {
+    }
+
+    /**
+     * @param activeRuns           the runs executing a slice
+     * @param queuedRuns           the runs waiting for a slice
+     * @param runsCompleted        the runs the worker finished since it started
+     * @param instructionsExecuted the instructions the worker executed since it started
+     * @param heapUsedBytes        the used heap memory of the worker
+     * @param progress             the progress of the runs of the worker
+     */
+    record WorkerStatus(int activeRuns, int queuedRuns, long runsCompleted, long instructionsExecuted,
+                        long heapUsedBytes, @NotNull List<JobProgress> progress) {
+    }
+
+    record JobProgress(long jobId, int cyclesExecuted, int creditsConsumed) {
+    }
+
+    record LoadProgram(@NotNull String programName, @NotNull String uploadedBy, byte @NotNull [] compiledProgram) {
+    }
+
+    /**
+     * @param jobId           the id of the job, unique per coordinator
+     * @param username        the user running the program, the flow of the run on the worker
+     * @param programName     the program or function to run
+     * @param expandLevel     the expand level of the run
+     * @param architecture    the symbol of the architecture of the run
+     * @param arguments       the arguments of the run
+     * @param credits         the credits the run may consume, after the architecture cost was charged
+     * @param timeLimitMillis the wall-clock time the run may take, 0 for no limit
+     * @param profile         whether to profile the run
+     */
+    record RunJobRequest(long jobId, @NotNull String username, @NotNull String programName, int expandLevel,
+                         @NotNull String architecture, @NotNull Map<String, Integer> arguments, int credits,
+                         long timeLimitMillis, boolean profile) {
+    }
+
+    /**
+     * @param jobId  the id of the job to stop
+     * @param reason the name of the {@link engine.exception.ExecutionCancelled.Reason} of the stop
+     */
+    record CancelJob(long jobId, @NotNull String reason) {
+    }
+
+    /**
+     * The end of a run, either its result or its failure.
+     *
+     * @param jobId                the id of the job
+     * @param result               the result of the run, null if it failed
+     * @param executedInstructions the instructions the run executed
+     * @param executionNanos       the time the run spent executing
+     * @param rejected             true if the worker could not accept the run, it may be sent to another worker
+     * @param failureMessage       the message of the failure, null if the run succeeded
+     * @param failure              the serialized exception the run failed with, null if the run succeeded
+     */
+    record JobResult(long jobId, @Nullable FullExecutionResultDTO result, long executedInstructions,
+                     long executionNanos, boolean rejected, @Nullable String failureMessage,
+                     byte @Nullable [] failure) {
+
+        static @NotNull JobResult succeeded(long jobId, @NotNull FullExecutionResultDTO result,
+                                            long executedInstructions, long executionNanos) {
+            return new JobResult(jobId, result, executedInstructions, executionNanos, false, null, null);
+        }
+
+        static @NotNull JobResult failed(long jobId, @NotNull Throwable failure) {
+            return new JobResult(jobId, null, 0, 0, false, String.valueOf(failure.getMessage()),
+                    serializeFailure(failure));
+        }
+
+        static @NotNull JobResult rejected(long jobId, @NotNull String reason) {
+            return new JobResult(jobId, null, 0, 0, true, reason, null);
+        }
+    }
+    // endregion
+
+    // region frames
+    static void writeFrame(@NotNull DataOutputStream out, byte type, byte @NotNull [] payload) throws IOException {
+        out.writeInt(payload.length + 1);
+        out.writeByte(type);
+        out.write(payload);
+        out.flush();
+    }
+
+    static @NotNull Frame readFrame(@NotNull DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 1 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Invalid cluster frame length " + length);
+        }
+        byte type = in.readByte();
+        byte[] payload = new byte[length - 1];
+        in.readFully(payload);
+        return new Frame(type, payload);
+    }
+
+    static byte @NotNull [] toJson(@NotNull Object message) {
+        return gson.toJson(message).getBytes(StandardCharsets.UTF_8);
+    }
+
+    static <T> @NotNull T fromJson(byte @NotNull [] payload, @NotNull Class<T> messageType) throws IOException {
+        T message = gson.fromJson(new String(payload, StandardCharsets.UTF_8), messageType);
+        if (message == null) {
+            throw new IOException("Empty " + messageType.getSimpleName() + " message");
+        }
+        return message;
+    }
+
+    static byte @NotNull [] encodeLoadProgram(@NotNull LoadProgram loadProgram) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(loadProgram.compiledProgram().length + 256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(loadProgram.programName());
+            out.writeUTF(loadProgram.uploadedBy());
+            out.writeInt(loadProgram.compiledProgram().length);
+            out.write(loadProgram.compiledProgram());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static @NotNull LoadProgram decodeLoadProgram(byte @NotNull [] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        String programName = in.readUTF();
+        String uploadedBy = in.readUTF();
+        byte[] compiledProgram = new byte[in.readInt()];
+        in.readFully(compiledProgram);
+        return new LoadProgram(programName, uploadedBy, compiledProgram);
+    }
+    // endregion
+
+    // region failures
+    private static byte @Nullable [] serializeFailure(@NotNull Throwable failure) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(failure);
+        } catch (IOException e) {
+            // not serializable, the coordinator falls back to the message
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads back the exception a run failed with on a worker, so the coordinator handles a remote failure
+     * like a local one.
+     *
+     * @param jobResult the failed run
+     * @return the exception of the run, or a {@link RuntimeException} with its message if it cannot be read back
+     */
+    static @NotNull Throwable deserializeFailure(@NotNull JobResult jobResult) {
+        if (jobResult.failure() != null) {
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(jobResult.failure()))) {
+                in.setObjectInputFilter(FAILURE_FILTER);
+                if (in.readObject() instanceof Throwable failure) {
+                    return failure;
+                }
+            } catch (IOException | ClassNotFoundException e) {
+                System.out.println("Failed to read the failure of cluster job " + jobResult.jobId() + ": " +
+                        e.getMessage());
+            }
+        }
+        return new RuntimeException(jobResult.failureMessage());
+    }
+    // endregion
+}
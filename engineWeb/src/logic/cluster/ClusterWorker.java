@@ -0,0 +1,291 @@
+package logic.cluster;
+
+import dto.engine.FullExecutionResultDTO;
+import engine.core.Engine;
+import engine.core.ExecutionMonitor;
+import engine.core.PreparedRun;
+import engine.exception.ExecutionCancelled;
+import engine.metrics.EngineMetrics;
+import engine.utils.ArchitectureType;
+import engine.utils.CompiledProgramCodec;
+import logic.execution.ExecutionPoolManager;
+import logic.execution.SlicedRun;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static utils.ServletConstants.*;
+
+/**
+ * A worker process of the cluster, executing the runs the {@link ClusterCoordinator} dispatches to it.
+ * <p>
+ * The worker connects to the coordinator, which replicates to it every main program of the catalog in publish
+ * order, then sends it runs. the runs execute on the worker's own {@link ExecutionPoolManager}, and their results
+ * are sent back to the coordinator, which charges the credits and records the runs. the worker keeps no state of
+ * its own besides the replicated programs: if the connection is lost, it stops its runs, forgets the programs and
+ * connects again, getting every program once more.
+ * </p>
+ * usage: {@code ClusterWorker <coordinator host> <coordinator port> <worker id> [interpreter workers]}
+ */
+public final class ClusterWorker {
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    // region fields
+    private final @NotNull String coordinatorHost;
+    private final int coordinatorPort;
+    private final @NotNull String workerId;
+    private final @NotNull ExecutionPoolManager executionPools;
+    private final @NotNull AtomicLong runsCompleted = new AtomicLong();
+    private final int queueCapacity;
+    // endregion
+
+    /**
+     * @param coordinatorHost    the host of the coordinator, normally the loopback address
+     * @param coordinatorPort    the cluster port of the coordinator
+     * @param workerId           the id of the worker, unique in the cluster
+     * @param interpreterWorkers the number of interpreter threads, split between the architecture pools
+     */
+    public ClusterWorker(@NotNull String coordinatorHost, int coordinatorPort, @NotNull String workerId,
+                         int interpreterWorkers) {
+        this.coordinatorHost = coordinatorHost;
+        this.coordinatorPort = coordinatorPort;
+        this.workerId = workerId;
+        Map<ArchitectureType, ExecutionPoolManager.PoolConfiguration> poolConfigurations =
+                new EnumMap<>(ArchitectureType.class);
+        List<String> architectures = ArchitectureType.getSupportedArchitectures();
+        int workersPerPool = Math.max(1, interpreterWorkers / architectures.size());
+        for (String architecture : architectures) {
+            poolConfigurations.put(ArchitectureType.fromString(architecture),
+                    new ExecutionPoolManager.PoolConfiguration(workersPerPool, DEFAULT_RUN_QUEUE_CAPACITY,
+                            Thread.NORM_PRIORITY));
+        }
+        // the time limit of a run is enforced by its monitor, the coordinator waits for the result
+        this.executionPools = new ExecutionPoolManager(poolConfigurations, DEFAULT_RUN_TIMEOUT_MILLIS,
+                DEFAULT_SLICE_CYCLE_BUDGET);
+        this.queueCapacity = DEFAULT_RUN_QUEUE_CAPACITY;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.println("usage: ClusterWorker <coordinator host> <coordinator port> <worker id> " +
+                    "[interpreter workers]");
+            System.exit(2);
+        }
+        int interpreterWorkers = args.length > 3 ? Integer.parseInt(args[3]) :
+                Runtime.getRuntime().availableProcessors();
+        new ClusterWorker(args[0], Integer.parseInt(args[1]), args[2], interpreterWorkers).run();
+    }
+
+    /**
+     * Serves the coordinator until the process is stopped, connecting again whenever the connection is lost.
+     */
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try (Socket socket = new Socket(coordinatorHost, coordinatorPort)) {
+                socket.setTcpNoDelay(true);
+                System.out.println("Cluster worker " + workerId + " connected to " + coordinatorHost + ":" +
+                        coordinatorPort);
+                new Session(socket).serve();
+            } catch (IOException e) {
+                System.out.println("Cluster worker " + workerId + " lost the coordinator: " + e);
+            }
+            try {
+                Thread.sleep(RECONNECT_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        executionPools.shutdown();
+    }
+
+    /**
+     * A connection to the coordinator, with the programs replicated over it and the runs it dispatched.
+     */
+    private final class Session {
+        private final @NotNull DataInputStream in;
+        private final @NotNull DataOutputStream out;
+        // the replicated programs, read by the runs while new programs are loaded
+        private final @NotNull Map<String, Engine> functionsAndPrograms = new ConcurrentHashMap<>();
+        private final @NotNull Map<String, Engine> functions = new ConcurrentHashMap<>();
+        private final @NotNull ConcurrentMap<Long, WorkerRun> runs = new ConcurrentHashMap<>();
+
+        private Session(@NotNull Socket socket) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        private void serve() throws IOException {
+            send(ClusterProtocol.HELLO, ClusterProtocol.toJson(new ClusterProtocol.Hello(
+                    ClusterProtocol.PROTOCOL_VERSION, workerId, executionPools.getInterpreterWorkers(),
+                    queueCapacity)));
+            ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("cluster-heartbeat-" + workerId).daemon().factory());
+            heartbeats.scheduleAtFixedRate(this::sendHeartbeat, 0, CLUSTER_HEARTBEAT_INTERVAL_MILLIS,
+                    TimeUnit.MILLISECONDS);
+            try {
+                while (true) {
+                    ClusterProtocol.Frame frame = ClusterProtocol.readFrame(in);
+                    switch (frame.type()) {
+                        case ClusterProtocol.LOAD_PROGRAM ->
+                                loadProgram(ClusterProtocol.decodeLoadProgram(frame.payload()));
+                        case ClusterProtocol.RUN_JOB -> startRun(ClusterProtocol.fromJson(frame.payload(),
+                                ClusterProtocol.RunJobRequest.class));
+                        case ClusterProtocol.CANCEL_JOB -> cancelRun(ClusterProtocol.fromJson(frame.payload(),
+                                ClusterProtocol.CancelJob.class));
+                        default -> throw new IOException("Unexpected cluster frame type " + frame.type());
+                    }
+                }
+            } finally {
+                heartbeats.shutdownNow();
+                // nobody waits for their results anymore
+                runs.values().forEach(run -> run.monitor.requestCancel());
+            }
+        }
+
+        private void loadProgram(@NotNull ClusterProtocol.LoadProgram loadProgram) {
+            try {
+                CompiledProgramCodec.CompiledProgram compiledProgram =
+                        CompiledProgramCodec.decode(loadProgram.compiledProgram());
+                Engine programEngine = Engine.createMainProgramEngine(compiledProgram.program(),
+                        functionsAndPrograms, loadProgram.uploadedBy());
+                programEngine.addProgramAndFunctionsToSystem(functionsAndPrograms, functions);
+            } catch (Exception e) {
+                // the runs of the program fail on this worker, the coordinator built it so this is not expected
+                System.out.println("Cluster worker " + workerId + " failed to load program " +
+                        loadProgram.programName() + ": " + e.getMessage());
+            }
+        }
+
+        private void startRun(@NotNull ClusterProtocol.RunJobRequest request) {
+            WorkerRun run = new WorkerRun(request, functionsAndPrograms.get(request.programName()));
+            runs.put(request.jobId(), run);
+            CompletableFuture<FullExecutionResultDTO> future;
+            try {
+                future = executionPools.schedule(request.username(), run);
+            } catch (RejectedExecutionException e) {
+                runs.remove(request.jobId());
+                sendResult(ClusterProtocol.JobResult.rejected(request.jobId(), "The run queue of worker " +
+                        workerId + " is full"));
+                return;
+            }
+            future.whenComplete((result, throwable) -> {
+                runs.remove(request.jobId());
+                runsCompleted.incrementAndGet();
+                if (throwable == null) {
+                    sendResult(ClusterProtocol.JobResult.succeeded(request.jobId(), result,
+                            run.getExecutedInstructionsCount(), run.getExecutionNanos()));
+                } else {
+                    sendResult(ClusterProtocol.JobResult.failed(request.jobId(),
+                            throwable instanceof CompletionException ? throwable.getCause() : throwable));
+                }
+            });
+        }
+
+        private void cancelRun(@NotNull ClusterProtocol.CancelJob cancelJob) {
+            WorkerRun run = runs.get(cancelJob.jobId());
+            if (run != null) {
+                run.monitor.requestCancel(ExecutionCancelled.Reason.valueOf(cancelJob.reason()));
+            }
+        }
+
+        private void sendHeartbeat() {
+            List<ClusterProtocol.JobProgress> progress = new ArrayList<>(runs.size());
+            runs.forEach((jobId, run) -> progress.add(new ClusterProtocol.JobProgress(jobId,
+                    run.monitor.getCyclesExecuted(), run.monitor.getCreditsConsumed())));
+            MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+            ClusterProtocol.WorkerStatus status = new ClusterProtocol.WorkerStatus(executionPools.getActiveRuns(),
+                    executionPools.getQueuedRuns(), runsCompleted.get(), EngineMetrics.INSTRUCTIONS_EXECUTED.get(),
+                    memoryMXBean.getHeapMemoryUsage().getUsed(), progress);
+            try {
+                send(ClusterProtocol.HEARTBEAT, ClusterProtocol.toJson(status));
+            } catch (IOException e) {
+                // the reading thread sees the broken connection as well
+            }
+        }
+
+        private void sendResult(@NotNull ClusterProtocol.JobResult jobResult) {
+            try {
+                send(ClusterProtocol.JOB_RESULT, ClusterProtocol.toJson(jobResult));
+            } catch (IOException e) {
+                System.out.println("Cluster worker " + workerId + " failed to send the result of job " +
+                        jobResult.jobId() + ": " + e.getMessage());
+            }
+        }
+
+        private void send(byte type, byte @NotNull [] payload) throws IOException {
+            synchronized (out) {
+                ClusterProtocol.writeFrame(out, type, payload);
+            }
+        }
+    }
+
+    /**
+     * A run dispatched by the coordinator, which already validated it and reserved its credits.
+     */
+    private static final class WorkerRun implements SlicedRun<FullExecutionResultDTO> {
+        private final @NotNull ClusterProtocol.RunJobRequest request;
+        private final @Nullable Engine engine;
+        private final @NotNull ArchitectureType architectureType;
+        private final @NotNull ExecutionMonitor monitor;
+        private @Nullable PreparedRun preparedRun;
+
+        private WorkerRun(@NotNull ClusterProtocol.RunJobRequest request, @Nullable Engine engine) {
+            this.request = request;
+            this.engine = engine;
+            this.architectureType = ArchitectureType.fromString(request.architecture());
+            this.monitor = new ExecutionMonitor(request.timeLimitMillis());
+        }
+
+        @Override
+        public boolean runSlice(long cycleBudget) {
+            if (preparedRun == null) {
+                if (engine == null) {
+                    throw new IllegalStateException("Program " + request.programName() +
+                            " is not loaded on this worker");
+                }
+                preparedRun = engine.prepareValidatedRun(request.expandLevel(), request.arguments(),
+                        request.credits(), architectureType, monitor, request.profile());
+            }
+            return preparedRun.runSlice(cycleBudget);
+        }
+
+        @Override
+        public @NotNull FullExecutionResultDTO getResult() {
+            if (preparedRun == null) {
+                throw new IllegalStateException("The run did not start yet");
+            }
+            return preparedRun.getResult();
+        }
+
+        @Override
+        public long getCyclesExecuted() {
+            return preparedRun == null ? 0 : preparedRun.getCyclesExecuted();
+        }
+
+        private long getExecutedInstructionsCount() {
+            return preparedRun == null ? 0 : preparedRun.getExecutedInstructionsCount();
+        }
+
+        private long getExecutionNanos() {
+            return preparedRun == null ? 0 : preparedRun.getExecutionNanos();
+        }
+
+        @Override
+        public @NotNull ArchitectureType getArchitectureType() {
+            return architectureType;
+        }
+
+        @Override
+        public boolean isExclusive() {
+            // the server reserved the credits of each run, so the runs of a user may run alongside each other
+            return false;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package logic.cluster;
+
+import engine.core.ExecutionMonitor;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A run dispatched to the workers of the cluster, kept by the coordinator until its result arrives,
+ * so it can be sent to another worker if its worker is lost.
+ */
+final class RemoteJob {
+    private final @NotNull ClusterProtocol.RunJobRequest request;
+    private final @NotNull ExecutionMonitor monitor;
+    private final @NotNull CompletableFuture<RemoteRunResult> future = new CompletableFuture<>();
+    private int dispatchAttempts = 0;
+    private volatile boolean cancelSent = false;
+
+    RemoteJob(@NotNull ClusterProtocol.RunJobRequest request, @NotNull ExecutionMonitor monitor) {
+        this.request = request;
+        this.monitor = monitor;
+    }
+
+    @NotNull ClusterProtocol.RunJobRequest getRequest() {
+        return request;
+    }
+
+    long getJobId() {
+        return request.jobId();
+    }
+
+    /**
+     * @return the monitor of the run on the coordinator, a cancel request on it is forwarded to the worker,
+     * and the progress reported by the worker is published on it
+     */
+    @NotNull ExecutionMonitor getMonitor() {
+        return monitor;
+    }
+
+    @NotNull CompletableFuture<RemoteRunResult> getFuture() {
+        return future;
+    }
+
+    /**
+     * Counts a dispatch of the job to a worker.
+     *
+     * @return the number of times the job was dispatched, including this one
+     */
+    synchronized int dispatched() {
+        cancelSent = false;
+        return ++dispatchAttempts;
+    }
+
+    synchronized int getDispatchAttempts() {
+        return dispatchAttempts;
+    }
+
+    /**
+     * @return true the first time it is called since the job was dispatched, so the cancel is sent once
+     */
+    boolean markCancelSent() {
+        if (cancelSent) {
+            return false;
+        }
+        cancelSent = true;
+        return true;
+    }
+}
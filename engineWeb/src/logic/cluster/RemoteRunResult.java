@@ -0,0 +1,15 @@
+package logic.cluster;
+
+import dto.engine.FullExecutionResultDTO;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The result of a run executed by a {@link ClusterWorker}.
+ *
+ * @param result               the result of the run
+ * @param executedInstructions the instructions the run executed, for the program's statistics
+ * @param executionNanos       the time the run spent executing on the worker, for the program's statistics
+ */
+public record RemoteRunResult(@NotNull FullExecutionResultDTO result, long executedInstructions,
+                              long executionNanos) {
+}
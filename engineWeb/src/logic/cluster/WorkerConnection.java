@@ -0,0 +1,163 @@
+package logic.cluster;
+
+import dto.server.ClusterWorkerDTO;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The coordinator's side of the connection to a {@link ClusterWorker}.
+ * <p>
+ * Frames are sent by a single writer thread from a queue, so a large program being replicated does not block the
+ * thread dispatching a run, and the worker receives the frames in the order they were queued: a program is always
+ * loaded before the runs of it. the payload of a queued frame is created by the writer thread, once it is sent.
+ * </p>
+ */
+final class WorkerConnection {
+    // region fields
+    private final @NotNull Socket socket;
+    private final @NotNull DataInputStream in;
+    private final @NotNull DataOutputStream out;
+    private final @NotNull BlockingQueue<OutboundFrame> outbound = new LinkedBlockingQueue<>();
+    private final @NotNull ConcurrentMap<Long, RemoteJob> dispatchedJobs = new ConcurrentHashMap<>();
+    private volatile @Nullable ClusterProtocol.Hello hello;
+    private volatile @Nullable ClusterProtocol.WorkerStatus status;
+    private volatile long lastHeartbeatNanos = System.nanoTime();
+    private volatile boolean alive = true;
+    // endregion
+
+    WorkerConnection(@NotNull Socket socket) throws IOException {
+        this.socket = socket;
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    @NotNull ClusterProtocol.Frame readFrame() throws IOException {
+        return ClusterProtocol.readFrame(in);
+    }
+
+    /**
+     * Queues a frame to send, dropped if the connection is closed.
+     *
+     * @param type    the frame type
+     * @param payload creates the payload of the frame, called by the writer thread
+     */
+    void send(byte type, @NotNull Supplier<byte[]> payload) {
+        if (alive) {
+            outbound.add(new OutboundFrame(type, payload));
+        }
+    }
+
+    /**
+     * Sends the queued frames until the connection is closed, run by the connection's writer thread.
+     */
+    void writeLoop() {
+        try {
+            while (alive) {
+                OutboundFrame frame = outbound.poll(1, TimeUnit.SECONDS);
+                if (frame != null) {
+                    ClusterProtocol.writeFrame(out, frame.type(), frame.payload().get());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            if (alive) {
+                System.out.println("Failed to write to cluster worker " + getWorkerId() + ": " + e.getMessage());
+            }
+            close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+        }
+    }
+
+    /**
+     * Closes the connection, the reading thread then sees the worker as lost.
+     */
+    void close() {
+        alive = false;
+        outbound.clear();
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    void helloReceived(@NotNull ClusterProtocol.Hello hello) {
+        this.hello = hello;
+        lastHeartbeatNanos = System.nanoTime();
+    }
+
+    void heartbeatReceived(@NotNull ClusterProtocol.WorkerStatus status) {
+        this.status = status;
+        lastHeartbeatNanos = System.nanoTime();
+    }
+
+    long getMillisSinceLastHeartbeat() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastHeartbeatNanos);
+    }
+
+    boolean isAlive() {
+        return alive;
+    }
+
+    /**
+     * @return true once the worker introduced itself, runs are dispatched only to ready workers
+     */
+    boolean isReady() {
+        return alive && hello != null;
+    }
+
+    @NotNull String getWorkerId() {
+        ClusterProtocol.Hello currentHello = hello;
+        return currentHello == null ? String.valueOf(socket.getRemoteSocketAddress()) : currentHello.workerId();
+    }
+
+    int getInterpreterWorkers() {
+        ClusterProtocol.Hello currentHello = hello;
+        return currentHello == null ? 0 : currentHello.interpreterWorkers();
+    }
+
+    int getQueueCapacity() {
+        ClusterProtocol.Hello currentHello = hello;
+        return currentHello == null ? 0 : currentHello.queueCapacity();
+    }
+
+    /**
+     * @return the runs dispatched to the worker that did not finish yet, by job id
+     */
+    @NotNull ConcurrentMap<Long, RemoteJob> getDispatchedJobs() {
+        return dispatchedJobs;
+    }
+
+    /**
+     * @return the runs dispatched to the worker per interpreter thread, the worker with the least is sent the
+     * next run
+     */
+    double getLoad() {
+        return (double) dispatchedJobs.size() / Math.max(1, getInterpreterWorkers());
+    }
+
+    @NotNull ClusterWorkerDTO toDTO() {
+        ClusterProtocol.WorkerStatus currentStatus = status;
+        return new ClusterWorkerDTO(getWorkerId(), alive, getInterpreterWorkers(),
+                currentStatus == null ? 0 : currentStatus.activeRuns(),
+                currentStatus == null ? 0 : currentStatus.queuedRuns(),
+                dispatchedJobs.size(),
+                currentStatus == null ? 0 : currentStatus.runsCompleted(),
+                currentStatus == null ? 0 : currentStatus.instructionsExecuted(),
+                currentStatus == null ? 0 : currentStatus.heapUsedBytes(),
+                getMillisSinceLastHeartbeat());
+    }
+
+    private record OutboundFrame(byte type, @NotNull Supplier<byte[]> payload) {
+    }
+}
@@ -0,0 +1,86 @@
+package logic.events;
+
+import dto.server.ChangesDTO;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * A bounded log of the changes of a collection, so a polling client can ask for the changes since the version it
+ * already has instead of the whole collection.
+ * <p>
+ * Every recorded change gets the next version. only the last {@link #capacity} changes are kept, a client asking
+ * for changes older than that (or newer than the current version, e.g. after a restart) gets the whole collection
+ * and must replace what it has.
+ * </p>
+ *
+ * @param <T> the type of the entries of the collection
+ */
+public class ChangeLog<T> {
+    private final int capacity;
+    private final @NotNull ArrayDeque<Change<T>> changes = new ArrayDeque<>();
+    private long version = 0;
+
+    /**
+     * @param capacity the number of changes to keep
+     */
+    public ChangeLog(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Change log capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Records the new state of an entry. must be called after the collection itself is changed,
+     * so a client that gets the whole collection at a version never misses a change after it.
+     *
+     * @param key   identifies the entry in the collection
+     * @param entry the new state of the entry
+     * @return the version of the change
+     */
+    public synchronized long record(@NotNull String key, @NotNull T entry) {
+        version++;
+        changes.addLast(new Change<>(version, key, entry));
+        if (changes.size() > capacity) {
+            changes.removeFirst();
+        }
+        return version;
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the entries changed since a version, each entry once in its latest state.
+     *
+     * @param sinceVersion    the version the client has
+     * @param wholeCollection creates the whole collection, used if the changes since the version are not kept
+     * @return the changes, or the whole collection marked for resync
+     */
+    public @NotNull ChangesDTO<T> getChangesSince(long sinceVersion, @NotNull Supplier<Collection<T>> wholeCollection) {
+        long currentVersion;
+        synchronized (this) {
+            currentVersion = version;
+            long oldestKeptVersion = changes.isEmpty() ? version + 1 : changes.getFirst().version();
+            if (sinceVersion <= currentVersion && sinceVersion >= oldestKeptVersion - 1) {
+                Map<String, T> changedEntries = new LinkedHashMap<>();
+                for (Change<T> change : changes) {
+                    if (change.version() > sinceVersion) {
+                        // removed first, so each entry is ordered by its latest change
+                        changedEntries.remove(change.key());
+                        changedEntries.put(change.key(), change.entry());
+                    }
+                }
+                return new ChangesDTO<>(currentVersion, false, new ArrayList<>(changedEntries.values()));
+            }
+        }
+        // the version is read before the collection, so any change the collection misses is sent next time
+        return new ChangesDTO<>(currentVersion, true, new ArrayList<>(wholeCollection.get()));
+    }
+
+    private record Change<T>(long version, @NotNull String key, @NotNull T entry) {
+    }
+}
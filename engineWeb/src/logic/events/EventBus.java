@@ -0,0 +1,111 @@
+package logic.events;
+
+import com.google.gson.Gson;
+import dto.engine.ExecutionResultStatisticsDTO;
+import dto.engine.FunctionMetadata;
+import dto.engine.ProgramMetadata;
+import dto.server.HistoryAppendedDTO;
+import dto.server.UserDTO;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static utils.ServletConstants.*;
+
+/**
+ * Pushes the changes of the catalog, the users and the execution history to the subscribed clients,
+ * so the dashboards do not have to poll the full lists.
+ * <p>
+ * Publishing never blocks: each event is serialized once and handed to every subscription,
+ * which keeps it until the client's stream takes it. nothing is serialized while no client is subscribed.
+ * </p>
+ */
+public class EventBus {
+    // region data structures
+    private final @NotNull List<EventSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final @NotNull AtomicLong lastEventId = new AtomicLong(0);
+    private final @NotNull Gson gson = new Gson();
+    // endregion
+
+    // region singleton pattern
+    private EventBus() {
+    }
+
+    private static class EventBusHolder {
+        private static final EventBus INSTANCE = new EventBus();
+    }
+
+    /**
+     * Provides the singleton instance of the event bus.
+     *
+     * @return The single instance of EventBus.
+     */
+    public static EventBus getInstance() {
+        return EventBusHolder.INSTANCE;
+    }
+    // endregion
+
+    // region subscriptions
+
+    /**
+     * Subscribes a client to the events published from now on.
+     *
+     * @param maxPendingEvents the number of events the client may fall behind before it needs a full snapshot
+     * @return the subscription, must be passed to {@link #unsubscribe(EventSubscription)} once the client leaves
+     */
+    public @NotNull EventSubscription subscribe(int maxPendingEvents) {
+        EventSubscription subscription = new EventSubscription(maxPendingEvents);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    public void unsubscribe(@NotNull EventSubscription subscription) {
+        subscriptions.remove(subscription);
+        subscription.close();
+    }
+
+    public int getSubscribersCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * @return the id of the last published event
+     */
+    public long getLastEventId() {
+        return lastEventId.get();
+    }
+    // endregion
+
+    // region publishing methods
+
+    public void publishProgramChanged(@NotNull ProgramMetadata programMetadata) {
+        publish(PROGRAM_CHANGED_EVENT, PROGRAM_CHANGED_EVENT + ":" + programMetadata.name(), programMetadata);
+    }
+
+    public void publishFunctionChanged(@NotNull FunctionMetadata functionMetadata) {
+        publish(FUNCTION_CHANGED_EVENT, FUNCTION_CHANGED_EVENT + ":" + functionMetadata.name(), functionMetadata);
+    }
+
+    public void publishUserChanged(@NotNull UserDTO userDTO) {
+        publish(USER_CHANGED_EVENT, USER_CHANGED_EVENT + ":" + userDTO.name(), userDTO);
+    }
+
+    public void publishHistoryAppended(@NotNull String username,
+                                       @NotNull List<ExecutionResultStatisticsDTO> executionResults) {
+        publish(HISTORY_APPENDED_EVENT, null, new HistoryAppendedDTO(username, executionResults));
+    }
+
+    private void publish(@NotNull String name, @Nullable String coalescingKey, @NotNull Object payload) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        ServerEvent event = new ServerEvent(lastEventId.incrementAndGet(), name, coalescingKey, gson.toJson(payload));
+        for (EventSubscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+    // endregion
+}
@@ -0,0 +1,113 @@
+package logic.events;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The events pending for a single subscribed client.
+ * <p>
+ * A slow client never slows down the publishers: pending events of the same entry are coalesced into the latest
+ * one, and if the client still falls more than {@link #maxPendingEvents} events behind, its pending events are
+ * dropped and it is marked as overflowed, so it is sent a full snapshot instead.
+ * the subscriber waits on a {@link ReentrantLock} condition rather than a monitor, as it waits on a virtual thread
+ * of the coordinator pool, which a monitor wait would pin to its carrier thread.
+ * </p>
+ */
+public class EventSubscription {
+    private final int maxPendingEvents;
+    private final @NotNull LinkedHashMap<Object, ServerEvent> pendingEvents = new LinkedHashMap<>();
+    private boolean overflowed = false;
+    private boolean closed = false;
+
+    // region lock
+    private final @NotNull ReentrantLock lock = new ReentrantLock();
+    private final @NotNull Condition eventsPending = lock.newCondition();
+    // endregion
+
+    EventSubscription(int maxPendingEvents) {
+        this.maxPendingEvents = maxPendingEvents;
+    }
+
+    void offer(@NotNull ServerEvent event) {
+        lock.lock();
+        try {
+            if (closed || overflowed) {
+                return;
+            }
+            Object key = event.coalescingKey() != null ? event.coalescingKey() : event.id();
+            // removed first, so the coalesced event keeps its place in publication order
+            pendingEvents.remove(key);
+            pendingEvents.put(key, event);
+            if (pendingEvents.size() > maxPendingEvents) {
+                pendingEvents.clear();
+                overflowed = true;
+            }
+            eventsPending.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for pending events and takes them.
+     *
+     * @param timeoutMillis the maximum time to wait
+     * @return the pending events in publication order, empty if none arrived in time
+     */
+    public @NotNull List<ServerEvent> poll(long timeoutMillis) throws InterruptedException {
+        lock.lock();
+        try {
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            while (pendingEvents.isEmpty() && !overflowed && !closed && remainingNanos > 0) {
+                remainingNanos = eventsPending.awaitNanos(remainingNanos);
+            }
+            List<ServerEvent> events = new ArrayList<>(pendingEvents.values());
+            pendingEvents.clear();
+            return events;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks if events were dropped since the last call, and clears the mark.
+     *
+     * @return true if the subscriber fell behind and must be sent a full snapshot
+     */
+    public boolean takeOverflowed() {
+        lock.lock();
+        try {
+            boolean wasOverflowed = overflowed;
+            overflowed = false;
+            return wasOverflowed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            pendingEvents.clear();
+            eventsPending.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
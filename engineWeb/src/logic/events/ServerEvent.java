@@ -0,0 +1,20 @@
+package logic.events;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An event pushed to the subscribed clients, serialized once when published and shared by all subscribers.
+ *
+ * @param id             the sequence number of the event, increasing in publication order
+ * @param name           the name of the event, tells the client how to read the data
+ * @param coalescingKey  events with the same key describe the latest state of the same entry, so a subscriber that
+ *                       did not receive the older one yet only needs the newer one. null if the event must not be
+ *                       coalesced
+ * @param data           the JSON payload of the event
+ */
+public record ServerEvent(long id,
+                          @NotNull String name,
+                          @Nullable String coalescingKey,
+                          @NotNull String data) {
+}
@@ -0,0 +1,136 @@
+package logic.execution;
+
+import dto.server.ActiveRunDTO;
+import engine.core.ExecutionMonitor;
+import engine.exception.ExecutionCancelled;
+import engine.utils.ArchitectureType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps track of the program runs executing on the server, so an administrator can see them and kill
+ * runaway runs. a run is registered when its first slice starts and unregistered when it ends.
+ */
+public class ActiveRunsManager {
+    // region data structures
+    private final @NotNull Map<String, ActiveRun> activeRuns = new HashMap<>();
+    // endregion
+
+    // region read-write locks
+    private final @NotNull ReadWriteLock activeRunsLock = new ReentrantReadWriteLock();
+    private final @NotNull Lock readLock = activeRunsLock.readLock();
+    private final @NotNull Lock writeLock = activeRunsLock.writeLock();
+    // endregion
+
+    // region singleton pattern
+    private ActiveRunsManager() {
+    }
+
+    private static class ActiveRunsManagerHolder {
+        private static final ActiveRunsManager INSTANCE = new ActiveRunsManager();
+    }
+
+    /**
+     * Provides the singleton instance of the manager.
+     *
+     * @return The single instance of ActiveRunsManager.
+     */
+    public static ActiveRunsManager getInstance() {
+        return ActiveRunsManagerHolder.INSTANCE;
+    }
+    // endregion
+
+    // region active runs methods
+
+    /**
+     * Registers a run that started executing.
+     *
+     * @param username         the user running the program
+     * @param programName      the program or function being run
+     * @param architectureType the architecture the program runs on
+     * @param monitor          the monitor of the run, used to observe and kill it
+     * @return the registered run, to unregister once the run ends
+     */
+    public @NotNull ActiveRun register(@NotNull String username, @NotNull String programName,
+                                       @NotNull ArchitectureType architectureType,
+                                       @NotNull ExecutionMonitor monitor) {
+        ActiveRun activeRun = new ActiveRun(UUID.randomUUID().toString(), username, programName, architectureType,
+                monitor, System.currentTimeMillis());
+        writeLock.lock();
+        try {
+            activeRuns.put(activeRun.runId(), activeRun);
+        } finally {
+            writeLock.unlock();
+        }
+        return activeRun;
+    }
+
+    public void unregister(@NotNull ActiveRun activeRun) {
+        writeLock.lock();
+        try {
+            activeRuns.remove(activeRun.runId());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Kills a run. the run stops at the next check of its monitor, and its user is charged for the credits it
+     * consumed until then.
+     *
+     * @param runId the id of the run
+     * @return true if the run was found, false if there is no such run (it may have just finished)
+     */
+    public boolean kill(@Nullable String runId) {
+        if (runId == null) {
+            return false;
+        }
+        readLock.lock();
+        try {
+            ActiveRun activeRun = activeRuns.get(runId);
+            if (activeRun == null) {
+                return false;
+            }
+            activeRun.monitor().requestCancel(ExecutionCancelled.Reason.KILLED);
+            return true;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * @return the active runs, the longest running first
+     */
+    public @NotNull List<ActiveRunDTO> getActiveRunsDTO() {
+        long now = System.currentTimeMillis();
+        readLock.lock();
+        try {
+            return activeRuns.values().stream()
+                    .sorted(Comparator.comparingLong(ActiveRun::startedAtMillis))
+                    .map(activeRun -> activeRun.toDTO(now))
+                    .toList();
+        } finally {
+            readLock.unlock();
+        }
+    }
+    // endregion
+
+    /**
+     * A run executing on the server.
+     */
+    public record ActiveRun(@NotNull String runId, @NotNull String username, @NotNull String programName,
+                            @NotNull ArchitectureType architectureType, @NotNull ExecutionMonitor monitor,
+                            long startedAtMillis) {
+
+        private @NotNull ActiveRunDTO toDTO(long now) {
+            return new ActiveRunDTO(runId, username, programName, architectureType.getSymbol(),
+                    now - startedAtMillis, monitor.getCyclesExecuted(), monitor.getCreditsConsumed(),
+                    monitor.isCancelRequested());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package logic.execution;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletResponse;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Completes an asynchronous request exactly once.
+ * <p>
+ * A run may finish, fail or time out, and those events can race each other on different threads.
+ * The first one to respond writes the response and completes the {@link AsyncContext}, the rest are ignored.
+ * </p>
+ */
+public class AsyncResponder {
+    private final @NotNull AsyncContext asyncContext;
+    private final @NotNull AtomicBoolean responded = new AtomicBoolean(false);
+
+    public AsyncResponder(@NotNull AsyncContext asyncContext) {
+        this.asyncContext = asyncContext;
+    }
+
+    /**
+     * Writes the response using the given writer and completes the request, unless a response was already sent.
+     *
+     * @param writer writes the status, headers and body of the response
+     */
+    public void respond(@NotNull ResponseWriter writer) {
+        if (!responded.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            writer.write((HttpServletResponse) asyncContext.getResponse());
+        } catch (IOException e) {
+            asyncContext.getRequest().getServletContext().log("Failed to write an async response", e);
+        } finally {
+            asyncContext.complete();
+        }
+    }
+
+    /**
+     * Registers an action to run when the async request times out.
+     * the action is expected to call {@link #respond(ResponseWriter)}.
+     *
+     * @param onTimeout the timeout action
+     */
+    public void onTimeout(@NotNull Runnable onTimeout) {
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                onTimeout.run();
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+    }
+
+    @FunctionalInterface
+    public interface ResponseWriter {
+        void write(@NotNull HttpServletResponse response) throws IOException;
+    }
+}
@@ -0,0 +1,307 @@
+package logic.execution;
+
+import dto.engine.ExecutionResultStatisticsDTO;
+import dto.engine.FullExecutionResultDTO;
+import engine.core.Engine;
+import engine.core.ExecutionMonitor;
+import engine.core.PreparedRun;
+import engine.exception.*;
+import engine.utils.ArchitectureType;
+import logic.User;
+import logic.admission.AdmissionController;
+import logic.admission.EndpointClass;
+import logic.manager.ExecutionHistoryManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import utils.ServletUtils;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs one program over a batch of argument maps.
+ * <p>
+ * The batch is validated once, and each run reserves its own credits when it starts, like a single run does:
+ * the architecture cost and at most {@link #runCreditLimit} credits for its cycles, see
+ * {@link User#reserveRunCredits}. the run settles them with the user as soon as it ends, so the rest of the
+ * user's credits stay free for the other runs and debug sessions of the user meanwhile.
+ * Every run is admitted like a run request of the user, see {@link AdmissionController}, so a batch cannot
+ * exceed the user's rate of runs. The runs are scheduled in the flow of the user, at most one per interpreter
+ * worker at a time, and their results are handed back in the order of the batch. once the batch finishes, the successful runs are recorded in the
+ * history in one go.
+ * </p>
+ */
+public class BatchRunExecutor {
+    // region fields
+    private final @NotNull User user;
+    private final @NotNull ServletUtils.batchRunParams batchRunParams;
+    private final @NotNull Engine engine;
+    private final @NotNull ExecutionHistoryManager executionHistoryManager;
+    private final @NotNull ExecutionPoolManager executionPools;
+    private final @NotNull AdmissionController admissionController;
+    private final @NotNull ExecutionMonitor[] monitors;
+    private final int architectureCost;
+    private final int runCreditLimit;
+    // endregion
+
+    private BatchRunExecutor(@NotNull User user, @NotNull ServletUtils.batchRunParams batchRunParams,
+                             @NotNull Engine engine, @NotNull ExecutionHistoryManager executionHistoryManager,
+                             @NotNull ExecutionPoolManager executionPools,
+                             @NotNull AdmissionController admissionController, int architectureCost,
+                             int runCreditLimit) {
+        this.user = user;
+        this.batchRunParams = batchRunParams;
+        this.engine = engine;
+        this.executionHistoryManager = executionHistoryManager;
+        this.executionPools = executionPools;
+        this.admissionController = admissionController;
+        this.architectureCost = architectureCost;
+        this.runCreditLimit = runCreditLimit;
+        this.monitors = new ExecutionMonitor[batchRunParams.argumentsList().size()];
+        Arrays.setAll(monitors, i -> new ExecutionMonitor(batchRunParams.timeLimitMillis()));
+    }
+
+    /**
+     * Validates the batch. nothing is reserved yet, each run reserves its credits when it starts.
+     *
+     * @param admissionController the admission of the runs of the user
+     * @param runCreditLimit      the most credits the cycles of a single run of the batch may consume
+     * @return an executor ready to run the batch
+     * @throws ExpandLevelOutOfBounds   if the expand level is out of bounds
+     * @throws IllegalArchitectureType  if the architecture type is not sufficient
+     * @throws InsufficientCredits      if the credits of the user do not cover the architecture cost of a run
+     * @throws IllegalArgumentException if any argument of any run is negative, or the limit is not positive
+     */
+    public static @NotNull BatchRunExecutor prepare(@NotNull User user,
+                                                    @NotNull ServletUtils.batchRunParams batchRunParams,
+                                                    @NotNull ExecutionHistoryManager executionHistoryManager,
+                                                    @NotNull ExecutionPoolManager executionPools,
+                                                    @NotNull AdmissionController admissionController,
+                                                    int runCreditLimit) {
+        if (runCreditLimit <= 0) {
+            throw new IllegalArgumentException("The credit limit of a run must be positive");
+        }
+        Engine engine = batchRunParams.pm().getProgramOrFunctionEngine(batchRunParams.programName());
+        int architectureCost = engine.validateBatchRunAndGetCreditCost(batchRunParams.expandLevel(),
+                user.getCurrentCredits(), batchRunParams.architectureType(), batchRunParams.argumentsList());
+        return new BatchRunExecutor(user, batchRunParams, engine, executionHistoryManager, executionPools,
+                admissionController, architectureCost, runCreditLimit);
+    }
+
+    /**
+     * Runs the batch, handing every entry to the consumer in the order of the batch.
+     * if the consumer fails (the client went away), the runs still in flight are cancelled and no more runs
+     * are started. the successful runs are recorded in any case.
+     *
+     * @param onEntry the consumer of the entries
+     */
+    public void run(@NotNull EntryConsumer onEntry) {
+        int runsCount = monitors.length;
+        int window = executionPools.getInterpreterWorkers(batchRunParams.architectureType());
+        Deque<Future<BatchEntry>> inFlight = new ArrayDeque<>();
+        List<FullExecutionResultDTO> successfulResults = new ArrayList<>();
+        int nextToSubmit = 0;
+        boolean isStopped = false;
+
+        try {
+            while (!inFlight.isEmpty() || (!isStopped && nextToSubmit < runsCount)) {
+                while (!isStopped && nextToSubmit < runsCount && inFlight.size() < window) {
+                    int index = nextToSubmit;
+                    // the request itself was admitted as the first run of the batch
+                    long retryAfterMillis = index == 0 ? 0 : admissionController.admit(user, EndpointClass.RUN);
+                    if (retryAfterMillis > 0) {
+                        if (!inFlight.isEmpty()) {
+                            break; // wait for a run of this batch meanwhile
+                        }
+                        Thread.sleep(retryAfterMillis);
+                        continue;
+                    }
+                    try {
+                        inFlight.add(executionPools.schedule(user.getName(), new BatchEntryRun(index)));
+                    } catch (RejectedExecutionException e) {
+                        if (!inFlight.isEmpty()) {
+                            break; // wait for a run of this batch to free a place in the queue
+                        }
+                        inFlight.add(CompletableFuture.completedFuture(new BatchEntry(index, null,
+                                "The server is busy running other programs", 0)));
+                    }
+                    nextToSubmit++;
+                }
+
+                BatchEntry entry = awaitEntry(inFlight.poll());
+                if (entry.result() != null) {
+                    successfulResults.add(entry.result());
+                }
+                if (!isStopped) {
+                    try {
+                        onEntry.accept(entry);
+                    } catch (IOException e) {
+                        isStopped = true;
+                        cancelInFlight(nextToSubmit);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            cancelInFlight(nextToSubmit);
+            Thread.currentThread().interrupt();
+        } finally {
+            record(successfulResults);
+        }
+    }
+
+    /**
+     * A single run of the batch. the runs of a batch are not exclusive, so they share the flow of the user
+     * round-robin, and the exceptions of a run end up in its entry instead of failing the batch.
+     * the run reserves its credits on its first slice and settles them on its last.
+     */
+    private class BatchEntryRun implements SlicedRun<BatchEntry> {
+        private final int index;
+        private @Nullable PreparedRun preparedRun;
+        private @Nullable ActiveRunsManager.ActiveRun activeRun;
+        private @Nullable BatchEntry entry;
+        private int reservedCredits;
+
+        private BatchEntryRun(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public boolean runSlice(long cycleBudget) {
+            if (activeRun == null) {
+                activeRun = ActiveRunsManager.getInstance().register(user.getName(), batchRunParams.programName(),
+                        batchRunParams.architectureType(), monitors[index]);
+            }
+            try {
+                if (preparedRun == null) {
+                    preparedRun = engine.prepareValidatedRun(batchRunParams.expandLevel(),
+                            batchRunParams.argumentsList().get(index), reserveCredits() - architectureCost,
+                            batchRunParams.architectureType(), monitors[index]);
+                }
+                if (!preparedRun.runSlice(cycleBudget)) {
+                    return false;
+                }
+                FullExecutionResultDTO result = preparedRun.getResult();
+                entry = new BatchEntry(index, result, "", result.creditsCost());
+            } catch (InsufficientCredits insufficientCredits) {
+                entry = new BatchEntry(index, null, insufficientCredits.getMessage(),
+                        Math.max(0, getRunCredits() - insufficientCredits.getCreditsLeft()));
+            } catch (InstructionExecutionException e) {
+                entry = new BatchEntry(index, null, e.getMessage(), getRunCredits() - e.getRemainingCredits());
+            } catch (ExecutionCancelled executionCancelled) {
+                entry = new BatchEntry(index, null, executionCancelled.getMessage(),
+                        executionCancelled.getCreditsConsumed());
+            } catch (RuntimeException e) {
+                entry = new BatchEntry(index, null, String.valueOf(e.getMessage()), 0);
+            }
+            ActiveRunsManager.getInstance().unregister(activeRun);
+            synchronized (user) {
+                user.settleReservedCredits(reservedCredits, entry.creditsConsumed());
+            }
+            return true;
+        }
+
+        /**
+         * Reserves the architecture cost of the run and its cycles, up to the limit of a run.
+         *
+         * @return the reserved credits
+         * @throws InsufficientCredits if the user does not have the architecture cost anymore
+         */
+        private int reserveCredits() throws InsufficientCredits {
+            reservedCredits = user.reserveRunCredits(batchRunParams.architectureType(), architectureCost,
+                    runCreditLimit);
+            return reservedCredits;
+        }
+
+        /**
+         * @return the credits the run was given for its cycles
+         */
+        private int getRunCredits() {
+            return Math.max(0, reservedCredits - architectureCost);
+        }
+
+        @Override
+        public @NotNull BatchEntry getResult() {
+            if (entry == null) {
+                throw new IllegalStateException("The run did not finish yet");
+            }
+            return entry;
+        }
+
+        @Override
+        public long getCyclesExecuted() {
+            return preparedRun == null ? 0 : preparedRun.getCyclesExecuted();
+        }
+
+        @Override
+        public @NotNull ArchitectureType getArchitectureType() {
+            return batchRunParams.architectureType();
+        }
+
+        @Override
+        public boolean isExclusive() {
+            return false;
+        }
+    }
+
+    private @NotNull BatchEntry awaitEntry(@Nullable Future<BatchEntry> future) throws InterruptedException {
+        if (future == null) {
+            throw new IllegalStateException("No run in flight");
+        }
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            // the batch runs catch their exceptions, this is unexpected
+            throw new IllegalStateException("Batch run failed unexpectedly", e.getCause());
+        }
+    }
+
+    private void cancelInFlight(int submittedCount) {
+        for (int i = 0; i < submittedCount; i++) {
+            monitors[i].requestCancel();
+        }
+    }
+
+    /**
+     * Counts the successful runs and records them in the history under a single lock acquisition.
+     */
+    private void record(@NotNull List<FullExecutionResultDTO> successfulResults) {
+        if (successfulResults.isEmpty()) {
+            return;
+        }
+        synchronized (user) {
+            int firstRunNumber = user.getTotalRuns() + 1;
+            user.addTotalRuns(successfulResults.size());
+
+            List<ExecutionResultStatisticsDTO> statistics = new ArrayList<>(successfulResults.size());
+            for (int i = 0; i < successfulResults.size(); i++) {
+                statistics.add(ExecutionResultStatisticsDTO.of(successfulResults.get(i), firstRunNumber + i));
+            }
+            executionHistoryManager.addExecutionResults(user.getName(), batchRunParams.programName(), statistics);
+        }
+    }
+
+    public int getRunsCount() {
+        return monitors.length;
+    }
+
+    /**
+     * The outcome of a single run of the batch.
+     *
+     * @param index           the index of the run in the batch
+     * @param result          the execution result, or null if the run failed
+     * @param errorMessage    the reason the run failed, empty if it succeeded
+     * @param creditsConsumed the credits the run consumed, whether it succeeded or not
+     */
+    public record BatchEntry(int index, @Nullable FullExecutionResultDTO result, @NotNull String errorMessage,
+                             int creditsConsumed) {
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(@NotNull BatchEntry entry) throws IOException;
+    }
+}
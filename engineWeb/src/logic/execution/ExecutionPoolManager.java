@@ -0,0 +1,224 @@
+package logic.execution;
+
+import dto.engine.FullExecutionResultDTO;
+import dto.server.SchedulerStatisticsDTO;
+import engine.utils.ArchitectureType;
+import logic.cluster.ClusterCoordinator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Owns the threads used to execute programs outside the servlet container's request threads.
+ * <p>
+ * CPU-bound interpretation runs in slices on platform threads, in a separate pool per architecture tier, so the
+ * runs of a cheap architecture never wait behind the long function-heavy runs of an expensive one. each pool is a
+ * {@link FairShareScheduler} with its own workers and queue, so a few long runs cannot starve the short runs of
+ * other users of the same tier either. the share of the CPU each tier gets is set by its number of workers. the lightweight coordination (waiting for a run to finish
+ * and writing its response) runs on virtual threads. This way the number of concurrent HTTP requests is decoupled
+ * from the number of concurrent executions.
+ * </p>
+ */
+public class ExecutionPoolManager {
+    // region fields
+    private final @NotNull Map<ArchitectureType, FairShareScheduler> pools = new EnumMap<>(ArchitectureType.class);
+    private final @NotNull ExecutorService coordinatorPool;
+    private final long runTimeoutMillis;
+    private volatile @Nullable ClusterCoordinator clusterCoordinator;
+    // endregion
+
+    /**
+     * Creates the execution pools.
+     *
+     * @param poolConfigurations the configuration of the pool of each architecture tier, all the tiers a user may
+     *                           run on must have one
+     * @param runTimeoutMillis   the time a client waits for a run before the request times out
+     * @param sliceCycleBudget   the number of cycles a run executes before yielding to other runs
+     */
+    public ExecutionPoolManager(@NotNull Map<ArchitectureType, PoolConfiguration> poolConfigurations,
+                                long runTimeoutMillis, long sliceCycleBudget) {
+        if (runTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("Execution pool configuration values must be positive");
+        }
+        for (String architectureSymbol : ArchitectureType.getSupportedArchitectures()) {
+            ArchitectureType architectureType = ArchitectureType.fromString(architectureSymbol);
+            PoolConfiguration configuration = poolConfigurations.get(architectureType);
+            if (configuration == null) {
+                throw new IllegalArgumentException("Missing execution pool of architecture " + architectureSymbol);
+            }
+            pools.put(architectureType, new FairShareScheduler("interpreter-" + architectureSymbol,
+                    configuration.workers(), configuration.queueCapacity(), sliceCycleBudget,
+                    configuration.priority()));
+        }
+        this.coordinatorPool = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("run-coordinator-", 0).factory());
+        this.runTimeoutMillis = runTimeoutMillis;
+    }
+
+    /**
+     * Schedules a CPU-bound run (a program run) on the interpreter workers of its architecture.
+     *
+     * @param flowKey the flow sharing the workers fairly with the other flows, normally the user's name
+     * @param run     the run to execute
+     * @param <T>     the type of the run's result
+     * @return a future of the run's result
+     * @throws RejectedExecutionException if the run queue of the run's architecture is full
+     */
+    public <T> @NotNull CompletableFuture<T> schedule(@NotNull String flowKey, @NotNull SlicedRun<T> run)
+            throws RejectedExecutionException {
+        return getPool(run.getArchitectureType()).submit(flowKey, run);
+    }
+
+    /**
+     * Schedules the run of a user on the workers of the cluster if the server runs one and a worker is connected
+     * and can queue it, otherwise on the local interpreter workers.
+     *
+     * @param run the run to execute
+     * @return a future of the run's result
+     * @throws RejectedExecutionException if the run queue of the run's architecture is full
+     */
+    public @NotNull CompletableFuture<FullExecutionResultDTO> scheduleUserRun(@NotNull UserRun run)
+            throws RejectedExecutionException {
+        ClusterCoordinator coordinator = clusterCoordinator;
+        if (coordinator != null && coordinator.hasReadyWorkers()) {
+            try {
+                return run.dispatchTo(coordinator);
+            } catch (RejectedExecutionException e) {
+                // the workers are full, the run executes locally instead
+            }
+        }
+        return schedule(run.getUsername(), run);
+    }
+
+    /**
+     * @param clusterCoordinator the coordinator of the cluster the user runs are dispatched to, null to run them
+     *                           locally
+     */
+    public void setClusterCoordinator(@Nullable ClusterCoordinator clusterCoordinator) {
+        this.clusterCoordinator = clusterCoordinator;
+    }
+
+    /**
+     * Runs a blocking coordination task (waiting for a run, writing a response) on a virtual thread.
+     *
+     * @param task the coordination task
+     */
+    public void coordinate(@NotNull Runnable task) {
+        coordinatorPool.execute(task);
+    }
+
+    private @NotNull FairShareScheduler getPool(@NotNull ArchitectureType architectureType) {
+        FairShareScheduler pool = pools.get(architectureType);
+        if (pool == null) {
+            throw new IllegalArgumentException("No execution pool runs architecture " + architectureType.getSymbol());
+        }
+        return pool;
+    }
+
+    public long getRunTimeoutMillis() {
+        return runTimeoutMillis;
+    }
+
+    /**
+     * @return the number of interpreter workers of all the pools
+     */
+    public int getInterpreterWorkers() {
+        return pools.values().stream().mapToInt(FairShareScheduler::getWorkersCount).sum();
+    }
+
+    public int getInterpreterWorkers(@NotNull ArchitectureType architectureType) {
+        return getPool(architectureType).getWorkersCount();
+    }
+
+    /**
+     * @return the number of runs executing a slice in all the pools
+     */
+    public int getActiveRuns() {
+        return pools.values().stream().mapToInt(FairShareScheduler::getRunningSlices).sum();
+    }
+
+    public int getActiveRuns(@NotNull ArchitectureType architectureType) {
+        return getPool(architectureType).getRunningSlices();
+    }
+
+    /**
+     * @return the number of runs waiting for a slice in all the pools
+     */
+    public int getQueuedRuns() {
+        return pools.values().stream().mapToInt(FairShareScheduler::getWaitingRuns).sum();
+    }
+
+    public int getQueuedRuns(@NotNull ArchitectureType architectureType) {
+        return getPool(architectureType).getWaitingRuns();
+    }
+
+    /**
+     * @return the state of the pool of each architecture, by the architecture's symbol
+     */
+    public @NotNull Map<String, SchedulerStatisticsDTO> getSchedulerStatistics() {
+        Map<String, SchedulerStatisticsDTO> statistics = new LinkedHashMap<>();
+        pools.forEach((architectureType, pool) -> statistics.put(architectureType.getSymbol(), pool.getStatistics()));
+        return statistics;
+    }
+
+    /**
+     * Stops accepting new runs and fails the queued ones. called when the server shuts down.
+     */
+    public void shutdown() {
+        coordinatorPool.shutdownNow();
+        pools.values().forEach(FairShareScheduler::shutdown);
+    }
+
+    /**
+     * The configuration of the execution pool of an architecture tier.
+     *
+     * @param workers       the number of platform threads interpreting the runs of the tier
+     * @param queueCapacity the number of runs of the tier that may wait for a slice
+     * @param priority      the priority of the workers' threads, a hint to the operating system only, see
+     *                      {@link FairShareScheduler#FairShareScheduler}
+     */
+    public record PoolConfiguration(int workers, int queueCapacity, int priority) {
+    }
+
+    /**
+     * Parses a value per architecture given as "symbol:value" pairs separated by commas, e.g. "I:4,II:3,III:2,IV:1".
+     *
+     * @param values the values string, may be null
+     * @return the parsed values, empty if the string is null or blank
+     * @throws IllegalArgumentException if a pair is not a supported architecture and a positive number
+     */
+    public static @NotNull Map<ArchitectureType, Integer> parseArchitectureValues(@Nullable String values) {
+        Map<ArchitectureType, Integer> architectureValues = new EnumMap<>(ArchitectureType.class);
+        if (values == null || values.isBlank()) {
+            return architectureValues;
+        }
+        for (String pair : values.split(",")) {
+            String[] symbolAndValue = pair.trim().split(":");
+            if (symbolAndValue.length != 2 ||
+                    !ArchitectureType.isValidArchitectureType(symbolAndValue[0].trim())) {
+                throw new IllegalArgumentException("Invalid architecture value '" + pair.trim() +
+                        "', expected <architecture>:<value>");
+            }
+            int value;
+            try {
+                value = Integer.parseInt(symbolAndValue[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid architecture value '" + pair.trim() +
+                        "', the value is not a number");
+            }
+            if (value <= 0) {
+                throw new IllegalArgumentException("Invalid architecture value '" + pair.trim() +
+                        "', the value must be positive");
+            }
+            architectureValues.put(ArchitectureType.fromString(symbolAndValue[0].trim()), value);
+        }
+        return architectureValues;
+    }
+}
@@ -0,0 +1,340 @@
+package logic.execution;
+
+import dto.server.SchedulerStatisticsDTO;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A cooperative scheduler that interleaves program runs on a fixed set of worker threads.
+ * <p>
+ * Runs execute in slices of {@link #sliceCycleBudget} cycles, after which they yield their worker.
+ * The runs are grouped in flows (one per user), and the next slice is given to the flow that used the least
+ * cycles so far (fair queueing): every slice charges its flow the cycles it used. A flow that was idle starts from
+ * the current virtual time, so it cannot hoard a share while idle, but a short run of a new user gets the next free
+ * worker.
+ * Within a flow, runs are served round-robin, unless a run is {@link SlicedRun#isExclusive() exclusive}.
+ * </p>
+ */
+public class FairShareScheduler {
+    private static final long NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // region fields
+    private final long sliceCycleBudget;
+    private final int queueCapacity;
+    private final int workerPriority;
+    private final @NotNull List<Thread> workers = new ArrayList<>();
+    // endregion
+
+    // region data structures
+    private final @NotNull Map<String, Flow> flows = new HashMap<>();
+    private final @NotNull PriorityQueue<Flow> readyFlows =
+            new PriorityQueue<>(Comparator.comparingDouble(flow -> flow.virtualTime));
+    private double virtualClock = 0;
+    private boolean isShutdown = false;
+    // endregion
+
+    // region statistics
+    private int waitingRuns = 0;
+    private int runningSlices = 0;
+    private long slicesExecuted = 0;
+    private long totalSliceWaitNanos = 0;
+    private long maxSliceWaitNanos = 0;
+    private long runsStarted = 0;
+    private long totalStartWaitNanos = 0;
+    // endregion
+
+    // region lock
+    private final @NotNull ReentrantLock lock = new ReentrantLock();
+    private final @NotNull Condition flowReady = lock.newCondition();
+    // endregion
+
+    /**
+     * Creates the scheduler and starts its workers.
+     *
+     * @param name             the name of the scheduler, prefixing the names of its workers
+     * @param workersCount     the number of platform threads executing slices
+     * @param queueCapacity    the number of runs that may wait for a slice
+     * @param sliceCycleBudget the number of cycles a run executes before yielding
+     * @param workerPriority   the priority of the workers' threads, see {@link Thread#setPriority(int)}. advisory
+     *                         only: most JVMs on Linux ignore thread priorities, so the share of the CPU a
+     *                         scheduler gets next to other schedulers is set by its number of workers
+     */
+    public FairShareScheduler(@NotNull String name, int workersCount, int queueCapacity, long sliceCycleBudget,
+                              int workerPriority) {
+        if (workersCount <= 0 || queueCapacity <= 0 || sliceCycleBudget <= 0) {
+            throw new IllegalArgumentException("Scheduler configuration values must be positive");
+        }
+        if (workerPriority < Thread.MIN_PRIORITY || workerPriority > Thread.MAX_PRIORITY) {
+            throw new IllegalArgumentException("Worker priority must be between " + Thread.MIN_PRIORITY + " and " +
+                    Thread.MAX_PRIORITY);
+        }
+        this.queueCapacity = queueCapacity;
+        this.sliceCycleBudget = sliceCycleBudget;
+        this.workerPriority = workerPriority;
+        for (int i = 0; i < workersCount; i++) {
+            Thread worker = new Thread(this::workerLoop, name + "-worker-" + i);
+            worker.setDaemon(true);
+            worker.setPriority(workerPriority);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Queues a run in the given flow.
+     *
+     * @param flowKey the flow of the run, runs of the same flow share one fair share
+     * @param run     the run
+     * @param <T>     the type of the run's result
+     * @return a future of the run's result, completed exceptionally with the exception the run threw
+     * @throws RejectedExecutionException if the queue is full or the scheduler was shut down
+     */
+    public <T> @NotNull CompletableFuture<T> submit(@NotNull String flowKey, @NotNull SlicedRun<T> run)
+            throws RejectedExecutionException {
+        ScheduledRun<T> scheduledRun = new ScheduledRun<>(run);
+        lock.lock();
+        try {
+            if (isShutdown) {
+                throw new RejectedExecutionException("The scheduler is shut down");
+            }
+            if (waitingRuns >= queueCapacity) {
+                throw new RejectedExecutionException("The run queue is full");
+            }
+            Flow flow = flows.computeIfAbsent(flowKey, Flow::new);
+            flow.runs.addLast(scheduledRun);
+            waitingRuns++;
+            refreshReadiness(flow);
+        } finally {
+            lock.unlock();
+        }
+        return scheduledRun.future;
+    }
+
+    private void workerLoop() {
+        while (true) {
+            Flow flow;
+            ScheduledRun<?> scheduledRun;
+            lock.lock();
+            try {
+                while (readyFlows.isEmpty() && !isShutdown) {
+                    flowReady.await();
+                }
+                if (isShutdown) {
+                    return;
+                }
+                flow = readyFlows.poll();
+                scheduledRun = takeNextRun(flow);
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            long cyclesBefore = scheduledRun.run.getCyclesExecuted();
+            boolean isFinished;
+            Throwable failure = null;
+            try {
+                isFinished = scheduledRun.run.runSlice(sliceCycleBudget);
+            } catch (Throwable t) {
+                isFinished = true;
+                failure = t;
+            }
+            long sliceCycles = Math.max(0, scheduledRun.run.getCyclesExecuted() - cyclesBefore);
+
+            lock.lock();
+            try {
+                endSlice(flow, scheduledRun, sliceCycles, isFinished);
+            } finally {
+                lock.unlock();
+            }
+
+            // completed outside the lock, as completing runs the future's callbacks
+            if (failure != null) {
+                scheduledRun.future.completeExceptionally(failure);
+            } else if (isFinished) {
+                scheduledRun.complete();
+            }
+        }
+    }
+
+    /**
+     * Takes the next run of the flow and records its wait. must be called while holding the lock.
+     */
+    private @NotNull ScheduledRun<?> takeNextRun(@NotNull Flow flow) {
+        ScheduledRun<?> scheduledRun = flow.runs.pollFirst();
+        if (scheduledRun == null) {
+            throw new IllegalStateException("A ready flow has no runs");
+        }
+        virtualClock = Math.max(virtualClock, flow.virtualTime);
+        flow.inProgress++;
+        if (scheduledRun.run.isExclusive()) {
+            flow.isExclusiveInProgress = true;
+        }
+        waitingRuns--;
+        runningSlices++;
+
+        long waitNanos = System.nanoTime() - scheduledRun.readySinceNanos;
+        totalSliceWaitNanos += waitNanos;
+        maxSliceWaitNanos = Math.max(maxSliceWaitNanos, waitNanos);
+        if (!scheduledRun.isStarted) {
+            scheduledRun.isStarted = true;
+            runsStarted++;
+            totalStartWaitNanos += waitNanos;
+        }
+        refreshReadiness(flow);
+        return scheduledRun;
+    }
+
+    /**
+     * Charges the flow for the slice and requeues the run if it did not finish. must be called while holding the lock.
+     */
+    private void endSlice(@NotNull Flow flow, @NotNull ScheduledRun<?> scheduledRun, long sliceCycles,
+                          boolean isFinished) {
+        runningSlices--;
+        slicesExecuted++;
+        flow.inProgress--;
+        if (scheduledRun.run.isExclusive()) {
+            flow.isExclusiveInProgress = false;
+        }
+        // charged at least one cycle, so a flow of runs that yield right away does not stay first forever
+        flow.virtualTime += Math.max(1, sliceCycles);
+
+        if (!isFinished) {
+            scheduledRun.readySinceNanos = System.nanoTime();
+            if (scheduledRun.run.isExclusive()) {
+                flow.runs.addFirst(scheduledRun); // keeps its place, so the runs after it keep waiting
+            } else {
+                flow.runs.addLast(scheduledRun);
+            }
+            waitingRuns++;
+        }
+
+        if (flow.runs.isEmpty() && flow.inProgress == 0) {
+            readyFlows.remove(flow);
+            flows.remove(flow.key);
+        } else {
+            refreshReadiness(flow);
+        }
+    }
+
+    /**
+     * Puts the flow in the ready queue if it can run a slice, or takes it out otherwise.
+     * must be called while holding the lock.
+     */
+    private void refreshReadiness(@NotNull Flow flow) {
+        boolean wasReady = readyFlows.remove(flow);
+        if (flow.isReady()) {
+            if (!wasReady && flow.inProgress == 0) {
+                // an idle flow starts from the current virtual time
+                flow.virtualTime = Math.max(flow.virtualTime, virtualClock);
+            }
+            readyFlows.add(flow);
+            flowReady.signal();
+        }
+    }
+
+    public @NotNull SchedulerStatisticsDTO getStatistics() {
+        lock.lock();
+        try {
+            long slicesStarted = slicesExecuted + runningSlices;
+            return new SchedulerStatisticsDTO(
+                    workers.size(),
+                    workerPriority,
+                    queueCapacity,
+                    sliceCycleBudget,
+                    flows.size(),
+                    waitingRuns,
+                    runningSlices,
+                    slicesExecuted,
+                    slicesStarted == 0 ? 0 : (double) totalSliceWaitNanos / slicesStarted / NANOS_PER_MILLI,
+                    (double) maxSliceWaitNanos / NANOS_PER_MILLI,
+                    runsStarted == 0 ? 0 : (double) totalStartWaitNanos / runsStarted / NANOS_PER_MILLI
+            );
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWorkersCount() {
+        return workers.size();
+    }
+
+    public int getWaitingRuns() {
+        lock.lock();
+        try {
+            return waitingRuns;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getRunningSlices() {
+        lock.lock();
+        try {
+            return runningSlices;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the workers. runs still queued are failed, slices in progress finish their current slice.
+     */
+    public void shutdown() {
+        List<ScheduledRun<?>> abandonedRuns = new ArrayList<>();
+        lock.lock();
+        try {
+            isShutdown = true;
+            flows.values().forEach(flow -> abandonedRuns.addAll(flow.runs));
+            flows.clear();
+            readyFlows.clear();
+            waitingRuns = 0;
+            flowReady.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        abandonedRuns.forEach(scheduledRun -> scheduledRun.future.completeExceptionally(
+                new RejectedExecutionException("The scheduler was shut down")));
+    }
+
+    private static class Flow {
+        private final @NotNull String key;
+        private final @NotNull Deque<ScheduledRun<?>> runs = new ArrayDeque<>();
+        private double virtualTime = 0;
+        private int inProgress = 0;
+        private boolean isExclusiveInProgress = false;
+
+        private Flow(@NotNull String key) {
+            this.key = key;
+        }
+
+        private boolean isReady() {
+            ScheduledRun<?> head = runs.peekFirst();
+            if (head == null || isExclusiveInProgress) {
+                return false;
+            }
+            return !head.run.isExclusive() || inProgress == 0;
+        }
+    }
+
+    private static class ScheduledRun<T> {
+        private final @NotNull SlicedRun<T> run;
+        private final @NotNull CompletableFuture<T> future = new CompletableFuture<>();
+        private long readySinceNanos = System.nanoTime();
+        private boolean isStarted = false;
+
+        private ScheduledRun(@NotNull SlicedRun<T> run) {
+            this.run = run;
+        }
+
+        private void complete() {
+            future.complete(run.getResult());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package logic.execution;
+
+import dto.engine.FullExecutionResultDTO;
+import dto.server.RunJobDTO;
+import dto.server.RunJobStatus;
+import engine.core.ExecutionMonitor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A program run submitted as a job.
+ * <p>
+ * The job outlives the request that submitted it: its progress is read from its {@link ExecutionMonitor}
+ * and its result is kept until the job is evicted by the {@link RunJobManager}.
+ * status transitions are synchronized, as the worker running the job and the user cancelling it race each other.
+ * </p>
+ */
+public class RunJob {
+    // region fields
+    private final @NotNull String jobId = UUID.randomUUID().toString();
+    private final @NotNull String ownerName;
+    private final @NotNull String programName;
+    private final @NotNull ExecutionMonitor monitor;
+    private final @NotNull CountDownLatch finishedLatch = new CountDownLatch(1);
+    private volatile @NotNull RunJobStatus status = RunJobStatus.QUEUED;
+    private volatile @Nullable FullExecutionResultDTO result;
+    private volatile @NotNull String message = "";
+    private volatile long finishedAtMillis;
+    private volatile @Nullable Future<?> future;
+    // endregion
+
+    /**
+     * @param ownerName       the name of the user running the job
+     * @param programName     the program or function being run
+     * @param timeLimitMillis the wall-clock time the run may take once it starts
+     */
+    public RunJob(@NotNull String ownerName, @NotNull String programName, long timeLimitMillis) {
+        this.ownerName = ownerName;
+        this.programName = programName;
+        this.monitor = new ExecutionMonitor(timeLimitMillis);
+    }
+
+    // region status transitions
+
+    /**
+     * Moves the job from queued to running.
+     *
+     * @return true if the job should run, false if it was cancelled while queued
+     */
+    synchronized boolean markRunning() {
+        if (status != RunJobStatus.QUEUED) {
+            return false;
+        }
+        status = RunJobStatus.RUNNING;
+        return true;
+    }
+
+    synchronized void complete(@NotNull FullExecutionResultDTO result) {
+        this.result = result;
+        finish(RunJobStatus.DONE, "");
+    }
+
+    synchronized void fail(@NotNull String message) {
+        finish(RunJobStatus.FAILED, message);
+    }
+
+    synchronized void markCancelled(@NotNull String message) {
+        finish(RunJobStatus.CANCELLED, message);
+    }
+
+    /**
+     * Asks the job to stop. a queued job is cancelled right away, a running job stops at the next check of its
+     * monitor and is charged for the credits it consumed until then.
+     *
+     * @return true if the cancel request was accepted, false if the job already finished
+     */
+    public synchronized boolean cancel() {
+        if (status.isFinished()) {
+            return false;
+        }
+        monitor.requestCancel();
+        if (status == RunJobStatus.QUEUED) {
+            // finished first, as cancelling the future may run its completion callbacks on this thread
+            finish(RunJobStatus.CANCELLED, "Cancelled before it started");
+            Future<?> queuedFuture = future;
+            if (queuedFuture != null) {
+                queuedFuture.cancel(false);
+            }
+        }
+        return true;
+    }
+
+    private void finish(@NotNull RunJobStatus finalStatus, @NotNull String message) {
+        if (status.isFinished()) {
+            return;
+        }
+        this.status = finalStatus;
+        this.message = message;
+        this.finishedAtMillis = System.currentTimeMillis();
+        finishedLatch.countDown();
+    }
+    // endregion
+
+    /**
+     * Waits for the job to finish, up to the given time.
+     *
+     * @param timeoutMillis the maximum time to wait
+     * @return true if the job finished, false if the time elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitFinished(long timeoutMillis) throws InterruptedException {
+        return finishedLatch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public @NotNull RunJobDTO toDTO() {
+        return new RunJobDTO(
+                jobId,
+                programName,
+                status,
+                monitor.getCyclesExecuted(),
+                monitor.getCreditsConsumed(),
+                message,
+                result
+        );
+    }
+
+    // region getters & setters
+    public @NotNull String getJobId() {
+        return jobId;
+    }
+
+    public @NotNull String getOwnerName() {
+        return ownerName;
+    }
+
+    public @NotNull RunJobStatus getStatus() {
+        return status;
+    }
+
+    public @NotNull ExecutionMonitor getMonitor() {
+        return monitor;
+    }
+
+    public long getFinishedAtMillis() {
+        return finishedAtMillis;
+    }
+
+    void setFuture(@NotNull Future<?> future) {
+        this.future = future;
+    }
+    // endregion
+}
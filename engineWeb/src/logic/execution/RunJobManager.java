@@ -0,0 +1,143 @@
+package logic.execution;
+
+import dto.engine.FullExecutionResultDTO;
+import engine.exception.ExecutionCancelled;
+import logic.User;
+import logic.manager.ExecutionHistoryManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import utils.ServletUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps track of the run jobs submitted to the server.
+ * finished jobs are kept for {@link #FINISHED_JOB_RETENTION_MILLIS} so their result can still be fetched,
+ * and are evicted lazily when new jobs are submitted.
+ */
+public class RunJobManager {
+    public static final long FINISHED_JOB_RETENTION_MILLIS = 10 * 60 * 1000;
+
+    // region data structures
+    private final @NotNull Map<String, RunJob> jobs = new HashMap<>();
+    // endregion
+
+    // region read-write locks
+    private final @NotNull ReadWriteLock jobsLock = new ReentrantReadWriteLock();
+    private final @NotNull Lock readLock = jobsLock.readLock();
+    private final @NotNull Lock writeLock = jobsLock.writeLock();
+    // endregion
+
+    // region singleton pattern
+    private RunJobManager() {
+    }
+
+    private static class RunJobManagerHolder {
+        private static final RunJobManager INSTANCE = new RunJobManager();
+    }
+
+    /**
+     * Provides the singleton instance of the manager.
+     *
+     * @return The single instance of RunJobManager.
+     */
+    public static RunJobManager getInstance() {
+        return RunJobManagerHolder.INSTANCE;
+    }
+    // endregion
+
+    // region job management methods
+
+    /**
+     * Creates a job for the run and schedules it on the interpreter workers, in the flow of its user.
+     *
+     * @param user                    the user running the program
+     * @param runAndDebugParams       the validated run parameters
+     * @param executionHistoryManager the history to record the run in
+     * @param executionPools          the pools to run the job on
+     * @param runCreditLimit          the most credits the cycles of the run may consume
+     * @return the submitted job
+     * @throws RejectedExecutionException if the run queue is full, the job is not kept in that case
+     */
+    public @NotNull RunJob submit(@NotNull User user, @NotNull ServletUtils.runAndDebugParams runAndDebugParams,
+                                  @NotNull ExecutionHistoryManager executionHistoryManager,
+                                  @NotNull ExecutionPoolManager executionPools, int runCreditLimit)
+            throws RejectedExecutionException {
+        RunJob job = new RunJob(user.getName(), runAndDebugParams.programName(),
+                runAndDebugParams.timeLimitMillis());
+        writeLock.lock();
+        try {
+            evictExpiredJobs();
+            jobs.put(job.getJobId(), job);
+        } finally {
+            writeLock.unlock();
+        }
+
+        try {
+            CompletableFuture<FullExecutionResultDTO> future = executionPools.scheduleUserRun(
+                    new UserRun(user, runAndDebugParams, executionHistoryManager, job.getMonitor(), job::markRunning,
+                            runCreditLimit));
+            future.whenComplete((result, throwable) -> finishJob(job, result, throwable));
+            job.setFuture(future);
+        } catch (RejectedExecutionException e) {
+            removeJob(job.getJobId());
+            throw e;
+        }
+        return job;
+    }
+
+    private void finishJob(@NotNull RunJob job, @Nullable FullExecutionResultDTO result,
+                           @Nullable Throwable throwable) {
+        if (throwable == null && result != null) {
+            job.complete(result);
+        } else if (throwable instanceof ExecutionCancelled executionCancelled) {
+            job.markCancelled(executionCancelled.getMessage());
+        } else if (throwable != null) {
+            job.fail(throwable.getMessage() == null ? throwable.getClass().getSimpleName() : throwable.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves a job of the given user.
+     *
+     * @param jobId    the id of the job
+     * @param username the name of the user asking for the job
+     * @return the job, or null if there is no such job or it belongs to another user
+     */
+    public @Nullable RunJob getUserJob(@Nullable String jobId, @NotNull String username) {
+        if (jobId == null) {
+            return null;
+        }
+        readLock.lock();
+        try {
+            RunJob job = jobs.get(jobId);
+            return job != null && job.getOwnerName().equals(username) ? job : null;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private void removeJob(@NotNull String jobId) {
+        writeLock.lock();
+        try {
+            jobs.remove(jobId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Evicts finished jobs older than the retention time. must be called while holding the write lock.
+     */
+    private void evictExpiredJobs() {
+        long expiredBefore = System.currentTimeMillis() - FINISHED_JOB_RETENTION_MILLIS;
+        jobs.values().removeIf(job -> job.getStatus().isFinished() && job.getFinishedAtMillis() < expiredBefore);
+    }
+    // endregion
+}
@@ -0,0 +1,41 @@
+package logic.execution;
+
+import engine.utils.ArchitectureType;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A run that executes in slices on the {@link FairShareScheduler}.
+ * the slices of a run never execute concurrently, but consecutive slices may execute on different threads.
+ *
+ * @param <T> the type of the run's result
+ */
+public interface SlicedRun<T> {
+
+    /**
+     * Executes the next slice of the run. the first call starts the run.
+     *
+     * @param cycleBudget the number of cycles the slice may use
+     * @return true if the run finished, its result is then available from {@link #getResult()}
+     */
+    boolean runSlice(long cycleBudget);
+
+    /**
+     * @return the result of the finished run
+     */
+    @NotNull T getResult();
+
+    /**
+     * @return the number of cycles the run executed so far, used to charge the run's share
+     */
+    long getCyclesExecuted();
+
+    @NotNull ArchitectureType getArchitectureType();
+
+    /**
+     * An exclusive run does not run alongside other runs of its flow: it waits for the runs of the flow in progress
+     * to finish their slice, and the runs queued after it wait until it finishes.
+     *
+     * @return true if the run is exclusive within its flow
+     */
+    boolean isExclusive();
+}
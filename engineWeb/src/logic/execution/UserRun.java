@@ -0,0 +1,247 @@
+package logic.execution;
+
+import dto.engine.ExecutionResultStatisticsDTO;
+import dto.engine.FullExecutionResultDTO;
+import engine.core.Engine;
+import engine.core.ExecutionMonitor;
+import engine.core.PreparedRun;
+import engine.exception.ExecutionCancelled;
+import engine.exception.InstructionExecutionException;
+import engine.exception.InsufficientCredits;
+import engine.metrics.EngineMetrics;
+import engine.utils.ArchitectureType;
+import logic.User;
+import logic.cluster.ClusterCoordinator;
+import logic.manager.ExecutionHistoryManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import utils.ServletUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A run of a program on behalf of a user, executed in slices by the {@link FairShareScheduler}.
+ * <p>
+ * The first slice reserves the credits of the run, its architecture cost and its cycles up to the limit of a run
+ * (see {@link User#reserveRunCredits}), and the run settles them with the user once it ends: charges the consumed
+ * credits, counts the run and records it in the execution history. the rest of the user's credits stay available,
+ * so the other runs and the debug sessions of the user go on meanwhile.
+ * Used by both the blocking run endpoint and the run jobs, so the credits are always settled the same way.
+ * when the server runs a cluster, the run may be dispatched to a worker process instead, see
+ * {@link #dispatchTo(ClusterCoordinator)}.
+ * </p>
+ */
+public class UserRun implements SlicedRun<FullExecutionResultDTO> {
+    // region fields
+    private final @NotNull User user;
+    private final @NotNull ServletUtils.runAndDebugParams runAndDebugParams;
+    private final @NotNull ExecutionHistoryManager executionHistoryManager;
+    private final @NotNull ExecutionMonitor monitor;
+    private final @Nullable Runnable onStart;
+    private final int runCreditLimit;
+    private @Nullable PreparedRun preparedRun;
+    private @Nullable ActiveRunsManager.ActiveRun activeRun;
+    private int reservedCredits;
+    // endregion
+
+    /**
+     * @param user                    the user running the program
+     * @param runAndDebugParams       the validated run parameters
+     * @param executionHistoryManager the history to record the run in
+     * @param monitor                 the monitor of the run, carrying its time limit
+     * @param onStart                 called when the first slice of the run starts, may be null
+     * @param runCreditLimit          the most credits the cycles of the run may consume
+     */
+    public UserRun(@NotNull User user, @NotNull ServletUtils.runAndDebugParams runAndDebugParams,
+                   @NotNull ExecutionHistoryManager executionHistoryManager, @NotNull ExecutionMonitor monitor,
+                   @Nullable Runnable onStart, int runCreditLimit) {
+        this.user = user;
+        this.runAndDebugParams = runAndDebugParams;
+        this.executionHistoryManager = executionHistoryManager;
+        this.monitor = monitor;
+        this.onStart = onStart;
+        this.runCreditLimit = runCreditLimit;
+    }
+
+    /**
+     * Executes the next slice of the run, starting it on the first call.
+     *
+     * @throws ExecutionCancelled if the run was cancelled, the credits consumed until then are charged
+     */
+    @Override
+    public boolean runSlice(long cycleBudget) {
+        if (preparedRun == null) {
+            start();
+        }
+        try {
+            if (!preparedRun.runSlice(cycleBudget)) {
+                return false;
+            }
+        } catch (RuntimeException e) {
+            endFailed(e);
+            throw e;
+        }
+        record(preparedRun.getResult());
+        return true;
+    }
+
+    private void start() {
+        Engine engine = getEngineToStart();
+        int architectureCost = reserveCredits(engine);
+        preparedRun = engine.prepareValidatedRun(runAndDebugParams.expandLevel(), runAndDebugParams.arguments(),
+                reservedCredits - architectureCost, runAndDebugParams.architectureType(), monitor,
+                runAndDebugParams.profile());
+        registerActiveRun();
+    }
+
+    /**
+     * Runs this run on a worker of the cluster instead of the local interpreter workers. the credits are reserved
+     * and settled here, the same way as for a local run.
+     *
+     * @param coordinator the coordinator of the cluster
+     * @return a future of the run's result
+     * @throws RejectedExecutionException if the cluster workers cannot accept more runs
+     */
+    public @NotNull CompletableFuture<FullExecutionResultDTO> dispatchTo(@NotNull ClusterCoordinator coordinator)
+            throws RejectedExecutionException {
+        return coordinator.runInSlot(() -> startRemote(coordinator));
+    }
+
+    private @NotNull CompletableFuture<FullExecutionResultDTO> startRemote(@NotNull ClusterCoordinator coordinator) {
+        Engine engine = getEngineToStart();
+        int architectureCost = reserveCredits(engine);
+        registerActiveRun();
+
+        CompletableFuture<FullExecutionResultDTO> result = new CompletableFuture<>();
+        coordinator.dispatch(user.getName(), runAndDebugParams.programName(), runAndDebugParams.expandLevel(),
+                runAndDebugParams.architectureType(), runAndDebugParams.arguments(),
+                reservedCredits - architectureCost, runAndDebugParams.timeLimitMillis(), runAndDebugParams.profile(),
+                monitor).whenComplete((remoteRunResult, failure) -> {
+            if (failure != null) {
+                endFailed(failure);
+                result.completeExceptionally(failure);
+                return;
+            }
+            FullExecutionResultDTO fullExecutionResultDTO = remoteRunResult.result();
+            // the statistics of the program are kept here, the worker's copy of the program is discarded
+            engine.addExecutionStats(fullExecutionResultDTO.creditsCost(), fullExecutionResultDTO.cycleCount(),
+                    fullExecutionResultDTO.architectureType(), fullExecutionResultDTO.expandLevel(),
+                    remoteRunResult.executedInstructions(), remoteRunResult.executionNanos());
+            EngineMetrics.INSTRUCTIONS_EXECUTED.add(remoteRunResult.executedInstructions());
+            record(fullExecutionResultDTO);
+            result.complete(fullExecutionResultDTO);
+        });
+        return result;
+    }
+
+    /**
+     * Validates the run and reserves its credits. validation failures propagate before anything is reserved.
+     *
+     * @return the architecture cost of the run
+     * @throws InsufficientCredits if the user does not have the architecture cost
+     */
+    private int reserveCredits(@NotNull Engine engine) throws InsufficientCredits {
+        int architectureCost = engine.validateBatchRunAndGetCreditCost(runAndDebugParams.expandLevel(),
+                user.getCurrentCredits(), runAndDebugParams.architectureType(),
+                List.of(runAndDebugParams.arguments()));
+        reservedCredits = user.reserveRunCredits(runAndDebugParams.architectureType(), architectureCost,
+                runCreditLimit);
+        return architectureCost;
+    }
+
+    /**
+     * @return the engine of the program to run
+     * @throws ExecutionCancelled if the run was cancelled before it started
+     */
+    private @NotNull Engine getEngineToStart() {
+        if (onStart != null) {
+            onStart.run();
+        }
+        String programName = runAndDebugParams.programName();
+        if (monitor.isCancelRequested()) {
+            // cancelled while waiting in the queue
+            throw new ExecutionCancelled("Execution of " + programName + " cancelled before it started", 0, 0);
+        }
+        return runAndDebugParams.pm().getProgramOrFunctionEngine(programName);
+    }
+
+    private void registerActiveRun() {
+        activeRun = ActiveRunsManager.getInstance().register(user.getName(), runAndDebugParams.programName(),
+                runAndDebugParams.architectureType(), monitor);
+    }
+
+    /**
+     * Charges the consumed credits, counts the run and records it in the history.
+     */
+    private void record(@NotNull FullExecutionResultDTO fullExecutionResultDTO) {
+        unregister();
+        synchronized (user) {
+            user.settleReservedCredits(reservedCredits, fullExecutionResultDTO.creditsCost());
+            user.incrementTotalRuns();
+            executionHistoryManager.addExecutionResult(user.getName(), runAndDebugParams.programName(),
+                    ExecutionResultStatisticsDTO.of(fullExecutionResultDTO, user.getTotalRuns()));
+        }
+    }
+
+    /**
+     * Ends a run that failed with the given exception, charging only the credits it consumed.
+     */
+    private void endFailed(@NotNull Throwable failure) {
+        if (failure instanceof InsufficientCredits insufficientCredits) {
+            end(reservedCredits - insufficientCredits.getCreditsLeft());
+        } else if (failure instanceof InstructionExecutionException e) {
+            end(reservedCredits - e.getRemainingCredits());
+        } else if (failure instanceof ExecutionCancelled executionCancelled) {
+            end(executionCancelled.getCreditsConsumed());
+        } else {
+            end(0);
+        }
+    }
+
+    /**
+     * Ends a failed run, charging only the credits it consumed.
+     */
+    private void end(int consumedCredits) {
+        unregister();
+        synchronized (user) {
+            user.settleReservedCredits(reservedCredits, consumedCredits);
+        }
+    }
+
+    private void unregister() {
+        if (activeRun != null) {
+            ActiveRunsManager.getInstance().unregister(activeRun);
+            activeRun = null;
+        }
+    }
+
+    @Override
+    public @NotNull FullExecutionResultDTO getResult() {
+        if (preparedRun == null) {
+            throw new IllegalStateException("The run did not start yet");
+        }
+        return preparedRun.getResult();
+    }
+
+    @Override
+    public long getCyclesExecuted() {
+        return preparedRun == null ? 0 : preparedRun.getCyclesExecuted();
+    }
+
+    public @NotNull String getUsername() {
+        return user.getName();
+    }
+
+    @Override
+    public @NotNull ArchitectureType getArchitectureType() {
+        return runAndDebugParams.architectureType();
+    }
+
+    @Override
+    public boolean isExclusive() {
+        // each run reserves only its own credits, so the runs of a user share its flow round-robin
+        return false;
+    }
+}
@@ -0,0 +1,220 @@
+package logic.file.xml;
+
+import engine.generated_2.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+/**
+ * Reads a program from its XML document in a single streaming pass, for every uploaded XML file.
+ * <p>
+ * The document is validated against the program schema while it is read, so an invalid document fails on its first
+ * error instead of after it was fully read, and the program is built element by element without JAXB's reflection.
+ * the schema is compiled once and shared, the reader is thread-safe.
+ * </p>
+ */
+public class StreamingProgramReader {
+    private static final String SCHEMA_RESOURCE_NAME = "S-Emulator-v2.xsd";
+    private static final SAXParserFactory parserFactory = createParserFactory();
+
+    // region element and attribute names
+    private static final String PROGRAM_ELEMENT = "S-Program";
+    private static final String INSTRUCTIONS_ELEMENT = "S-Instructions";
+    private static final String INSTRUCTION_ELEMENT = "S-Instruction";
+    private static final String VARIABLE_ELEMENT = "S-Variable";
+    private static final String LABEL_ELEMENT = "S-Label";
+    private static final String ARGUMENTS_ELEMENT = "S-Instruction-Arguments";
+    private static final String ARGUMENT_ELEMENT = "S-Instruction-Argument";
+    private static final String FUNCTIONS_ELEMENT = "S-Functions";
+    private static final String FUNCTION_ELEMENT = "S-Function";
+    private static final String NAME_ATTRIBUTE = "name";
+    private static final String TYPE_ATTRIBUTE = "type";
+    private static final String VALUE_ATTRIBUTE = "value";
+    private static final String USER_STRING_ATTRIBUTE = "user-string";
+    // endregion
+
+    private static @NotNull SAXParserFactory createParserFactory() {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        try {
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IllegalStateException("Failed to configure the XML parser", e);
+        }
+        factory.setSchema(loadSchema());
+        return factory;
+    }
+
+    /**
+     * @throws IllegalStateException if the schema is not deployed with the generated classes, uploads are never
+     *                               read without validation
+     */
+    private static @NotNull Schema loadSchema() {
+        URL schemaUrl = SProgram.class.getResource(SCHEMA_RESOURCE_NAME);
+        if (schemaUrl == null) {
+            throw new IllegalStateException("Program schema " + SCHEMA_RESOURCE_NAME + " not found next to " +
+                    SProgram.class.getName());
+        }
+        try {
+            return SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(schemaUrl);
+        } catch (SAXException e) {
+            throw new IllegalStateException("Failed to load the program schema", e);
+        }
+    }
+
+    /**
+     * Reads and validates a program.
+     *
+     * @param xmlFile the XML document of the program
+     * @return the program
+     * @throws SAXException if the document is not well-formed or not valid, with the position of the first error
+     * @throws IOException  if the document could not be read
+     */
+    public @NotNull SProgram read(@NotNull InputStream xmlFile) throws SAXException, IOException {
+        SAXParser parser;
+        try {
+            parser = parserFactory.newSAXParser();
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("Failed to create the XML parser", e);
+        }
+        ProgramBuilder programBuilder = new ProgramBuilder();
+        parser.parse(xmlFile, programBuilder);
+        if (programBuilder.program == null) {
+            throw new SAXException("The document has no " + PROGRAM_ELEMENT + " element");
+        }
+        return programBuilder.program;
+    }
+
+    /**
+     * Builds the program from the parsing events, and stops the parsing on the first validation error.
+     */
+    private static final class ProgramBuilder extends DefaultHandler {
+        private @Nullable SProgram program = null;
+        private @Nullable SFunctions functions = null;
+        private @Nullable SFunction function = null;
+        private @Nullable SInstructions instructions = null;
+        private @Nullable SInstruction instruction = null;
+        private @Nullable SInstructionArguments arguments = null;
+        private final @NotNull StringBuilder text = new StringBuilder();
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            text.setLength(0);
+            switch (localName) {
+                case PROGRAM_ELEMENT -> {
+                    program = new SProgram();
+                    program.setName(attributes.getValue(NAME_ATTRIBUTE));
+                }
+                case FUNCTIONS_ELEMENT -> functions = new SFunctions();
+                case FUNCTION_ELEMENT -> {
+                    function = new SFunction();
+                    function.setName(attributes.getValue(NAME_ATTRIBUTE));
+                    function.setUserString(attributes.getValue(USER_STRING_ATTRIBUTE));
+                }
+                case INSTRUCTIONS_ELEMENT -> instructions = new SInstructions();
+                case INSTRUCTION_ELEMENT -> {
+                    instruction = new SInstruction();
+                    instruction.setName(attributes.getValue(NAME_ATTRIBUTE));
+                    instruction.setType(attributes.getValue(TYPE_ATTRIBUTE));
+                }
+                case ARGUMENTS_ELEMENT -> arguments = new SInstructionArguments();
+                case ARGUMENT_ELEMENT -> {
+                    SInstructionArgument argument = new SInstructionArgument();
+                    argument.setName(attributes.getValue(NAME_ATTRIBUTE));
+                    argument.setValue(attributes.getValue(VALUE_ATTRIBUTE));
+                    if (arguments != null) {
+                        arguments.getSInstructionArgument().add(argument);
+                    }
+                }
+                default -> {
+                    // the schema rejects any other element
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            text.append(ch, start, length);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case VARIABLE_ELEMENT -> {
+                    if (instruction != null) {
+                        instruction.setSVariable(text.toString());
+                    }
+                }
+                case LABEL_ELEMENT -> {
+                    if (instruction != null) {
+                        instruction.setSLabel(text.toString());
+                    }
+                }
+                case ARGUMENTS_ELEMENT -> {
+                    if (instruction != null) {
+                        instruction.setSInstructionArguments(arguments);
+                    }
+                    arguments = null;
+                }
+                case INSTRUCTION_ELEMENT -> {
+                    if (instructions != null) {
+                        instructions.getSInstruction().add(instruction);
+                    }
+                    instruction = null;
+                }
+                case INSTRUCTIONS_ELEMENT -> {
+                    // the instructions of a function, or of the program itself
+                    if (function != null) {
+                        function.setSInstructions(instructions);
+                    } else if (program != null) {
+                        program.setSInstructions(instructions);
+                    }
+                    instructions = null;
+                }
+                case FUNCTION_ELEMENT -> {
+                    if (functions != null) {
+                        functions.getSFunction().add(function);
+                    }
+                    function = null;
+                }
+                case FUNCTIONS_ELEMENT -> {
+                    if (program != null) {
+                        program.setSFunctions(functions);
+                    }
+                    functions = null;
+                }
+                default -> {
+                }
+            }
+            text.setLength(0);
+        }
+
+        @Override
+        public void warning(SAXParseException exception) {
+        }
+
+        @Override
+        public void error(SAXParseException exception) throws SAXException {
+            throw exception;
+        }
+
+        @Override
+        public void fatalError(SAXParseException exception) throws SAXException {
+            throw exception;
+        }
+    }
+}
@@ -3,21 +3,78 @@ package logic.file.xml;
 import engine.generated_2.SProgram;
 import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
 import jakarta.xml.bind.Unmarshaller;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
+/**
+ * Reads and writes programs through JAXB.
+ * <p>
+ * The JAXB context is costly to create and thread-safe, so it is created once and shared by all the handlers.
+ * unmarshallers are not thread-safe, so they are pooled: each call borrows one and returns it when done.
+ * a handler is thread-safe and cheap to create.
+ * </p>
+ */
 public class XMLHandler {
-    private final Unmarshaller unmarshaller;
+    private static final String JAXB_GENERATED_PACKAGE_LOC = "engine.generated_2";
+    private static final int UNMARSHALLERS_POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private static volatile JAXBContext sharedContext = null;
+    private static final BlockingQueue<Unmarshaller> unmarshallersPool =
+            new ArrayBlockingQueue<>(UNMARSHALLERS_POOL_SIZE);
+
+    private final JAXBContext jaxbContext;
 
     public XMLHandler() throws JAXBException {
-        final String jaxbGeneratedPackageLoc = "engine.generated_2";
-        JAXBContext jaxbContext = JAXBContext.newInstance(jaxbGeneratedPackageLoc);
-        this.unmarshaller = jaxbContext.createUnmarshaller();
+        this.jaxbContext = getSharedContext();
+    }
+
+    private static @NotNull JAXBContext getSharedContext() throws JAXBException {
+        JAXBContext context = sharedContext;
+        if (context == null) {
+            synchronized (XMLHandler.class) {
+                context = sharedContext;
+                if (context == null) {
+                    context = JAXBContext.newInstance(JAXB_GENERATED_PACKAGE_LOC);
+                    sharedContext = context;
+                }
+            }
+        }
+        return context;
     }
 
     public SProgram unmarshallFile(@NotNull InputStream xmlFile) throws JAXBException {
-        return (SProgram) unmarshaller.unmarshal(xmlFile);
+        Unmarshaller unmarshaller = unmarshallersPool.poll();
+        if (unmarshaller == null) {
+            unmarshaller = jaxbContext.createUnmarshaller();
+        }
+        try {
+            return (SProgram) unmarshaller.unmarshal(xmlFile);
+        } finally {
+            // dropped if the pool is already full
+            unmarshallersPool.offer(unmarshaller);
+        }
+    }
+
+    public SProgram unmarshallBytes(byte @NotNull [] xmlBytes) throws JAXBException {
+        return unmarshallFile(new ByteArrayInputStream(xmlBytes));
+    }
+
+    /**
+     * Writes a program back to its XML form, e.g. to save it in a snapshot of the server.
+     *
+     * @param sProgram the program to write
+     * @return the UTF-8 bytes of the XML document
+     */
+    public byte @NotNull [] marshallProgram(@NotNull SProgram sProgram) throws JAXBException {
+        Marshaller marshaller = jaxbContext.createMarshaller();
+        ByteArrayOutputStream xmlBytes = new ByteArrayOutputStream(4096);
+        marshaller.marshal(sProgram, xmlBytes);
+        return xmlBytes.toByteArray();
     }
 }
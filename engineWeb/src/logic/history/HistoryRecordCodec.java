@@ -0,0 +1,173 @@
+package logic.history;
+
+import dto.engine.ExecutionResultStatisticsDTO;
+import engine.utils.ArchitectureType;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The binary format of a single run in the history log.
+ * <p>
+ * A record is a 4 bytes length of its body, a 4 bytes CRC32 of the body, then the body:
+ * <pre>
+ * long   timestamp (epoch millis)
+ * int    user sequence (the number of runs of the user up to and including this one)
+ * string username
+ * string program name (the history key of the run)
+ * int    run number
+ * byte   1 if the main program was run, 0 for a function
+ * string inner name, display name, architecture symbol
+ * int    expand level, output, cycles count
+ * int    variables count, then (string name, int value) for every variable
+ * int    arguments count, then (string name, int value) for every argument
+ * </pre>
+ * a string is a 2 bytes unsigned length followed by its UTF-8 bytes.
+ * the username and program name come first, so a scan can filter records without decoding them.
+ * </p>
+ */
+final class HistoryRecordCodec {
+    static final int RECORD_HEADER_BYTES = Integer.BYTES * 2;
+    static final int USERNAME_OFFSET = Long.BYTES + Integer.BYTES;
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+
+    private HistoryRecordCodec() {
+    }
+
+    /**
+     * Encodes the body of a record.
+     */
+    static byte @NotNull [] encode(long timestamp, int userSequence, @NotNull String username,
+                                   @NotNull String programName, @NotNull ExecutionResultStatisticsDTO result) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128 + result.allVarsSorted().size() * 8);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(timestamp);
+            out.writeInt(userSequence);
+            writeString(out, username);
+            writeString(out, programName);
+            out.writeInt(result.runNumber());
+            out.writeByte(result.isMainProgram() ? 1 : 0);
+            writeString(out, result.innerName());
+            writeString(out, result.displayName());
+            writeString(out, result.architectureType().getSymbol());
+            out.writeInt(result.expandLevel());
+            out.writeInt(result.output());
+            out.writeInt(result.cycleCount());
+            writeVariables(out, result.allVarsSorted());
+            writeVariables(out, result.arguments());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes the body of a record.
+     *
+     * @param body the buffer positioned at the start of the body, it is advanced past the body
+     */
+    static @NotNull ExecutionResultStatisticsDTO decode(@NotNull ByteBuffer body) {
+        body.getLong(); // timestamp
+        body.getInt(); // user sequence
+        skipString(body); // username
+        skipString(body); // program name
+        int runNumber = body.getInt();
+        boolean isMainProgram = body.get() == 1;
+        String innerName = readString(body);
+        String displayName = readString(body);
+        ArchitectureType architectureType = ArchitectureType.fromString(readString(body));
+        int expandLevel = body.getInt();
+        int output = body.getInt();
+        int cycleCount = body.getInt();
+        Map<String, Integer> allVarsSorted = readVariables(body);
+        Map<String, Integer> arguments = readVariables(body);
+        return new ExecutionResultStatisticsDTO(runNumber, isMainProgram, innerName, displayName, architectureType,
+                expandLevel, output, allVarsSorted, arguments, cycleCount);
+    }
+
+    static long readTimestamp(@NotNull ByteBuffer buffer, int bodyPosition) {
+        return buffer.getLong(bodyPosition);
+    }
+
+    static int readUserSequence(@NotNull ByteBuffer buffer, int bodyPosition) {
+        return buffer.getInt(bodyPosition + Long.BYTES);
+    }
+
+    /**
+     * @return the position of the program name in the body at the given position
+     */
+    static int programNamePosition(@NotNull ByteBuffer buffer, int bodyPosition) {
+        int usernamePosition = bodyPosition + USERNAME_OFFSET;
+        return usernamePosition + Short.BYTES + Short.toUnsignedInt(buffer.getShort(usernamePosition));
+    }
+
+    /**
+     * Compares the string at an absolute position with the given UTF-8 bytes, without decoding it.
+     */
+    static boolean stringEquals(@NotNull ByteBuffer buffer, int position, byte @NotNull [] expected) {
+        int length = Short.toUnsignedInt(buffer.getShort(position));
+        if (length != expected.length) {
+            return false;
+        }
+        int start = position + Short.BYTES;
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(start + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static @NotNull String readString(@NotNull ByteBuffer buffer, int position) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort(position))];
+        buffer.get(position + Short.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(@NotNull DataOutputStream out, @NotNull String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("String is too long for a history record: " + bytes.length +
+                    " bytes");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static @NotNull String readString(@NotNull ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void skipString(@NotNull ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        buffer.position(buffer.position() + length);
+    }
+
+    private static void writeVariables(@NotNull DataOutputStream out, @NotNull Map<String, Integer> variables)
+            throws IOException {
+        out.writeInt(variables.size());
+        for (Map.Entry<String, Integer> variable : variables.entrySet()) {
+            writeString(out, variable.getKey());
+            out.writeInt(variable.getValue());
+        }
+    }
+
+    private static @NotNull Map<String, Integer> readVariables(@NotNull ByteBuffer buffer) {
+        int count = buffer.getInt();
+        Map<String, Integer> variables = new LinkedHashMap<>(Math.max(16, count * 2));
+        for (int i = 0; i < count; i++) {
+            String name = readString(buffer);
+            variables.put(name, buffer.getInt());
+        }
+        return variables;
+    }
+}
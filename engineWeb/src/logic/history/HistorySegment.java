@@ -0,0 +1,268 @@
+package logic.history;
+
+import dto.engine.ExecutionResultStatisticsDTO;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static logic.history.HistoryRecordCodec.*;
+
+/**
+ * A single memory-mapped file of the history log, holding records one after the other.
+ * <p>
+ * The file starts with a header (magic, format version, segment id, creation time) and is pre-sized to its capacity,
+ * so the end of the records is the first zero length. the records are only appended, and the segment keeps the
+ * per-user and per-program counts of its records, so a query can skip a segment without reading it.
+ * not thread-safe: appends must not run alongside reads.
+ * </p>
+ */
+final class HistorySegment {
+    static final String FILE_PREFIX = "history-";
+    static final String FILE_SUFFIX = ".seg";
+    private static final int MAGIC = 0x53454D48; // "SEMH"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = Integer.BYTES * 2 + Long.BYTES * 2;
+
+    private final long id;
+    private final @NotNull Path path;
+    private final @NotNull MappedByteBuffer buffer;
+    private final long createdMillis;
+    private int writePosition;
+    private long lastTimestamp;
+    private final @NotNull Map<String, UserStats> usersStats = new HashMap<>();
+    private final @NotNull Map<String, Integer> programsCounts = new HashMap<>();
+
+    private HistorySegment(long id, @NotNull Path path, @NotNull MappedByteBuffer buffer, long createdMillis) {
+        this.id = id;
+        this.path = path;
+        this.buffer = buffer;
+        this.createdMillis = createdMillis;
+        this.writePosition = HEADER_BYTES;
+        this.lastTimestamp = createdMillis;
+    }
+
+    /**
+     * Creates a new empty segment file.
+     */
+    static @NotNull HistorySegment create(@NotNull Path directory, long id, int capacity) throws IOException {
+        Path path = directory.resolve(fileName(id));
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+        long createdMillis = System.currentTimeMillis();
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(Integer.BYTES, FORMAT_VERSION);
+        buffer.putLong(Integer.BYTES * 2, id);
+        buffer.putLong(Integer.BYTES * 2 + Long.BYTES, createdMillis);
+        return new HistorySegment(id, path, buffer, createdMillis);
+    }
+
+    /**
+     * Opens an existing segment file, rebuilding its counts. a torn or corrupted record (e.g. after a crash)
+     * ends the segment, it and anything after it are ignored and overwritten by the next append.
+     */
+    static @NotNull HistorySegment open(@NotNull Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a history segment: " + path);
+        }
+        if (buffer.getInt(Integer.BYTES) != FORMAT_VERSION) {
+            throw new IOException("Unsupported history segment version " + buffer.getInt(Integer.BYTES) + ": " +
+                    path);
+        }
+        HistorySegment segment = new HistorySegment(buffer.getLong(Integer.BYTES * 2), path, buffer,
+                buffer.getLong(Integer.BYTES * 2 + Long.BYTES));
+        segment.recover();
+        return segment;
+    }
+
+    static @NotNull String fileName(long id) {
+        return FILE_PREFIX + String.format("%020d", id) + FILE_SUFFIX;
+    }
+
+    private void recover() {
+        CRC32 crc = new CRC32();
+        int position = HEADER_BYTES;
+        while (position + RECORD_HEADER_BYTES <= buffer.capacity()) {
+            int bodyLength = buffer.getInt(position);
+            int bodyPosition = position + RECORD_HEADER_BYTES;
+            if (bodyLength <= 0 || bodyPosition + bodyLength > buffer.capacity()) {
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.slice(bodyPosition, bodyLength));
+            if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES)) {
+                System.out.println("History segment " + path.getFileName() + " is corrupted at " + position +
+                        ", ignoring the rest of it");
+                break;
+            }
+            String username = readString(buffer, bodyPosition + USERNAME_OFFSET);
+            String programName = readString(buffer, programNamePosition(buffer, bodyPosition));
+            count(username, programName, readUserSequence(buffer, bodyPosition), readTimestamp(buffer, bodyPosition));
+            position = bodyPosition + bodyLength;
+        }
+        writePosition = position;
+        // clears a torn record, so the end of the records is a zero length again
+        if (writePosition + Integer.BYTES <= buffer.capacity()) {
+            buffer.putInt(writePosition, 0);
+        }
+    }
+
+    /**
+     * Appends a record if it fits.
+     *
+     * @return false if the segment is full
+     */
+    boolean tryAppend(byte @NotNull [] body, @NotNull String username, @NotNull String programName,
+                      int userSequence, long timestamp) {
+        int recordEnd = writePosition + RECORD_HEADER_BYTES + body.length;
+        if (recordEnd > buffer.capacity()) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        buffer.put(writePosition + RECORD_HEADER_BYTES, body);
+        buffer.putInt(writePosition + Integer.BYTES, (int) crc.getValue());
+        if (recordEnd + Integer.BYTES <= buffer.capacity()) {
+            buffer.putInt(recordEnd, 0);
+        }
+        // the length is written last, so a record is never visible before its body
+        buffer.putInt(writePosition, body.length);
+        writePosition = recordEnd;
+        count(username, programName, userSequence, timestamp);
+        return true;
+    }
+
+    private void count(@NotNull String username, @NotNull String programName, int userSequence, long timestamp) {
+        usersStats.computeIfAbsent(username, k -> new UserStats()).add(userSequence);
+        programsCounts.merge(programName, 1, Integer::sum);
+        lastTimestamp = Math.max(lastTimestamp, timestamp);
+    }
+
+    /**
+     * Reads the matching records of the segment in append order.
+     *
+     * @param username          the user of the records, null for any user
+     * @param programName       the program of the records, null for any program
+     * @param afterUserSequence only records with a greater user sequence match
+     * @param skip              the number of matching records to skip
+     * @param limit             the maximum number of records to read
+     * @param results           the list to add the records to
+     */
+    void read(byte @Nullable [] username, byte @Nullable [] programName, int afterUserSequence, int skip, int limit,
+              @NotNull List<ExecutionResultStatisticsDTO> results) {
+        ByteBuffer view = buffer.duplicate();
+        int position = HEADER_BYTES;
+        int added = 0;
+        while (position < writePosition && added < limit) {
+            int bodyLength = view.getInt(position);
+            int bodyPosition = position + RECORD_HEADER_BYTES;
+            if (matches(view, bodyPosition, username, programName, afterUserSequence)) {
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    view.position(bodyPosition);
+                    results.add(decode(view));
+                    added++;
+                }
+            }
+            position = bodyPosition + bodyLength;
+        }
+    }
+
+    private static boolean matches(@NotNull ByteBuffer view, int bodyPosition, byte @Nullable [] username,
+                                   byte @Nullable [] programName, int afterUserSequence) {
+        if (username != null && !stringEquals(view, bodyPosition + USERNAME_OFFSET, username)) {
+            return false;
+        }
+        if (programName != null && !stringEquals(view, programNamePosition(view, bodyPosition), programName)) {
+            return false;
+        }
+        return readUserSequence(view, bodyPosition) > afterUserSequence;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    long getId() {
+        return id;
+    }
+
+    @NotNull Path getPath() {
+        return path;
+    }
+
+    int getCapacity() {
+        return buffer.capacity();
+    }
+
+    long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    @NotNull Map<String, UserStats> getUsersStats() {
+        return usersStats;
+    }
+
+    int getUserCount(@NotNull String username) {
+        UserStats userStats = usersStats.get(username);
+        return userStats == null ? 0 : userStats.count;
+    }
+
+    int getProgramCount(@NotNull String programName) {
+        return programsCounts.getOrDefault(programName, 0);
+    }
+
+    /**
+     * The records of a user in the segment.
+     */
+    static final class UserStats {
+        private int count = 0;
+        private int firstSequence = Integer.MAX_VALUE;
+        private int lastSequence = 0;
+
+        private void add(int userSequence) {
+            count++;
+            firstSequence = Math.min(firstSequence, userSequence);
+            lastSequence = Math.max(lastSequence, userSequence);
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        int getFirstSequence() {
+            return firstSequence;
+        }
+
+        int getLastSequence() {
+            return lastSequence;
+        }
+    }
+
+    void delete() throws IOException {
+        // the mapping itself is released by the garbage collector once the segment is unreachable
+        Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,273 @@
+package logic.history;
+
+import dto.engine.ExecutionResultStatisticsDTO;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * An append-only execution history log on local disk, made of memory-mapped segments.
+ * <p>
+ * Runs are appended to the newest segment, and a new segment is started when it is full.
+ * nothing is kept in memory per run: only the counts of the records of every user and program per segment,
+ * and the sequence of the last run per user. so the memory grows with the number of segments and users,
+ * not with the number of runs, and the retention bounds the number of segments.
+ * the oldest segments are deleted once the log is larger than {@link #maxTotalBytes}, or once all their records are
+ * older than {@link #maxAgeMillis}, checked when the log is opened and whenever a new segment starts.
+ * </p>
+ * <p>
+ * Not thread-safe: appends must be exclusive, reads may run alongside each other.
+ * </p>
+ */
+public class HistoryStore implements Closeable {
+    private final @NotNull Path directory;
+    private final int segmentBytes;
+    private final long maxTotalBytes;
+    private final long maxAgeMillis;
+
+    // region data structures
+    private final @NotNull ArrayDeque<HistorySegment> segments = new ArrayDeque<>();
+    private final @NotNull Map<String, Integer> usersLastSequence = new HashMap<>();
+    private long totalBytes = 0;
+    // endregion
+
+    private HistoryStore(@NotNull Path directory, int segmentBytes, long maxTotalBytes, long maxAgeMillis) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxTotalBytes = maxTotalBytes;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    /**
+     * Opens the history log in a directory, creating it if needed, and rebuilds the counts from its segments.
+     *
+     * @param directory     the directory of the segment files
+     * @param segmentBytes  the size of a segment file
+     * @param maxTotalBytes the maximum total size of the segment files, older segments are deleted beyond it
+     * @param maxAgeMillis  the maximum age of a run, older segments are deleted, 0 to keep runs regardless of age
+     * @return the opened log
+     */
+    public static @NotNull HistoryStore open(@NotNull Path directory, int segmentBytes, long maxTotalBytes,
+                                             long maxAgeMillis) throws IOException {
+        if (segmentBytes <= 0 || maxTotalBytes < segmentBytes || maxAgeMillis < 0) {
+            throw new IllegalArgumentException("Invalid history log sizes");
+        }
+        Files.createDirectories(directory);
+        HistoryStore store = new HistoryStore(directory, segmentBytes, maxTotalBytes, maxAgeMillis);
+        List<Path> segmentFiles;
+        try (Stream<Path> files = Files.list(directory)) {
+            segmentFiles = files
+                    .filter(path -> path.getFileName().toString().startsWith(HistorySegment.FILE_PREFIX) &&
+                            path.getFileName().toString().endsWith(HistorySegment.FILE_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        for (Path segmentFile : segmentFiles) {
+            try {
+                store.addSegment(HistorySegment.open(segmentFile));
+            } catch (IOException e) {
+                System.out.println("Skipping history segment " + segmentFile.getFileName() + ": " + e.getMessage());
+            }
+        }
+        store.applyRetention();
+        return store;
+    }
+
+    private void addSegment(@NotNull HistorySegment segment) {
+        segments.addLast(segment);
+        totalBytes += segment.getCapacity();
+        segment.getUsersStats().forEach((username, userStats) ->
+                usersLastSequence.merge(username, userStats.getLastSequence(), Math::max));
+    }
+
+    // region appending
+
+    /**
+     * Registers a user with no runs, so its history exists (empty) before its first run.
+     */
+    public void registerUser(@NotNull String username) {
+        usersLastSequence.putIfAbsent(username, 0);
+    }
+
+    public boolean isUserRegistered(@NotNull String username) {
+        return usersLastSequence.containsKey(username);
+    }
+
+    /**
+     * Appends a run to the log.
+     *
+     * @param username    the user who ran the program
+     * @param programName the program or function that was run
+     * @param result      the statistics of the run
+     * @return the sequence of the run among the runs of the user, starting from 1
+     */
+    public int append(@NotNull String username, @NotNull String programName,
+                      @NotNull ExecutionResultStatisticsDTO result) throws IOException {
+        int userSequence = usersLastSequence.getOrDefault(username, 0) + 1;
+        long timestamp = System.currentTimeMillis();
+        byte[] body = HistoryRecordCodec.encode(timestamp, userSequence, username, programName, result);
+        HistorySegment activeSegment = segments.peekLast();
+        if (activeSegment == null || !activeSegment.tryAppend(body, username, programName, userSequence, timestamp)) {
+            if (activeSegment != null) {
+                activeSegment.force();
+            }
+            // a run larger than a segment gets a segment of its own
+            int capacity = Math.max(segmentBytes, body.length + HistoryRecordCodec.RECORD_HEADER_BYTES + 64);
+            long nextId = activeSegment == null ? 1 : activeSegment.getId() + 1;
+            HistorySegment newSegment = HistorySegment.create(directory, nextId, capacity);
+            addSegment(newSegment);
+            newSegment.tryAppend(body, username, programName, userSequence, timestamp);
+            applyRetention();
+        }
+        usersLastSequence.put(username, userSequence);
+        return userSequence;
+    }
+
+    /**
+     * Deletes the oldest segments beyond the size and age limits. the active segment is never deleted.
+     */
+    private void applyRetention() {
+        long oldestAllowed = maxAgeMillis == 0 ? Long.MIN_VALUE : System.currentTimeMillis() - maxAgeMillis;
+        while (segments.size() > 1 &&
+                (totalBytes > maxTotalBytes || segments.getFirst().getLastTimestamp() < oldestAllowed)) {
+            HistorySegment oldest = segments.removeFirst();
+            totalBytes -= oldest.getCapacity();
+            try {
+                oldest.delete();
+            } catch (IOException e) {
+                System.out.println("Failed to delete history segment " + oldest.getPath().getFileName() + ": " +
+                        e.getMessage());
+            }
+        }
+    }
+    // endregion
+
+    // region queries
+
+    /**
+     * Gets a page of the retained runs of a user, oldest first.
+     */
+    public @NotNull List<ExecutionResultStatisticsDTO> getUserPage(@NotNull String username, int offset, int limit) {
+        byte[] usernameBytes = username.getBytes(StandardCharsets.UTF_8);
+        List<ExecutionResultStatisticsDTO> page = new ArrayList<>(Math.min(limit, 256));
+        int toSkip = offset;
+        for (HistorySegment segment : segments) {
+            if (page.size() >= limit) {
+                break;
+            }
+            int count = segment.getUserCount(username);
+            if (toSkip >= count) {
+                toSkip -= count;
+                continue;
+            }
+            segment.read(usernameBytes, null, 0, toSkip, limit - page.size(), page);
+            toSkip = 0;
+        }
+        return page;
+    }
+
+    /**
+     * Gets a page of the retained runs of a program, oldest first.
+     */
+    public @NotNull List<ExecutionResultStatisticsDTO> getProgramPage(@NotNull String programName, int offset,
+                                                                      int limit) {
+        byte[] programNameBytes = programName.getBytes(StandardCharsets.UTF_8);
+        List<ExecutionResultStatisticsDTO> page = new ArrayList<>(Math.min(limit, 256));
+        int toSkip = offset;
+        for (HistorySegment segment : segments) {
+            if (page.size() >= limit) {
+                break;
+            }
+            int count = segment.getProgramCount(programName);
+            if (toSkip >= count) {
+                toSkip -= count;
+                continue;
+            }
+            segment.read(null, programNameBytes, 0, toSkip, limit - page.size(), page);
+            toSkip = 0;
+        }
+        return page;
+    }
+
+    /**
+     * Gets the retained runs of a user with a sequence greater than the given one, oldest first.
+     */
+    public @NotNull List<ExecutionResultStatisticsDTO> getUserRunsAfter(@NotNull String username,
+                                                                        int afterSequence) {
+        byte[] usernameBytes = username.getBytes(StandardCharsets.UTF_8);
+        List<ExecutionResultStatisticsDTO> runs = new ArrayList<>();
+        for (HistorySegment segment : segments) {
+            HistorySegment.UserStats userStats = segment.getUsersStats().get(username);
+            if (userStats != null && userStats.getLastSequence() > afterSequence) {
+                segment.read(usernameBytes, null, afterSequence, 0, Integer.MAX_VALUE, runs);
+            }
+        }
+        return runs;
+    }
+
+    public int getUserCount(@NotNull String username) {
+        int count = 0;
+        for (HistorySegment segment : segments) {
+            count += segment.getUserCount(username);
+        }
+        return count;
+    }
+
+    public int getProgramCount(@NotNull String programName) {
+        int count = 0;
+        for (HistorySegment segment : segments) {
+            count += segment.getProgramCount(programName);
+        }
+        return count;
+    }
+
+    /**
+     * @return the sequence of the last run of the user, 0 if the user has no runs
+     */
+    public int getUserLastSequence(@NotNull String username) {
+        return usersLastSequence.getOrDefault(username, 0);
+    }
+
+    /**
+     * @return the sequence of the oldest retained run of the user, or the next sequence if none is retained
+     */
+    public int getUserFirstRetainedSequence(@NotNull String username) {
+        for (HistorySegment segment : segments) {
+            HistorySegment.UserStats userStats = segment.getUsersStats().get(username);
+            if (userStats != null) {
+                return userStats.getFirstSequence();
+            }
+        }
+        return getUserLastSequence(username) + 1;
+    }
+
+    public int getSegmentsCount() {
+        return segments.size();
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+    // endregion
+
+    /**
+     * Flushes the segments to disk.
+     */
+    @Override
+    public void close() {
+        try {
+            for (HistorySegment segment : segments) {
+                segment.force();
+            }
+        } catch (UncheckedIOException e) {
+            System.out.println("Failed to flush the history log: " + e.getMessage());
+        }
+    }
+}
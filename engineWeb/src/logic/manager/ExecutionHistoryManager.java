@@ -1,22 +1,31 @@
 package logic.manager;
 
 import dto.engine.ExecutionResultStatisticsDTO;
+import dto.server.ChangesDTO;
+import logic.events.EventBus;
+import logic.history.HistoryStore;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import static utils.ServletConstants.*;
+
+/**
+ * Keeps the execution history of all the users, in an append-only log on local disk (see {@link HistoryStore}),
+ * so the history survives restarts and its memory does not grow with the number of runs.
+ * the log is opened by {@link #openStore}, or with the default settings on first use.
+ */
 public class ExecutionHistoryManager {
 
     // region data structures
-    private final @NotNull List<ExecutionResultStatisticsDTO> executionResultDTOList = new ArrayList<>();
-    private final @NotNull Map<String, List<ExecutionResultStatisticsDTO>> userToExecutionHistory = new HashMap<>();
-    private final @NotNull Map<String, List<ExecutionResultStatisticsDTO>> programToExecutionHistory = new HashMap<>();
+    private volatile @Nullable HistoryStore historyStore = null;
     // endregion
 
     // region read-write locks
@@ -43,68 +52,188 @@ public class ExecutionHistoryManager {
     }
     // endregion
 
+    // region history log lifecycle
+
+    /**
+     * Opens the history log. does nothing if it is already open.
+     *
+     * @param directory     the directory of the log
+     * @param segmentBytes  the size of a segment file of the log
+     * @param maxTotalBytes the maximum size of the log, the oldest runs are deleted beyond it
+     * @param maxAgeMillis  the maximum age of a run, 0 to keep runs regardless of age
+     */
+    public void openStore(@NotNull Path directory, int segmentBytes, long maxTotalBytes, long maxAgeMillis) {
+        writeLock.lock();
+        try {
+            if (historyStore != null) {
+                return;
+            }
+            historyStore = HistoryStore.open(directory, segmentBytes, maxTotalBytes, maxAgeMillis);
+            System.out.println("Execution history opened at " + directory + " with " +
+                    historyStore.getSegmentsCount() + " segments");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the execution history at " + directory, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Flushes the history log to disk, called when the server stops.
+     */
+    public void closeStore() {
+        writeLock.lock();
+        try {
+            if (historyStore != null) {
+                historyStore.close();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private @NotNull HistoryStore getStore() {
+        HistoryStore store = historyStore;
+        if (store == null) {
+            openStore(Path.of(DEFAULT_HISTORY_DIRECTORY), DEFAULT_HISTORY_SEGMENT_BYTES, DEFAULT_HISTORY_MAX_BYTES,
+                    DEFAULT_HISTORY_MAX_AGE_MILLIS);
+            store = historyStore;
+        }
+        return store;
+    }
+    // endregion
+
     // region execution history management methods
 
     public void addExecutionResult(String username, String programName,
                                    ExecutionResultStatisticsDTO executionResultStatisticsDTO) {
+        addExecutionResults(username, programName, List.of(executionResultStatisticsDTO));
+    }
+
+    /**
+     * Adds the results of a batch of runs of the same program, under a single acquisition of the lock.
+     *
+     * @param username                      the user who ran the batch
+     * @param programName                   the program that was run
+     * @param executionResultStatisticsDTOs the results of the batch, in order
+     */
+    public void addExecutionResults(String username, String programName,
+                                    List<ExecutionResultStatisticsDTO> executionResultStatisticsDTOs) {
+        HistoryStore store = getStore();
         writeLock.lock();
         try {
-            executionResultDTOList.add(executionResultStatisticsDTO);
-
-            List<ExecutionResultStatisticsDTO> userHistory = userToExecutionHistory.get(username);
-            if (userHistory == null) {
+            if (!store.isUserRegistered(username)) {
                 throw new IllegalStateException("User history not initialized for user: " + username);
             }
-
-            userToExecutionHistory
-                    .get(username)
-                    .add(executionResultStatisticsDTO);
-
-            programToExecutionHistory
-                    .computeIfAbsent(programName, k -> new ArrayList<>())
-                    .add(executionResultStatisticsDTO);
+            for (ExecutionResultStatisticsDTO executionResultStatisticsDTO : executionResultStatisticsDTOs) {
+                store.append(username, programName, executionResultStatisticsDTO);
+            }
+        } catch (IOException e) {
+            // the run itself already happened and was charged, only its record is lost
+            System.out.println("Failed to record the history of " + username + ": " + e.getMessage());
+            return;
         } finally {
             writeLock.unlock();
         }
+        publishAppended(username, programName, executionResultStatisticsDTOs);
+    }
+
+    /**
+     * Pushes the new runs to the subscribed clients, with the program's run statistics they changed.
+     */
+    private void publishAppended(String username, String programName,
+                                 List<ExecutionResultStatisticsDTO> executionResultStatisticsDTOs) {
+        EventBus.getInstance().publishHistoryAppended(username, executionResultStatisticsDTOs);
+        ProgramManager.getInstance().programChanged(programName);
     }
 
     public void initUserHistory(String username) {
+        HistoryStore store = getStore();
         writeLock.lock();
         try {
-            userToExecutionHistory.putIfAbsent(username, new ArrayList<>());
+            store.registerUser(username);
         } finally {
             writeLock.unlock();
         }
     }
 
-    public @NotNull List<ExecutionResultStatisticsDTO> getExecutionResultDTOList() {
+    /**
+     * Get all the retained runs of a user, oldest first.
+     */
+    public @NotNull List<ExecutionResultStatisticsDTO> getUserExecutionHistory(String username) {
+        return getUserExecutionHistoryPage(username, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get a page of the retained runs of a user, oldest first.
+     *
+     * @param username the user
+     * @param offset   the number of runs to skip
+     * @param limit    the maximum number of runs in the page
+     * @return the runs of the page
+     */
+    public @NotNull List<ExecutionResultStatisticsDTO> getUserExecutionHistoryPage(String username, int offset,
+                                                                                   int limit) {
+        HistoryStore store = getStore();
         readLock.lock();
         try {
-            return executionResultDTOList;
+            if (!store.isUserRegistered(username)) {
+                throw new IllegalArgumentException("No execution history for user: " + username);
+            }
+            return store.getUserPage(username, offset, limit);
         } finally {
             readLock.unlock();
         }
     }
 
-    public @NotNull List<ExecutionResultStatisticsDTO> getUserExecutionHistory(String username) {
+    /**
+     * Get the runs a user made since a version of the user's history. the history is append-only,
+     * so its version is the sequence of the user's last run.
+     *
+     * @param username     the user
+     * @param sinceVersion the sequence of the last run the client has, 0 for the whole history
+     * @return the runs after the given one, or the whole retained history if the client is ahead of the server
+     * or its runs are no longer retained
+     */
+    public @NotNull ChangesDTO<ExecutionResultStatisticsDTO> getUserHistoryChangesSince(String username,
+                                                                                       long sinceVersion) {
+        HistoryStore store = getStore();
         readLock.lock();
         try {
-            if (!userToExecutionHistory.containsKey(username)) {
+            if (!store.isUserRegistered(username)) {
                 throw new IllegalArgumentException("No execution history for user: " + username);
             }
-            return userToExecutionHistory.get(username);
+            int version = store.getUserLastSequence(username);
+            if (sinceVersion > version || sinceVersion < store.getUserFirstRetainedSequence(username) - 1) {
+                return new ChangesDTO<>(version, true, store.getUserPage(username, 0, Integer.MAX_VALUE));
+            }
+            return new ChangesDTO<>(version, false, store.getUserRunsAfter(username, (int) sinceVersion));
         } finally {
             readLock.unlock();
         }
     }
 
     public @NotNull List<ExecutionResultStatisticsDTO> getProgramExecutionHistory(String programName) {
+        return getProgramExecutionHistoryPage(programName, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get a page of the retained runs of a program, oldest first.
+     *
+     * @param programName the program or function
+     * @param offset      the number of runs to skip
+     * @param limit       the maximum number of runs in the page
+     * @return the runs of the page
+     */
+    public @NotNull List<ExecutionResultStatisticsDTO> getProgramExecutionHistoryPage(String programName, int offset,
+                                                                                      int limit) {
+        HistoryStore store = getStore();
         readLock.lock();
         try {
-            if (!programToExecutionHistory.containsKey(programName)) {
+            if (store.getProgramCount(programName) == 0) {
                 throw new IllegalArgumentException("No execution history for program: " + programName);
             }
-            return programToExecutionHistory.get(programName);
+            return store.getProgramPage(programName, offset, limit);
         } finally {
             readLock.unlock();
         }
@@ -0,0 +1,239 @@
+package logic.manager;
+
+import dto.engine.FunctionMetadata;
+import dto.engine.ProgramMetadata;
+import dto.engine.ProgramsAndFunctionsMetadata;
+import engine.core.Engine;
+import logic.snapshot.ProgramSnapshot;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * An immutable state of the programs and functions catalog.
+ * <p>
+ * A change never modifies a catalog, it returns a new one, so a catalog can be read by any number of threads without
+ * a lock. the metadata lists served to the clients are computed once, when the catalog is created, instead of on
+ * every request.
+ * </p>
+ */
+final class ProgramCatalog {
+    static final ProgramCatalog EMPTY = new ProgramCatalog(Map.of(), Map.of(), Map.of(), Map.of(), Map.of(),
+            Map.of(), Map.of());
+
+    // region data structures
+    // main programs by name, in upload order
+    private final @NotNull Map<String, Engine> programs;
+    private final @NotNull Map<String, Engine> functions;
+    private final @NotNull Map<String, Engine> functionsAndPrograms;
+    // programs restored from a snapshot that were not built yet, in upload order
+    private final @NotNull Map<String, ProgramSnapshot> pendingPrograms;
+    // the names of the pending programs and their functions, to the name of their pending program
+    private final @NotNull Map<String, String> pendingNamesToProgram;
+    // the metadata of the built and pending programs and functions, by name, in upload order
+    private final @NotNull Map<String, ProgramMetadata> programsMetadataByName;
+    private final @NotNull Map<String, FunctionMetadata> functionsMetadataByName;
+    // endregion
+    // region precomputed views
+    private final @NotNull Set<ProgramMetadata> programsMetadata;
+    private final @NotNull Set<FunctionMetadata> functionsMetadata;
+    private final @NotNull ProgramsAndFunctionsMetadata programsAndFunctionsMetadata;
+    private final @NotNull Set<String> programNames;
+    private final @NotNull Set<String> functionNames;
+    // endregion
+
+    /**
+     * The maps are owned by the new catalog, they must not be changed after it is created.
+     */
+    private ProgramCatalog(@NotNull Map<String, Engine> programs,
+                           @NotNull Map<String, Engine> functions,
+                           @NotNull Map<String, Engine> functionsAndPrograms,
+                           @NotNull Map<String, ProgramSnapshot> pendingPrograms,
+                           @NotNull Map<String, String> pendingNamesToProgram,
+                           @NotNull Map<String, ProgramMetadata> programsMetadataByName,
+                           @NotNull Map<String, FunctionMetadata> functionsMetadataByName) {
+        this.programs = Collections.unmodifiableMap(programs);
+        this.functions = Collections.unmodifiableMap(functions);
+        this.functionsAndPrograms = Collections.unmodifiableMap(functionsAndPrograms);
+        this.pendingPrograms = Collections.unmodifiableMap(pendingPrograms);
+        this.pendingNamesToProgram = Collections.unmodifiableMap(pendingNamesToProgram);
+        this.programsMetadataByName = Collections.unmodifiableMap(programsMetadataByName);
+        this.functionsMetadataByName = Collections.unmodifiableMap(functionsMetadataByName);
+        this.programsMetadata = Collections.unmodifiableSet(new LinkedHashSet<>(programsMetadataByName.values()));
+        this.functionsMetadata = Collections.unmodifiableSet(new LinkedHashSet<>(functionsMetadataByName.values()));
+        this.programsAndFunctionsMetadata = new ProgramsAndFunctionsMetadata(this.programsMetadata,
+                this.functionsMetadata);
+        this.programNames = Collections.unmodifiableSet(programsMetadataByName.keySet());
+        this.functionNames = Collections.unmodifiableSet(functionsMetadataByName.keySet());
+    }
+
+    // region changes
+
+    /**
+     * @param programName       the name of the new program
+     * @param mainProgramEngine the built engine of the program
+     * @return a catalog with the program and its functions added, and removed from the pending programs if it was
+     * one of them
+     */
+    @NotNull ProgramCatalog withProgram(@NotNull String programName, @NotNull Engine mainProgramEngine) {
+        Map<String, Engine> newPrograms = new LinkedHashMap<>(programs);
+        Map<String, Engine> newFunctions = new HashMap<>(functions);
+        Map<String, Engine> newFunctionsAndPrograms = new HashMap<>(functionsAndPrograms);
+        Map<String, ProgramMetadata> newProgramsMetadata = new LinkedHashMap<>(programsMetadataByName);
+        Map<String, FunctionMetadata> newFunctionsMetadata = new LinkedHashMap<>(functionsMetadataByName);
+        mainProgramEngine.addProgramAndFunctionsToSystem(newFunctionsAndPrograms, newFunctions);
+        newPrograms.put(programName, mainProgramEngine);
+        newProgramsMetadata.put(programName, mainProgramEngine.programToMetadata());
+        for (Engine functionEngine : newFunctions.values()) {
+            if (!functions.containsKey(functionEngine.getInternalName())) {
+                newFunctionsMetadata.put(functionEngine.getInternalName(), functionEngine.functionToMetadata());
+            }
+        }
+        return withoutPending(programName, newPrograms, newFunctions, newFunctionsAndPrograms,
+                newProgramsMetadata, newFunctionsMetadata);
+    }
+
+    /**
+     * @param programName the name of a pending program that could not be built
+     * @return a catalog without the program and its functions
+     */
+    @NotNull ProgramCatalog withoutPendingProgram(@NotNull String programName) {
+        Map<String, ProgramMetadata> newProgramsMetadata = new LinkedHashMap<>(programsMetadataByName);
+        Map<String, FunctionMetadata> newFunctionsMetadata = new LinkedHashMap<>(functionsMetadataByName);
+        newProgramsMetadata.remove(programName);
+        newFunctionsMetadata.values().removeIf(functionMetadata ->
+                functionMetadata.ProgramContext().equals(programName));
+        return withoutPending(programName, programs, functions, functionsAndPrograms,
+                newProgramsMetadata, newFunctionsMetadata);
+    }
+
+    private @NotNull ProgramCatalog withoutPending(@NotNull String programName,
+                                                   @NotNull Map<String, Engine> newPrograms,
+                                                   @NotNull Map<String, Engine> newFunctions,
+                                                   @NotNull Map<String, Engine> newFunctionsAndPrograms,
+                                                   @NotNull Map<String, ProgramMetadata> newProgramsMetadata,
+                                                   @NotNull Map<String, FunctionMetadata> newFunctionsMetadata) {
+        Map<String, ProgramSnapshot> newPendingPrograms = pendingPrograms;
+        Map<String, String> newPendingNamesToProgram = pendingNamesToProgram;
+        if (pendingPrograms.containsKey(programName)) {
+            newPendingPrograms = new LinkedHashMap<>(pendingPrograms);
+            newPendingPrograms.remove(programName);
+            newPendingNamesToProgram = new HashMap<>(pendingNamesToProgram);
+            newPendingNamesToProgram.values().removeIf(programName::equals);
+        }
+        return new ProgramCatalog(newPrograms, newFunctions, newFunctionsAndPrograms, newPendingPrograms,
+                newPendingNamesToProgram, newProgramsMetadata, newFunctionsMetadata);
+    }
+
+    /**
+     * @param savedPrograms programs restored from a snapshot, in upload order
+     * @return a catalog with the programs added as pending, skipping the ones already in the catalog
+     */
+    @NotNull ProgramCatalog withPendingPrograms(@NotNull List<ProgramSnapshot> savedPrograms) {
+        Map<String, ProgramSnapshot> newPendingPrograms = new LinkedHashMap<>(pendingPrograms);
+        Map<String, String> newPendingNamesToProgram = new HashMap<>(pendingNamesToProgram);
+        Map<String, ProgramMetadata> newProgramsMetadata = new LinkedHashMap<>(programsMetadataByName);
+        Map<String, FunctionMetadata> newFunctionsMetadata = new LinkedHashMap<>(functionsMetadataByName);
+        for (ProgramSnapshot savedProgram : savedPrograms) {
+            if (programs.containsKey(savedProgram.name()) || newPendingPrograms.containsKey(savedProgram.name())) {
+                continue;
+            }
+            newPendingPrograms.put(savedProgram.name(), savedProgram);
+            newPendingNamesToProgram.put(savedProgram.name(), savedProgram.name());
+            newProgramsMetadata.put(savedProgram.name(), savedProgram.programMetadata());
+            for (FunctionMetadata functionMetadata : savedProgram.functionsMetadata()) {
+                newPendingNamesToProgram.put(functionMetadata.name(), savedProgram.name());
+                newFunctionsMetadata.put(functionMetadata.name(), functionMetadata);
+            }
+        }
+        return new ProgramCatalog(programs, functions, functionsAndPrograms, newPendingPrograms,
+                newPendingNamesToProgram, newProgramsMetadata, newFunctionsMetadata);
+    }
+
+    /**
+     * @param changedNames the names of built programs and functions whose run statistics changed
+     * @return a catalog with the metadata of the programs and functions read again from their engines, names that
+     * are not built are skipped
+     */
+    @NotNull ProgramCatalog withStatistics(@NotNull Collection<String> changedNames) {
+        Map<String, ProgramMetadata> newProgramsMetadata = new LinkedHashMap<>(programsMetadataByName);
+        Map<String, FunctionMetadata> newFunctionsMetadata = new LinkedHashMap<>(functionsMetadataByName);
+        for (String name : changedNames) {
+            Engine programEngine = programs.get(name);
+            if (programEngine != null) {
+                newProgramsMetadata.put(name, programEngine.programToMetadata());
+            }
+            Engine functionEngine = functions.get(name);
+            if (functionEngine != null) {
+                newFunctionsMetadata.put(name, functionEngine.functionToMetadata());
+            }
+        }
+        return new ProgramCatalog(programs, functions, functionsAndPrograms, pendingPrograms, pendingNamesToProgram,
+                newProgramsMetadata, newFunctionsMetadata);
+    }
+    // endregion
+    // region getters
+
+    @NotNull Map<String, Engine> programs() {
+        return programs;
+    }
+
+    @NotNull Map<String, Engine> functionsAndPrograms() {
+        return functionsAndPrograms;
+    }
+
+    @NotNull Map<String, ProgramSnapshot> pendingPrograms() {
+        return pendingPrograms;
+    }
+
+    @Nullable Engine getEngine(@NotNull String name) {
+        return functionsAndPrograms.get(name);
+    }
+
+    /**
+     * @return the name of the pending program that defines the given program or function, or null if it is not
+     * pending
+     */
+    @Nullable String getPendingProgramOf(@NotNull String name) {
+        return pendingNamesToProgram.get(name);
+    }
+
+    boolean isProgramExists(@NotNull String programName) {
+        return programs.containsKey(programName) || pendingPrograms.containsKey(programName);
+    }
+
+    boolean isNameTaken(@NotNull String name) {
+        return functionsAndPrograms.containsKey(name) || pendingNamesToProgram.containsKey(name);
+    }
+
+    /**
+     * @return the metadata of the functions of a program
+     */
+    @NotNull List<FunctionMetadata> getFunctionsMetadataOf(@NotNull String programName) {
+        return functionsMetadataByName.values().stream()
+                .filter(functionMetadata -> functionMetadata.ProgramContext().equals(programName))
+                .toList();
+    }
+
+    @NotNull Set<ProgramMetadata> programsMetadata() {
+        return programsMetadata;
+    }
+
+    @NotNull Set<FunctionMetadata> functionsMetadata() {
+        return functionsMetadata;
+    }
+
+    @NotNull ProgramsAndFunctionsMetadata programsAndFunctionsMetadata() {
+        return programsAndFunctionsMetadata;
+    }
+
+    @NotNull Set<String> programNames() {
+        return programNames;
+    }
+
+    @NotNull Set<String> functionNames() {
+        return functionNames;
+    }
+    // endregion
+}
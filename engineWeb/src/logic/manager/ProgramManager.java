@@ -3,32 +3,56 @@ package logic.manager;
 import dto.engine.FunctionMetadata;
 import dto.engine.ProgramMetadata;
 import dto.engine.ProgramsAndFunctionsMetadata;
+import dto.server.ChangesDTO;
 import engine.core.Engine;
 import engine.exception.FunctionAlreadyExist;
 import engine.exception.FunctionNotFound;
 import engine.exception.LabelNotExist;
+import engine.exception.ProgramAlreadyExist;
+import engine.generated_2.SFunction;
 import engine.generated_2.SProgram;
+import jakarta.xml.bind.JAXBException;
 import logic.User;
+import logic.events.ChangeLog;
+import logic.events.EventBus;
+import logic.file.xml.XMLHandler;
+import logic.snapshot.ProgramSnapshot;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import static utils.ServletConstants.CHANGE_LOG_CAPACITY;
+
 public class ProgramManager {
     // region data structures
-    private final @NotNull Map<String, Engine> programs = new HashMap<>();
-    private final @NotNull Map<String, Engine> functions = new HashMap<>();
-    private final @NotNull Map<String, Engine> functionsAndPrograms = new HashMap<>();
+    // the current catalog, never changed in place: a change publishes a new catalog, so reads take no lock
+    private volatile @NotNull ProgramCatalog catalog = ProgramCatalog.EMPTY;
+    private final @NotNull Map<String, Engine> catalogView = new CatalogView();
+    // the names of the programs being uploaded and their functions, until they are published
+    private final @NotNull Set<String> reservedNames = ConcurrentHashMap.newKeySet();
+    private final @NotNull ChangeLog<ProgramMetadata> programsChangeLog = new ChangeLog<>(CHANGE_LOG_CAPACITY);
+    private final @NotNull ChangeLog<FunctionMetadata> functionsChangeLog = new ChangeLog<>(CHANGE_LOG_CAPACITY);
+    private final @NotNull List<Consumer<Engine>> programPublishedListeners = new CopyOnWriteArrayList<>();
+    // the programs and functions whose run statistics changed since the catalog was published, their metadata in
+    // the catalog is refreshed in one go when the metadata is next read, instead of once per run
+    private final @NotNull Set<String> changedStatistics = ConcurrentHashMap.newKeySet();
+    // the XML document of each main program as saved in a snapshot, written once per program
+    private final @NotNull Map<String, byte[]> savedSources = new ConcurrentHashMap<>();
     // endregion
-    // region read-write locks
-    private final @NotNull ReadWriteLock programsAndFunctionsLock = new ReentrantReadWriteLock();
-    private final @NotNull Lock readLock = programsAndFunctionsLock.readLock();
-    private final @NotNull Lock writeLock = programsAndFunctionsLock.writeLock();
+    // region locks
+    // serializes the changes of the catalog, reads never take it
+    private final @NotNull Lock catalogWriteLock = new ReentrantLock();
+    // builds the pending programs one at a time, reentrant as building a program builds the programs it uses
+    private final @NotNull Lock materializeLock = new ReentrantLock();
+    // the pending programs being built, guarded by materializeLock. a program looks up its own functions through
+    // the catalog as well, so they are not built again meanwhile
+    private final @NotNull Set<String> materializingPrograms = new HashSet<>();
 
     /**
      * Private constructor to prevent instantiation from outside the class.
@@ -48,115 +72,413 @@ public class ProgramManager {
     /**
      * Add a new program to the system. keeps the order of insertion.
      * crates an Engine for the program and adds its functions to the system
+     * <p>
+     * The engine is built outside the lock, so concurrent uploads build their engines in parallel and a large upload
+     * does not block the others. the names of the program and its functions are reserved first, so two uploads of
+     * the same names cannot both succeed, and a new catalog with the program is published once it is built.
+     * </p>
      *
      * @param programName the name of the new program, this will be the ID for the program
      * @param sProgram    the SProgram object representing the program
      * @throws LabelNotExist        if a label in the program does not exist
      * @throws FunctionNotFound     if a function called in the program is not found either locally or globally
      * @throws FunctionAlreadyExist if a function being added already exists in the system
+     * @throws ProgramAlreadyExist  if a program or function with the program's name already exists in the system,
+     *                              or is being uploaded
      */
     public void addProgram(String programName, SProgram sProgram, User user)
-            throws LabelNotExist, FunctionNotFound, FunctionAlreadyExist {
-        Engine mainProgramEngine = Engine.createMainProgramEngine(sProgram, functionsAndPrograms, user.getName());
-        mainProgramEngine.addProgramAndFunctionsToSystem(functionsAndPrograms, functions);
-        user.incrementMainProgramsUploaded();
-        user.addFunctionsCount(mainProgramEngine.getFunctionsCount());
-        writeLock.lock();
+            throws LabelNotExist, FunctionNotFound, FunctionAlreadyExist, ProgramAlreadyExist {
+        // the functions of restored programs that are not built yet are built when the new program looks them up
+        List<String> reservedProgramNames = reserveNames(programName, sProgram);
+        Engine mainProgramEngine;
         try {
-            programs.put(programName, mainProgramEngine);
+            mainProgramEngine = Engine.createMainProgramEngine(sProgram, catalogView, user.getName());
+            publishProgram(programName, mainProgramEngine);
         } finally {
-            writeLock.unlock();
+            reservedNames.removeAll(reservedProgramNames);
         }
+        user.incrementMainProgramsUploaded();
+        user.addFunctionsCount(mainProgramEngine.getFunctionsCount());
+        List<FunctionMetadata> addedFunctions = catalog.getFunctionsMetadataOf(programName);
 
+        EventBus eventBus = EventBus.getInstance();
+        for (FunctionMetadata functionMetadata : addedFunctions) {
+            functionsChangeLog.record(functionMetadata.name(), functionMetadata);
+            eventBus.publishFunctionChanged(functionMetadata);
+        }
+        programChanged(mainProgramEngine);
+    }
 
+    /**
+     * Reserves the names of a program and its functions until it is published.
+     *
+     * @return the reserved names, to release once the program is published or failed
+     * @throws ProgramAlreadyExist  if the program's name is taken or reserved
+     * @throws FunctionAlreadyExist if a function's name is taken or reserved
+     */
+    private @NotNull List<String> reserveNames(@NotNull String programName, @NotNull SProgram sProgram)
+            throws ProgramAlreadyExist, FunctionAlreadyExist {
+        List<String> reservedProgramNames = new ArrayList<>();
+        try {
+            // reserved before checking the catalog, so a name published meanwhile is seen by the check
+            if (!reservedNames.add(programName)) {
+                throw new ProgramAlreadyExist(programName);
+            }
+            reservedProgramNames.add(programName);
+            if (sProgram.getSFunctions() != null) {
+                for (SFunction sFunction : sProgram.getSFunctions().getSFunction()) {
+                    if (sFunction.getName().equals(programName) || !reservedNames.add(sFunction.getName())) {
+                        throw new FunctionAlreadyExist(programName, sFunction.getUserString());
+                    }
+                    reservedProgramNames.add(sFunction.getName());
+                }
+            }
+            ProgramCatalog currentCatalog = catalog;
+            if (currentCatalog.isNameTaken(programName)) {
+                throw new ProgramAlreadyExist(programName);
+            }
+            if (sProgram.getSFunctions() != null) {
+                for (SFunction sFunction : sProgram.getSFunctions().getSFunction()) {
+                    if (currentCatalog.isNameTaken(sFunction.getName())) {
+                        throw new FunctionAlreadyExist(programName, sFunction.getUserString());
+                    }
+                }
+            }
+            return reservedProgramNames;
+        } catch (ProgramAlreadyExist | FunctionAlreadyExist e) {
+            reservedNames.removeAll(reservedProgramNames);
+            throw e;
+        }
     }
-    // endregion
-    // region program and function management methods
 
     /**
-     * Get a program engine by name.
-     * @param name the name of the program to retrieve
-     * @return the Engine object if found
-     * @throws IllegalStateException if the program is not found
+     * Publishes a catalog with a built program and its functions added.
      */
-    public Engine getProgramOrFunctionEngine(String name) {
-        readLock.lock();
+    private void publishProgram(@NotNull String programName, @NotNull Engine mainProgramEngine) {
+        catalogWriteLock.lock();
         try {
-            if (functionsAndPrograms.containsKey(name)) {
-                return functionsAndPrograms.get(name);
-            } else {
-                throw new IllegalStateException("Program or function " + name + " not found!");
+            catalog = catalog.withProgram(programName, mainProgramEngine);
+            // under the lock, so the listeners see the programs in publish order
+            for (Consumer<Engine> listener : programPublishedListeners) {
+                listener.accept(mainProgramEngine);
             }
         } finally {
-            readLock.unlock();
+            catalogWriteLock.unlock();
         }
     }
 
-    public Set<ProgramMetadata> getProgramsMetadata() {
-        readLock.lock();
+    /**
+     * Registers a listener called with every main program published from now on, e.g. to replicate the programs
+     * to other processes. the listener is called in publish order while the catalog is locked, so it must be quick.
+     *
+     * @param listener the listener, called with the engine of the published program
+     * @return the main programs published before the listener was registered, in publish order
+     */
+    public @NotNull List<Engine> addProgramPublishedListener(@NotNull Consumer<Engine> listener) {
+        catalogWriteLock.lock();
         try {
-            return programs.values().stream()
-                    .map(Engine::programToMetadata)
-                    .collect(Collectors.toSet());
+            programPublishedListeners.add(listener);
+            return new ArrayList<>(catalog.programs().values());
         } finally {
-            readLock.unlock();
+            catalogWriteLock.unlock();
         }
     }
 
-    public Set<String> getProgramNames() {
-        readLock.lock();
+    public void removeProgramPublishedListener(@NotNull Consumer<Engine> listener) {
+        programPublishedListeners.remove(listener);
+    }
+
+    /**
+     * Records the current metadata of a program or function in the change log and pushes it to the subscribed
+     * clients, e.g. after its run statistics changed. does nothing if the name is not of a built program or function.
+     * the metadata is read under the catalog's lock, so a change never records an older state after a newer one.
+     * the catalog is not rebuilt here, see {@link #getCatalogWithStatistics()}.
+     *
+     * @param programName the name of the program or function
+     */
+    public void programChanged(String programName) {
+        Engine engine = catalog.getEngine(programName);
+        if (engine == null) {
+            return;
+        }
+        if (engine.isMainProgram()) {
+            programChanged(engine);
+            return;
+        }
+        changedStatistics.add(programName);
+        catalogWriteLock.lock();
         try {
-            return programs.keySet();
+            FunctionMetadata functionMetadata = engine.functionToMetadata();
+            functionsChangeLog.record(functionMetadata.name(), functionMetadata);
+            EventBus.getInstance().publishFunctionChanged(functionMetadata);
         } finally {
-            readLock.unlock();
+            catalogWriteLock.unlock();
         }
     }
 
-    public Set<FunctionMetadata> getFunctionsMetadata() {
-        readLock.lock();
+    private void programChanged(@NotNull Engine programEngine) {
+        changedStatistics.add(programEngine.getInternalName());
+        catalogWriteLock.lock();
         try {
-            return functions.values().stream()
-                    .map(Engine::functionToMetadata)
-                    .collect(Collectors.toSet());
+            ProgramMetadata programMetadata = programEngine.programToMetadata();
+            programsChangeLog.record(programMetadata.name(), programMetadata);
+            EventBus.getInstance().publishProgramChanged(programMetadata);
         } finally {
-            readLock.unlock();
+            catalogWriteLock.unlock();
         }
     }
 
-    public ProgramsAndFunctionsMetadata getProgramsAndFunctionsMetadata() {
-        readLock.lock();
+    /**
+     * @return the current catalog, with the metadata of the programs and functions whose run statistics changed
+     * since it was published read again from their engines
+     */
+    private @NotNull ProgramCatalog getCatalogWithStatistics() {
+        if (changedStatistics.isEmpty()) {
+            return catalog;
+        }
+        catalogWriteLock.lock();
         try {
-            return new ProgramsAndFunctionsMetadata(getProgramsMetadata(), getFunctionsMetadata());
+            List<String> changedNames = new ArrayList<>(changedStatistics);
+            // removed before the engines are read, so a change after the read marks its name again
+            changedNames.forEach(changedStatistics::remove);
+            if (!changedNames.isEmpty()) {
+                catalog = catalog.withStatistics(changedNames);
+            }
+            return catalog;
         } finally {
-            readLock.unlock();
+            catalogWriteLock.unlock();
+        }
+    }
+
+    /**
+     * Get the programs that were added or changed since a version of the programs list.
+     *
+     * @param sinceVersion the version the client has, 0 for all programs
+     * @return the changed programs, or all programs if the changes since the version are no longer kept
+     */
+    public @NotNull ChangesDTO<ProgramMetadata> getProgramsChangesSince(long sinceVersion) {
+        return programsChangeLog.getChangesSince(sinceVersion, this::getProgramsMetadata);
+    }
+
+    /**
+     * Get the functions that were added since a version of the functions list.
+     *
+     * @param sinceVersion the version the client has, 0 for all functions
+     * @return the added functions, or all functions if the changes since the version are no longer kept
+     */
+    public @NotNull ChangesDTO<FunctionMetadata> getFunctionsChangesSince(long sinceVersion) {
+        return functionsChangeLog.getChangesSince(sinceVersion, this::getFunctionsMetadata);
+    }
+
+    /**
+     * @return a number that grows whenever a program or function is added or a program's statistics change
+     */
+    public long getChangesVersion() {
+        return programsChangeLog.getVersion() + functionsChangeLog.getVersion();
+    }
+    // endregion
+    // region program and function management methods
+
+    /**
+     * Get a program engine by name.
+     * @param name the name of the program to retrieve
+     * @return the Engine object if found
+     * @throws IllegalStateException if the program is not found
+     */
+    public Engine getProgramOrFunctionEngine(String name) {
+        ProgramCatalog currentCatalog = catalog;
+        Engine engine = currentCatalog.getEngine(name);
+        if (engine != null) {
+            return engine;
+        }
+        String pendingProgramName = currentCatalog.getPendingProgramOf(name);
+        if (pendingProgramName == null) {
+            throw new IllegalStateException("Program or function " + name + " not found!");
         }
+        materializePendingProgram(pendingProgramName);
+        engine = catalog.getEngine(name);
+        if (engine == null) {
+            throw new IllegalStateException("Program or function " + name + " could not be restored!");
+        }
+        return engine;
+    }
+
+    /**
+     * The metadata getters return unmodifiable collections, computed once per change of the catalog.
+     */
+    public Set<ProgramMetadata> getProgramsMetadata() {
+        return getCatalogWithStatistics().programsMetadata();
+    }
+
+    public Set<String> getProgramNames() {
+        return catalog.programNames();
+    }
+
+    public Set<FunctionMetadata> getFunctionsMetadata() {
+        return getCatalogWithStatistics().functionsMetadata();
+    }
 
+    public ProgramsAndFunctionsMetadata getProgramsAndFunctionsMetadata() {
+        return getCatalogWithStatistics().programsAndFunctionsMetadata();
     }
 
     public Set<String> getFunctionNames() {
-        readLock.lock();
+        return catalog.functionNames();
+    }
+
+    public boolean isProgramExists(String programName) {
+        return catalog.isProgramExists(programName);
+    }
+
+    public boolean isFunctionOrProgramExists(String name) {
+        return catalog.isNameTaken(name);
+    }
+
+    // endregion
+    // region snapshot save and restore
+
+    /**
+     * Get the programs of the catalog as they are saved in a snapshot of the server, in upload order.
+     * the programs are taken from a single state of the catalog. a program is written back to XML once, by the first
+     * snapshot after its upload, a restored program keeps the document it was restored from.
+     *
+     * @return the saved form of every program
+     * @throws JAXBException if a program could not be written to XML
+     */
+    public @NotNull List<ProgramSnapshot> getProgramsSnapshot() throws JAXBException {
+        ProgramCatalog currentCatalog = catalog;
+        Collection<Engine> builtPrograms = currentCatalog.programs().values();
+        Collection<ProgramSnapshot> notBuiltPrograms = currentCatalog.pendingPrograms().values();
+        Map<String, List<FunctionMetadata>> builtFunctions = currentCatalog.functionsMetadata().stream()
+                .collect(Collectors.groupingBy(FunctionMetadata::ProgramContext));
+
+        List<ProgramSnapshot> snapshot = new ArrayList<>(builtPrograms.size() + notBuiltPrograms.size());
+        XMLHandler xmlHandler = null;
+        for (Engine programEngine : builtPrograms) {
+            // the statistics are read from the engine, the catalog may not have their last change yet
+            ProgramMetadata programMetadata = programEngine.programToMetadata();
+            byte[] source = savedSources.get(programMetadata.name());
+            if (source == null) {
+                if (xmlHandler == null) {
+                    xmlHandler = new XMLHandler();
+                }
+                source = xmlHandler.marshallProgram(programEngine.getSourceProgram());
+                savedSources.put(programMetadata.name(), source);
+            }
+            snapshot.add(new ProgramSnapshot(programMetadata,
+                    builtFunctions.getOrDefault(programMetadata.name(), List.of()), source));
+        }
+        // an upload builds all the restored programs first, so the ones not built yet come after the built ones
+        snapshot.addAll(notBuiltPrograms);
+        return snapshot;
+    }
+
+    /**
+     * Adds the programs saved in a snapshot of the server, called once on startup. the programs are not built here,
+     * only listed by their saved metadata, each is built from its source when it or one of its functions is first
+     * used, or by {@link #materializeAllPrograms()}.
+     *
+     * @param savedPrograms the saved programs, in upload order
+     */
+    public void restorePrograms(@NotNull List<ProgramSnapshot> savedPrograms) {
+        catalogWriteLock.lock();
         try {
-            return functions.keySet();
+            catalog = catalog.withPendingPrograms(savedPrograms);
         } finally {
-            readLock.unlock();
+            catalogWriteLock.unlock();
         }
     }
 
-    public boolean isProgramExists(String programName) {
-        readLock.lock();
+    /**
+     * Builds all the programs restored from a snapshot that were not built yet.
+     */
+    public void materializeAllPrograms() {
+        while (true) {
+            Iterator<String> pendingProgramNames = catalog.pendingPrograms().keySet().iterator();
+            if (!pendingProgramNames.hasNext()) {
+                return;
+            }
+            materializePendingProgram(pendingProgramNames.next());
+        }
+    }
+
+    /**
+     * Builds a restored program. the programs whose functions it uses are built first, as the program looks them up
+     * through the {@link CatalogView}, so only the programs a program depends on are built with it.
+     *
+     * @param programName the name of the pending program to build
+     */
+    private void materializePendingProgram(@NotNull String programName) {
+        materializeLock.lock();
         try {
-            return programs.containsKey(programName);
+            ProgramSnapshot savedProgram = catalog.pendingPrograms().get(programName);
+            // built meanwhile, or being built by this thread, otherwise
+            if (savedProgram != null && materializingPrograms.add(programName)) {
+                try {
+                    materializeProgram(savedProgram, new XMLHandler());
+                } finally {
+                    materializingPrograms.remove(programName);
+                }
+            }
+        } catch (JAXBException e) {
+            throw new IllegalStateException("Failed to restore the programs: " + e.getMessage(), e);
         } finally {
-            readLock.unlock();
+            materializeLock.unlock();
         }
     }
 
-    public boolean isFunctionOrProgramExists(String name) {
-        readLock.lock();
+    private void materializeProgram(@NotNull ProgramSnapshot savedProgram, @NotNull XMLHandler xmlHandler) {
+        ProgramMetadata programMetadata = savedProgram.programMetadata();
+        Engine programEngine = null;
         try {
-            return functionsAndPrograms.containsKey(name);
-        } finally {
-            readLock.unlock();
+            SProgram sProgram = xmlHandler.unmarshallBytes(savedProgram.source());
+            programEngine = Engine.createMainProgramEngine(sProgram, catalogView, programMetadata.uploadedBy());
+            programEngine.restoreExecutionStats(programMetadata.numberOfExecutions(),
+                    programMetadata.averageCreditsCost());
+        } catch (Exception e) {
+            System.out.println("Failed to restore program " + savedProgram.name() + ", dropping it: " +
+                    e.getMessage());
+        }
+        if (programEngine != null) {
+            savedSources.put(savedProgram.name(), savedProgram.source());
+            publishProgram(savedProgram.name(), programEngine);
+        } else {
+            catalogWriteLock.lock();
+            try {
+                catalog = catalog.withoutPendingProgram(savedProgram.name());
+            } finally {
+                catalogWriteLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * A read-only view of the current catalog, given to the engines to look up the functions they call.
+     * an engine keeps looking functions up after it is built, so it reads the catalog published at each lookup.
+     * looking up a function of a restored program that is not built yet builds the program.
+     */
+    private final class CatalogView extends AbstractMap<String, Engine> {
+        @Override
+        public Engine get(Object name) {
+            Engine engine = catalog.functionsAndPrograms().get(name);
+            if (engine == null && name instanceof String functionName) {
+                String pendingProgramName = catalog.getPendingProgramOf(functionName);
+                if (pendingProgramName != null) {
+                    materializePendingProgram(pendingProgramName);
+                    engine = catalog.functionsAndPrograms().get(name);
+                }
+            }
+            return engine;
+        }
+
+        @Override
+        public boolean containsKey(Object name) {
+            return get(name) != null;
+        }
+
+        @Override
+        public @NotNull Set<Entry<String, Engine>> entrySet() {
+            return catalog.functionsAndPrograms().entrySet();
         }
     }
 
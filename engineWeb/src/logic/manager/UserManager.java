@@ -1,8 +1,11 @@
 package logic.manager;
 
 import dto.engine.ExecutionResultStatisticsDTO;
+import dto.server.ChangesDTO;
 import dto.server.UserDTO;
 import logic.User;
+import logic.events.ChangeLog;
+import logic.events.EventBus;
 import org.jetbrains.annotations.NotNull;
 import utils.ServletUtils;
 
@@ -12,11 +15,13 @@ import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
+import static utils.ServletConstants.CHANGE_LOG_CAPACITY;
 import static utils.ServletConstants.UPDATE_CREDITS_INFO;
 
 public class UserManager {
     // region data structures
     private final @NotNull Map<String, User> users = new LinkedHashMap<>();
+    private final @NotNull ChangeLog<UserDTO> usersChangeLog = new ChangeLog<>(CHANGE_LOG_CAPACITY);
     // endregion
     // region read-write locks
     private final ReadWriteLock usersLock = new ReentrantReadWriteLock();
@@ -63,14 +68,59 @@ public class UserManager {
      * @param username the username of the new user, this will be the ID for the user
      */
     public void addUser(String username) {
+        User user = new User(username);
         writeLock.lock();
         try {
-            User user = new User(username);
             users.put(username, user);
-            user.getUserDTO();
         } finally {
             writeLock.unlock();
         }
+        userChanged(user.getUserDTO());
+    }
+
+    /**
+     * Adds the users saved in a snapshot of the server, called once on startup.
+     * users that already exist are kept as they are.
+     *
+     * @param savedUsers the saved users, in registration order
+     */
+    public void restoreUsers(@NotNull List<UserDTO> savedUsers) {
+        writeLock.lock();
+        try {
+            for (UserDTO savedUser : savedUsers) {
+                users.putIfAbsent(savedUser.name(), new User(savedUser));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Records a user's new state in the change log and pushes it to the subscribed clients.
+     * called by the user after every change.
+     *
+     * @param userDTO the new state of the user
+     */
+    public void userChanged(@NotNull UserDTO userDTO) {
+        usersChangeLog.record(userDTO.name(), userDTO);
+        EventBus.getInstance().publishUserChanged(userDTO);
+    }
+
+    /**
+     * Get the users that registered or changed since a version of the users list.
+     *
+     * @param sinceVersion the version the client has, 0 for all users
+     * @return the changed users, or all users if the changes since the version are no longer kept
+     */
+    public @NotNull ChangesDTO<UserDTO> getUsersChangesSince(long sinceVersion) {
+        return usersChangeLog.getChangesSince(sinceVersion, this::getAllUsersDTO);
+    }
+
+    /**
+     * @return a number that grows whenever a user registers or changes
+     */
+    public long getChangesVersion() {
+        return usersChangeLog.getVersion();
     }
 
     /**
@@ -88,6 +138,22 @@ public class UserManager {
         }
     }
 
+    /**
+     * Get the users that have an active debug session.
+     *
+     * @return the users with a debugger, in registration order
+     */
+    public @NotNull List<User> getUsersWithDebugSessions() {
+        readLock.lock();
+        try {
+            return users.values().stream()
+                    .filter(user -> user.getDebugger() != null)
+                    .toList();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     public boolean isUserExists(String userName) {
         readLock.lock();
         try {
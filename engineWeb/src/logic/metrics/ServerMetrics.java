@@ -0,0 +1,130 @@
+package logic.metrics;
+
+import dto.server.ClusterWorkerDTO;
+import engine.metrics.MetricsRegistry;
+import engine.utils.ArchitectureType;
+import engine.utils.DebugAction;
+import logic.admission.EndpointClass;
+import logic.cache.ResponseCache;
+import logic.execution.ExecutionPoolManager;
+import logic.manager.ProgramManager;
+import logic.manager.UserManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.function.Supplier;
+
+/**
+ * The metrics recorded by the server, next to the ones of the engine, see {@link MetricsRegistry}.
+ */
+public final class ServerMetrics {
+    private static final MetricsRegistry registry = MetricsRegistry.getInstance();
+    private static final String UPLOADS_NAME = "semulator_uploads_total";
+    private static final String UPLOADS_HELP = "Program uploads, by result";
+    private static final String RESPONSE_CACHE_NAME = "semulator_response_cache_requests_total";
+    private static final String RESPONSE_CACHE_HELP = "Lookups of the response cache, by result";
+
+    public static final MetricsRegistry.Counter UPLOADS_SUCCEEDED =
+            registry.counter(UPLOADS_NAME, UPLOADS_HELP, "result", "success");
+    public static final MetricsRegistry.Counter UPLOADS_CONFLICTED =
+            registry.counter(UPLOADS_NAME, UPLOADS_HELP, "result", "conflict");
+    public static final MetricsRegistry.Counter UPLOADS_INVALID =
+            registry.counter(UPLOADS_NAME, UPLOADS_HELP, "result", "invalid");
+    public static final MetricsRegistry.Counter RUNS_REJECTED = registry.counter("semulator_runs_rejected_total",
+            "Runs rejected because the run queue was full");
+    public static final MetricsRegistry.Counter CREDITS_CHARGED = registry.counter(
+            "semulator_credits_charged_total", "Credits charged to the users for runs and debug sessions");
+    public static final MetricsRegistry.Counter ACTIVE_DEBUG_SESSIONS = registry.upDownGauge(
+            "semulator_debug_sessions_active", "Open debug sessions");
+    public static final MetricsRegistry.Counter RESPONSE_CACHE_HITS =
+            registry.counter(RESPONSE_CACHE_NAME, RESPONSE_CACHE_HELP, "result", "hit");
+    public static final MetricsRegistry.Counter RESPONSE_CACHE_MISSES =
+            registry.counter(RESPONSE_CACHE_NAME, RESPONSE_CACHE_HELP, "result", "miss");
+    public static final MetricsRegistry.Counter CLUSTER_JOBS_DISPATCHED = registry.counter(
+            "semulator_cluster_jobs_dispatched_total", "Runs dispatched to the cluster workers, including retries");
+    public static final MetricsRegistry.Counter CLUSTER_JOBS_REDISPATCHED = registry.counter(
+            "semulator_cluster_jobs_redispatched_total",
+            "Runs dispatched again after their cluster worker was lost or rejected them");
+    public static final MetricsRegistry.Counter CLUSTER_WORKERS_LOST = registry.counter(
+            "semulator_cluster_workers_lost_total", "Cluster workers lost by a broken connection or missed heartbeats");
+
+    private ServerMetrics() {
+    }
+
+    /**
+     * @return the counter of the debug actions of a kind, e.g. steps over
+     */
+    public static @NotNull MetricsRegistry.Counter debugActions(@NotNull DebugAction debugAction) {
+        return registry.counter("semulator_debug_actions_total", "Debug actions, by action",
+                "action", debugAction.name().toLowerCase());
+    }
+
+    /**
+     * @return the counter of the requests of an endpoint class shed by the admission control
+     */
+    public static @NotNull MetricsRegistry.Counter admissionRejected(@NotNull EndpointClass endpointClass) {
+        return registry.counter("semulator_admission_rejected_total",
+                "Requests rejected by the admission control, by endpoint class",
+                "endpoint_class", endpointClass.name().toLowerCase());
+    }
+
+    /**
+     * Registers the gauges of a cluster worker, called when it joins. a worker joining again under the same id
+     * replaces the gauges of its previous connection.
+     *
+     * @param workerId the id of the worker
+     * @param status   reads the current state of the worker
+     */
+    public static void registerClusterWorkerGauges(@NotNull String workerId,
+                                                   @NotNull Supplier<ClusterWorkerDTO> status) {
+        registry.gauge("semulator_cluster_worker_up", "Whether a cluster worker is connected, by worker",
+                () -> status.get().alive() ? 1 : 0, "worker", workerId);
+        registry.gauge("semulator_cluster_worker_interpreter_workers", "Interpreter threads, by cluster worker",
+                () -> status.get().interpreterWorkers(), "worker", workerId);
+        registry.gauge("semulator_cluster_worker_runs_active", "Runs executing a slice, by cluster worker",
+                () -> status.get().activeRuns(), "worker", workerId);
+        registry.gauge("semulator_cluster_worker_runs_queued", "Runs waiting for a slice, by cluster worker",
+                () -> status.get().queuedRuns(), "worker", workerId);
+        registry.gauge("semulator_cluster_worker_runs_dispatched", "Dispatched runs not finished, by cluster worker",
+                () -> status.get().dispatchedRuns(), "worker", workerId);
+        registry.gauge("semulator_cluster_worker_runs_completed", "Runs finished, by cluster worker",
+                () -> status.get().runsCompleted(), "worker", workerId);
+        registry.gauge("semulator_cluster_worker_instructions_executed", "Instructions executed, by cluster worker",
+                () -> status.get().instructionsExecuted(), "worker", workerId);
+        registry.gauge("semulator_cluster_worker_heap_used_bytes", "Used heap memory, by cluster worker",
+                () -> status.get().heapUsedBytes(), "worker", workerId);
+    }
+
+    /**
+     * Registers the gauges read from the server-wide resources, called once they are created on startup.
+     */
+    public static void registerGauges(@NotNull ExecutionPoolManager executionPoolManager,
+                                      @NotNull ResponseCache responseCache) {
+        for (String architecture : ArchitectureType.getSupportedArchitectures()) {
+            ArchitectureType architectureType = ArchitectureType.fromString(architecture);
+            registry.gauge("semulator_run_queue_depth", "Runs waiting for an interpreter worker, by pool",
+                    () -> executionPoolManager.getQueuedRuns(architectureType), "architecture", architecture);
+            registry.gauge("semulator_runs_active", "Runs executing on the interpreter workers, by pool",
+                    () -> executionPoolManager.getActiveRuns(architectureType), "architecture", architecture);
+            registry.gauge("semulator_interpreter_workers", "Interpreter worker threads, by pool",
+                    () -> executionPoolManager.getInterpreterWorkers(architectureType), "architecture",
+                    architecture);
+        }
+        registry.gauge("semulator_programs", "Main programs in the catalog",
+                () -> ProgramManager.getInstance().getProgramNames().size());
+        registry.gauge("semulator_functions", "Functions in the catalog",
+                () -> ProgramManager.getInstance().getFunctionNames().size());
+        registry.gauge("semulator_users", "Registered users",
+                () -> UserManager.getInstance().getAllUsersDTO().size());
+        registry.gauge("semulator_response_cache_entries", "Responses held in the response cache",
+                responseCache::getEntriesCount);
+        registry.gauge("semulator_response_cache_bytes", "Compressed bytes held in the response cache",
+                responseCache::getTotalBytes);
+        MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+        registry.gauge("jvm_memory_heap_used_bytes", "Used heap memory",
+                () -> memoryMXBean.getHeapMemoryUsage().getUsed());
+        registry.gauge("jvm_memory_heap_max_bytes", "Max heap memory",
+                () -> memoryMXBean.getHeapMemoryUsage().getMax());
+    }
+}
@@ -0,0 +1,13 @@
+package logic.snapshot;
+
+import dto.engine.DebugSessionStateDTO;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A debug session saved to disk, so it is continued by another server or after a restart.
+ *
+ * @param username the user debugging
+ * @param state    the complete state of the session
+ */
+public record DebugSessionSnapshot(@NotNull String username, @NotNull DebugSessionStateDTO state) {
+}
@@ -0,0 +1,186 @@
+package logic.snapshot;
+
+import dto.engine.DebugSessionStateDTO;
+import engine.utils.ArchitectureType;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The binary format of a debug sessions file.
+ * <p>
+ * A debug sessions file is a header followed by the payload:
+ * <pre>
+ * int    magic ("SEMD")
+ * int    format version
+ * long   creation time (epoch millis)
+ * int    payload length
+ * int    CRC32 of the payload
+ * </pre>
+ * the payload:
+ * <pre>
+ * int    sessions count, then for every session:
+ *        string username, string program name, string display name, boolean is main program,
+ *        int expand level, string architecture, int instructions fingerprint, int initial credits,
+ *        int running credits, int cycles count, long executed instructions count,
+ *        variables arguments, variables current values,
+ *        int history length, then the variables of every step,
+ *        int cycles history length, then the cycles of every step
+ * </pre>
+ * a string is written by {@link DataOutputStream#writeUTF}, variables are their count followed by the name and
+ * the value of every variable. the architecture is written by its enum name.
+ * a reader rejects any other format version, so a change of the payload must come with a new version.
+ * </p>
+ */
+final class DebugSessionsCodec {
+    private static final int MAGIC = 0x53454D44; // "SEMD"
+    private static final int FORMAT_VERSION = 1;
+
+    private DebugSessionsCodec() {
+    }
+
+    static void write(@NotNull List<DebugSessionSnapshot> sessions, long createdMillis,
+                      @NotNull OutputStream output) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(16 * 1024);
+        try (DataOutputStream payload = new DataOutputStream(payloadBytes)) {
+            payload.writeInt(sessions.size());
+            for (DebugSessionSnapshot session : sessions) {
+                writeSession(payload, session);
+            }
+        }
+        byte[] payloadArray = payloadBytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payloadArray);
+
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(createdMillis);
+        out.writeInt(payloadArray.length);
+        out.writeInt((int) crc.getValue());
+        out.write(payloadArray);
+        out.flush();
+    }
+
+    /**
+     * Reads the debug sessions of a file, checking its format version and checksum.
+     *
+     * @throws IOException if the file is not a debug sessions file of the current format, or it is corrupted
+     */
+    static @NotNull List<DebugSessionSnapshot> read(@NotNull InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a debug sessions file");
+        }
+        int formatVersion = in.readInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported debug sessions file version " + formatVersion);
+        }
+        in.readLong(); // creation time
+        int payloadLength = in.readInt();
+        int expectedCrc = in.readInt();
+        if (payloadLength < 0) {
+            throw new IOException("Corrupted debug sessions file: negative length");
+        }
+        byte[] payloadArray = in.readNBytes(payloadLength);
+        CRC32 crc = new CRC32();
+        crc.update(payloadArray);
+        if (payloadArray.length != payloadLength || (int) crc.getValue() != expectedCrc) {
+            throw new IOException("Corrupted debug sessions file: checksum mismatch");
+        }
+
+        DataInputStream payload = new DataInputStream(new ByteArrayInputStream(payloadArray));
+        int sessionsCount = payload.readInt();
+        List<DebugSessionSnapshot> sessions = new ArrayList<>(sessionsCount);
+        for (int i = 0; i < sessionsCount; i++) {
+            sessions.add(readSession(payload));
+        }
+        return sessions;
+    }
+
+    // region sessions
+    private static void writeSession(@NotNull DataOutputStream out, @NotNull DebugSessionSnapshot session)
+            throws IOException {
+        DebugSessionStateDTO state = session.state();
+        out.writeUTF(session.username());
+        out.writeUTF(state.innerProgramName());
+        out.writeUTF(state.displayName());
+        out.writeBoolean(state.isMainProgram());
+        out.writeInt(state.expandLevel());
+        out.writeUTF(state.architectureType().name());
+        out.writeInt(state.instructionsFingerprint());
+        out.writeInt(state.initialCredits());
+        out.writeInt(state.runningCredits());
+        out.writeInt(state.cyclesCount());
+        out.writeLong(state.executedInstructionsCount());
+        writeVariables(out, state.arguments());
+        writeVariables(out, state.contextMap());
+        out.writeInt(state.stateHistory().size());
+        for (Map<String, Integer> stepState : state.stateHistory()) {
+            writeVariables(out, stepState);
+        }
+        out.writeInt(state.cyclesHistory().size());
+        for (int stepCycles : state.cyclesHistory()) {
+            out.writeInt(stepCycles);
+        }
+    }
+
+    private static @NotNull DebugSessionSnapshot readSession(@NotNull DataInputStream in) throws IOException {
+        String username = in.readUTF();
+        String innerProgramName = in.readUTF();
+        String displayName = in.readUTF();
+        boolean isMainProgram = in.readBoolean();
+        int expandLevel = in.readInt();
+        ArchitectureType architectureType;
+        try {
+            architectureType = ArchitectureType.valueOf(in.readUTF());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupted debug sessions file: " + e.getMessage());
+        }
+        int instructionsFingerprint = in.readInt();
+        int initialCredits = in.readInt();
+        int runningCredits = in.readInt();
+        int cyclesCount = in.readInt();
+        long executedInstructionsCount = in.readLong();
+        Map<String, Integer> arguments = readVariables(in);
+        Map<String, Integer> contextMap = readVariables(in);
+        int historyLength = in.readInt();
+        List<Map<String, Integer>> stateHistory = new ArrayList<>(historyLength);
+        for (int i = 0; i < historyLength; i++) {
+            stateHistory.add(readVariables(in));
+        }
+        int cyclesHistoryLength = in.readInt();
+        List<Integer> cyclesHistory = new ArrayList<>(cyclesHistoryLength);
+        for (int i = 0; i < cyclesHistoryLength; i++) {
+            cyclesHistory.add(in.readInt());
+        }
+        return new DebugSessionSnapshot(username, new DebugSessionStateDTO(innerProgramName, displayName,
+                isMainProgram, expandLevel, architectureType, instructionsFingerprint, initialCredits,
+                runningCredits, cyclesCount, executedInstructionsCount, arguments, contextMap, stateHistory,
+                cyclesHistory));
+    }
+    // endregion
+
+    private static void writeVariables(@NotNull DataOutputStream out, @NotNull Map<String, Integer> variables)
+            throws IOException {
+        out.writeInt(variables.size());
+        for (Map.Entry<String, Integer> variable : variables.entrySet()) {
+            out.writeUTF(variable.getKey());
+            out.writeInt(variable.getValue());
+        }
+    }
+
+    private static @NotNull Map<String, Integer> readVariables(@NotNull DataInputStream in) throws IOException {
+        int count = in.readInt();
+        Map<String, Integer> variables = new HashMap<>(Math.max(16, count * 2));
+        for (int i = 0; i < count; i++) {
+            variables.put(in.readUTF(), in.readInt());
+        }
+        return variables;
+    }
+}
@@ -0,0 +1,250 @@
+package logic.snapshot;
+
+import dto.engine.DebugSessionStateDTO;
+import dto.server.DebugSessionDTO;
+import engine.core.Engine;
+import engine.core.ProgramDebugger;
+import logic.User;
+import logic.manager.ExecutionHistoryManager;
+import logic.manager.ProgramManager;
+import logic.manager.UserManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static engine.utils.ProgramUtils.PC_NAME;
+
+/**
+ * Saves the active debug sessions to a file and continues the sessions of a file, so a restart of the server,
+ * or moving the users to another server, does not end their debug sessions.
+ * <p>
+ * The sessions are saved periodically, so they are continued even after a crash, and when the server stops they
+ * are drained: saved and ended here, so they are continued only by the server that imports the file next.
+ * a file is renamed once its sessions were imported, so two servers never continue the same session.
+ * a session is continued with the credits it had left, and its user is charged when it finishes, like a session
+ * that was never moved.
+ * </p>
+ */
+public class DebugSessionsManager {
+    private static final String IMPORTED_SUFFIX = ".imported";
+    private final @NotNull Path sessionsFile;
+    private final long saveIntervalMillis;
+    private @Nullable ScheduledExecutorService saveScheduler = null;
+    private int lastSavedSessionsCount = 0;
+
+    /**
+     * @param sessionsFile       the debug sessions file
+     * @param saveIntervalMillis the time between periodic saves, 0 to only save when the server stops
+     */
+    public DebugSessionsManager(@NotNull Path sessionsFile, long saveIntervalMillis) {
+        if (saveIntervalMillis < 0) {
+            throw new IllegalArgumentException("Debug sessions save interval must not be negative");
+        }
+        this.sessionsFile = sessionsFile;
+        this.saveIntervalMillis = saveIntervalMillis;
+    }
+
+    /**
+     * Continues the sessions of the debug sessions file if there is one, and starts saving the sessions
+     * periodically. must be called after the snapshot of the server is restored, so the sessions find their
+     * users and programs.
+     */
+    public synchronized void importAndStart() {
+        if (Files.isRegularFile(sessionsFile)) {
+            importSessions();
+        }
+        if (saveIntervalMillis > 0 && saveScheduler == null) {
+            saveScheduler = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("debug-sessions-saver").daemon().factory());
+            saveScheduler.scheduleWithFixedDelay(this::saveIfChanged, saveIntervalMillis, saveIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Get the active debug sessions of the server.
+     *
+     * @return the sessions, by registration order of their users
+     */
+    public @NotNull List<DebugSessionDTO> getDebugSessionsDTO() {
+        List<DebugSessionDTO> sessions = new ArrayList<>();
+        for (User user : UserManager.getInstance().getUsersWithDebugSessions()) {
+            ProgramDebugger debugger = user.getDebugger();
+            if (debugger == null) {
+                continue;
+            }
+            DebugSessionStateDTO state;
+            try {
+                state = debugger.exportState();
+            } catch (IllegalStateException e) {
+                // handed off meanwhile
+                continue;
+            }
+            sessions.add(new DebugSessionDTO(user.getName(), state.innerProgramName(),
+                    state.architectureType().getSymbol(), state.expandLevel(), state.contextMap().get(PC_NAME),
+                    state.cyclesCount(), state.initialCredits() - state.runningCredits()));
+        }
+        return sessions;
+    }
+
+    /**
+     * Saves the active debug sessions to the debug sessions file now.
+     *
+     * @param drain true to also end the sessions here, so they are continued only where the file is imported
+     * @return the number of sessions saved
+     * @throws IOException if the file could not be written, the drained sessions are then restored
+     */
+    public synchronized int exportSessions(boolean drain) throws IOException {
+        List<DebugSessionSnapshot> sessions = new ArrayList<>();
+        for (User user : UserManager.getInstance().getUsersWithDebugSessions()) {
+            DebugSessionStateDTO state = drain ? user.handOffDebugSession() : exportState(user);
+            if (state != null) {
+                sessions.add(new DebugSessionSnapshot(user.getName(), state));
+            }
+        }
+        try {
+            write(sessions);
+        } catch (IOException e) {
+            if (drain) {
+                // the sessions were not saved anywhere, so they go on here
+                restoreSessions(sessions);
+            }
+            throw e;
+        }
+        lastSavedSessionsCount = sessions.size();
+        System.out.println((drain ? "Drained " : "Saved ") + sessions.size() + " debug sessions to " +
+                sessionsFile);
+        return sessions.size();
+    }
+
+    /**
+     * Continues the sessions of the debug sessions file, and renames the file so they are not continued twice.
+     * a session is skipped if its user already debugs here, or its program is missing or changed.
+     *
+     * @return the number of sessions continued
+     */
+    public synchronized int importSessions() {
+        List<DebugSessionSnapshot> sessions;
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(sessionsFile))) {
+            sessions = DebugSessionsCodec.read(input);
+        } catch (IOException e) {
+            System.out.println("Failed to read the debug sessions file " + sessionsFile + ": " + e.getMessage());
+            return 0;
+        }
+        try {
+            Files.move(sessionsFile, sessionsFile.resolveSibling(sessionsFile.getFileName() + IMPORTED_SUFFIX),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // continuing the sessions anyway could continue them on two servers
+            System.out.println("Failed to rename the debug sessions file " + sessionsFile + ", not importing it: " +
+                    e.getMessage());
+            return 0;
+        }
+        int restoredCount = restoreSessions(sessions);
+        System.out.println("Imported " + restoredCount + " of " + sessions.size() + " debug sessions from " +
+                sessionsFile);
+        return restoredCount;
+    }
+
+    /**
+     * Stops the periodic saves and drains the active debug sessions to the file, called when the server stops.
+     */
+    public synchronized void shutdown() {
+        if (saveScheduler != null) {
+            saveScheduler.shutdownNow();
+            saveScheduler = null;
+        }
+        if (lastSavedSessionsCount == 0 && UserManager.getInstance().getUsersWithDebugSessions().isEmpty()) {
+            // keeps a file drained by another server for the next one
+            return;
+        }
+        try {
+            exportSessions(true);
+        } catch (IOException e) {
+            System.out.println("Failed to drain the debug sessions to " + sessionsFile + ": " + e.getMessage());
+        }
+    }
+
+    private synchronized void saveIfChanged() {
+        if (lastSavedSessionsCount == 0 && UserManager.getInstance().getUsersWithDebugSessions().isEmpty()) {
+            return;
+        }
+        try {
+            exportSessions(false);
+        } catch (IOException | RuntimeException e) {
+            // keeps the periodic saves going
+            System.out.println("Failed to save the debug sessions: " + e.getMessage());
+        }
+    }
+
+    private int restoreSessions(@NotNull List<DebugSessionSnapshot> sessions) {
+        UserManager userManager = UserManager.getInstance();
+        ProgramManager programManager = ProgramManager.getInstance();
+        int restoredCount = 0;
+        for (DebugSessionSnapshot session : sessions) {
+            DebugSessionStateDTO state = session.state();
+            try {
+                Engine engine = programManager.getProgramOrFunctionEngine(state.innerProgramName());
+                ProgramDebugger debugger = engine.restoreDebugSession(state);
+                User user = getOrAddUser(userManager, session);
+                user.setDebugger(debugger);
+                restoredCount++;
+            } catch (RuntimeException e) {
+                System.out.println("Skipped the debug session of " + session.username() + " on " +
+                        state.innerProgramName() + ": " + e.getMessage());
+            }
+        }
+        return restoredCount;
+    }
+
+    private @NotNull User getOrAddUser(@NotNull UserManager userManager, @NotNull DebugSessionSnapshot session) {
+        User user = userManager.getUser(session.username());
+        if (user == null) {
+            // a user of another server, given the credits the session started with so it is charged as there
+            userManager.addUser(session.username());
+            ExecutionHistoryManager.getInstance().initUserHistory(session.username());
+            user = userManager.getUser(session.username());
+            user.setAvailableCredits(session.state().initialCredits());
+        }
+        return user;
+    }
+
+    private static @Nullable DebugSessionStateDTO exportState(@NotNull User user) {
+        ProgramDebugger debugger = user.getDebugger();
+        if (debugger == null) {
+            return null;
+        }
+        try {
+            return debugger.exportState();
+        } catch (IllegalStateException e) {
+            // handed off meanwhile
+            return null;
+        }
+    }
+
+    private void write(@NotNull List<DebugSessionSnapshot> sessions) throws IOException {
+        Path temporaryFile = sessionsFile.resolveSibling(sessionsFile.getFileName() + ".tmp");
+        Path directory = sessionsFile.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(temporaryFile))) {
+            DebugSessionsCodec.write(sessions, System.currentTimeMillis(), output);
+        }
+        Files.move(temporaryFile, sessionsFile, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
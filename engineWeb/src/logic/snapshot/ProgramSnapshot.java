@@ -0,0 +1,24 @@
+package logic.snapshot;
+
+import dto.engine.FunctionMetadata;
+import dto.engine.ProgramMetadata;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * A program of the catalog as saved in a snapshot of the server. the metadata is enough to list the program and its
+ * functions, so the program itself is only built from its source when it is first used.
+ *
+ * @param programMetadata   the metadata of the program, including its run statistics
+ * @param functionsMetadata the metadata of the functions the program defines
+ * @param source            the XML document of the program
+ */
+public record ProgramSnapshot(@NotNull ProgramMetadata programMetadata,
+                              @NotNull List<FunctionMetadata> functionsMetadata,
+                              byte @NotNull [] source) {
+
+    public @NotNull String name() {
+        return programMetadata.name();
+    }
+}
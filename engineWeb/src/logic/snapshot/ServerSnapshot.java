@@ -0,0 +1,20 @@
+package logic.snapshot;
+
+import dto.server.UserDTO;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * The state of the server saved to disk, so a restart does not lose the catalog and the users.
+ * the execution history is not part of it, as it is already kept on disk by its own log.
+ *
+ * @param createdMillis when the snapshot was taken
+ * @param users         the users, in registration order
+ * @param programs      the programs of the catalog, in upload order, so a program comes after the programs whose
+ *                      functions it uses
+ */
+public record ServerSnapshot(long createdMillis,
+                             @NotNull List<UserDTO> users,
+                             @NotNull List<ProgramSnapshot> programs) {
+}
@@ -0,0 +1,189 @@
+package logic.snapshot;
+
+import dto.engine.ExecutionStatisticsDTO;
+import dto.engine.FunctionMetadata;
+import dto.engine.ProgramMetadata;
+import dto.server.UserDTO;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * The binary format of a snapshot file.
+ * <p>
+ * A snapshot file is a header followed by the payload:
+ * <pre>
+ * int    magic ("SEMS")
+ * int    format version
+ * long   creation time (epoch millis)
+ * int    payload length
+ * int    CRC32 of the payload
+ * </pre>
+ * the payload:
+ * <pre>
+ * int    users count, then for every user:
+ *        string name, int main programs uploaded, int functions contributed, int current credits,
+ *        int used credits, int total runs
+ * int    programs count, then for every program:
+ *        string name, string uploaded by, strings set of called functions, int instructions count,
+ *        int max expand level, int number of executions, float average credits cost
+ *        int functions count, then for every function:
+ *            string name, string display name, string program, string uploaded by,
+ *            strings set of called functions, int instructions count, int max expand level
+ *        int source length, then the XML bytes of the program
+ * </pre>
+ * a string is written by {@link DataOutputStream#writeUTF}, a strings set is its size followed by its strings.
+ * a reader rejects any other format version, so a change of the payload must come with a new version.
+ * </p>
+ */
+final class ServerSnapshotCodec {
+    private static final int MAGIC = 0x53454D53; // "SEMS"
+    private static final int FORMAT_VERSION = 1;
+
+    private ServerSnapshotCodec() {
+    }
+
+    static void write(@NotNull ServerSnapshot snapshot, @NotNull OutputStream output) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(64 * 1024);
+        try (DataOutputStream payload = new DataOutputStream(payloadBytes)) {
+            payload.writeInt(snapshot.users().size());
+            for (UserDTO user : snapshot.users()) {
+                writeUser(payload, user);
+            }
+            payload.writeInt(snapshot.programs().size());
+            for (ProgramSnapshot program : snapshot.programs()) {
+                writeProgram(payload, program);
+            }
+        }
+        byte[] payloadArray = payloadBytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payloadArray);
+
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(snapshot.createdMillis());
+        out.writeInt(payloadArray.length);
+        out.writeInt((int) crc.getValue());
+        out.write(payloadArray);
+        out.flush();
+    }
+
+    /**
+     * Reads a snapshot, checking its format version and checksum.
+     *
+     * @throws IOException if the file is not a snapshot of the current format, or it is corrupted
+     */
+    static @NotNull ServerSnapshot read(@NotNull InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a server snapshot");
+        }
+        int formatVersion = in.readInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported server snapshot version " + formatVersion);
+        }
+        long createdMillis = in.readLong();
+        int payloadLength = in.readInt();
+        int expectedCrc = in.readInt();
+        if (payloadLength < 0) {
+            throw new IOException("Corrupted server snapshot: negative length");
+        }
+        byte[] payloadArray = in.readNBytes(payloadLength);
+        CRC32 crc = new CRC32();
+        crc.update(payloadArray);
+        if (payloadArray.length != payloadLength || (int) crc.getValue() != expectedCrc) {
+            throw new IOException("Corrupted server snapshot: checksum mismatch");
+        }
+
+        DataInputStream payload = new DataInputStream(new ByteArrayInputStream(payloadArray));
+        int usersCount = payload.readInt();
+        List<UserDTO> users = new ArrayList<>(usersCount);
+        for (int i = 0; i < usersCount; i++) {
+            users.add(readUser(payload));
+        }
+        int programsCount = payload.readInt();
+        List<ProgramSnapshot> programs = new ArrayList<>(programsCount);
+        for (int i = 0; i < programsCount; i++) {
+            programs.add(readProgram(payload));
+        }
+        return new ServerSnapshot(createdMillis, users, programs);
+    }
+
+    // region users
+    private static void writeUser(@NotNull DataOutputStream out, @NotNull UserDTO user) throws IOException {
+        out.writeUTF(user.name());
+        out.writeInt(user.mainProgramsUploaded());
+        out.writeInt(user.subFunctionsContributed());
+        out.writeInt(user.currentCredits());
+        out.writeInt(user.creditSpend());
+        out.writeInt(user.totalRuns());
+    }
+
+    private static @NotNull UserDTO readUser(@NotNull DataInputStream in) throws IOException {
+        return new UserDTO(in.readUTF(), in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt());
+    }
+    // endregion
+
+    // region programs
+    private static void writeProgram(@NotNull DataOutputStream out, @NotNull ProgramSnapshot program)
+            throws IOException {
+        ProgramMetadata programMetadata = program.programMetadata();
+        out.writeUTF(programMetadata.name());
+        out.writeUTF(programMetadata.uploadedBy());
+        writeStrings(out, programMetadata.SubfunctionNames());
+        out.writeInt(programMetadata.numOfInstructions());
+        out.writeInt(programMetadata.maxExpandLevel());
+        out.writeInt(programMetadata.numberOfExecutions());
+        out.writeFloat(programMetadata.averageCreditsCost());
+        out.writeInt(program.functionsMetadata().size());
+        for (FunctionMetadata functionMetadata : program.functionsMetadata()) {
+            out.writeUTF(functionMetadata.name());
+            out.writeUTF(functionMetadata.displayName());
+            out.writeUTF(functionMetadata.ProgramContext());
+            out.writeUTF(functionMetadata.uploadedBy());
+            writeStrings(out, functionMetadata.functionsToRun());
+            out.writeInt(functionMetadata.numOfInstructions());
+            out.writeInt(functionMetadata.maxExpandLevel());
+        }
+        out.writeInt(program.source().length);
+        out.write(program.source());
+    }
+
+    private static @NotNull ProgramSnapshot readProgram(@NotNull DataInputStream in) throws IOException {
+        ProgramMetadata programMetadata = new ProgramMetadata(in.readUTF(), in.readUTF(), readStrings(in),
+                in.readInt(), in.readInt(), in.readInt(), in.readFloat(), ExecutionStatisticsDTO.EMPTY);
+        int functionsCount = in.readInt();
+        List<FunctionMetadata> functionsMetadata = new ArrayList<>(functionsCount);
+        for (int i = 0; i < functionsCount; i++) {
+            functionsMetadata.add(new FunctionMetadata(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(),
+                    readStrings(in), in.readInt(), in.readInt(), ExecutionStatisticsDTO.EMPTY));
+        }
+        byte[] source = new byte[in.readInt()];
+        in.readFully(source);
+        return new ProgramSnapshot(programMetadata, functionsMetadata, source);
+    }
+    // endregion
+
+    private static void writeStrings(@NotNull DataOutputStream out, @NotNull Set<String> strings)
+            throws IOException {
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            out.writeUTF(string);
+        }
+    }
+
+    private static @NotNull Set<String> readStrings(@NotNull DataInputStream in) throws IOException {
+        int count = in.readInt();
+        Set<String> strings = new LinkedHashSet<>(Math.max(16, count * 2));
+        for (int i = 0; i < count; i++) {
+            strings.add(in.readUTF());
+        }
+        return strings;
+    }
+}
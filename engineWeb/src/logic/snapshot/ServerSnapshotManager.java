@@ -0,0 +1,165 @@
+package logic.snapshot;
+
+import dto.server.UserDTO;
+import jakarta.xml.bind.JAXBException;
+import logic.manager.ExecutionHistoryManager;
+import logic.manager.ProgramManager;
+import logic.manager.UserManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves the catalog and the users to a snapshot file, periodically and when the server stops,
+ * and restores them when the server starts.
+ * <p>
+ * Restoring only reads the saved metadata, so the server serves requests right away however large the catalog is.
+ * the programs are then built from their saved XML in the background, in upload order, and a request for a program
+ * that is not built yet builds it (and the programs before it) on the spot.
+ * a snapshot is written to a temporary file and then moved over the previous one, so a crash while saving never
+ * leaves a partial snapshot behind.
+ * </p>
+ */
+public class ServerSnapshotManager {
+    private final @NotNull Path snapshotFile;
+    private final long saveIntervalMillis;
+    private @Nullable ScheduledExecutorService saveScheduler = null;
+    private long lastSavedVersion = -1;
+
+    /**
+     * @param snapshotFile       the snapshot file
+     * @param saveIntervalMillis the time between periodic saves, 0 to only save when the server stops
+     */
+    public ServerSnapshotManager(@NotNull Path snapshotFile, long saveIntervalMillis) {
+        if (saveIntervalMillis < 0) {
+            throw new IllegalArgumentException("Snapshot interval must not be negative");
+        }
+        this.snapshotFile = snapshotFile;
+        this.saveIntervalMillis = saveIntervalMillis;
+    }
+
+    /**
+     * Restores the last snapshot if there is one, and starts saving snapshots periodically.
+     * must be called after the execution history is opened.
+     */
+    public synchronized void restoreAndStart() {
+        restore();
+        if (saveIntervalMillis > 0 && saveScheduler == null) {
+            saveScheduler = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("snapshot-saver").daemon().factory());
+            saveScheduler.scheduleWithFixedDelay(this::saveIfChanged, saveIntervalMillis, saveIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void restore() {
+        if (!Files.isRegularFile(snapshotFile)) {
+            System.out.println("No server snapshot at " + snapshotFile + ", starting empty");
+            return;
+        }
+        long startNanos = System.nanoTime();
+        ServerSnapshot snapshot;
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(snapshotFile))) {
+            snapshot = ServerSnapshotCodec.read(input);
+        } catch (IOException e) {
+            System.out.println("Failed to read the server snapshot " + snapshotFile + ", starting empty: " +
+                    e.getMessage());
+            return;
+        }
+        UserManager.getInstance().restoreUsers(snapshot.users());
+        ExecutionHistoryManager executionHistoryManager = ExecutionHistoryManager.getInstance();
+        for (UserDTO user : snapshot.users()) {
+            executionHistoryManager.initUserHistory(user.name());
+        }
+        ProgramManager programManager = ProgramManager.getInstance();
+        programManager.restorePrograms(snapshot.programs());
+        lastSavedVersion = getChangesVersion();
+        System.out.println("Restored " + snapshot.users().size() + " users and " + snapshot.programs().size() +
+                " programs from the snapshot of " + snapshot.createdMillis() + " in " +
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) + "ms");
+
+        if (!snapshot.programs().isEmpty()) {
+            Thread.ofVirtual().name("snapshot-materializer").start(() -> {
+                long materializeStartNanos = System.nanoTime();
+                programManager.materializeAllPrograms();
+                System.out.println("Built the restored programs in " +
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - materializeStartNanos) + "ms");
+            });
+        }
+    }
+
+    private void saveIfChanged() {
+        try {
+            save(false);
+        } catch (RuntimeException e) {
+            // keeps the periodic saves going
+            System.out.println("Failed to save the server snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Saves a snapshot now.
+     *
+     * @param force true to save even if nothing changed since the last save
+     */
+    public synchronized void save(boolean force) {
+        long version = getChangesVersion();
+        if (!force && version == lastSavedVersion) {
+            return;
+        }
+        List<UserDTO> users = new ArrayList<>(UserManager.getInstance().getAllUsersDTO());
+        List<ProgramSnapshot> programs;
+        try {
+            programs = ProgramManager.getInstance().getProgramsSnapshot();
+        } catch (JAXBException e) {
+            System.out.println("Failed to save the server snapshot: " + e.getMessage());
+            return;
+        }
+        ServerSnapshot snapshot = new ServerSnapshot(System.currentTimeMillis(), users, programs);
+        Path temporaryFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try {
+            Path directory = snapshotFile.toAbsolutePath().getParent();
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(temporaryFile))) {
+                ServerSnapshotCodec.write(snapshot, output);
+            }
+            Files.move(temporaryFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            lastSavedVersion = version;
+            System.out.println("Saved a server snapshot of " + users.size() + " users and " + programs.size() +
+                    " programs");
+        } catch (IOException e) {
+            System.out.println("Failed to save the server snapshot to " + snapshotFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the periodic saves and saves a last snapshot, called when the server stops.
+     */
+    public synchronized void shutdown() {
+        if (saveScheduler != null) {
+            saveScheduler.shutdownNow();
+            saveScheduler = null;
+        }
+        save(false);
+    }
+
+    private static long getChangesVersion() {
+        return ProgramManager.getInstance().getChangesVersion() + UserManager.getInstance().getChangesVersion();
+    }
+}
@@ -0,0 +1,50 @@
+package servlets;
+
+import com.google.gson.Gson;
+import dto.server.SystemResponse;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import logic.execution.ActiveRunsManager;
+import utils.ServletUtils;
+
+import java.io.IOException;
+
+import static utils.ServletConstants.*;
+
+/**
+ * Lets a server administrator list the runs executing right now (GET) and kill a runaway run (POST with a
+ * 'run_id' parameter). a killed run stops at its next progress check and its user is charged
+ * only for the credits consumed until then.
+ */
+@WebServlet(name = "activeRuns", urlPatterns = "/admin/runs")
+public class activeRuns extends HttpServlet {
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (!ServletUtils.checkAndHandleNotAdmin(req, resp, getServletContext(), "runs")) {
+            return;
+        }
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setContentType(JSON_CONTENT_TYPE);
+        resp.getWriter().write(new Gson().toJson(ActiveRunsManager.getInstance().getActiveRunsDTO()));
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (!ServletUtils.checkAndHandleNotAdmin(req, resp, getServletContext(), "runs")) {
+            return;
+        }
+        String runId = req.getParameter(RUN_ID_PARAM);
+        boolean isKilled = ActiveRunsManager.getInstance().kill(runId);
+        SystemResponse systemResponse = SystemResponse.builder()
+                .isSuccess(isKilled)
+                .message(isKilled ?
+                        "Kill requested for run " + runId :
+                        "No active run with " + RUN_ID_PARAM + " '" + runId + "' found")
+                .build();
+        resp.setStatus(isKilled ? HttpServletResponse.SC_OK : HttpServletResponse.SC_NOT_FOUND);
+        resp.setContentType(JSON_CONTENT_TYPE);
+        resp.getWriter().write(new Gson().toJson(systemResponse));
+    }
+}
@@ -0,0 +1,50 @@
+package servlets;
+
+import com.google.gson.Gson;
+import dto.server.SystemResponse;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import logic.User;
+import logic.execution.RunJob;
+import utils.ServletUtils;
+
+import java.io.IOException;
+
+import static utils.ServletConstants.*;
+
+/**
+ * Cancels a run job. a running job stops at its next progress check and the user is charged
+ * only for the credits consumed until then.
+ */
+@WebServlet(name = "cancelRunJob", urlPatterns = "/jobs/cancel")
+public class cancelRunJob extends HttpServlet {
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        User user = ServletUtils.getUser(req, getServletContext());
+        resp.setContentType(PLAIN_TEXT_CONTENT_TYPE); // default content type
+        if (user == null) {
+            resp.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            resp.getWriter().println("You must be logged in to cancel a job.");
+            return;
+        }
+
+        RunJob job = ServletUtils.getAndValidateRunJob(req, resp, user);
+        if (job == null) {
+            return;
+        }
+
+        boolean isCancelAccepted = job.cancel();
+        SystemResponse systemResponse = SystemResponse.builder()
+                .isSuccess(isCancelAccepted)
+                .message(isCancelAccepted ?
+                        "Cancel requested for job " + job.getJobId() :
+                        "Job " + job.getJobId() + " already finished with status " + job.getStatus())
+                .runJobDTO(job.toDTO())
+                .build();
+        resp.setStatus(isCancelAccepted ? HttpServletResponse.SC_OK : HttpServletResponse.SC_CONFLICT);
+        resp.setContentType(JSON_CONTENT_TYPE);
+        resp.getWriter().write(new Gson().toJson(systemResponse));
+    }
+}
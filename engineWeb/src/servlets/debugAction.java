@@ -5,17 +5,22 @@ import dto.engine.DebugStateChangeResultDTO;
 import dto.engine.ExecutionResultStatisticsDTO;
 import dto.engine.FullExecutionResultDTO;
 import dto.server.SystemResponse;
+import engine.core.ExecutionMonitor;
 import engine.core.ProgramDebugger;
+import engine.exception.ExecutionCancelled;
 import engine.exception.InstructionExecutionException;
 import engine.exception.InsufficientCredits;
+import engine.metrics.EngineMetrics;
 import engine.utils.DebugAction;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import logic.User;
+import logic.execution.ActiveRunsManager;
 import logic.manager.ExecutionHistoryManager;
 import logic.manager.ProgramManager;
+import logic.metrics.ServerMetrics;
 import org.jetbrains.annotations.NotNull;
 import utils.ServletUtils;
 
@@ -59,12 +64,13 @@ public class debugAction extends HttpServlet {
             return;
         }
 
+        ServerMetrics.debugActions(debugAction).increment();
         DebugStateChangeResultDTO stateChange;
         resp.setContentType(JSON_CONTENT_TYPE);
         try {
             switch (debugAction) {
                 case STEP_OVER -> {
-                    stateChange = debugger.stepOver();
+                    stateChange = executeMonitored(debugger, user, debugger::stepOver);
                     checkIfDebugEnded(stateChange, debugger, user);
                     writeDebugStateChangeResult(resp, stateChange);
                 }
@@ -74,7 +80,7 @@ public class debugAction extends HttpServlet {
                     writeDebugStateChangeResult(resp, stateChange);
                 }
                 case RESUME -> {
-                    stateChange = debugger.resume();
+                    stateChange = executeMonitored(debugger, user, debugger::resume);
                     checkIfDebugEnded(stateChange, debugger, user);
                     writeDebugStateChangeResult(resp, stateChange);
                 }
@@ -85,24 +91,56 @@ public class debugAction extends HttpServlet {
                 }
             }
         } catch (InsufficientCredits insufficientCredits) {
-            String errorMessage = getErrorMessage(insufficientCredits);
-            int creditLeft = insufficientCredits.getCreditsLeft();
-            handelFailedAction(errorMessage, creditLeft, user, resp,
+            handelFailedAction(getErrorMessage(insufficientCredits), debugger, user, resp,
                     HttpServletResponse.SC_PAYMENT_REQUIRED);
         } catch (InstructionExecutionException e) {
-            String errorMessage = getErrorMessage(e);
-            int creditsLeft = debugger.getRunningUserCredits();
-            handelFailedAction(errorMessage, creditsLeft, user, resp,
+            handelFailedAction(getErrorMessage(e), debugger, user, resp,
                     HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        } catch (ExecutionCancelled executionCancelled) {
+            String errorMessage = getErrorMessage(executionCancelled);
+            int statusCode = executionCancelled.getReason() == ExecutionCancelled.Reason.TIMED_OUT ?
+                    HttpServletResponse.SC_SERVICE_UNAVAILABLE : HttpServletResponse.SC_CONFLICT;
+            handelFailedAction(errorMessage, debugger, user, resp, statusCode);
+        } catch (IllegalStateException e) {
+            // the session goes on (stepping back at the start) or was handed off, so it is not cleared here
+            Gson gson = new Gson();
+            resp.setStatus(HttpServletResponse.SC_CONFLICT);
+            resp.getWriter().write(gson.toJson(getErrorResponse(getErrorMessage(e),
+                    user.getCurrentCredits())));
         }
     }
 
-    private void handelFailedAction(String errorMessage, int creditsLeft, User user,
+    /**
+     * Executes a debug action that runs instructions under the server's time limit, and lets an administrator
+     * kill it meanwhile like a run.
+     *
+     * @throws ExecutionCancelled if the action timed out or was killed
+     */
+    private DebugStateChangeResultDTO executeMonitored(@NotNull ProgramDebugger debugger, @NotNull User user,
+                                                       @NotNull MonitoredAction action) {
+        ExecutionMonitor monitor = new ExecutionMonitor(ServletUtils.getMaxRunTimeMillis(getServletContext()));
+        ActiveRunsManager.ActiveRun activeRun = ActiveRunsManager.getInstance().register(user.getName(),
+                debugger.getInnerProgramName(), debugger.getArchitectureType(), monitor);
+        try {
+            return action.execute(monitor);
+        } finally {
+            ActiveRunsManager.getInstance().unregister(activeRun);
+        }
+    }
+
+    @FunctionalInterface
+    private interface MonitoredAction {
+        DebugStateChangeResultDTO execute(@NotNull ExecutionMonitor monitor);
+    }
+
+    /**
+     * Ends the debug session after a failed action, charging the credits its cycles consumed until the failure.
+     */
+    private void handelFailedAction(String errorMessage, ProgramDebugger debugger, User user,
                                     HttpServletResponse resp, int errorStatus) throws IOException {
         Gson gson = new Gson();
-        SystemResponse errorResponse = getErrorResponse(errorMessage, creditsLeft);
-        user.setRemainingCredits(creditsLeft);
-        user.clearDebugger();
+        user.endDebugSession(debugger, debugger.getCreditCost());
+        SystemResponse errorResponse = getErrorResponse(errorMessage, user.getCurrentCredits());
         resp.setStatus(errorStatus);
         resp.setContentType(JSON_CONTENT_TYPE);
         resp.getWriter().write(gson.toJson(errorResponse));
@@ -131,22 +169,31 @@ public class debugAction extends HttpServlet {
                                    @NotNull ProgramDebugger debugger,
                                    @NotNull User user) {
         if (stateChange.isFinished()) {
+            FullExecutionResultDTO fullExecutionResult = debugger.getDebugFinishedExecutionResult();
+            if (!user.endDebugSession(debugger, fullExecutionResult.creditsCost())) {
+                return; // already ended by a concurrent action, which charged and recorded it
+            }
             ExecutionHistoryManager executionHistoryManager = ServletUtils.
                     getExecutionHistoryManager(getServletContext());
             ProgramManager programManager = ServletUtils.getProgramManager(getServletContext());
+            EngineMetrics.INSTRUCTIONS_EXECUTED.add(debugger.getExecutedInstructionsCount());
+            // the time of a debug session is mostly spent waiting for the user, so only its costs are recorded
             programManager.getProgramOrFunctionEngine(
                             debugger.getInnerProgramName())
                     .addExecutionStats(
-                            debugger.getCreditCost()
+                            debugger.getCreditCost(),
+                            fullExecutionResult.cycleCount(),
+                            fullExecutionResult.architectureType(),
+                            fullExecutionResult.expandLevel(),
+                            debugger.getExecutedInstructionsCount(),
+                            -1
                     );
-            FullExecutionResultDTO fullExecutionResult = debugger.getDebugFinishedExecutionResult();
+            // counted first, so the run gets its own run number like the runs of runProgram
+            user.incrementTotalRuns();
             executionHistoryManager.addExecutionResult(
                     user.getName(),
                     debugger.getInnerProgramName(),
                     ExecutionResultStatisticsDTO.of(fullExecutionResult, user.getTotalRuns()));
-            user.clearDebugger();
-            user.chargeCredits(fullExecutionResult.creditsCost());
-            user.incrementTotalRuns();
         }
     }
 
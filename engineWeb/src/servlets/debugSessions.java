@@ -0,0 +1,85 @@
+package servlets;
+
+import com.google.gson.Gson;
+import dto.server.SystemResponse;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import logic.snapshot.DebugSessionsManager;
+import utils.ServletUtils;
+
+import java.io.IOException;
+
+import static utils.ServletConstants.*;
+
+/**
+ * Lets a server administrator list the active debug sessions (GET), and move them between servers (POST with an
+ * 'action' parameter): 'export' saves the sessions to the debug sessions file, 'drain' saves them and ends them
+ * here before a restart, and 'import' continues the sessions of the file on this server.
+ */
+@WebServlet(name = "debugSessions", urlPatterns = "/admin/debugSessions")
+public class debugSessions extends HttpServlet {
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (!ServletUtils.checkAndHandleNotAdmin(req, resp, getServletContext(), "debug sessions")) {
+            return;
+        }
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setContentType(JSON_CONTENT_TYPE);
+        resp.getWriter().write(new Gson().toJson(
+                ServletUtils.getDebugSessionsManager(getServletContext()).getDebugSessionsDTO()));
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (!ServletUtils.checkAndHandleNotAdmin(req, resp, getServletContext(), "debug sessions")) {
+            return;
+        }
+        String action = req.getParameter(ADMIN_ACTION_PARAM);
+        if (action == null) {
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            resp.getWriter().println("Action parameter is missing. Available actions: " +
+                    getAllDebugSessionsActionsNames());
+            return;
+        }
+        DebugSessionsManager debugSessionsManager = ServletUtils.getDebugSessionsManager(getServletContext());
+        String message;
+        try {
+            switch (action) {
+                case DEBUG_SESSIONS_EXPORT_ACTION ->
+                        message = "Saved " + debugSessionsManager.exportSessions(false) + " debug sessions";
+                case DEBUG_SESSIONS_DRAIN_ACTION ->
+                        message = "Drained " + debugSessionsManager.exportSessions(true) + " debug sessions";
+                case DEBUG_SESSIONS_IMPORT_ACTION ->
+                        message = "Imported " + debugSessionsManager.importSessions() + " debug sessions";
+                default -> {
+                    resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                    resp.getWriter().println("Unknown action: " + action + ". Available actions: " +
+                            getAllDebugSessionsActionsNames());
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            handelFailedAction("Failed to save the debug sessions: " + e.getMessage(), resp);
+            return;
+        }
+        SystemResponse systemResponse = SystemResponse.builder()
+                .isSuccess(true)
+                .message(message)
+                .build();
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setContentType(JSON_CONTENT_TYPE);
+        resp.getWriter().write(new Gson().toJson(systemResponse));
+    }
+
+    private void handelFailedAction(String errorMessage, HttpServletResponse resp) throws IOException {
+        SystemResponse systemResponse = SystemResponse.builder()
+                .isSuccess(false)
+                .message(errorMessage)
+                .build();
+        resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        resp.setContentType(JSON_CONTENT_TYPE);
+        resp.getWriter().write(new Gson().toJson(systemResponse));
+    }
+}
@@ -0,0 +1,51 @@
+package servlets;
+
+import engine.core.Engine;
+import engine.utils.CompiledProgramCodec;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import logic.manager.ProgramManager;
+import utils.ServletUtils;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+import static utils.ServletConstants.*;
+
+/**
+ * Exports an uploaded program in its compiled form (see {@link CompiledProgramCodec}),
+ * which can be uploaded to another server without XML parsing.
+ */
+@WebServlet(name = "exportProgram", urlPatterns = "/exportProgram")
+public class exportProgram extends HttpServlet {
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (ServletUtils.checkAndHandleUnauthorized(req, resp, getServletContext())) {
+            resp.setContentType(PLAIN_TEXT_CONTENT_TYPE);
+            String programName = req.getParameter(PROGRAM_NAME_PARAM);
+            if (programName == null || programName.isEmpty()) {
+                resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                resp.getWriter().println("program name parameter is missing or invalid");
+                return;
+            }
+            ProgramManager pm = ServletUtils.getProgramManager(getServletContext());
+            if (!pm.isProgramExists(programName)) {
+                resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                resp.getWriter().println("Program " + programName + " not found, only main programs can be exported");
+                return;
+            }
+            Engine programEngine = pm.getProgramOrFunctionEngine(programName);
+            byte[] compiledProgram = programEngine.exportCompiledProgram();
+            resp.setStatus(HttpServletResponse.SC_OK);
+            resp.setContentType(COMPILED_PROGRAM_CONTENT_TYPE);
+            resp.setContentLength(compiledProgram.length);
+            resp.setHeader(CONTENT_DISPOSITION_HEADER, "attachment; filename*=UTF-8''" +
+                    URLEncoder.encode(programName + CompiledProgramCodec.FILE_EXTENSION, StandardCharsets.UTF_8)
+                            .replace("+", "%20"));
+            resp.getOutputStream().write(compiledProgram);
+        }
+    }
+}
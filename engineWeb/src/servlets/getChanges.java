@@ -0,0 +1,97 @@
+package servlets;
+
+import dto.server.ChangesDTO;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import logic.User;
+import logic.manager.UserManager;
+import org.jetbrains.annotations.Nullable;
+import utils.ServletUtils;
+
+import java.io.IOException;
+
+import static utils.ServletConstants.*;
+
+/**
+ * Returns the changes of a collection since the version the client has, for clients that poll instead of
+ * subscribing to the server events. the response holds the current version to ask from next time,
+ * and only the entries added or changed since the given version (or the whole collection marked for resync,
+ * if those changes are no longer kept).
+ */
+@WebServlet(name = "getChanges", urlPatterns = "/changes")
+public class getChanges extends HttpServlet {
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        User user = ServletUtils.getUser(req, getServletContext());
+        resp.setContentType(PLAIN_TEXT_CONTENT_TYPE); // default content type
+        if (user == null) {
+            resp.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            resp.getWriter().println("You must be logged in to get changes.");
+            return;
+        }
+
+        Long sinceVersion = getAndValidateSinceVersion(req, resp);
+        if (sinceVersion == null) {
+            return;
+        }
+        String feed = req.getParameter(FEED_PARAM);
+        ChangesDTO<?> changes;
+        switch (feed == null ? "" : feed) {
+            case PROGRAMS_FEED -> changes = ServletUtils.getProgramManager(getServletContext())
+                    .getProgramsChangesSince(sinceVersion);
+            case FUNCTIONS_FEED -> changes = ServletUtils.getProgramManager(getServletContext())
+                    .getFunctionsChangesSince(sinceVersion);
+            case USERS_FEED -> changes = ServletUtils.getUserManager(getServletContext())
+                    .getUsersChangesSince(sinceVersion);
+            case HISTORY_FEED -> {
+                String username = req.getParameter(USERNAME_PARAM);
+                UserManager userManager = ServletUtils.getUserManager(getServletContext());
+                if (username == null || !userManager.isUserExists(username)) {
+                    resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                    resp.getWriter().println("User " + username + " does not exist!");
+                    return;
+                }
+                changes = ServletUtils.getExecutionHistoryManager(getServletContext())
+                        .getUserHistoryChangesSince(username, sinceVersion);
+            }
+            default -> {
+                resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                resp.getWriter().println("Invalid " + FEED_PARAM + " parameter, options are: " +
+                        getAllChangeFeedsNames());
+                return;
+            }
+        }
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setContentType(JSON_CONTENT_TYPE);
+        ServletUtils.writeJsonResponse(resp, changes);
+    }
+
+    /**
+     * @return the version parameter, 0 if it is missing, or null if it is invalid and an error response has been sent
+     */
+    private @Nullable Long getAndValidateSinceVersion(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String sinceVersionStr = req.getParameter(SINCE_VERSION_PARAM);
+        if (sinceVersionStr == null || sinceVersionStr.isEmpty()) {
+            return 0L;
+        }
+        try {
+            long sinceVersion = Long.parseLong(sinceVersionStr);
+            if (sinceVersion >= 0) {
+                return sinceVersion;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        resp.getWriter().println(SINCE_VERSION_PARAM + " parameter must be a non-negative number");
+        return null;
+    }
+
+    @Override
+    protected void doOptions(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setContentType(PLAIN_TEXT_CONTENT_TYPE);
+        resp.getWriter().println(getAllChangeFeedsNames());
+    }
+}
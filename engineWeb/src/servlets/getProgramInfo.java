@@ -1,11 +1,11 @@
 package servlets;
 
-import com.google.gson.Gson;
 import engine.core.Engine;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import logic.cache.ResponseCache;
 import logic.manager.ProgramManager;
 import utils.ServletUtils;
 
@@ -26,7 +26,6 @@ public class getProgramInfo extends HttpServlet {
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         if (ServletUtils.checkAndHandleUnauthorized(req, resp, getServletContext())) {
             int expandLevel = 0;
-            Gson gson = new Gson();
             String programName = req.getParameter(PROGRAM_NAME_PARAM);
             ProgramManager pm = ServletUtils.getProgramManager(req.getServletContext());
             resp.setContentType(PLAIN_TEXT_CONTENT_TYPE); // default content type
@@ -50,28 +49,31 @@ public class getProgramInfo extends HttpServlet {
             resp.setContentType(JSON_CONTENT_TYPE); // set content type to JSON for valid responses
             System.out.println("current program: " + currentEngine.getInternalName() + ", info requested: " + infoToGet);
 
+            // the info of an uploaded program never changes, so it is served from the response cache
+            ResponseCache.Key cacheKey = new ResponseCache.Key(programName, infoToGet, expandLevel);
+            int level = expandLevel;
             switch (infoToGet) {
-                case BASIC_PROGRAM_INFO -> resp.getWriter().write(gson.toJson(currentEngine.
-                        getBasicProgramDTO()));
+                case BASIC_PROGRAM_INFO -> ServletUtils.writeCachedJsonResponse(req, resp, cacheKey,
+                        currentEngine::getBasicProgramDTO);
 
-                case PROGRAM_BY_EXPAND_LEVEL_INFO -> resp.getWriter().write(gson.toJson(currentEngine.
-                        getProgramByExpandLevelDTO(expandLevel)));
+                case PROGRAM_BY_EXPAND_LEVEL_INFO -> ServletUtils.writeCachedJsonResponse(req, resp, cacheKey,
+                        () -> currentEngine.getProgramByExpandLevelDTO(level));
 
-                case PROGRAMS_STATISTICS_INFO ->
-                        resp.getWriter().write(gson.toJson(ServletUtils.getExecutionHistoryManager(getServletContext())
-                                .getProgramExecutionHistory(programName)));
+                case PROGRAM_PAGE_INFO -> handelProgramPage(req, resp, currentEngine, expandLevel);
 
-                case MAX_EXPAND_LEVEL_INFO -> resp.getWriter().write(gson.toJson(currentEngine.
-                        getMaxExpandLevel()));
+                case PROGRAMS_STATISTICS_INFO -> handelProgramStatistics(req, resp, programName);
 
-                case ALL_VARIABLES_AND_LABELS_INFO -> resp.getWriter().write(gson.toJson(currentEngine.
-                        getAllVariablesNames(expandLevel, true)));
+                case MAX_EXPAND_LEVEL_INFO -> ServletUtils.writeCachedJsonResponse(req, resp, cacheKey,
+                        currentEngine::getMaxExpandLevel);
 
-                case ARGUMENTS_INFO -> resp.getWriter().write(
-                        gson.toJson(currentEngine.getSortedArgumentsMap(expandLevel)));
+                case ALL_VARIABLES_AND_LABELS_INFO -> ServletUtils.writeCachedJsonResponse(req, resp, cacheKey,
+                        () -> currentEngine.getAllVariablesNames(level, true));
 
-                case WORK_VARS_INFO -> resp.getWriter().write(gson.toJson(currentEngine.
-                        getSortedWorkVars(expandLevel)));
+                case ARGUMENTS_INFO -> ServletUtils.writeCachedJsonResponse(req, resp, cacheKey,
+                        () -> currentEngine.getSortedArgumentsMap(level));
+
+                case WORK_VARS_INFO -> ServletUtils.writeCachedJsonResponse(req, resp, cacheKey,
+                        () -> currentEngine.getSortedWorkVars(level));
 
                 default -> {
                     resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
@@ -84,6 +86,38 @@ public class getProgramInfo extends HttpServlet {
         }
     }
 
+    private void handelProgramPage(HttpServletRequest req, HttpServletResponse resp, Engine engine, int expandLevel)
+            throws IOException {
+        Integer offset = ServletUtils.getAndValidateNonNegativeParam(req, resp, OFFSET_PARAM, 0);
+        if (offset == null) {
+            return;
+        }
+        Integer limit = ServletUtils.getAndValidateNonNegativeParam(req, resp, LIMIT_PARAM, DEFAULT_PAGE_SIZE);
+        if (limit == null) {
+            return;
+        }
+        Integer originalIndex = ServletUtils.getAndValidateNonNegativeParam(req, resp, ORIGINAL_INDEX_PARAM, -1);
+        if (originalIndex == null) {
+            return;
+        }
+        ServletUtils.writeJsonResponseWithETag(req, resp, engine.getProgramPageDTO(expandLevel, offset,
+                Math.min(limit, MAX_PAGE_SIZE), originalIndex));
+    }
+
+    private void handelProgramStatistics(HttpServletRequest req, HttpServletResponse resp, String programName)
+            throws IOException {
+        Integer offset = ServletUtils.getAndValidateNonNegativeParam(req, resp, OFFSET_PARAM, 0);
+        if (offset == null) {
+            return;
+        }
+        Integer limit = ServletUtils.getAndValidateNonNegativeParam(req, resp, LIMIT_PARAM, Integer.MAX_VALUE);
+        if (limit == null) {
+            return;
+        }
+        ServletUtils.writeJsonResponseWithETag(req, resp, ServletUtils.getExecutionHistoryManager(getServletContext())
+                .getProgramExecutionHistoryPage(programName, offset, limit));
+    }
+
     private int getAndValidateExpandLevel(HttpServletRequest req, HttpServletResponse resp, Engine engine)
             throws IOException {
         int expandLevel;
@@ -111,6 +145,7 @@ public class getProgramInfo extends HttpServlet {
 
     private boolean isExpandLevelRequired(String infoToGet) {
         return infoToGet.equals(PROGRAM_BY_EXPAND_LEVEL_INFO) ||
+                infoToGet.equals(PROGRAM_PAGE_INFO) ||
                 infoToGet.equals(ALL_VARIABLES_AND_LABELS_INFO) ||
                 infoToGet.equals(ARGUMENTS_INFO) ||
                 infoToGet.equals(PROGRAM_RESULT_INFO) ||
@@ -1,15 +1,17 @@
 package servlets;
 
-import com.google.gson.Gson;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import logic.cache.ResponseCache;
+import logic.cluster.ClusterCoordinator;
 import logic.manager.ProgramManager;
 import logic.manager.UserManager;
 import utils.ServletUtils;
 
 import java.io.IOException;
+import java.util.List;
 
 import static utils.ServletConstants.*;
 
@@ -33,34 +35,40 @@ public class getSystemInfo extends HttpServlet {
                         getAllSystemInfoOptionsNames() + ".");
                 return;
             }
-            Gson gson = new Gson();
+            resp.setStatus(HttpServletResponse.SC_OK);
             resp.setContentType(JSON_CONTENT_TYPE);
             ProgramManager pm = ServletUtils.getProgramManager(getServletContext());
+            // the lists change with their change logs, so a client polling an unchanged list costs no serialization
+            ResponseCache.Key cacheKey = new ResponseCache.Key("", infoToGet, 0);
             switch (infoToGet) {
-                case PROGRAMS_METADATA_INFO -> {
-                    resp.getWriter().write(gson.toJson(pm.getProgramsMetadata()));
-                    resp.setStatus(HttpServletResponse.SC_OK);
-                }
-                case FUNCTIONS_METADATA_INFO -> {
-                    resp.getWriter().write(gson.toJson(pm.getFunctionsMetadata()));
-                    resp.setStatus(HttpServletResponse.SC_OK);
-                }
-                case PROGRAMS_NAMES_INFO -> {
-                    resp.getWriter().write(gson.toJson(pm.getProgramNames()));
-                    resp.setStatus(HttpServletResponse.SC_OK);
-                }
-                case FUNCTIONS_NAMES_INFO -> {
-                    resp.getWriter().write(gson.toJson(pm.getFunctionNames()));
-                    resp.setStatus(HttpServletResponse.SC_OK);
-                }
-                case PROGRAMS_AND_FUNCTIONS_METADATA -> {
-                    resp.getWriter().write(gson.toJson(pm.getProgramsAndFunctionsMetadata()));
-                    resp.setStatus(HttpServletResponse.SC_OK);
-                }
+                case PROGRAMS_METADATA_INFO -> ServletUtils.writeVersionedJsonResponse(req, resp, cacheKey,
+                        pm.getChangesVersion(), pm::getProgramsMetadata);
+
+                case FUNCTIONS_METADATA_INFO -> ServletUtils.writeVersionedJsonResponse(req, resp, cacheKey,
+                        pm.getChangesVersion(), pm::getFunctionsMetadata);
+
+                case PROGRAMS_NAMES_INFO -> ServletUtils.writeVersionedJsonResponse(req, resp, cacheKey,
+                        pm.getChangesVersion(), pm::getProgramNames);
+
+                case FUNCTIONS_NAMES_INFO -> ServletUtils.writeVersionedJsonResponse(req, resp, cacheKey,
+                        pm.getChangesVersion(), pm::getFunctionNames);
+
+                case PROGRAMS_AND_FUNCTIONS_METADATA -> ServletUtils.writeVersionedJsonResponse(req, resp, cacheKey,
+                        pm.getChangesVersion(), pm::getProgramsAndFunctionsMetadata);
+
                 case ALL_USERS_INFO -> {
                     UserManager userManager = ServletUtils.getUserManager(getServletContext());
-                    resp.setContentType(JSON_CONTENT_TYPE);
-                    resp.getWriter().write(gson.toJson(userManager.getAllUsersDTO()));
+                    ServletUtils.writeVersionedJsonResponse(req, resp, cacheKey, userManager.getChangesVersion(),
+                            userManager::getAllUsersDTO);
+                }
+                case SCHEDULER_STATISTICS_INFO -> {
+                    ServletUtils.writeJsonResponse(resp,
+                            ServletUtils.getExecutionPoolManager(getServletContext()).getSchedulerStatistics());
+                }
+                case CLUSTER_WORKERS_INFO -> {
+                    ClusterCoordinator clusterCoordinator = ServletUtils.getClusterCoordinator(getServletContext());
+                    ServletUtils.writeJsonResponse(resp,
+                            clusterCoordinator == null ? List.of() : clusterCoordinator.getWorkers());
                 }
                 default -> {
                     resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
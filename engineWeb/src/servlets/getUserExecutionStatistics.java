@@ -21,8 +21,18 @@ public class getUserExecutionStatistics extends HttpServlet {
         String username = req.getParameter(USERNAME_PARAM);
         UserManager userManager = ServletUtils.getUserManager(getServletContext());
         if (userManager.isUserExists(username)) {
+            Integer offset = ServletUtils.getAndValidateNonNegativeParam(req, resp, OFFSET_PARAM, 0);
+            if (offset == null) {
+                return;
+            }
+            Integer limit = ServletUtils.getAndValidateNonNegativeParam(req, resp, LIMIT_PARAM,
+                    Integer.MAX_VALUE);
+            if (limit == null) {
+                return;
+            }
             resp.setContentType(JSON_CONTENT_TYPE);
-            resp.getWriter().println(gson.toJson(userManager.getUserStatisticsDTO(username)));
+            resp.getWriter().println(gson.toJson(ServletUtils.getExecutionHistoryManager(getServletContext())
+                    .getUserExecutionHistoryPage(username, offset, limit)));
         } else {
             resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             resp.setContentType(PLAIN_TEXT_CONTENT_TYPE);
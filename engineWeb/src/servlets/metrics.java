@@ -0,0 +1,27 @@
+package servlets;
+
+import engine.metrics.MetricsRegistry;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+import static utils.ServletConstants.PROMETHEUS_CONTENT_TYPE;
+
+/**
+ * Serves the metrics of the server in the Prometheus text format, for a Prometheus server to scrape.
+ * like {@link health}, it needs no login.
+ */
+@WebServlet(name = "metrics", urlPatterns = "/metrics")
+public class metrics extends HttpServlet {
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        StringBuilder metricsText = new StringBuilder(8192);
+        MetricsRegistry.getInstance().writePrometheus(metricsText);
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setContentType(PROMETHEUS_CONTENT_TYPE);
+        resp.getWriter().write(metricsText.toString());
+    }
+}
@@ -0,0 +1,46 @@
+package servlets;
+
+import com.google.gson.Gson;
+import dto.server.SystemResponse;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import logic.User;
+import logic.execution.RunJob;
+import utils.ServletUtils;
+
+import java.io.IOException;
+
+import static utils.ServletConstants.*;
+
+/**
+ * Returns the status and progress of a run job, and its result once the job is done.
+ */
+@WebServlet(name = "runJobStatus", urlPatterns = "/jobs/status")
+public class runJobStatus extends HttpServlet {
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        User user = ServletUtils.getUser(req, getServletContext());
+        resp.setContentType(PLAIN_TEXT_CONTENT_TYPE); // default content type
+        if (user == null) {
+            resp.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            resp.getWriter().println("You must be logged in to view a job.");
+            return;
+        }
+
+        RunJob job = ServletUtils.getAndValidateRunJob(req, resp, user);
+        if (job == null) {
+            return;
+        }
+
+        SystemResponse systemResponse = SystemResponse.builder()
+                .isSuccess(true)
+                .runJobDTO(job.toDTO())
+                .creditsLeft(user.getCurrentCredits())
+                .build();
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setContentType(JSON_CONTENT_TYPE);
+        resp.getWriter().write(new Gson().toJson(systemResponse));
+    }
+}
@@ -1,32 +1,38 @@
 package servlets;
 
 import com.google.gson.Gson;
-import dto.engine.ExecutionResultStatisticsDTO;
 import dto.engine.FullExecutionResultDTO;
 import dto.server.SystemResponse;
-import engine.core.Engine;
+import engine.core.ExecutionMonitor;
+import engine.exception.ExecutionCancelled;
 import engine.exception.ExpandLevelOutOfBounds;
 import engine.exception.IllegalArchitectureType;
 import engine.exception.InstructionExecutionException;
 import engine.exception.InsufficientCredits;
+import jakarta.servlet.AsyncContext;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import logic.User;
+import logic.execution.AsyncResponder;
+import logic.execution.ExecutionPoolManager;
+import logic.execution.UserRun;
 import logic.manager.ExecutionHistoryManager;
 import utils.ServletUtils;
 
 import java.io.IOException;
-import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
-import static utils.ServletConstants.JSON_CONTENT_TYPE;
-import static utils.ServletConstants.PLAIN_TEXT_CONTENT_TYPE;
+import static utils.ServletConstants.*;
 
-@WebServlet(name = "runProgram", urlPatterns = "/runProgram")
+@WebServlet(name = "runProgram", urlPatterns = "/runProgram", asyncSupported = true)
 public class runProgram extends HttpServlet {
     @Override
-    protected synchronized void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         User user = ServletUtils.getUser(req, getServletContext());
         resp.setContentType(PLAIN_TEXT_CONTENT_TYPE); // default content type
         if (user == null) {
@@ -36,54 +42,99 @@ public class runProgram extends HttpServlet {
         }
 
         ExecutionHistoryManager executionHistoryManager = ServletUtils.getExecutionHistoryManager(getServletContext());
-        Gson gson = new Gson();
         ServletUtils.runAndDebugParams runAndDebugParams;
         runAndDebugParams = ServletUtils.getAndValidateRunAndDebugParams(req, resp);
         if (runAndDebugParams == null) {
             return;
         }
 
-        String programName = runAndDebugParams.programName();
-        Engine currentEngine = runAndDebugParams.pm().getProgramOrFunctionEngine(programName);
-        int expandLevel = runAndDebugParams.expandLevel();
-        Map<String, Integer> args = runAndDebugParams.arguments();
+        // the run itself happens on the interpreter workers, the request thread is released right away
+        ExecutionPoolManager executionPools = ServletUtils.getExecutionPoolManager(getServletContext());
+        AsyncContext asyncContext = req.startAsync();
+        asyncContext.setTimeout(executionPools.getRunTimeoutMillis());
+        AsyncResponder responder = new AsyncResponder(asyncContext);
 
+        ExecutionMonitor monitor = new ExecutionMonitor(runAndDebugParams.timeLimitMillis());
+        Future<FullExecutionResultDTO> runFuture;
         try {
-            FullExecutionResultDTO fullExecutionResultDTO = currentEngine.mainRun(
-                    expandLevel, args, user.getCurrentCredits(), runAndDebugParams.architectureType());
-
-            user.incrementTotalRuns();
-            user.chargeCredits(fullExecutionResultDTO.creditsCost());
-
-            executionHistoryManager.addExecutionResult(
-                    user.getName(), programName, ExecutionResultStatisticsDTO.of(fullExecutionResultDTO,
-                            user.getTotalRuns()));
+            runFuture = executionPools.scheduleUserRun(new UserRun(user, runAndDebugParams,
+                    executionHistoryManager, monitor, null, ServletUtils.getRunCreditLimit(getServletContext())));
+        } catch (RejectedExecutionException e) {
+            responder.respond(ServletUtils::handelServerBusy);
+            return;
+        }
 
-            resp.setStatus(HttpServletResponse.SC_OK);
-            resp.setContentType(JSON_CONTENT_TYPE);
-            resp.getWriter().write(gson.toJson(fullExecutionResultDTO));
+        responder.onTimeout(() -> {
+            // stops the interpreter as well, the credits consumed until now are charged
+            monitor.requestCancel();
+            runFuture.cancel(false);
+            responder.respond(response -> handelRunTimeout(response, runAndDebugParams,
+                    executionPools.getRunTimeoutMillis()));
+        });
+
+        executionPools.coordinate(() -> {
+            try {
+                FullExecutionResultDTO fullExecutionResultDTO = runFuture.get();
+                responder.respond(response -> {
+                    response.setStatus(HttpServletResponse.SC_OK);
+                    response.setContentType(JSON_CONTENT_TYPE);
+                    response.getWriter().write(new Gson().toJson(fullExecutionResultDTO));
+                });
+            } catch (ExecutionException e) {
+                responder.respond(response -> handelRunException(response, e.getCause(), runAndDebugParams,
+                        user.getCurrentCredits()));
+            } catch (InterruptedException | CancellationException e) {
+                responder.respond(response -> handelRunTimeout(response, runAndDebugParams,
+                        executionPools.getRunTimeoutMillis()));
+            }
+        });
+    }
 
-        } catch (InsufficientCredits insufficientCredits) {
+    private void handelRunException(HttpServletResponse resp, Throwable cause,
+                                    ServletUtils.runAndDebugParams runAndDebugParams, int creditsLeft)
+            throws IOException {
+        int expandLevel = runAndDebugParams.expandLevel();
+        if (cause instanceof InsufficientCredits insufficientCredits) {
             String errorMessage = getErrorMessage(insufficientCredits, runAndDebugParams, expandLevel);
 
             handelFailedRun(resp, HttpServletResponse.SC_PAYMENT_REQUIRED, errorMessage,
-                    insufficientCredits.getCreditsLeft(), user);
+                    insufficientCredits.getCreditsLeft());
 
-        } catch (InstructionExecutionException e) {
+        } else if (cause instanceof InstructionExecutionException e) {
             String errorMessage = getErrorMessage(e, runAndDebugParams, expandLevel);
 
-            handelFailedRun(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, errorMessage, e.getRemainingCredits()
-                    , user);
+            handelFailedRun(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, errorMessage, e.getRemainingCredits());
+
+        } else if (cause instanceof ExecutionCancelled executionCancelled) {
+            String errorMessage = getErrorMessage(executionCancelled, runAndDebugParams, expandLevel);
+            int statusCode = executionCancelled.getReason() == ExecutionCancelled.Reason.TIMED_OUT ?
+                    HttpServletResponse.SC_SERVICE_UNAVAILABLE : HttpServletResponse.SC_CONFLICT;
+
+            handelFailedRun(resp, statusCode, errorMessage, creditsLeft);
+
+        } else if (cause instanceof RejectedExecutionException) {
+            // no cluster worker could run it
+            ServletUtils.handelServerBusy(resp);
 
-        } catch (IllegalArchitectureType | ExpandLevelOutOfBounds e) {
-            handelFailedRunStringResponse(resp, e, HttpServletResponse.SC_BAD_REQUEST, runAndDebugParams, expandLevel);
+        } else if (cause instanceof IllegalArchitectureType || cause instanceof ExpandLevelOutOfBounds) {
+            handelFailedRunStringResponse(resp, (Exception) cause, HttpServletResponse.SC_BAD_REQUEST,
+                    runAndDebugParams, expandLevel);
 
-        } catch (Exception e) {
+        } else {
+            Exception e = cause instanceof Exception exception ? exception : new RuntimeException(cause);
             handelFailedRunStringResponse(resp, e, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, runAndDebugParams,
                     expandLevel);
         }
     }
 
+    private void handelRunTimeout(HttpServletResponse resp, ServletUtils.runAndDebugParams runAndDebugParams,
+                                  long timeoutMillis) throws IOException {
+        resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        resp.setContentType(PLAIN_TEXT_CONTENT_TYPE);
+        resp.getWriter().write(String.format("Running %s did not finish within %d ms",
+                runAndDebugParams.programName(), timeoutMillis));
+    }
+
     private void handelFailedRunStringResponse(HttpServletResponse resp, Exception e,
                                                int stausCode, ServletUtils.runAndDebugParams runAndDebugParams,
                                                int expandLevel) throws IOException {
@@ -94,10 +145,9 @@ public class runProgram extends HttpServlet {
         resp.getWriter().write(errorMessage);
     }
 
-    private void handelFailedRun(HttpServletResponse resp, int statusCode, String errorMessage, int creditsLeft,
-                                 User user) throws IOException {
+    private void handelFailedRun(HttpServletResponse resp, int statusCode, String errorMessage, int creditsLeft)
+            throws IOException {
         Gson gson = new Gson();
-        user.setRemainingCredits(creditsLeft);
         resp.setStatus(statusCode);
         resp.setContentType(JSON_CONTENT_TYPE);
         SystemResponse errorResponse = getErrorResponse(errorMessage, creditsLeft);
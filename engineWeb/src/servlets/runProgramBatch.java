@@ -0,0 +1,122 @@
+package servlets;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import dto.server.SystemResponse;
+import engine.exception.IllegalArchitectureType;
+import engine.exception.InsufficientCredits;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import logic.User;
+import logic.execution.BatchRunExecutor;
+import logic.execution.ExecutionPoolManager;
+import utils.ServletUtils;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import static utils.ServletConstants.*;
+
+/**
+ * Runs one program over a list of argument maps (the JSON request body).
+ * the response is a JSON list of {@link SystemResponse}, one per argument map in the same order,
+ * streamed as the runs finish.
+ */
+@WebServlet(name = "runProgramBatch", urlPatterns = "/runProgram/batch", asyncSupported = true)
+public class runProgramBatch extends HttpServlet {
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        User user = ServletUtils.getUser(req, getServletContext());
+        resp.setContentType(PLAIN_TEXT_CONTENT_TYPE); // default content type
+        if (user == null) {
+            resp.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            resp.getWriter().println("You must be logged in to run a program.");
+            return;
+        }
+
+        ServletUtils.batchRunParams batchRunParams = ServletUtils.getAndValidateBatchRunParams(req, resp);
+        if (batchRunParams == null) {
+            return;
+        }
+
+        // taken before the batch is validated, so the error responses below can be written too
+        resp.setCharacterEncoding("UTF-8");
+        PrintWriter writer = resp.getWriter();
+        ExecutionPoolManager executionPools = ServletUtils.getExecutionPoolManager(getServletContext());
+        BatchRunExecutor batchRunExecutor;
+        try {
+            batchRunExecutor = BatchRunExecutor.prepare(user, batchRunParams,
+                    ServletUtils.getExecutionHistoryManager(getServletContext()), executionPools,
+                    ServletUtils.getAdmissionController(getServletContext()),
+                    ServletUtils.getRunCreditLimit(getServletContext()));
+        } catch (InsufficientCredits insufficientCredits) {
+            SystemResponse errorResponse = SystemResponse.builder()
+                    .isSuccess(false)
+                    .message(getErrorMessage(batchRunParams, insufficientCredits.getMessage()))
+                    .creditsLeft(insufficientCredits.getCreditsLeft())
+                    .build();
+            resp.setStatus(HttpServletResponse.SC_PAYMENT_REQUIRED);
+            resp.setContentType(JSON_CONTENT_TYPE);
+            writer.write(new Gson().toJson(errorResponse));
+            return;
+        } catch (IllegalArchitectureType | IllegalArgumentException e) {
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            writer.write(getErrorMessage(batchRunParams, e.getMessage()));
+            return;
+        }
+
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setContentType(JSON_CONTENT_TYPE);
+
+        // the batch ends when its runs end, so the request is not bounded by a timer
+        AsyncContext asyncContext = req.startAsync();
+        asyncContext.setTimeout(0);
+        executionPools.coordinate(() -> {
+            Gson gson = new Gson();
+            JsonWriter jsonWriter = new JsonWriter(writer);
+            try {
+                jsonWriter.beginArray();
+                batchRunExecutor.run(entry -> {
+                    gson.toJson(toSystemResponse(entry, batchRunParams), SystemResponse.class, jsonWriter);
+                    jsonWriter.flush();
+                    if (writer.checkError()) {
+                        throw new IOException("client disconnected");
+                    }
+                });
+                jsonWriter.endArray();
+                jsonWriter.flush();
+            } catch (IOException e) {
+                getServletContext().log("Failed to write the batch response of " + batchRunParams.programName(), e);
+            } finally {
+                asyncContext.complete();
+            }
+        });
+    }
+
+    private SystemResponse toSystemResponse(BatchRunExecutor.BatchEntry entry,
+                                            ServletUtils.batchRunParams batchRunParams) {
+        if (entry.result() != null) {
+            return SystemResponse.builder()
+                    .isSuccess(true)
+                    .message("Run " + (entry.index() + 1) + " of " + batchRunParams.argumentsList().size())
+                    .fullExecutionResultDTO(entry.result())
+                    .build();
+        }
+        return SystemResponse.builder()
+                .isSuccess(false)
+                .message("Run " + (entry.index() + 1) + ": " + getErrorMessage(batchRunParams, entry.errorMessage()))
+                .build();
+    }
+
+    private String getErrorMessage(ServletUtils.batchRunParams batchRunParams, String message) {
+        return String.format(
+                "Error trying to run %s at expand level %d: %s",
+                batchRunParams.programName(),
+                batchRunParams.expandLevel(),
+                message
+        );
+    }
+}
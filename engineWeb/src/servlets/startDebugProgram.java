@@ -35,11 +35,13 @@ public class startDebugProgram extends HttpServlet {
             Engine engine = rdp.pm().getProgramOrFunctionEngine(rdp.programName());
             int expandLevel = rdp.expandLevel();
             try {
+                int availableCredits = user.getCurrentCredits();
                 ProgramDebugger debugger = engine.startDebugSession(expandLevel, rdp.arguments(),
-                        user.getCurrentCredits(), rdp.architectureType());
+                        availableCredits, rdp.architectureType());
                 user.setDebugger(debugger);
-                int creditsLeft = debugger.getRunningUserCredits();
-                user.setRemainingCredits(creditsLeft);
+                // the architecture cost is charged now, the cycles when the session ends
+                user.chargeCredits(availableCredits - debugger.getRunningUserCredits());
+                int creditsLeft = user.getCurrentCredits();
                 resp.setStatus(HttpServletResponse.SC_OK);
 
                 SystemResponse response = SystemResponse.builder()
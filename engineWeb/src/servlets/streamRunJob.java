@@ -0,0 +1,75 @@
+package servlets;
+
+import com.google.gson.Gson;
+import dto.server.RunJobDTO;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import logic.User;
+import logic.execution.RunJob;
+import utils.ServletUtils;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import static utils.ServletConstants.*;
+
+/**
+ * Streams the progress of a run job as server-sent events.
+ * a "progress" event with the job's {@link RunJobDTO} is sent every {@link utils.ServletConstants#JOB_PROGRESS_INTERVAL_MILLIS}
+ * ms, and a single "finished" event (including the result) is sent once the job finishes, then the stream ends.
+ */
+@WebServlet(name = "streamRunJob", urlPatterns = "/jobs/stream", asyncSupported = true)
+public class streamRunJob extends HttpServlet {
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        User user = ServletUtils.getUser(req, getServletContext());
+        resp.setContentType(PLAIN_TEXT_CONTENT_TYPE); // default content type
+        if (user == null) {
+            resp.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            resp.getWriter().println("You must be logged in to view a job.");
+            return;
+        }
+
+        RunJob job = ServletUtils.getAndValidateRunJob(req, resp, user);
+        if (job == null) {
+            return;
+        }
+
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setContentType(EVENT_STREAM_CONTENT_TYPE);
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Cache-Control", "no-cache");
+
+        // the stream ends when the job finishes or the client disconnects, not on a timer
+        AsyncContext asyncContext = req.startAsync();
+        asyncContext.setTimeout(0);
+        ServletUtils.getExecutionPoolManager(getServletContext()).coordinate(() -> {
+            Gson gson = new Gson();
+            try {
+                PrintWriter writer = asyncContext.getResponse().getWriter();
+                while (!job.awaitFinished(JOB_PROGRESS_INTERVAL_MILLIS)) {
+                    writeEvent(writer, JOB_PROGRESS_EVENT, gson.toJson(job.toDTO()));
+                    if (writer.checkError()) {
+                        return; // client disconnected, the job keeps running
+                    }
+                }
+                writeEvent(writer, JOB_FINISHED_EVENT, gson.toJson(job.toDTO()));
+            } catch (IOException e) {
+                getServletContext().log("Failed to stream job " + job.getJobId(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                asyncContext.complete();
+            }
+        });
+    }
+
+    private void writeEvent(PrintWriter writer, String eventName, String jsonData) {
+        writer.write("event: " + eventName + "\n");
+        writer.write("data: " + jsonData + "\n\n");
+        writer.flush();
+    }
+}
@@ -0,0 +1,60 @@
+package servlets;
+
+import com.google.gson.Gson;
+import dto.server.SystemResponse;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import logic.User;
+import logic.execution.RunJob;
+import logic.manager.ExecutionHistoryManager;
+import utils.ServletUtils;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static utils.ServletConstants.*;
+
+/**
+ * Submits a program run as a job and returns right away with the job id.
+ * the progress and result of the job are fetched with {@link runJobStatus} or streamed with {@link streamRunJob}.
+ */
+@WebServlet(name = "submitRunJob", urlPatterns = "/jobs/submit")
+public class submitRunJob extends HttpServlet {
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        User user = ServletUtils.getUser(req, getServletContext());
+        resp.setContentType(PLAIN_TEXT_CONTENT_TYPE); // default content type
+        if (user == null) {
+            resp.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            resp.getWriter().println("You must be logged in to run a program.");
+            return;
+        }
+
+        ServletUtils.runAndDebugParams runAndDebugParams = ServletUtils.getAndValidateRunAndDebugParams(req, resp);
+        if (runAndDebugParams == null) {
+            return;
+        }
+
+        ExecutionHistoryManager executionHistoryManager = ServletUtils.getExecutionHistoryManager(getServletContext());
+        RunJob job;
+        try {
+            job = ServletUtils.getRunJobManager(getServletContext()).submit(user, runAndDebugParams,
+                    executionHistoryManager, ServletUtils.getExecutionPoolManager(getServletContext()),
+                    ServletUtils.getRunCreditLimit(getServletContext()));
+        } catch (RejectedExecutionException e) {
+            ServletUtils.handelServerBusy(resp);
+            return;
+        }
+
+        SystemResponse systemResponse = SystemResponse.builder()
+                .isSuccess(true)
+                .message("Job " + job.getJobId() + " submitted")
+                .runJobDTO(job.toDTO())
+                .build();
+        resp.setStatus(HttpServletResponse.SC_ACCEPTED);
+        resp.setContentType(JSON_CONTENT_TYPE);
+        resp.getWriter().write(new Gson().toJson(systemResponse));
+    }
+}
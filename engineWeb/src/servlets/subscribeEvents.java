@@ -0,0 +1,96 @@
+package servlets;
+
+import com.google.gson.Gson;
+import dto.engine.ProgramsAndFunctionsMetadata;
+import dto.server.DashboardSnapshotDTO;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import logic.User;
+import logic.events.EventBus;
+import logic.events.EventSubscription;
+import logic.events.ServerEvent;
+import utils.ServletUtils;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+
+import static utils.ServletConstants.*;
+
+/**
+ * Streams the changes of the catalog, the users and the execution history as server-sent events.
+ * the stream starts with a "snapshot" event holding everything a dashboard shows, followed by an event per change.
+ * a client that falls too far behind gets a new snapshot instead of the events it missed.
+ * a comment line is sent every {@link utils.ServletConstants#EVENTS_KEEPALIVE_INTERVAL_MILLIS} ms without changes,
+ * so a disconnected client is noticed.
+ */
+@WebServlet(name = "subscribeEvents", urlPatterns = "/events", asyncSupported = true)
+public class subscribeEvents extends HttpServlet {
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        User user = ServletUtils.getUser(req, getServletContext());
+        resp.setContentType(PLAIN_TEXT_CONTENT_TYPE); // default content type
+        if (user == null) {
+            resp.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            resp.getWriter().println("You must be logged in to subscribe to events.");
+            return;
+        }
+
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setContentType(EVENT_STREAM_CONTENT_TYPE);
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader(CACHE_CONTROL_HEADER, NO_CACHE);
+
+        EventBus eventBus = EventBus.getInstance();
+        // subscribed before the snapshot is taken, so no change falls between them
+        EventSubscription subscription = eventBus.subscribe(MAX_PENDING_EVENTS);
+        AsyncContext asyncContext = req.startAsync();
+        asyncContext.setTimeout(0);
+        ServletContext servletContext = getServletContext();
+        ServletUtils.getExecutionPoolManager(servletContext).coordinate(() -> {
+            try {
+                PrintWriter writer = asyncContext.getResponse().getWriter();
+                writeSnapshot(writer, servletContext, eventBus.getLastEventId());
+                while (!writer.checkError()) {
+                    if (subscription.takeOverflowed()) {
+                        writeSnapshot(writer, servletContext, eventBus.getLastEventId());
+                    }
+                    List<ServerEvent> events = subscription.poll(EVENTS_KEEPALIVE_INTERVAL_MILLIS);
+                    if (events.isEmpty()) {
+                        writer.write(": keepalive\n\n");
+                        writer.flush();
+                    }
+                    for (ServerEvent event : events) {
+                        writeEvent(writer, event.id(), event.name(), event.data());
+                    }
+                }
+            } catch (IOException e) {
+                getServletContext().log("Failed to stream events to " + user.getName(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                eventBus.unsubscribe(subscription);
+                asyncContext.complete();
+            }
+        });
+    }
+
+    private void writeSnapshot(PrintWriter writer, ServletContext servletContext, long lastEventId) {
+        ProgramsAndFunctionsMetadata catalog =
+                ServletUtils.getProgramManager(servletContext).getProgramsAndFunctionsMetadata();
+        DashboardSnapshotDTO snapshot = new DashboardSnapshotDTO(catalog.mainPrograms(),
+                catalog.functions(), ServletUtils.getUserManager(servletContext).getAllUsersDTO());
+        writeEvent(writer, lastEventId, SNAPSHOT_EVENT, new Gson().toJson(snapshot));
+    }
+
+    private void writeEvent(PrintWriter writer, long id, String eventName, String jsonData) {
+        writer.write("id: " + id + "\n");
+        writer.write("event: " + eventName + "\n");
+        writer.write("data: " + jsonData + "\n\n");
+        writer.flush();
+    }
+}
@@ -1,6 +1,8 @@
 package servlets;
 
+import engine.exception.ProgramAlreadyExist;
 import engine.generated_2.SProgram;
+import engine.utils.CompiledProgramCodec;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.MultipartConfig;
 import jakarta.servlet.annotation.WebServlet;
@@ -8,16 +10,20 @@ import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.Part;
-import jakarta.xml.bind.JAXBException;
 import logic.User;
-import logic.file.xml.XMLHandler;
+import logic.file.xml.StreamingProgramReader;
 import logic.manager.ProgramManager;
+import logic.metrics.ServerMetrics;
 import org.jetbrains.annotations.Nullable;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
 import utils.ServletUtils;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 
+import static utils.ServletConstants.COMPILED_FILE_PART_NAME;
 import static utils.ServletConstants.JSON_CONTENT_TYPE;
 import static utils.ServletConstants.PLAIN_TEXT_CONTENT_TYPE;
 
@@ -26,6 +32,7 @@ import static utils.ServletConstants.PLAIN_TEXT_CONTENT_TYPE;
 @MultipartConfig
 public class uploadProgram extends HttpServlet {
     private final static String XML_FILE_PART_NAME = "xmlFile";
+    private final static StreamingProgramReader streamingProgramReader = new StreamingProgramReader();
 
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
@@ -37,48 +44,71 @@ public class uploadProgram extends HttpServlet {
             return;
         }
         SProgram sProgram = getSProgramFromRequest(req, resp);
-        if (sProgram != null) {
+        if (sProgram == null) {
+            ServerMetrics.UPLOADS_INVALID.increment();
+        } else {
             ProgramManager programManager = ServletUtils.getProgramManager(getServletContext());
             String programName = sProgram.getName();
             System.out.println("Received sProgram: " + sProgram);
-            synchronized (this) {
-                if (programManager.isProgramExists(programName)) {
-                    resp.setStatus(HttpServletResponse.SC_CONFLICT);
-                    String fileName = req.getPart(XML_FILE_PART_NAME).getSubmittedFileName();
-                    resp.getWriter().println("Failed to upload the File \"" + fileName + "\"! " +
-                            "A program with the name \"" + programName + "\" already " +
-                            "exists in the server, please choose a different name or file.");
-                } else {
-                    try {
-                        // Validate sProgram by trying to create an engine - check for label not exists, etc.
-                        programManager.addProgram(programName, sProgram, user);
-                        resp.setStatus(HttpServletResponse.SC_OK);
-                        resp.setContentType(JSON_CONTENT_TYPE);
-                        resp.getWriter().println("Program " + programName + " uploaded successfully.");
-                        System.out.println("Program " + programName + " uploaded successfully.");
-
-                    } catch (Exception e) {
-                        resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-                        resp.getWriter().println("Failed to upload program " + programName + ": " + e.getMessage());
-                        System.out.println(Arrays.toString(e.getStackTrace()));
-                    }
+            // no servlet-wide lock, the program manager reserves the names so concurrent uploads build in parallel
+            if (programManager.isProgramExists(programName)) {
+                handelProgramExists(req, resp, programName);
+            } else {
+                try {
+                    // Validate sProgram by trying to create an engine - check for label not exists, etc.
+                    programManager.addProgram(programName, sProgram, user);
+                    ServerMetrics.UPLOADS_SUCCEEDED.increment();
+                    resp.setStatus(HttpServletResponse.SC_OK);
+                    resp.setContentType(JSON_CONTENT_TYPE);
+                    resp.getWriter().println("Program " + programName + " uploaded successfully.");
+                    System.out.println("Program " + programName + " uploaded successfully.");
+
+                } catch (ProgramAlreadyExist e) {
+                    // uploaded by another request meanwhile
+                    handelProgramExists(req, resp, programName);
+                } catch (Exception e) {
+                    ServerMetrics.UPLOADS_INVALID.increment();
+                    resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                    resp.getWriter().println("Failed to upload program " + programName + ": " + e.getMessage());
+                    System.out.println(Arrays.toString(e.getStackTrace()));
                 }
             }
         }
     }
 
+    private void handelProgramExists(HttpServletRequest req, HttpServletResponse resp, String programName)
+            throws ServletException, IOException {
+        ServerMetrics.UPLOADS_CONFLICTED.increment();
+        resp.setStatus(HttpServletResponse.SC_CONFLICT);
+        String fileName = getFilePart(req).getSubmittedFileName();
+        resp.getWriter().println("Failed to upload the File \"" + fileName + "\"! " +
+                "A program with the name \"" + programName + "\" already " +
+                "exists in the server, please choose a different name or file.");
+    }
+
+    /**
+     * @return the uploaded file, either a compiled program or an XML file
+     */
+    private Part getFilePart(HttpServletRequest req) throws ServletException, IOException {
+        Part compiledFilePart = req.getPart(COMPILED_FILE_PART_NAME);
+        return compiledFilePart != null ? compiledFilePart : req.getPart(XML_FILE_PART_NAME);
+    }
+
     private @Nullable SProgram getSProgramFromRequest(HttpServletRequest req, HttpServletResponse resp)
             throws IOException {
         try {
-            XMLHandler xmlHandler = new XMLHandler();
+            Part compiledFilePart = req.getPart(COMPILED_FILE_PART_NAME);
+            if (compiledFilePart != null) {
+                return getSProgramFromCompiledFile(resp, compiledFilePart);
+            }
             Part xmlFilePart = req.getPart(XML_FILE_PART_NAME);
+            if (xmlFilePart == null) {
+                resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                resp.getWriter().println("No program file was uploaded.");
+                return null;
+            }
             validateFile(resp, xmlFilePart);
-            return xmlHandler.unmarshallFile(xmlFilePart.getInputStream());
-        } catch (JAXBException e) {
-            resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-            resp.setContentType(PLAIN_TEXT_CONTENT_TYPE);
-            resp.getWriter().println("Failed to parse XML file: " + e.getMessage());
-            return null;
+            return getSProgramFromXmlFile(resp, xmlFilePart);
         } catch (ServletException | IOException e) {
             resp.setContentType(PLAIN_TEXT_CONTENT_TYPE);
             resp.getWriter().println("Failed to process uploaded file: " + e.getMessage());
@@ -86,6 +116,47 @@ public class uploadProgram extends HttpServlet {
         }
     }
 
+    /**
+     * Reads an XML file in a single streaming pass, validating it against the program schema as it goes,
+     * so an invalid file is rejected on its first error whatever its size.
+     */
+    private @Nullable SProgram getSProgramFromXmlFile(HttpServletResponse resp, Part xmlFilePart)
+            throws IOException {
+        try (InputStream xmlFile = xmlFilePart.getInputStream()) {
+            return streamingProgramReader.read(xmlFile);
+        } catch (SAXParseException e) {
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            resp.getWriter().println("Invalid XML file at line " + e.getLineNumber() + ", column " +
+                    e.getColumnNumber() + ": " + e.getMessage());
+            return null;
+        } catch (SAXException e) {
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            resp.getWriter().println("Invalid XML file: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reads a compiled program (see {@link CompiledProgramCodec}), the fast path of uploads that skips XML parsing.
+     * the checksum of the file is checked instead of the XML schema.
+     */
+    private @Nullable SProgram getSProgramFromCompiledFile(HttpServletResponse resp, Part compiledFilePart)
+            throws IOException {
+        String fileName = compiledFilePart.getSubmittedFileName();
+        if (fileName == null || !fileName.toLowerCase().endsWith(CompiledProgramCodec.FILE_EXTENSION)) {
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            resp.getWriter().println("Uploaded file is not a compiled program (extension check)");
+            return null;
+        }
+        try (InputStream compiledFile = compiledFilePart.getInputStream()) {
+            return CompiledProgramCodec.decode(compiledFile.readAllBytes()).program();
+        } catch (IOException e) {
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            resp.getWriter().println("Failed to read compiled program: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Validates the uploaded file to ensure it is an XML file. two checks are performed:
      * 1. Content type check: The content type of the uploaded file is checked to be "application/xml" or "text/xml".
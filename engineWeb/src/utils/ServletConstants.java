@@ -4,6 +4,7 @@ import com.google.gson.reflect.TypeToken;
 import dto.engine.ExecutionResultStatisticsDTO;
 import dto.engine.FunctionMetadata;
 import dto.engine.ProgramMetadata;
+import dto.server.ChangesDTO;
 import dto.server.UserDTO;
 import engine.utils.DebugAction;
 import org.jetbrains.annotations.Contract;
@@ -18,6 +19,81 @@ public class ServletConstants {
     public static final String PROGRAM_MANAGER_ATTRIBUTE_NAME = "programManager";
     public static final String USER_MANAGER_ATTRIBUTE_NAME = "userManager";
     public static final String EXECUTION_HISTORY_MANAGER_ATTRIBUTE_NAME = "executionHistoryManager";
+    public static final String EXECUTION_POOL_MANAGER_ATTRIBUTE_NAME = "executionPoolManager";
+    public static final String RUN_JOB_MANAGER_ATTRIBUTE_NAME = "runJobManager";
+    public static final String RESPONSE_CACHE_ATTRIBUTE_NAME = "responseCache";
+    public static final String SERVER_SNAPSHOT_MANAGER_ATTRIBUTE_NAME = "serverSnapshotManager";
+    public static final String ADMISSION_CONTROLLER_ATTRIBUTE_NAME = "admissionController";
+    public static final String CLUSTER_COORDINATOR_ATTRIBUTE_NAME = "clusterCoordinator";
+    public static final String DEBUG_SESSIONS_MANAGER_ATTRIBUTE_NAME = "debugSessionsManager";
+    // endregion
+
+    // region Context Parameters Names and defaults
+    public static final String INTERPRETER_WORKERS_CONTEXT_PARAM = "interpreterWorkers";
+    public static final String RUN_QUEUE_CAPACITY_CONTEXT_PARAM = "runQueueCapacity";
+    public static final String RUN_TIMEOUT_MILLIS_CONTEXT_PARAM = "runTimeoutMillis";
+    public static final String SLICE_CYCLE_BUDGET_CONTEXT_PARAM = "sliceCycleBudget";
+    public static final String ARCHITECTURE_WORKERS_CONTEXT_PARAM = "architectureWorkers";
+    public static final String ARCHITECTURE_QUEUE_CAPACITIES_CONTEXT_PARAM = "architectureQueueCapacities";
+    public static final String ARCHITECTURE_PRIORITIES_CONTEXT_PARAM = "architecturePriorities";
+    public static final String MAX_RUN_TIME_MILLIS_CONTEXT_PARAM = "maxRunTimeMillis";
+    public static final String ADMIN_USERS_CONTEXT_PARAM = "adminUsers";
+    public static final String RESPONSE_CACHE_MAX_BYTES_CONTEXT_PARAM = "responseCacheMaxBytes";
+    public static final String RESPONSE_CACHE_MAX_ENTRY_BYTES_CONTEXT_PARAM = "responseCacheMaxEntryBytes";
+    public static final String HISTORY_DIRECTORY_CONTEXT_PARAM = "historyDirectory";
+    public static final String HISTORY_SEGMENT_BYTES_CONTEXT_PARAM = "historySegmentBytes";
+    public static final String HISTORY_MAX_BYTES_CONTEXT_PARAM = "historyMaxBytes";
+    public static final String HISTORY_MAX_AGE_MILLIS_CONTEXT_PARAM = "historyMaxAgeMillis";
+    public static final String SNAPSHOT_FILE_CONTEXT_PARAM = "snapshotFile";
+    public static final String SNAPSHOT_INTERVAL_MILLIS_CONTEXT_PARAM = "snapshotIntervalMillis";
+    public static final String RUN_REQUESTS_PER_SECOND_CONTEXT_PARAM = "runRequestsPerSecond";
+    public static final String RUN_REQUESTS_BURST_CONTEXT_PARAM = "runRequestsBurst";
+    public static final String DEBUG_ACTIONS_PER_SECOND_CONTEXT_PARAM = "debugActionsPerSecond";
+    public static final String DEBUG_ACTIONS_BURST_CONTEXT_PARAM = "debugActionsBurst";
+    public static final String CLUSTER_PORT_CONTEXT_PARAM = "clusterPort";
+    public static final String CLUSTER_LOCAL_WORKERS_CONTEXT_PARAM = "clusterLocalWorkers";
+    public static final String CLUSTER_WORKER_THREADS_CONTEXT_PARAM = "clusterWorkerThreads";
+    public static final String DEBUG_SESSIONS_FILE_CONTEXT_PARAM = "debugSessionsFile";
+    public static final String DEBUG_SESSIONS_SAVE_INTERVAL_MILLIS_CONTEXT_PARAM = "debugSessionsSaveIntervalMillis";
+    public static final String RUN_CREDIT_LIMIT_CONTEXT_PARAM = "runCreditLimit";
+    public static final int DEFAULT_RUN_QUEUE_CAPACITY = 256;
+    public static final long DEFAULT_RUN_TIMEOUT_MILLIS = 5 * 60 * 1000;
+    public static final long DEFAULT_SLICE_CYCLE_BUDGET = 100_000;
+    public static final long DEFAULT_MAX_RUN_TIME_MILLIS = 10 * 60 * 1000;
+    public static final long DEFAULT_RESPONSE_CACHE_MAX_BYTES = 64L * 1024 * 1024;
+    public static final int DEFAULT_RESPONSE_CACHE_MAX_ENTRY_BYTES = 8 * 1024 * 1024;
+    public static final String DEFAULT_HISTORY_DIRECTORY =
+            System.getProperty("user.home") + "/.s-emulator/history";
+    public static final int DEFAULT_HISTORY_SEGMENT_BYTES = 8 * 1024 * 1024;
+    public static final long DEFAULT_HISTORY_MAX_BYTES = 1024L * 1024 * 1024;
+    public static final long DEFAULT_HISTORY_MAX_AGE_MILLIS = 30L * 24 * 60 * 60 * 1000;
+    public static final String DEFAULT_SNAPSHOT_FILE =
+            System.getProperty("user.home") + "/.s-emulator/snapshot/server.snap";
+    public static final long DEFAULT_SNAPSHOT_INTERVAL_MILLIS = 60 * 1000;
+    public static final int DEFAULT_RUN_REQUESTS_PER_SECOND = 5;
+    public static final int DEFAULT_RUN_REQUESTS_BURST = 20;
+    public static final int DEFAULT_DEBUG_ACTIONS_PER_SECOND = 50;
+    public static final int DEFAULT_DEBUG_ACTIONS_BURST = 100;
+    // 0 runs everything in the server's process
+    public static final int DEFAULT_CLUSTER_PORT = 0;
+    public static final int DEFAULT_CLUSTER_LOCAL_WORKERS = 0;
+    public static final long CLUSTER_HEARTBEAT_INTERVAL_MILLIS = 500;
+    public static final long CLUSTER_HEARTBEAT_TIMEOUT_MILLIS = 3000;
+    public static final int CLUSTER_MAX_DISPATCH_ATTEMPTS = 3;
+    public static final String DEFAULT_DEBUG_SESSIONS_FILE =
+            System.getProperty("user.home") + "/.s-emulator/snapshot/debug-sessions.snap";
+    public static final long DEFAULT_DEBUG_SESSIONS_SAVE_INTERVAL_MILLIS = 10 * 1000;
+    public static final int TOO_MANY_REQUESTS_STATUS = 429;
+    public static final int RETRY_AFTER_SECONDS = 5;
+    public static final String RETRY_AFTER_HEADER = "Retry-After";
+    public static final long JOB_PROGRESS_INTERVAL_MILLIS = 500;
+    public static final int MAX_BATCH_RUNS = 10_000;
+    public static final int DEFAULT_RUN_CREDIT_LIMIT = 1_000_000;
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final long EVENTS_KEEPALIVE_INTERVAL_MILLIS = 15_000;
+    public static final int MAX_PENDING_EVENTS = 1024;
+    public static final int CHANGE_LOG_CAPACITY = 4096;
     // endregion
 
     // region Parameters Names
@@ -27,6 +103,17 @@ public class ServletConstants {
     public static final String EXPAND_LEVEL_PARAM = "expand_level";
     public static final String USERNAME_PARAM = "username";
     public static final String DEBUG_ACTION_PARAM = "debug_action";
+    public static final String JOB_ID_PARAM = "job_id";
+    public static final String RUN_ID_PARAM = "run_id";
+    public static final String TIME_LIMIT_MILLIS_PARAM = "time_limit_millis";
+    public static final String OFFSET_PARAM = "offset";
+    public static final String LIMIT_PARAM = "limit";
+    public static final String ORIGINAL_INDEX_PARAM = "original_index";
+    public static final String FEED_PARAM = "feed";
+    public static final String SINCE_VERSION_PARAM = "since";
+    public static final String PROFILE_PARAM = "profile";
+    public static final String ADMIN_ACTION_PARAM = "action";
+    public static final String COMPILED_FILE_PART_NAME = "compiledFile";
     // endregion
 
     // region info queries options names
@@ -37,8 +124,11 @@ public class ServletConstants {
     public static final String PROGRAMS_AND_FUNCTIONS_METADATA = "programs_and_functions_metadata";
     public static final String PROGRAMS_STATISTICS_INFO = "programs_statistics";
     public static final String ALL_USERS_INFO = "all_users";
+    public static final String SCHEDULER_STATISTICS_INFO = "scheduler_statistics";
+    public static final String CLUSTER_WORKERS_INFO = "cluster_workers";
     public static final String BASIC_PROGRAM_INFO = "basic_program";
     public static final String PROGRAM_BY_EXPAND_LEVEL_INFO = "program_by_expand_level";
+    public static final String PROGRAM_PAGE_INFO = "program_page";
     public static final String MAX_EXPAND_LEVEL_INFO = "max_expand_level";
     public static final String ALL_VARIABLES_AND_LABELS_INFO = "all_variables_and_labels";
     public static final String ARGUMENTS_INFO = "arguments";
@@ -46,13 +136,45 @@ public class ServletConstants {
     public static final String WORK_VARS_INFO = "work_vars";
     // endregion
 
+    // region change feeds names
+    public static final String PROGRAMS_FEED = "programs";
+    public static final String FUNCTIONS_FEED = "functions";
+    public static final String USERS_FEED = "users";
+    public static final String HISTORY_FEED = "history";
+    // endregion
+
     // region info to update
     public static final String UPDATE_CREDITS_INFO = "credits";
     // endregion
     // region Content Types
     public static final String JSON_CONTENT_TYPE = "application/json";
     public static final String PLAIN_TEXT_CONTENT_TYPE = "text/plain";
+    public static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
     public static final String CONTENT_TYPE_HEADER = "Content-Type";
+    public static final String EVENT_STREAM_CONTENT_TYPE = "text/event-stream";
+    public static final String COMPILED_PROGRAM_CONTENT_TYPE = "application/octet-stream";
+    public static final String CONTENT_DISPOSITION_HEADER = "Content-Disposition";
+    // endregion
+
+    // region Caching Headers
+    public static final String ETAG_HEADER = "ETag";
+    public static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+    public static final String CACHE_CONTROL_HEADER = "Cache-Control";
+    public static final String VARY_HEADER = "Vary";
+    public static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+    public static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+    public static final String GZIP_ENCODING = "gzip";
+    public static final String NO_CACHE = "no-cache";
+    // endregion
+
+    // region Server-Sent Events Names
+    public static final String JOB_PROGRESS_EVENT = "progress";
+    public static final String JOB_FINISHED_EVENT = "finished";
+    public static final String SNAPSHOT_EVENT = "snapshot";
+    public static final String PROGRAM_CHANGED_EVENT = "program_changed";
+    public static final String FUNCTION_CHANGED_EVENT = "function_changed";
+    public static final String USER_CHANGED_EVENT = "user_changed";
+    public static final String HISTORY_APPENDED_EVENT = "history_appended";
     // endregion
 
     // region Debug Actions Names
@@ -62,10 +184,19 @@ public class ServletConstants {
     public static final String DEBUG_ACTION_STOP = DebugAction.STOP.toString();
     // endregion
 
+    // region Debug Sessions Admin Actions Names
+    public static final String DEBUG_SESSIONS_EXPORT_ACTION = "export";
+    public static final String DEBUG_SESSIONS_DRAIN_ACTION = "drain";
+    public static final String DEBUG_SESSIONS_IMPORT_ACTION = "import";
+    // endregion
+
     // region classes Types (for Gson deserialization)
     public static final TypeToken<Map<String, Integer>> ARGUMENTS_MAP_TYPE_TOKEN = new TypeToken<>() {
     };
 
+    public static final TypeToken<List<Map<String, Integer>>> ARGUMENTS_LIST_TYPE_TOKEN = new TypeToken<>() {
+    };
+
     public static final TypeToken<Set<UserDTO>> USER_DTO_SET_TYPE_TOKEN = new TypeToken<>() {
     };
 
@@ -79,6 +210,19 @@ public class ServletConstants {
     public static final TypeToken<List<ExecutionResultStatisticsDTO>> EXECUTION_RESULT_STATISTICS_DTO_LIST_TYPE_TOKEN =
             new TypeToken<>() {
             };
+
+    public static final TypeToken<ChangesDTO<ProgramMetadata>> PROGRAMS_CHANGES_TYPE_TOKEN = new TypeToken<>() {
+    };
+
+    public static final TypeToken<ChangesDTO<FunctionMetadata>> FUNCTIONS_CHANGES_TYPE_TOKEN = new TypeToken<>() {
+    };
+
+    public static final TypeToken<ChangesDTO<UserDTO>> USERS_CHANGES_TYPE_TOKEN = new TypeToken<>() {
+    };
+
+    public static final TypeToken<ChangesDTO<ExecutionResultStatisticsDTO>> HISTORY_CHANGES_TYPE_TOKEN =
+            new TypeToken<>() {
+            };
     // endregion
 
     // region helper methods for all options names
@@ -87,7 +231,9 @@ public class ServletConstants {
         return "[" +
                 PROGRAMS_NAMES_INFO + ", " +
                 FUNCTIONS_NAMES_INFO + ", " +
-                PROGRAMS_AND_FUNCTIONS_METADATA + "]";
+                PROGRAMS_AND_FUNCTIONS_METADATA + ", " +
+                SCHEDULER_STATISTICS_INFO + ", " +
+                CLUSTER_WORKERS_INFO + "]";
     }
 
     @Contract(pure = true)
@@ -95,6 +241,7 @@ public class ServletConstants {
         return "[" +
                 BASIC_PROGRAM_INFO + ", " +
                 PROGRAM_BY_EXPAND_LEVEL_INFO + ", " +
+                PROGRAM_PAGE_INFO + ", " +
                 MAX_EXPAND_LEVEL_INFO + ", " +
                 ALL_VARIABLES_AND_LABELS_INFO + ", " +
                 ARGUMENTS_INFO + ", " +
@@ -107,6 +254,15 @@ public class ServletConstants {
         return "[" + ALL_USERS_INFO + "]";
     }
 
+    @Contract(pure = true)
+    public static @NotNull String getAllChangeFeedsNames() {
+        return "[" +
+                PROGRAMS_FEED + ", " +
+                FUNCTIONS_FEED + ", " +
+                USERS_FEED + ", " +
+                HISTORY_FEED + "]";
+    }
+
     @Contract(pure = true)
     public static @NotNull String getAllDebugActionsOptions() {
         return "[" +
@@ -115,6 +271,14 @@ public class ServletConstants {
                 DEBUG_ACTION_RESUME + ", " +
                 DEBUG_ACTION_STOP + "]";
     }
+
+    @Contract(pure = true)
+    public static @NotNull String getAllDebugSessionsActionsNames() {
+        return "[" +
+                DEBUG_SESSIONS_EXPORT_ACTION + ", " +
+                DEBUG_SESSIONS_DRAIN_ACTION + ", " +
+                DEBUG_SESSIONS_IMPORT_ACTION + "]";
+    }
     // endregion
 
 
@@ -2,22 +2,40 @@ package utils;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonWriter;
 import engine.utils.ArchitectureType;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import logic.User;
+import logic.admission.AdmissionController;
+import logic.cache.ResponseCache;
+import logic.execution.ExecutionPoolManager;
+import logic.execution.RunJob;
+import logic.execution.RunJobManager;
 import logic.manager.ExecutionHistoryManager;
 import logic.manager.ProgramManager;
 import logic.manager.UserManager;
+import logic.cluster.ClusterCoordinator;
+import logic.metrics.ServerMetrics;
+import logic.snapshot.DebugSessionsManager;
+import logic.snapshot.ServerSnapshotManager;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
 
 import static utils.ServletConstants.*;
 
@@ -25,6 +43,14 @@ public class ServletUtils {
     private static final Object programManagerLock = new Object();
     private static final Object userManagerLock = new Object();
     private static final Object executionHistoryManagerLock = new Object();
+    private static final Object executionPoolManagerLock = new Object();
+    private static final Object runJobManagerLock = new Object();
+    private static final Object responseCacheLock = new Object();
+    private static final Object serverSnapshotManagerLock = new Object();
+    private static final Object admissionControllerLock = new Object();
+    private static final Object clusterCoordinatorLock = new Object();
+    private static final Object debugSessionsManagerLock = new Object();
+    private static final Gson gson = new Gson();
 
     public static @NotNull ProgramManager getProgramManager(ServletContext servletContext) {
         synchronized (programManagerLock) {
@@ -47,13 +73,229 @@ public class ServletUtils {
     public static @NotNull ExecutionHistoryManager getExecutionHistoryManager(ServletContext servletContext) {
         synchronized (executionHistoryManagerLock) {
             if (servletContext.getAttribute(EXECUTION_HISTORY_MANAGER_ATTRIBUTE_NAME) == null) {
-                servletContext.setAttribute(EXECUTION_HISTORY_MANAGER_ATTRIBUTE_NAME,
-                        ExecutionHistoryManager.getInstance());
+                ExecutionHistoryManager executionHistoryManager = ExecutionHistoryManager.getInstance();
+                String historyDirectory = servletContext.getInitParameter(HISTORY_DIRECTORY_CONTEXT_PARAM);
+                executionHistoryManager.openStore(
+                        Path.of(historyDirectory == null || historyDirectory.isBlank() ?
+                                DEFAULT_HISTORY_DIRECTORY : historyDirectory.trim()),
+                        getIntContextParam(servletContext, HISTORY_SEGMENT_BYTES_CONTEXT_PARAM,
+                                DEFAULT_HISTORY_SEGMENT_BYTES),
+                        getLongContextParam(servletContext, HISTORY_MAX_BYTES_CONTEXT_PARAM,
+                                DEFAULT_HISTORY_MAX_BYTES),
+                        getLongContextParam(servletContext, HISTORY_MAX_AGE_MILLIS_CONTEXT_PARAM,
+                                DEFAULT_HISTORY_MAX_AGE_MILLIS));
+                servletContext.setAttribute(EXECUTION_HISTORY_MANAGER_ATTRIBUTE_NAME, executionHistoryManager);
             }
         }
         return (ExecutionHistoryManager) servletContext.getAttribute(EXECUTION_HISTORY_MANAGER_ATTRIBUTE_NAME);
     }
 
+    /**
+     * Retrieves the manager of the server snapshots, creating it from the context parameters on first use.
+     */
+    public static @NotNull ServerSnapshotManager getServerSnapshotManager(ServletContext servletContext) {
+        synchronized (serverSnapshotManagerLock) {
+            if (servletContext.getAttribute(SERVER_SNAPSHOT_MANAGER_ATTRIBUTE_NAME) == null) {
+                String snapshotFile = servletContext.getInitParameter(SNAPSHOT_FILE_CONTEXT_PARAM);
+                servletContext.setAttribute(SERVER_SNAPSHOT_MANAGER_ATTRIBUTE_NAME, new ServerSnapshotManager(
+                        Path.of(snapshotFile == null || snapshotFile.isBlank() ?
+                                DEFAULT_SNAPSHOT_FILE : snapshotFile.trim()),
+                        getLongContextParam(servletContext, SNAPSHOT_INTERVAL_MILLIS_CONTEXT_PARAM,
+                                DEFAULT_SNAPSHOT_INTERVAL_MILLIS)));
+            }
+        }
+        return (ServerSnapshotManager) servletContext.getAttribute(SERVER_SNAPSHOT_MANAGER_ATTRIBUTE_NAME);
+    }
+
+    /**
+     * Retrieves the manager of the saved debug sessions, creating it from the context parameters on first use.
+     */
+    public static @NotNull DebugSessionsManager getDebugSessionsManager(ServletContext servletContext) {
+        synchronized (debugSessionsManagerLock) {
+            if (servletContext.getAttribute(DEBUG_SESSIONS_MANAGER_ATTRIBUTE_NAME) == null) {
+                String sessionsFile = servletContext.getInitParameter(DEBUG_SESSIONS_FILE_CONTEXT_PARAM);
+                servletContext.setAttribute(DEBUG_SESSIONS_MANAGER_ATTRIBUTE_NAME, new DebugSessionsManager(
+                        Path.of(sessionsFile == null || sessionsFile.isBlank() ?
+                                DEFAULT_DEBUG_SESSIONS_FILE : sessionsFile.trim()),
+                        getLongContextParam(servletContext, DEBUG_SESSIONS_SAVE_INTERVAL_MILLIS_CONTEXT_PARAM,
+                                DEFAULT_DEBUG_SESSIONS_SAVE_INTERVAL_MILLIS)));
+            }
+        }
+        return (DebugSessionsManager) servletContext.getAttribute(DEBUG_SESSIONS_MANAGER_ATTRIBUTE_NAME);
+    }
+
+    public static @NotNull RunJobManager getRunJobManager(ServletContext servletContext) {
+        synchronized (runJobManagerLock) {
+            if (servletContext.getAttribute(RUN_JOB_MANAGER_ATTRIBUTE_NAME) == null) {
+                servletContext.setAttribute(RUN_JOB_MANAGER_ATTRIBUTE_NAME, RunJobManager.getInstance());
+            }
+        }
+        return (RunJobManager) servletContext.getAttribute(RUN_JOB_MANAGER_ATTRIBUTE_NAME);
+    }
+
+    /**
+     * Retrieves the cache of immutable responses, creating it from the context parameters on first use.
+     */
+    public static @NotNull ResponseCache getResponseCache(ServletContext servletContext) {
+        synchronized (responseCacheLock) {
+            if (servletContext.getAttribute(RESPONSE_CACHE_ATTRIBUTE_NAME) == null) {
+                long maxBytes = getLongContextParam(servletContext, RESPONSE_CACHE_MAX_BYTES_CONTEXT_PARAM,
+                        DEFAULT_RESPONSE_CACHE_MAX_BYTES);
+                int maxEntryBytes = getIntContextParam(servletContext, RESPONSE_CACHE_MAX_ENTRY_BYTES_CONTEXT_PARAM,
+                        DEFAULT_RESPONSE_CACHE_MAX_ENTRY_BYTES);
+                servletContext.setAttribute(RESPONSE_CACHE_ATTRIBUTE_NAME, new ResponseCache(maxBytes, maxEntryBytes));
+            }
+        }
+        return (ResponseCache) servletContext.getAttribute(RESPONSE_CACHE_ATTRIBUTE_NAME);
+    }
+
+    /**
+     * Retrieves the execution pools of this server, creating them from the context parameters on first use.
+     * the pools are created by the context listener on startup, so this normally just returns them.
+     */
+    public static @NotNull ExecutionPoolManager getExecutionPoolManager(ServletContext servletContext) {
+        synchronized (executionPoolManagerLock) {
+            if (servletContext.getAttribute(EXECUTION_POOL_MANAGER_ATTRIBUTE_NAME) == null) {
+                long runTimeoutMillis = getLongContextParam(servletContext, RUN_TIMEOUT_MILLIS_CONTEXT_PARAM,
+                        DEFAULT_RUN_TIMEOUT_MILLIS);
+                long sliceCycleBudget = getLongContextParam(servletContext, SLICE_CYCLE_BUDGET_CONTEXT_PARAM,
+                        DEFAULT_SLICE_CYCLE_BUDGET);
+                servletContext.setAttribute(EXECUTION_POOL_MANAGER_ATTRIBUTE_NAME,
+                        new ExecutionPoolManager(getPoolConfigurations(servletContext), runTimeoutMillis,
+                                sliceCycleBudget));
+            }
+        }
+        return (ExecutionPoolManager) servletContext.getAttribute(EXECUTION_POOL_MANAGER_ATTRIBUTE_NAME);
+    }
+
+    /**
+     * Retrieves the admission control of the expensive endpoints, creating it from the context parameters on first
+     * use.
+     */
+    public static @NotNull AdmissionController getAdmissionController(ServletContext servletContext) {
+        synchronized (admissionControllerLock) {
+            if (servletContext.getAttribute(ADMISSION_CONTROLLER_ATTRIBUTE_NAME) == null) {
+                int runsPerSecond = getIntContextParam(servletContext, RUN_REQUESTS_PER_SECOND_CONTEXT_PARAM,
+                        DEFAULT_RUN_REQUESTS_PER_SECOND);
+                int runsBurst = getIntContextParam(servletContext, RUN_REQUESTS_BURST_CONTEXT_PARAM,
+                        DEFAULT_RUN_REQUESTS_BURST);
+                int debugActionsPerSecond = getIntContextParam(servletContext, DEBUG_ACTIONS_PER_SECOND_CONTEXT_PARAM,
+                        DEFAULT_DEBUG_ACTIONS_PER_SECOND);
+                int debugActionsBurst = getIntContextParam(servletContext, DEBUG_ACTIONS_BURST_CONTEXT_PARAM,
+                        DEFAULT_DEBUG_ACTIONS_BURST);
+                servletContext.setAttribute(ADMISSION_CONTROLLER_ATTRIBUTE_NAME,
+                        new AdmissionController(getExecutionPoolManager(servletContext), runsPerSecond, runsBurst,
+                                debugActionsPerSecond, debugActionsBurst));
+            }
+        }
+        return (AdmissionController) servletContext.getAttribute(ADMISSION_CONTROLLER_ATTRIBUTE_NAME);
+    }
+
+    /**
+     * Starts the coordinator of the cluster if the {@code clusterPort} context parameter is set, with the worker
+     * processes requested by the {@code clusterLocalWorkers} context parameter, and dispatches the user runs to it.
+     * called once on startup.
+     *
+     * @return the started coordinator, or null if the server runs everything in its own process
+     */
+    public static @Nullable ClusterCoordinator startClusterCoordinator(ServletContext servletContext) {
+        synchronized (clusterCoordinatorLock) {
+            int clusterPort = getIntContextParam(servletContext, CLUSTER_PORT_CONTEXT_PARAM, DEFAULT_CLUSTER_PORT);
+            if (clusterPort <= 0 || servletContext.getAttribute(CLUSTER_COORDINATOR_ATTRIBUTE_NAME) != null) {
+                return getClusterCoordinator(servletContext);
+            }
+            ClusterCoordinator clusterCoordinator = new ClusterCoordinator(clusterPort,
+                    getProgramManager(servletContext));
+            try {
+                clusterCoordinator.start();
+            } catch (IOException e) {
+                System.out.println("Failed to start the cluster coordinator on port " + clusterPort +
+                        ", running the programs locally: " + e.getMessage());
+                return null;
+            }
+            int localWorkers = getIntContextParam(servletContext, CLUSTER_LOCAL_WORKERS_CONTEXT_PARAM,
+                    DEFAULT_CLUSTER_LOCAL_WORKERS);
+            if (localWorkers > 0) {
+                int workerThreads = getIntContextParam(servletContext, CLUSTER_WORKER_THREADS_CONTEXT_PARAM,
+                        Math.max(1, Runtime.getRuntime().availableProcessors() / localWorkers));
+                clusterCoordinator.startLocalWorkers(localWorkers, workerThreads);
+            }
+            getExecutionPoolManager(servletContext).setClusterCoordinator(clusterCoordinator);
+            servletContext.setAttribute(CLUSTER_COORDINATOR_ATTRIBUTE_NAME, clusterCoordinator);
+            return clusterCoordinator;
+        }
+    }
+
+    /**
+     * @return the coordinator of the cluster, or null if the server runs everything in its own process
+     */
+    public static @Nullable ClusterCoordinator getClusterCoordinator(ServletContext servletContext) {
+        return (ClusterCoordinator) servletContext.getAttribute(CLUSTER_COORDINATOR_ATTRIBUTE_NAME);
+    }
+
+    /**
+     * Reads the configuration of the execution pool of each architecture tier from the context parameters.
+     * by default the interpreter workers are split evenly between the tiers, and every tier gets the whole run
+     * queue capacity and the normal thread priority. the priority is a hint to the operating system only, a tier
+     * is favored by giving it more workers.
+     */
+    private static @NotNull Map<ArchitectureType, ExecutionPoolManager.PoolConfiguration> getPoolConfigurations(
+            ServletContext servletContext) {
+        List<String> architectures = ArchitectureType.getSupportedArchitectures();
+        int interpreterWorkers = getIntContextParam(servletContext, INTERPRETER_WORKERS_CONTEXT_PARAM,
+                Runtime.getRuntime().availableProcessors());
+        int queueCapacity = getIntContextParam(servletContext, RUN_QUEUE_CAPACITY_CONTEXT_PARAM,
+                DEFAULT_RUN_QUEUE_CAPACITY);
+        Map<ArchitectureType, Integer> workers = getArchitectureValuesContextParam(servletContext,
+                ARCHITECTURE_WORKERS_CONTEXT_PARAM);
+        Map<ArchitectureType, Integer> queueCapacities = getArchitectureValuesContextParam(servletContext,
+                ARCHITECTURE_QUEUE_CAPACITIES_CONTEXT_PARAM);
+        Map<ArchitectureType, Integer> priorities = getArchitectureValuesContextParam(servletContext,
+                ARCHITECTURE_PRIORITIES_CONTEXT_PARAM);
+
+        Map<ArchitectureType, ExecutionPoolManager.PoolConfiguration> poolConfigurations =
+                new EnumMap<>(ArchitectureType.class);
+        for (String architecture : architectures) {
+            ArchitectureType architectureType = ArchitectureType.fromString(architecture);
+            poolConfigurations.put(architectureType, new ExecutionPoolManager.PoolConfiguration(
+                    workers.getOrDefault(architectureType, Math.max(1, interpreterWorkers / architectures.size())),
+                    queueCapacities.getOrDefault(architectureType, queueCapacity),
+                    priorities.getOrDefault(architectureType, Thread.NORM_PRIORITY)));
+        }
+        return poolConfigurations;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the context parameter is not a list of positive values per architecture,
+     *                                  so the server does not start with pools it was not configured with
+     */
+    private static @NotNull Map<ArchitectureType, Integer> getArchitectureValuesContextParam(
+            ServletContext servletContext, String paramName) {
+        try {
+            return ExecutionPoolManager.parseArchitectureValues(servletContext.getInitParameter(paramName));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid context parameter " + paramName + ": " + e.getMessage(), e);
+        }
+    }
+
+    public static int getIntContextParam(ServletContext servletContext, String paramName, int defaultValue) {
+        return (int) getLongContextParam(servletContext, paramName, defaultValue);
+    }
+
+    public static long getLongContextParam(ServletContext servletContext, String paramName, long defaultValue) {
+        String value = servletContext.getInitParameter(paramName);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            servletContext.log("Invalid value '" + value + "' for context parameter " + paramName +
+                    ", using default " + defaultValue);
+            return defaultValue;
+        }
+    }
+
     /**
      * Retrieves the User object associated with the current session.
      * Returns null if no user is logged in.
@@ -83,6 +325,206 @@ public class ServletUtils {
         }
         return true;
     }
+    /**
+     * Sends a 503 Service Unavailable response telling the client to retry later,
+     * used when the interpreter queue is full.
+     *
+     * @param resp The HTTP response
+     * @throws IOException if an I/O error occurs while sending the response
+     */
+    public static void handelServerBusy(HttpServletResponse resp) throws IOException {
+        ServerMetrics.RUNS_REJECTED.increment();
+        resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        resp.setHeader(RETRY_AFTER_HEADER, String.valueOf(RETRY_AFTER_SECONDS));
+        resp.setContentType(PLAIN_TEXT_CONTENT_TYPE);
+        resp.getWriter().write("The server is busy running other programs, please try again later.");
+    }
+
+    /**
+     * Sends a 429 Too Many Requests response telling the client when to retry,
+     * used when the admission control sheds a request.
+     *
+     * @param resp             The HTTP response
+     * @param retryAfterMillis The time until the request would be admitted
+     * @throws IOException if an I/O error occurs while sending the response
+     */
+    public static void handelTooManyRequests(HttpServletResponse resp, long retryAfterMillis) throws IOException {
+        resp.setStatus(TOO_MANY_REQUESTS_STATUS);
+        resp.setHeader(RETRY_AFTER_HEADER, String.valueOf(Math.max(1, (retryAfterMillis + 999) / 1000)));
+        resp.setContentType(PLAIN_TEXT_CONTENT_TYPE);
+        resp.getWriter().write("Too many requests, please slow down and try again later.");
+    }
+
+    /**
+     * Writes an object as the JSON body of the response, streaming it to the response writer instead of building
+     * the whole JSON string in memory first.
+     *
+     * @param resp The HTTP response
+     * @param src  The object to write
+     * @throws IOException if an I/O error occurs while writing the response
+     */
+    public static void writeJsonResponse(HttpServletResponse resp, @NotNull Object src) throws IOException {
+        JsonWriter jsonWriter = new JsonWriter(resp.getWriter());
+        gson.toJson(src, src.getClass(), jsonWriter);
+        jsonWriter.flush();
+    }
+
+    /**
+     * Writes a response of data that never changes from the response cache, serializing it on the first request.
+     * a client already holding the response (a matching 'If-None-Match') gets a 304 without a body.
+     * a body too large to cache is streamed instead.
+     *
+     * @param req          The HTTP request
+     * @param resp         The HTTP response
+     * @param key          The key of the response in the cache
+     * @param bodySupplier Creates the object to write, called only if the response is not cached
+     * @throws IOException if an I/O error occurs while writing the response
+     */
+    public static void writeCachedJsonResponse(HttpServletRequest req, HttpServletResponse resp,
+                                               @NotNull ResponseCache.Key key,
+                                               @NotNull Supplier<Object> bodySupplier) throws IOException {
+        // the body created for a miss is kept, so a body too large to cache is not created again to stream it
+        Object[] createdBody = new Object[1];
+        ResponseCache.CachedResponse cachedResponse = getResponseCache(req.getServletContext())
+                .getOrCreate(key, () -> createdBody[0] = bodySupplier.get(), gson);
+        if (cachedResponse == null) {
+            writeJsonResponse(resp, createdBody[0] != null ? createdBody[0] : bodySupplier.get());
+            return;
+        }
+        writeSerializedResponse(req, resp, cachedResponse);
+    }
+
+    /**
+     * Writes a response of versioned data, like a list of the server, with the ETag of its version.
+     * a client already holding the version gets a 304 without the body being created, otherwise the body is
+     * serialized once per version and then served from the response cache. a body too large to cache is streamed.
+     *
+     * @param req          The HTTP request
+     * @param resp         The HTTP response
+     * @param key          The key of the response in the cache
+     * @param version      The current version of the data, e.g. the version of its change log
+     * @param bodySupplier Creates the object to write, called only if the version is not cached
+     * @throws IOException if an I/O error occurs while writing the response
+     */
+    public static void writeVersionedJsonResponse(HttpServletRequest req, HttpServletResponse resp,
+                                                  @NotNull ResponseCache.Key key, long version,
+                                                  @NotNull Supplier<Object> bodySupplier) throws IOException {
+        ResponseCache responseCache = getResponseCache(req.getServletContext());
+        if (writeNotModified(req, resp, responseCache.getVersionETag(version))) {
+            return;
+        }
+        Object[] createdBody = new Object[1];
+        ResponseCache.CachedResponse cachedResponse = responseCache.getOrCreate(key, version,
+                () -> createdBody[0] = bodySupplier.get(), gson);
+        if (cachedResponse == null) {
+            writeJsonResponse(resp, createdBody[0] != null ? createdBody[0] : bodySupplier.get());
+            return;
+        }
+        writeSerializedBody(req, resp, cachedResponse);
+    }
+
+    /**
+     * Writes a JSON response with a strong ETag, without caching it. the body is still serialized on every request,
+     * but a client already holding the same body gets a 304 without a body.
+     * a body larger than a cache entry is streamed without an ETag, so it is never buffered whole.
+     *
+     * @param req  The HTTP request
+     * @param resp The HTTP response
+     * @param body The object to write
+     * @throws IOException if an I/O error occurs while writing the response
+     */
+    public static void writeJsonResponseWithETag(HttpServletRequest req, HttpServletResponse resp,
+                                                 @NotNull Object body) throws IOException {
+        ResponseCache.CachedResponse serializedResponse = ResponseCache.serialize(body, gson,
+                getResponseCache(req.getServletContext()).getMaxEntryBytes());
+        if (serializedResponse == null) {
+            writeJsonResponse(resp, body);
+            return;
+        }
+        writeSerializedResponse(req, resp, serializedResponse);
+    }
+
+    private static void writeSerializedResponse(HttpServletRequest req, HttpServletResponse resp,
+                                                @NotNull ResponseCache.CachedResponse serializedResponse)
+            throws IOException {
+        if (!writeNotModified(req, resp, serializedResponse.eTag())) {
+            writeSerializedBody(req, resp, serializedResponse);
+        }
+    }
+
+    /**
+     * Sets the caching headers of a response, and answers 304 if the client already holds its ETag.
+     *
+     * @return true if a 304 was sent, and the body must not be written
+     */
+    private static boolean writeNotModified(HttpServletRequest req, HttpServletResponse resp, @NotNull String eTag) {
+        resp.setHeader(ETAG_HEADER, eTag);
+        resp.setHeader(CACHE_CONTROL_HEADER, NO_CACHE); // may be stored, but must be revalidated
+        resp.setHeader(VARY_HEADER, ACCEPT_ENCODING_HEADER);
+        if (isETagMatching(req.getHeader(IF_NONE_MATCH_HEADER), eTag)) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+        return false;
+    }
+
+    private static void writeSerializedBody(HttpServletRequest req, HttpServletResponse resp,
+                                            @NotNull ResponseCache.CachedResponse serializedResponse)
+            throws IOException {
+        resp.setContentType(JSON_CONTENT_TYPE);
+        resp.setCharacterEncoding("UTF-8");
+        String acceptEncoding = req.getHeader(ACCEPT_ENCODING_HEADER);
+        if (acceptEncoding != null && acceptEncoding.contains(GZIP_ENCODING)) {
+            resp.setHeader(CONTENT_ENCODING_HEADER, GZIP_ENCODING);
+            resp.setContentLength(serializedResponse.gzipBody().length);
+            resp.getOutputStream().write(serializedResponse.gzipBody());
+        } else {
+            try (InputStream body = new GZIPInputStream(new ByteArrayInputStream(serializedResponse.gzipBody()))) {
+                body.transferTo(resp.getOutputStream());
+            }
+        }
+    }
+
+    private static boolean isETagMatching(@Nullable String ifNoneMatch, @NotNull String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2); // weak comparison, as If-None-Match requires
+            }
+            if (candidate.equals("*") || candidate.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Extracts the 'job_id' parameter and retrieves the matching job of the user.
+     * sends a 404 Not Found response if there is no such job, or it belongs to another user.
+     *
+     * @param req  The HTTP request
+     * @param resp The HTTP response
+     * @param user The user asking for the job
+     * @return The job, or null if an error response has been sent.
+     * @throws IOException if an I/O error occurs while sending the error response
+     */
+    public static @Nullable RunJob getAndValidateRunJob(HttpServletRequest req, HttpServletResponse resp,
+                                                        @NotNull User user) throws IOException {
+        String jobId = req.getParameter(JOB_ID_PARAM);
+        RunJob job = getRunJobManager(req.getServletContext()).getUserJob(jobId, user.getName());
+        if (job == null) {
+            resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            resp.setContentType(PLAIN_TEXT_CONTENT_TYPE);
+            resp.getWriter().println("No job with " + JOB_ID_PARAM + " '" + jobId + "' found for user " +
+                    user.getName());
+            return null;
+        }
+        return job;
+    }
+
     /**
      * Validates if the provided credit amount string represents a valid positive integer.
      * @param creditAmount The credit amount as a string.
@@ -136,8 +578,8 @@ public class ServletUtils {
     }
 
     /**
-     * Extracts run/debug parameters. It gets 'displayName' and 'expandLevel' from query parameters
-     * and the 'arguments' map from the JSON request body.
+     * Extracts run/debug parameters. It gets 'displayName', 'expandLevel' and the optional 'profile' flag from query
+     * parameters and the 'arguments' map from the JSON request body.
      * @param req: The HTTP request
      * @param resp: The HTTP response
      * @return A runAndDebugParams object containing the validated parameters,
@@ -155,22 +597,18 @@ public class ServletUtils {
         }
 
         // 2. get architecture type
-        String architectureTypeStr = req.getParameter(ARCHITECTURE_TYPE_PARAM);
-        if (architectureTypeStr == null || architectureTypeStr.isEmpty()) {
-            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            resp.getWriter().println("The " + ARCHITECTURE_TYPE_PARAM + " parameter is missing." +
-                    " The supported types are: " + ArchitectureType.getSupportedArchitectures());
+        ArchitectureType architectureType = getAndValidateArchitectureType(req, resp);
+        if (architectureType == null) {
             return null;
         }
-        if (!ArchitectureType.isValidArchitectureType(architectureTypeStr)) {
-            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            resp.getWriter().println("The " + ARCHITECTURE_TYPE_PARAM + " parameter is missing." +
-                    " The supported types are: " + ArchitectureType.getSupportedArchitectures());
+
+        // 3. get the time limit of the run
+        long timeLimitMillis = getAndValidateRunTimeLimit(req, resp);
+        if (timeLimitMillis <= 0) {
             return null;
         }
-        ArchitectureType architectureType = ArchitectureType.fromString(architectureTypeStr);
 
-        // 3. Get arguments from the request body.
+        // 4. Get arguments from the request body.
         Map<String, Integer> arguments;
         try (BufferedReader reader = req.getReader()) {
             arguments = gson.fromJson(reader, ARGUMENTS_MAP_TYPE_TOKEN);
@@ -183,8 +621,191 @@ public class ServletUtils {
         }
 
 
+        // 5. whether to profile the run, off unless asked for
+        boolean profile = Boolean.parseBoolean(req.getParameter(PROFILE_PARAM));
+
         return new runAndDebugParams(expParams.programName, expParams.expandLevel, expParams.pm, arguments,
-                architectureType);
+                architectureType, timeLimitMillis, profile);
+    }
+
+    /**
+     * Extracts batch run parameters. It gets 'displayName', 'expandLevel' and 'architectureType' from query
+     * parameters and the list of 'arguments' maps, one per run, from the JSON request body.
+     * @param req: The HTTP request
+     * @param resp: The HTTP response
+     * @return A batchRunParams object containing the validated parameters,
+     * or null if an error response has been sent.
+     */
+    public static @Nullable batchRunParams getAndValidateBatchRunParams(HttpServletRequest req,
+                                                                        HttpServletResponse resp) throws IOException {
+        Gson gson = new Gson();
+
+        expandParams expParams = getAndValidateExpandParams(req, resp);
+        if (expParams == null) {
+            return null;
+        }
+
+        ArchitectureType architectureType = getAndValidateArchitectureType(req, resp);
+        if (architectureType == null) {
+            return null;
+        }
+
+        long timeLimitMillis = getAndValidateRunTimeLimit(req, resp);
+        if (timeLimitMillis <= 0) {
+            return null;
+        }
+
+        List<Map<String, Integer>> argumentsList;
+        try (BufferedReader reader = req.getReader()) {
+            argumentsList = gson.fromJson(reader, ARGUMENTS_LIST_TYPE_TOKEN);
+        } catch (JsonSyntaxException e) {
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            resp.getWriter().println("Invalid JSON format in request body: " + e.getMessage());
+            return null;
+        }
+        if (argumentsList == null || argumentsList.isEmpty() || argumentsList.size() > MAX_BATCH_RUNS) {
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            resp.getWriter().println("The request body must be a JSON list of 1 to " + MAX_BATCH_RUNS +
+                    " arguments maps.");
+            return null;
+        }
+        argumentsList.replaceAll(arguments -> arguments == null ? Collections.emptyMap() : arguments);
+
+        return new batchRunParams(expParams.programName, expParams.expandLevel, expParams.pm, argumentsList,
+                architectureType, timeLimitMillis);
+    }
+
+    private static @Nullable ArchitectureType getAndValidateArchitectureType(HttpServletRequest req,
+                                                                             HttpServletResponse resp)
+            throws IOException {
+        String architectureTypeStr = req.getParameter(ARCHITECTURE_TYPE_PARAM);
+        if (architectureTypeStr == null || architectureTypeStr.isEmpty()) {
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            resp.getWriter().println("The " + ARCHITECTURE_TYPE_PARAM + " parameter is missing." +
+                    " The supported types are: " + ArchitectureType.getSupportedArchitectures());
+            return null;
+        }
+        if (!ArchitectureType.isValidArchitectureType(architectureTypeStr)) {
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            resp.getWriter().println("The " + ARCHITECTURE_TYPE_PARAM + " parameter is missing." +
+                    " The supported types are: " + ArchitectureType.getSupportedArchitectures());
+            return null;
+        }
+        return ArchitectureType.fromString(architectureTypeStr);
+    }
+
+    /**
+     * @return the server's hard limit of the wall-clock time of a run, or of a single debug action
+     */
+    public static long getMaxRunTimeMillis(ServletContext servletContext) {
+        return getLongContextParam(servletContext, MAX_RUN_TIME_MILLIS_CONTEXT_PARAM, DEFAULT_MAX_RUN_TIME_MILLIS);
+    }
+
+    /**
+     * @return the most credits the cycles of a single run may consume, the credits a run reserves beyond the cost
+     * of its architecture
+     */
+    public static int getRunCreditLimit(ServletContext servletContext) {
+        return getIntContextParam(servletContext, RUN_CREDIT_LIMIT_CONTEXT_PARAM, DEFAULT_RUN_CREDIT_LIMIT);
+    }
+
+    /**
+     * Extracts the optional 'time_limit_millis' parameter, the wall-clock time a single run may take.
+     * the limit is capped by the server's hard limit, which is also the limit of runs that do not ask for one.
+     *
+     * @return the time limit of the run, or 0 if an error response has been sent.
+     */
+    private static long getAndValidateRunTimeLimit(HttpServletRequest req, HttpServletResponse resp)
+            throws IOException {
+        long maxRunTimeMillis = getMaxRunTimeMillis(req.getServletContext());
+        String timeLimitStr = req.getParameter(TIME_LIMIT_MILLIS_PARAM);
+        if (timeLimitStr == null || timeLimitStr.isEmpty()) {
+            return maxRunTimeMillis;
+        }
+        try {
+            long timeLimitMillis = Long.parseLong(timeLimitStr);
+            if (timeLimitMillis > 0) {
+                return Math.min(timeLimitMillis, maxRunTimeMillis);
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        resp.getWriter().println("The " + TIME_LIMIT_MILLIS_PARAM + " ( " + timeLimitStr + " ) parameter is not a " +
+                "positive number.");
+        return 0;
+    }
+
+    /**
+     * Gets an optional non-negative integer parameter of the request.
+     *
+     * @return the value of the parameter, the default value if it is missing,
+     * or null if it is invalid and an error response has been sent
+     */
+    public static @Nullable Integer getAndValidateNonNegativeParam(HttpServletRequest req, HttpServletResponse resp,
+                                                                   String paramName, int defaultValue)
+            throws IOException {
+        String valueStr = req.getParameter(paramName);
+        if (valueStr == null || valueStr.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            int value = Integer.parseInt(valueStr);
+            if (value >= 0) {
+                return value;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        resp.setContentType(PLAIN_TEXT_CONTENT_TYPE);
+        resp.getWriter().println(paramName + " parameter must be a non-negative number");
+        return null;
+    }
+
+    /**
+     * Checks if the user is one of the server administrators, listed in the 'adminUsers' context parameter.
+     * without the parameter the server has no administrators. any name can be registered by anyone, so the
+     * administrators are expected to register their names as the server starts.
+     *
+     * @param user           The user to check
+     * @param servletContext The servlet context
+     * @return true if the user is an administrator
+     */
+    public static boolean isAdmin(@NotNull User user, ServletContext servletContext) {
+        String adminUsers = servletContext.getInitParameter(ADMIN_USERS_CONTEXT_PARAM);
+        if (adminUsers == null || adminUsers.isBlank()) {
+            return false;
+        }
+        return Arrays.stream(adminUsers.split(","))
+                .map(String::trim)
+                .anyMatch(user.getName()::equals);
+    }
+
+    /**
+     * Checks that the request comes from a server administrator, and sends an error response otherwise.
+     *
+     * @param req            The HTTP request
+     * @param resp           The HTTP response
+     * @param servletContext The servlet context
+     * @param managedItems   what the administrator manages, for the error messages, e.g. "runs"
+     * @return true if the user is an administrator, false if an error response was sent
+     * @throws IOException if an I/O error occurs while sending the response
+     */
+    public static boolean checkAndHandleNotAdmin(HttpServletRequest req, HttpServletResponse resp,
+                                                 ServletContext servletContext, @NotNull String managedItems)
+            throws IOException {
+        User user = getUser(req, servletContext);
+        resp.setContentType(PLAIN_TEXT_CONTENT_TYPE); // default content type
+        if (user == null) {
+            resp.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            resp.getWriter().println("You must be logged in to manage " + managedItems + ".");
+            return false;
+        }
+        if (!isAdmin(user, servletContext)) {
+            resp.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            resp.getWriter().println("Only server administrators can manage " + managedItems + ".");
+            return false;
+        }
+        return true;
     }
 
     public record expandParams(@NotNull String programName, int expandLevel, @NotNull ProgramManager pm) {
@@ -193,6 +814,15 @@ public class ServletUtils {
     public record runAndDebugParams(@NotNull String programName, int expandLevel,
                                     @NotNull ProgramManager pm,
                                     @NotNull Map<String, Integer> arguments,
-                                    @NotNull ArchitectureType architectureType) {
+                                    @NotNull ArchitectureType architectureType,
+                                    long timeLimitMillis,
+                                    boolean profile) {
+    }
+
+    public record batchRunParams(@NotNull String programName, int expandLevel,
+                                 @NotNull ProgramManager pm,
+                                 @NotNull List<Map<String, Integer>> argumentsList,
+                                 @NotNull ArchitectureType architectureType,
+                                 long timeLimitMillis) {
     }
 }
@@ -0,0 +1,104 @@
+package loadtest;
+
+import listener.ServerContextListener;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.WebResourceRoot;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.webresources.DirResourceSet;
+import org.apache.catalina.webresources.JarResourceSet;
+import org.apache.catalina.webresources.StandardRoot;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static utils.ServletConstants.*;
+
+/**
+ * The servlets of {@code engineWeb} running in an embedded Tomcat on localhost, deployed as they are in a real
+ * container: the servlets, filters and listener are found by their annotations.
+ * <p>
+ * The server keeps its history, snapshot and debug sessions in a work directory of its own, so a load test starts
+ * from an empty server and never touches the files of a real one.
+ * </p>
+ */
+public class EmbeddedServer {
+    private final @NotNull Tomcat tomcat = new Tomcat();
+    private final @NotNull Path workDirectory;
+
+    /**
+     * @param port              the port to listen on, 0 for any free port
+     * @param workDirectory     the directory of the server's files
+     * @param contextParameters context parameters overriding the defaults of the load test
+     */
+    public EmbeddedServer(int port, @NotNull Path workDirectory, @NotNull Map<String, String> contextParameters)
+            throws IOException {
+        this.workDirectory = workDirectory;
+        Path docBase = Files.createDirectories(workDirectory.resolve("webapp"));
+        tomcat.setBaseDir(Files.createDirectories(workDirectory.resolve("tomcat")).toString());
+        tomcat.setHostname("localhost");
+        tomcat.setPort(port);
+        tomcat.getConnector();
+        // no JSP or default servlet, the server only serves its own servlets
+        tomcat.setAddDefaultWebXmlToWebapp(false);
+        Context context = tomcat.addWebapp("", docBase.toString());
+
+        WebResourceRoot resources = new StandardRoot(context);
+        Path serverClasses = getServerClassesLocation();
+        if (Files.isDirectory(serverClasses)) {
+            resources.addPreResources(new DirResourceSet(resources, "/WEB-INF/classes",
+                    serverClasses.toString(), "/"));
+        } else {
+            resources.addPreResources(new JarResourceSet(resources, "/WEB-INF/classes",
+                    serverClasses.toString(), "/"));
+        }
+        context.setResources(resources);
+
+        getContextParameters(contextParameters).forEach(context::addParameter);
+    }
+
+    /**
+     * Starts the server, returns once it accepts requests.
+     *
+     * @return the URL of the server
+     */
+    public @NotNull String start() throws LifecycleException {
+        tomcat.start();
+        return "http://localhost:" + tomcat.getConnector().getLocalPort();
+    }
+
+    /**
+     * Stops the server, the server saves its state to the work directory as it does when a real container stops.
+     */
+    public void stop() throws LifecycleException {
+        tomcat.stop();
+        tomcat.destroy();
+    }
+
+    private @NotNull Map<String, String> getContextParameters(@NotNull Map<String, String> overrides) {
+        Map<String, String> contextParameters = new LinkedHashMap<>();
+        contextParameters.put(HISTORY_DIRECTORY_CONTEXT_PARAM, workDirectory.resolve("history").toString());
+        contextParameters.put(SNAPSHOT_FILE_CONTEXT_PARAM,
+                workDirectory.resolve("snapshot").resolve("server.snap").toString());
+        contextParameters.put(DEBUG_SESSIONS_FILE_CONTEXT_PARAM,
+                workDirectory.resolve("snapshot").resolve("debug-sessions.snap").toString());
+        contextParameters.putAll(overrides);
+        return contextParameters;
+    }
+
+    /**
+     * @return the directory or the jar of the compiled servlets
+     */
+    private static @NotNull Path getServerClassesLocation() {
+        try {
+            return Path.of(ServerContextListener.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Cannot locate the classes of the server", e);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package loadtest;
+
+import com.google.gson.GsonBuilder;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Loads an {@code engineWeb} server with simulated users and reports how it held up.
+ * <p>
+ * Unless a target URL is given, the server is booted in an embedded container on localhost with a work directory
+ * of its own. the test has two phases: in the setup the users register and upload the sample programs, then in the
+ * load phase every user acts until the end of the duration, see {@link SimulatedUser}. the users start evenly
+ * spread over the ramp-up, which is part of the duration.
+ * </p>
+ * The report gives the throughput, the latency percentiles, the error rates and the statuses per endpoint for each
+ * phase, and the server heap and the throughput over the load phase. the server's own log is written to
+ * {@code server.log} in its work directory, so it does not mix with the report.
+ */
+public class LoadTest {
+    private final @NotNull LoadTestConfig config;
+    private final @NotNull List<String> arguments;
+    private final @NotNull PrintStream console = System.out;
+
+    public LoadTest(@NotNull LoadTestConfig config, @NotNull List<String> arguments) {
+        this.config = config;
+        this.arguments = arguments;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config;
+        try {
+            config = LoadTestConfig.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(LoadTestConfig.USAGE);
+            System.exit(2);
+            return;
+        }
+        LoadTestReport report = new LoadTest(config, List.of(args)).run();
+        System.out.print(report.toText());
+        if (config.reportFile() != null) {
+            Files.writeString(config.reportFile(), new GsonBuilder().setPrettyPrinting().create().toJson(report));
+            System.out.println("Report written to " + config.reportFile());
+        }
+    }
+
+    /**
+     * Runs the test, booting and stopping the embedded server if there is no target server.
+     *
+     * @return the report of the test
+     */
+    public @NotNull LoadTestReport run() throws Exception {
+        long startedAtMillis = System.currentTimeMillis();
+        List<Path> programFiles = findProgramFiles(config.programsDirectory());
+        if (programFiles.isEmpty()) {
+            throw new IllegalArgumentException("No sample programs found in the test* directories of " +
+                    config.programsDirectory().toAbsolutePath());
+        }
+
+        EmbeddedServer server = null;
+        PrintStream serverLog = null;
+        String target = config.targetUrl();
+        if (target == null) {
+            Path workDirectory = Files.createTempDirectory("s-emulator-loadtest");
+            serverLog = new PrintStream(new FileOutputStream(workDirectory.resolve("server.log").toFile()), true);
+            System.setOut(serverLog);
+            server = new EmbeddedServer(config.port(), workDirectory, config.contextParameters());
+            target = server.start();
+            console.println("Embedded server started at " + target + ", work directory " + workDirectory);
+        }
+
+        OkHttpClient sharedClient = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(config.users(), 5, TimeUnit.MINUTES))
+                .readTimeout(Duration.ofMinutes(15))
+                .build();
+        try {
+            LoadTestRecorder setupRecorder = new LoadTestRecorder("setup");
+            List<SimulatedUser> users = new ArrayList<>(config.users());
+            for (int i = 0; i < config.users(); i++) {
+                users.add(new SimulatedUser(i, new LoadTestClient(sharedClient, target, setupRecorder), config));
+            }
+            List<String> uploadedPrograms = setUp(users, programFiles);
+            setupRecorder.end();
+            if (uploadedPrograms.isEmpty()) {
+                throw new IllegalStateException("The server accepted none of the sample programs");
+            }
+            console.println(users.size() + " users registered, programs " + uploadedPrograms);
+
+            LoadTestRecorder loadRecorder = new LoadTestRecorder("load");
+            users.forEach(user -> user.getClient().setRecorder(loadRecorder));
+            TimelineSampler timelineSampler = new TimelineSampler(sharedClient, target, loadRecorder,
+                    config.sampleIntervalMillis());
+            console.println("Loading for " + config.durationSeconds() + " seconds...");
+            timelineSampler.start();
+            runLoad(users, uploadedPrograms);
+            loadRecorder.end();
+            List<LoadTestReport.TimelineSample> timeline = timelineSampler.stop();
+
+            return new LoadTestReport(startedAtMillis, target, server != null, Runtime.version().toString(),
+                    Runtime.getRuntime().availableProcessors(), arguments, uploadedPrograms,
+                    setupRecorder.toReport(), loadRecorder.toReport(), timeline);
+        } finally {
+            sharedClient.dispatcher().executorService().shutdown();
+            sharedClient.connectionPool().evictAll();
+            if (server != null) {
+                server.stop();
+                System.setOut(console);
+                serverLog.close();
+            }
+        }
+    }
+
+    /**
+     * Registers the users, and uploads the sample programs spread over the users, newest test directory first.
+     *
+     * @return the names of the main programs the server has after the uploads
+     */
+    private @NotNull List<String> setUp(@NotNull List<SimulatedUser> users, @NotNull List<Path> programFiles) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (SimulatedUser user : users) {
+                executor.execute(user::register);
+            }
+        }
+        // one by one, the programs share function names, so the order of the uploads decides which are accepted
+        for (int i = 0; i < programFiles.size(); i++) {
+            users.get(i % users.size()).upload(programFiles.get(i));
+        }
+        List<String> programNames = new ArrayList<>(users.getFirst().getProgramNames());
+        Collections.sort(programNames);
+        return programNames;
+    }
+
+    private void runLoad(@NotNull List<SimulatedUser> users, @NotNull List<String> programs) {
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + TimeUnit.SECONDS.toNanos(config.durationSeconds());
+        long rampUpNanos = TimeUnit.SECONDS.toNanos(config.rampUpSeconds());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < users.size(); i++) {
+                SimulatedUser user = users.get(i);
+                long userStartNanos = startNanos + rampUpNanos * i / users.size();
+                executor.execute(() -> {
+                    LockSupport.parkNanos(userStartNanos - System.nanoTime());
+                    user.act(programs, deadlineNanos);
+                });
+            }
+        }
+    }
+
+    /**
+     * @return the XML files of the 'test*' directories, newest directory first, in a fixed order
+     */
+    static @NotNull List<Path> findProgramFiles(@NotNull Path programsDirectory) throws IOException {
+        if (!Files.isDirectory(programsDirectory)) {
+            return List.of();
+        }
+        List<Path> programFiles = new ArrayList<>();
+        try (Stream<Path> testDirectories = Files.list(programsDirectory)) {
+            for (Path testDirectory : testDirectories
+                    .filter(path -> Files.isDirectory(path) && path.getFileName().toString().startsWith("test"))
+                    .sorted(Comparator.reverseOrder())
+                    .toList()) {
+                try (Stream<Path> files = Files.list(testDirectory)) {
+                    files.filter(path -> path.getFileName().toString().endsWith(".xml"))
+                            .sorted()
+                            .forEach(programFiles::add);
+                }
+            }
+        }
+        return programFiles;
+    }
+}
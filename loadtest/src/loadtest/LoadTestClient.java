@@ -0,0 +1,94 @@
+package loadtest;
+
+import okhttp3.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import system.http.utils.SimpleCookieManager;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * The HTTP client of a single simulated user, timing every request it sends.
+ * <p>
+ * Every user has its own cookies, so its own session on the server, while the connections are shared by all the
+ * users, like the clients of many browsers behind a single proxy would be.
+ * </p>
+ */
+public class LoadTestClient {
+    private static final MediaType JSON_MEDIA_TYPE = MediaType.get("application/json");
+    private final @NotNull OkHttpClient httpClient;
+    private final @NotNull String baseUrl;
+    private volatile @NotNull LoadTestRecorder recorder;
+
+    /**
+     * @param sharedClient the client whose connections are shared by all the users
+     * @param baseUrl      the URL of the server
+     * @param recorder     the recorder of the requests
+     */
+    public LoadTestClient(@NotNull OkHttpClient sharedClient, @NotNull String baseUrl,
+                          @NotNull LoadTestRecorder recorder) {
+        SimpleCookieManager cookieManager = new SimpleCookieManager();
+        cookieManager.disableLogging();
+        this.httpClient = sharedClient.newBuilder().cookieJar(cookieManager).build();
+        this.baseUrl = baseUrl;
+        this.recorder = recorder;
+    }
+
+    /**
+     * Records the next requests in another phase of the test.
+     */
+    public void setRecorder(@NotNull LoadTestRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    public @NotNull Response get(@NotNull String path, @NotNull Map<String, String> query) {
+        return send("GET", path, query, null);
+    }
+
+    public @NotNull Response post(@NotNull String path, @NotNull Map<String, String> query,
+                                  @Nullable RequestBody body) {
+        return send("POST", path, query, body == null ? RequestBody.create(new byte[0]) : body);
+    }
+
+    public @NotNull Response postJson(@NotNull String path, @NotNull Map<String, String> query,
+                                      @NotNull String json) {
+        return send("POST", path, query, RequestBody.create(json, JSON_MEDIA_TYPE));
+    }
+
+    public @NotNull Response patchJson(@NotNull String path, @NotNull String json) {
+        return send("PATCH", path, Map.of(), RequestBody.create(json, JSON_MEDIA_TYPE));
+    }
+
+    /**
+     * Sends a request and reads its whole response, the time of both is recorded under the method and the path.
+     * a request that failed without a response is recorded with {@link LoadTestRecorder#NO_RESPONSE_STATUS}.
+     */
+    private @NotNull Response send(@NotNull String method, @NotNull String path, @NotNull Map<String, String> query,
+                                   @Nullable RequestBody body) {
+        HttpUrl.Builder url = HttpUrl.get(baseUrl + path).newBuilder();
+        query.forEach(url::addQueryParameter);
+        Request request = new Request.Builder().url(url.build()).method(method, body).build();
+        String endpoint = method + " " + path;
+        long startNanos = System.nanoTime();
+        try (okhttp3.Response response = httpClient.newCall(request).execute()) {
+            ResponseBody responseBody = response.body();
+            String bodyString = responseBody == null ? "" : responseBody.string();
+            recorder.record(endpoint, response.code(), System.nanoTime() - startNanos);
+            return new Response(response.code(), bodyString);
+        } catch (IOException e) {
+            recorder.record(endpoint, LoadTestRecorder.NO_RESPONSE_STATUS, System.nanoTime() - startNanos);
+            return new Response(LoadTestRecorder.NO_RESPONSE_STATUS, String.valueOf(e.getMessage()));
+        }
+    }
+
+    /**
+     * @param status the status of the response, {@link LoadTestRecorder#NO_RESPONSE_STATUS} if there was none
+     * @param body   the body of the response, or the failure of the request if there was no response
+     */
+    public record Response(int status, @NotNull String body) {
+        public boolean isSuccessful() {
+            return !LoadTestRecorder.isError(status);
+        }
+    }
+}
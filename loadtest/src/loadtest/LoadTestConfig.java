@@ -0,0 +1,135 @@
+package loadtest;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The settings of a load test run. the same settings and seed make the same users send the same requests, so two
+ * runs differ only by the server.
+ *
+ * @param users                 the number of simulated users
+ * @param durationSeconds       the time the users send requests, after the setup
+ * @param rampUpSeconds         the time over which the users start, evenly spread, part of the duration
+ * @param seed                  the seed of the random choices of the users
+ * @param maxThinkMillis        the longest pause of a user between two actions, a pause is random up to it
+ * @param maxArgumentValue      the largest value of a random argument of a run
+ * @param credits               the credits every user is given, and given again when they run out
+ * @param sampleIntervalMillis  the time between two samples of the server heap and the throughput
+ * @param programsDirectory     the directory whose 'test*' directories hold the sample programs to upload
+ * @param reportFile            the file to write the JSON report to, null to only print the report
+ * @param targetUrl             the URL of a running server to load, null to boot one in an embedded container
+ * @param port                  the port of the embedded container, 0 for any free port
+ * @param contextParameters     the context parameters of the embedded server, see {@code utils.ServletConstants}
+ */
+public record LoadTestConfig(int users,
+                             int durationSeconds,
+                             int rampUpSeconds,
+                             long seed,
+                             int maxThinkMillis,
+                             int maxArgumentValue,
+                             int credits,
+                             long sampleIntervalMillis,
+                             @NotNull Path programsDirectory,
+                             @Nullable Path reportFile,
+                             @Nullable String targetUrl,
+                             int port,
+                             @NotNull Map<String, String> contextParameters) {
+
+    public static final String USAGE = """
+            Usage: loadtest.LoadTest [options]
+              --users <n>                  simulated users (default 20)
+              --duration <seconds>         time the users send requests (default 60)
+              --ramp-up <seconds>          time over which the users start (default 5)
+              --seed <n>                   seed of the users' random choices (default 1)
+              --think <millis>             longest pause of a user between actions (default 200)
+              --max-argument <n>           largest random argument of a run (default 6)
+              --credits <n>                credits given to every user (default 1000000)
+              --sample-interval <millis>   time between heap and throughput samples (default 1000)
+              --programs <dir>             directory of the test* program directories (default system/src/system/file)
+              --report <file>              write the JSON report to a file
+              --target <url>               load a running server instead of an embedded one
+              --port <n>                   port of the embedded server (default any free port)
+              --param <name>=<value>       context parameter of the embedded server, repeatable
+            """;
+
+    /**
+     * Parses the command line arguments of the load test.
+     *
+     * @param args the command line arguments
+     * @return the settings, the defaults for every missing option
+     * @throws IllegalArgumentException if an option is unknown or its value is invalid
+     */
+    public static @NotNull LoadTestConfig parse(@NotNull String @NotNull [] args) {
+        int users = 20;
+        int durationSeconds = 60;
+        int rampUpSeconds = 5;
+        long seed = 1;
+        int maxThinkMillis = 200;
+        int maxArgumentValue = 6;
+        int credits = 1_000_000;
+        long sampleIntervalMillis = 1000;
+        Path programsDirectory = Path.of("system", "src", "system", "file");
+        Path reportFile = null;
+        String targetUrl = null;
+        int port = 0;
+        Map<String, String> contextParameters = new LinkedHashMap<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value of option " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--users" -> users = parsePositive(option, value);
+                case "--duration" -> durationSeconds = parsePositive(option, value);
+                case "--ramp-up" -> rampUpSeconds = parseNonNegative(option, value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--think" -> maxThinkMillis = parseNonNegative(option, value);
+                case "--max-argument" -> maxArgumentValue = parseNonNegative(option, value);
+                case "--credits" -> credits = parsePositive(option, value);
+                case "--sample-interval" -> sampleIntervalMillis = parsePositive(option, value);
+                case "--programs" -> programsDirectory = Path.of(value);
+                case "--report" -> reportFile = Path.of(value);
+                case "--target" -> targetUrl = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                case "--port" -> port = parseNonNegative(option, value);
+                case "--param" -> {
+                    int separator = value.indexOf('=');
+                    if (separator <= 0) {
+                        throw new IllegalArgumentException("Invalid context parameter '" + value +
+                                "', expected <name>=<value>");
+                    }
+                    contextParameters.put(value.substring(0, separator), value.substring(separator + 1));
+                }
+                default -> throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+        return new LoadTestConfig(users, durationSeconds, rampUpSeconds, seed, maxThinkMillis, maxArgumentValue,
+                credits, sampleIntervalMillis, programsDirectory, reportFile, targetUrl, port, contextParameters);
+    }
+
+    private static int parsePositive(@NotNull String option, @NotNull String value) {
+        int number = parseNonNegative(option, value);
+        if (number == 0) {
+            throw new IllegalArgumentException("The value of option " + option + " must be positive");
+        }
+        return number;
+    }
+
+    private static int parseNonNegative(@NotNull String option, @NotNull String value) {
+        int number;
+        try {
+            number = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The value of option " + option + " is not a number: " + value);
+        }
+        if (number < 0) {
+            throw new IllegalArgumentException("The value of option " + option + " must not be negative");
+        }
+        return number;
+    }
+}
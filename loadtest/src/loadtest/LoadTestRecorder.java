@@ -0,0 +1,111 @@
+package loadtest;
+
+import dto.engine.PercentilesDTO;
+import engine.core.stats.LogHistogram;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the latency and the status of every request of a phase of the load test, per endpoint.
+ * recording never locks, so the users do not wait for each other to record.
+ */
+public class LoadTestRecorder {
+    /**
+     * The status recorded for a request that got no response.
+     */
+    public static final int NO_RESPONSE_STATUS = -1;
+
+    private final @NotNull String phaseName;
+    private final @NotNull ConcurrentMap<String, EndpointRecorder> endpoints = new ConcurrentHashMap<>();
+    private final @NotNull LongAdder intervalRequests = new LongAdder();
+    private final @NotNull LongAdder intervalErrors = new LongAdder();
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos = 0;
+
+    public LoadTestRecorder(@NotNull String phaseName) {
+        this.phaseName = phaseName;
+    }
+
+    /**
+     * Records a finished request.
+     *
+     * @param endpoint     the method and path of the request
+     * @param status       the status of the response, {@link #NO_RESPONSE_STATUS} if there was none
+     * @param latencyNanos the time from sending the request to reading the whole response
+     */
+    public void record(@NotNull String endpoint, int status, long latencyNanos) {
+        endpoints.computeIfAbsent(endpoint, name -> new EndpointRecorder()).record(status, latencyNanos);
+        intervalRequests.increment();
+        if (isError(status)) {
+            intervalErrors.increment();
+        }
+    }
+
+    /**
+     * Ends the phase, the throughput of the phase is computed over its time until now.
+     */
+    public void end() {
+        endNanos = System.nanoTime();
+    }
+
+    /**
+     * @return the requests and the errors recorded since the last call, for the timeline of the test
+     */
+    long @NotNull [] takeIntervalCounts() {
+        return new long[]{intervalRequests.sumThenReset(), intervalErrors.sumThenReset()};
+    }
+
+    public @NotNull LoadTestReport.PhaseReport toReport() {
+        long durationNanos = (endNanos == 0 ? System.nanoTime() : endNanos) - startNanos;
+        double durationSeconds = Math.max(1e-9, durationNanos / 1e9);
+        List<LoadTestReport.EndpointReport> endpointReports = endpoints.entrySet().stream()
+                .map(entry -> entry.getValue().toReport(entry.getKey(), durationSeconds))
+                .sorted(Comparator.comparingLong(LoadTestReport.EndpointReport::requests).reversed())
+                .toList();
+        long requests = endpointReports.stream().mapToLong(LoadTestReport.EndpointReport::requests).sum();
+        long errors = endpointReports.stream().mapToLong(LoadTestReport.EndpointReport::errors).sum();
+        return new LoadTestReport.PhaseReport(phaseName, TimeUnit.NANOSECONDS.toMillis(durationNanos), requests,
+                requests / durationSeconds, requests == 0 ? 0 : (double) errors / requests, endpointReports);
+    }
+
+    /**
+     * @return true for a request without a response, or with a status other than 2xx and 3xx
+     */
+    static boolean isError(int status) {
+        return status < 200 || status >= 400;
+    }
+
+    private static class EndpointRecorder {
+        private final @NotNull LogHistogram latencyMicros = new LogHistogram();
+        private final @NotNull LongAdder errors = new LongAdder();
+        private final @NotNull ConcurrentMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        void record(int status, long latencyNanos) {
+            latencyMicros.record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+            statuses.computeIfAbsent(status, code -> new LongAdder()).increment();
+            if (isError(status)) {
+                errors.increment();
+            }
+        }
+
+        @NotNull LoadTestReport.EndpointReport toReport(@NotNull String endpoint, double durationSeconds) {
+            PercentilesDTO latency = latencyMicros.toPercentiles();
+            Map<String, Long> statusCounts = new TreeMap<>();
+            statuses.forEach((status, count) -> statusCounts.put(
+                    status == NO_RESPONSE_STATUS ? "no response" : String.valueOf(status), count.sum()));
+            long requests = latency.count();
+            return new LoadTestReport.EndpointReport(endpoint, requests, requests / durationSeconds, errors.sum(),
+                    requests == 0 ? 0 : (double) errors.sum() / requests,
+                    latency.mean() / 1000, latency.p50() / 1000.0, latency.p95() / 1000.0,
+                    latency.p99() / 1000.0, latency.max() / 1000.0, statusCounts);
+        }
+    }
+}
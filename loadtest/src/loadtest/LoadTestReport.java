@@ -0,0 +1,131 @@
+package loadtest;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The results of a load test run, printed as tables and saved as JSON, so two runs can be compared.
+ *
+ * @param startedAtMillis     when the test started (epoch millis)
+ * @param target              the URL of the loaded server
+ * @param embedded            whether the server ran in the test's own process
+ * @param javaVersion         the version of the JVM
+ * @param availableProcessors the processors available to the JVM
+ * @param arguments           the command line of the test, to repeat it
+ * @param uploadedPrograms    the sample programs the server accepted
+ * @param setup               the users registering and uploading the programs
+ * @param load                the users running and debugging the programs
+ * @param timeline            the server heap and the throughput over the load phase
+ */
+public record LoadTestReport(long startedAtMillis,
+                             @NotNull String target,
+                             boolean embedded,
+                             @NotNull String javaVersion,
+                             int availableProcessors,
+                             @NotNull List<String> arguments,
+                             @NotNull List<String> uploadedPrograms,
+                             @NotNull PhaseReport setup,
+                             @NotNull PhaseReport load,
+                             @NotNull List<TimelineSample> timeline) {
+
+    /**
+     * @param name              the name of the phase
+     * @param durationMillis    the time the phase took
+     * @param requests          the requests of the phase
+     * @param requestsPerSecond the throughput of the phase
+     * @param errorRate         the share of the requests that failed
+     * @param endpoints         the results per endpoint, the busiest first
+     */
+    public record PhaseReport(@NotNull String name,
+                              long durationMillis,
+                              long requests,
+                              double requestsPerSecond,
+                              double errorRate,
+                              @NotNull List<EndpointReport> endpoints) {
+    }
+
+    /**
+     * @param endpoint          the method and path of the requests
+     * @param requests          the requests sent
+     * @param requestsPerSecond the throughput over the phase
+     * @param errors            the requests without a response, or with a status other than 2xx and 3xx
+     * @param errorRate         the share of the requests that failed
+     * @param meanMillis        the mean latency
+     * @param p50Millis         the median latency
+     * @param p95Millis         the 95th percentile of the latency
+     * @param p99Millis         the 99th percentile of the latency
+     * @param maxMillis         the largest latency
+     * @param statuses          the number of responses of every status
+     */
+    public record EndpointReport(@NotNull String endpoint,
+                                 long requests,
+                                 double requestsPerSecond,
+                                 long errors,
+                                 double errorRate,
+                                 double meanMillis,
+                                 double p50Millis,
+                                 double p95Millis,
+                                 double p99Millis,
+                                 double maxMillis,
+                                 @NotNull Map<String, Long> statuses) {
+    }
+
+    /**
+     * @param elapsedMillis     the time since the load phase started
+     * @param heapUsedBytes     the used heap of the server, -1 if it could not be read
+     * @param heapMaxBytes      the max heap of the server, -1 if it could not be read
+     * @param requests          the requests finished since the previous sample
+     * @param errors            the failed requests since the previous sample
+     * @param requestsPerSecond the throughput since the previous sample
+     */
+    public record TimelineSample(long elapsedMillis,
+                                 long heapUsedBytes,
+                                 long heapMaxBytes,
+                                 long requests,
+                                 long errors,
+                                 double requestsPerSecond) {
+    }
+
+    /**
+     * @return the report as tables, for the console
+     */
+    public @NotNull String toText() {
+        StringBuilder text = new StringBuilder(4096);
+        text.append(String.format("Load test of %s (%s), Java %s, %d processors%n", target,
+                embedded ? "embedded" : "remote", javaVersion, availableProcessors));
+        text.append("Arguments: ").append(String.join(" ", arguments)).append(System.lineSeparator());
+        text.append("Uploaded programs: ").append(uploadedPrograms).append(System.lineSeparator());
+        appendPhase(text, setup);
+        appendPhase(text, load);
+        text.append(System.lineSeparator()).append("Timeline").append(System.lineSeparator());
+        text.append(String.format("%10s %12s %12s %10s %8s%n", "elapsed s", "heap MB", "max heap MB", "req/s",
+                "errors"));
+        for (TimelineSample sample : timeline) {
+            text.append(String.format("%10.1f %12s %12s %10.1f %8d%n", sample.elapsedMillis() / 1000.0,
+                    toMegabytes(sample.heapUsedBytes()), toMegabytes(sample.heapMaxBytes()),
+                    sample.requestsPerSecond(), sample.errors()));
+        }
+        return text.toString();
+    }
+
+    private static void appendPhase(@NotNull StringBuilder text, @NotNull PhaseReport phase) {
+        text.append(System.lineSeparator());
+        text.append(String.format("%s: %d requests in %.1f s, %.1f req/s, %.2f%% errors%n", phase.name(),
+                phase.requests(), phase.durationMillis() / 1000.0, phase.requestsPerSecond(),
+                phase.errorRate() * 100));
+        text.append(String.format("%-30s %8s %9s %8s %9s %9s %9s %9s  %s%n", "endpoint", "requests", "req/s",
+                "errors", "p50 ms", "p95 ms", "p99 ms", "max ms", "statuses"));
+        for (EndpointReport endpoint : phase.endpoints()) {
+            text.append(String.format("%-30s %8d %9.1f %7.2f%% %9.2f %9.2f %9.2f %9.2f  %s%n",
+                    endpoint.endpoint(), endpoint.requests(), endpoint.requestsPerSecond(),
+                    endpoint.errorRate() * 100, endpoint.p50Millis(), endpoint.p95Millis(), endpoint.p99Millis(),
+                    endpoint.maxMillis(), endpoint.statuses()));
+        }
+    }
+
+    private static @NotNull String toMegabytes(long bytes) {
+        return bytes < 0 ? "-" : String.format("%.1f", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,144 @@
+package loadtest;
+
+import com.google.gson.Gson;
+import dto.engine.InstructionDTO;
+import dto.engine.ProgramDTO;
+import dto.engine.ProgramPageDTO;
+import okhttp3.OkHttpClient;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static utils.ServletConstants.*;
+
+/**
+ * Checks the pages of the instructions the server serves against the whole program at every expand level.
+ * <p>
+ * The sample programs are uploaded to an embedded server like in the {@link LoadTest}, then every expand level of
+ * every program is read page by page and compared to the program read at that level in one request. exits with
+ * status 1 if a page differs, so it can run as a check of a build. takes the options of the load test, of which
+ * only {@code --programs}, {@code --port} and {@code --param} are used.
+ * </p>
+ */
+public class ProgramPageCheck {
+    private static final int PAGE_SIZE = 7; // small, so the programs take several pages
+    private static final Gson gson = new Gson();
+
+    private final @NotNull SimulatedUser user;
+    private final @NotNull List<String> failures = new ArrayList<>();
+
+    private ProgramPageCheck(@NotNull SimulatedUser user) {
+        this.user = user;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        List<Path> programFiles = LoadTest.findProgramFiles(config.programsDirectory());
+        if (programFiles.isEmpty()) {
+            throw new IllegalArgumentException("No sample programs found in the test* directories of " +
+                    config.programsDirectory().toAbsolutePath());
+        }
+
+        PrintStream console = System.out;
+        Path workDirectory = Files.createTempDirectory("s-emulator-page-check");
+        PrintStream serverLog = new PrintStream(new FileOutputStream(workDirectory.resolve("server.log").toFile()),
+                true);
+        System.setOut(serverLog);
+        EmbeddedServer server = new EmbeddedServer(config.port(), workDirectory, config.contextParameters());
+        OkHttpClient httpClient = new OkHttpClient();
+        List<String> failures;
+        int levelsChecked;
+        try {
+            String target = server.start();
+            SimulatedUser user = new SimulatedUser(0,
+                    new LoadTestClient(httpClient, target, new LoadTestRecorder("check")), config);
+            if (!user.register()) {
+                throw new IllegalStateException("Could not register the user of the check");
+            }
+            programFiles.forEach(user::upload);
+            ProgramPageCheck check = new ProgramPageCheck(user);
+            levelsChecked = check.checkPrograms(user.getProgramNames());
+            failures = check.failures;
+        } finally {
+            httpClient.dispatcher().executorService().shutdown();
+            httpClient.connectionPool().evictAll();
+            server.stop();
+            System.setOut(console);
+            serverLog.close();
+        }
+
+        if (levelsChecked == 0) {
+            failures.add("No program has an expand level above 0 to check");
+        }
+        failures.forEach(System.out::println);
+        System.out.println(levelsChecked + " expand levels checked, " + failures.size() + " failures");
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * @return the number of expand levels above 0 that were checked
+     */
+    private int checkPrograms(@NotNull List<String> programNames) {
+        int levelsChecked = 0;
+        for (String programName : programNames) {
+            Integer maxExpandLevel = get(programName, Map.of(INFO_PARAM, MAX_EXPAND_LEVEL_INFO), Integer.class);
+            if (maxExpandLevel == null) {
+                failures.add(programName + ": the max expand level could not be read");
+                continue;
+            }
+            for (int expandLevel = 0; expandLevel <= maxExpandLevel; expandLevel++) {
+                checkLevel(programName, expandLevel);
+                if (expandLevel > 0) {
+                    levelsChecked++;
+                }
+            }
+        }
+        return levelsChecked;
+    }
+
+    private void checkLevel(@NotNull String programName, int expandLevel) {
+        String level = String.valueOf(expandLevel);
+        ProgramDTO program = get(programName, Map.of(INFO_PARAM, PROGRAM_BY_EXPAND_LEVEL_INFO,
+                EXPAND_LEVEL_PARAM, level), ProgramDTO.class);
+        if (program == null) {
+            failures.add(programName + "@" + expandLevel + ": the program could not be read");
+            return;
+        }
+        List<InstructionDTO> pagedInstructions = new ArrayList<>();
+        for (int offset = 0; offset < program.instructions().size(); offset += PAGE_SIZE) {
+            ProgramPageDTO page = get(programName, Map.of(INFO_PARAM, PROGRAM_PAGE_INFO, EXPAND_LEVEL_PARAM, level,
+                    OFFSET_PARAM, String.valueOf(offset), LIMIT_PARAM, String.valueOf(PAGE_SIZE)),
+                    ProgramPageDTO.class);
+            if (page == null) {
+                failures.add(programName + "@" + expandLevel + ": the page at " + offset + " could not be read");
+                return;
+            }
+            if (page.expandLevel() != expandLevel || page.totalInstructions() != program.instructions().size()) {
+                failures.add(programName + "@" + expandLevel + ": the page at " + offset + " is of expand level " +
+                        page.expandLevel() + " with " + page.totalInstructions() + " instructions, expected " +
+                        program.instructions().size());
+                return;
+            }
+            pagedInstructions.addAll(page.instructions());
+        }
+        if (!gson.toJson(pagedInstructions).equals(gson.toJson(program.instructions()))) {
+            failures.add(programName + "@" + expandLevel + ": the pages differ from the program's instructions");
+        }
+    }
+
+    private <T> @Nullable T get(@NotNull String programName, @NotNull Map<String, String> query,
+                                @NotNull Class<T> type) {
+        Map<String, String> programQuery = new HashMap<>(query);
+        programQuery.put(PROGRAM_NAME_PARAM, programName);
+        LoadTestClient.Response response = user.getClient().get(SimulatedUser.PROGRAM_INFO_PATH, programQuery);
+        return response.isSuccessful() ? gson.fromJson(response.body(), type) : null;
+    }
+}
@@ -0,0 +1,297 @@
+package loadtest;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import dto.engine.DebugStateChangeResultDTO;
+import dto.engine.ProgramDTO;
+import dto.server.UpdateUserInfoBody;
+import engine.utils.ArchitectureType;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.RequestBody;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.locks.LockSupport;
+
+import static utils.ServletConstants.*;
+
+/**
+ * A user of the server, acting like a user of the client would: running the programs at random expand levels and
+ * architectures, debugging them step by step, and browsing the programs and the run history.
+ * <p>
+ * All the choices of a user come from its own seeded random, so the same seed sends the same requests.
+ * </p>
+ */
+public class SimulatedUser {
+    // region endpoints
+    static final String REGISTER_PATH = "/users/register";
+    static final String UPDATE_USER_INFO_PATH = "/updateUserInfo";
+    static final String UPLOAD_PROGRAM_PATH = "/uploadProgram";
+    static final String SYSTEM_INFO_PATH = "/systemInfo";
+    static final String PROGRAM_INFO_PATH = "/programInfo";
+    static final String RUN_PROGRAM_PATH = "/runProgram";
+    static final String START_DEBUG_PATH = "/debugger/start";
+    static final String DEBUG_ACTION_PATH = "/debugger/action";
+    static final String EXECUTION_HISTORY_PATH = "/user/ExecutionStatistics";
+    // endregion
+
+    // region action weights, out of 100
+    private static final int RUN_WEIGHT = 45;
+    private static final int DEBUG_WEIGHT = 20;
+    private static final int VIEW_PROGRAM_WEIGHT = 20;
+    private static final int VIEW_HISTORY_WEIGHT = 10;
+    // the rest views the catalog
+    // endregion
+    private static final int MAX_DEBUG_STEPS = 20;
+    private static final int STEP_BACK_PERCENT = 15;
+    private static final int HISTORY_PAGE_SIZE = 20;
+    private static final MediaType XML_MEDIA_TYPE = MediaType.get("application/xml");
+    private static final Gson gson = new Gson();
+
+    private final @NotNull String username;
+    private final @NotNull LoadTestClient client;
+    private final @NotNull LoadTestConfig config;
+    private final @NotNull Random random;
+    private final @NotNull Map<String, Integer> maxExpandLevels = new HashMap<>();
+    private final @NotNull Map<String, ProgramDTO> programsByLevel = new HashMap<>();
+    private long deadlineNanos = Long.MAX_VALUE;
+
+    /**
+     * @param index  the index of the user, its name and the seed of its random
+     * @param client the HTTP client of the user
+     * @param config the settings of the test
+     */
+    public SimulatedUser(int index, @NotNull LoadTestClient client, @NotNull LoadTestConfig config) {
+        this.username = "loadtest-user-" + index;
+        this.client = client;
+        this.config = config;
+        this.random = new Random(config.seed() * 1_000_003 + index);
+    }
+
+    public @NotNull LoadTestClient getClient() {
+        return client;
+    }
+
+    // region setup
+
+    /**
+     * Registers the user and gives it the credits of the test.
+     *
+     * @return true if the user can log in
+     */
+    public boolean register() {
+        if (!client.post(REGISTER_PATH, Map.of(USERNAME_PARAM, username), null).isSuccessful()) {
+            return false;
+        }
+        return addCredits();
+    }
+
+    /**
+     * Uploads a program file.
+     *
+     * @return true if the server accepted the program
+     */
+    public boolean upload(@NotNull Path programFile) {
+        RequestBody body = new MultipartBody.Builder()
+                .setType(MultipartBody.FORM)
+                .addFormDataPart("xmlFile", programFile.getFileName().toString(),
+                        RequestBody.create(programFile.toFile(), XML_MEDIA_TYPE))
+                .build();
+        return client.post(UPLOAD_PROGRAM_PATH, Map.of(), body).isSuccessful();
+    }
+
+    /**
+     * @return the names of the main programs of the server, empty if they could not be read
+     */
+    public @NotNull List<String> getProgramNames() {
+        LoadTestClient.Response response = client.get(SYSTEM_INFO_PATH, Map.of(INFO_PARAM, PROGRAMS_NAMES_INFO));
+        if (!response.isSuccessful()) {
+            return List.of();
+        }
+        String[] programNames = parse(response.body(), String[].class);
+        return programNames == null ? List.of() : List.of(programNames);
+    }
+    // endregion
+
+    /**
+     * Acts until the deadline, pausing a random think time between the actions.
+     *
+     * @param programs      the programs to use
+     * @param deadlineNanos the {@link System#nanoTime()} to stop at
+     */
+    public void act(@NotNull List<String> programs, long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+        while (System.nanoTime() < deadlineNanos && !Thread.currentThread().isInterrupted()) {
+            String programName = programs.get(random.nextInt(programs.size()));
+            int action = random.nextInt(100);
+            if (action < RUN_WEIGHT) {
+                runProgram(programName);
+            } else if (action < RUN_WEIGHT + DEBUG_WEIGHT) {
+                debugProgram(programName);
+            } else if (action < RUN_WEIGHT + DEBUG_WEIGHT + VIEW_PROGRAM_WEIGHT) {
+                getProgramAtLevel(programName, randomExpandLevel(programName), false);
+            } else if (action < RUN_WEIGHT + DEBUG_WEIGHT + VIEW_PROGRAM_WEIGHT + VIEW_HISTORY_WEIGHT) {
+                client.get(EXECUTION_HISTORY_PATH, Map.of(USERNAME_PARAM, username, OFFSET_PARAM, "0",
+                        LIMIT_PARAM, String.valueOf(HISTORY_PAGE_SIZE)));
+            } else {
+                client.get(SYSTEM_INFO_PATH, Map.of(INFO_PARAM, PROGRAMS_AND_FUNCTIONS_METADATA));
+            }
+            think();
+        }
+    }
+
+    // region actions
+    private void runProgram(@NotNull String programName) {
+        RunSettings settings = chooseRunSettings(programName);
+        if (settings == null) {
+            return;
+        }
+        LoadTestClient.Response response = client.postJson(RUN_PROGRAM_PATH, settings.query(),
+                gson.toJson(settings.arguments()));
+        if (response.status() == 402) {
+            addCredits();
+        }
+    }
+
+    private void debugProgram(@NotNull String programName) {
+        RunSettings settings = chooseRunSettings(programName);
+        if (settings == null) {
+            return;
+        }
+        LoadTestClient.Response response = client.postJson(START_DEBUG_PATH, settings.query(),
+                gson.toJson(settings.arguments()));
+        if (!response.isSuccessful()) {
+            if (response.status() == 402) {
+                addCredits();
+            }
+            return;
+        }
+        int steps = 1 + random.nextInt(MAX_DEBUG_STEPS);
+        int position = 0;
+        for (int i = 0; i < steps && System.nanoTime() < deadlineNanos; i++) {
+            boolean stepBack = position > 0 && random.nextInt(100) < STEP_BACK_PERCENT;
+            DebugStateChangeResultDTO state = debugAction(stepBack ? DEBUG_ACTION_STEP_BACK : DEBUG_ACTION_STEP_OVER);
+            if (state == null || state.isFinished()) {
+                return;
+            }
+            position += stepBack ? -1 : 1;
+            think();
+        }
+        // most users let the program finish, the others give up on it, and at the deadline all of them do
+        boolean giveUp = random.nextInt(4) == 0 || System.nanoTime() >= deadlineNanos;
+        debugAction(giveUp ? DEBUG_ACTION_STOP : DEBUG_ACTION_RESUME);
+    }
+
+    /**
+     * @return the state after the action, null if it failed and the session is over
+     */
+    private @Nullable DebugStateChangeResultDTO debugAction(@NotNull String debugAction) {
+        LoadTestClient.Response response = client.post(DEBUG_ACTION_PATH,
+                Map.of(DEBUG_ACTION_PARAM, debugAction), null);
+        if (!response.isSuccessful()) {
+            if (response.status() == 402) {
+                addCredits();
+            }
+            // a rejected action leaves the session open, so it is stopped to start the next one
+            if (response.status() == TOO_MANY_REQUESTS_STATUS || response.status() == 409) {
+                client.post(DEBUG_ACTION_PATH, Map.of(DEBUG_ACTION_PARAM, DEBUG_ACTION_STOP), null);
+            }
+            return null;
+        }
+        return parse(response.body(), DebugStateChangeResultDTO.class);
+    }
+
+    private boolean addCredits() {
+        UpdateUserInfoBody body = new UpdateUserInfoBody(username, UPDATE_CREDITS_INFO,
+                String.valueOf(config.credits()));
+        return client.patchJson(UPDATE_USER_INFO_PATH, gson.toJson(body)).isSuccessful();
+    }
+    // endregion
+
+    // region run settings
+
+    /**
+     * Chooses a random expand level, an architecture that can run the program at it, and random arguments.
+     *
+     * @return the settings, null if the program could not be read
+     */
+    private @Nullable RunSettings chooseRunSettings(@NotNull String programName) {
+        int expandLevel = randomExpandLevel(programName);
+        ProgramDTO program = getProgramAtLevel(programName, expandLevel, true);
+        if (program == null) {
+            return null;
+        }
+        ArchitectureType minimumArchitecture = program.minimumArchitectureTypeNeeded() == null ?
+                ArchitectureType.ARCHITECTURE_I : program.minimumArchitectureTypeNeeded();
+        List<ArchitectureType> architectures = Arrays.stream(ArchitectureType.values())
+                .filter(architecture -> architecture != ArchitectureType.INNER_RUN_ARCHITECTURE &&
+                        architecture.compareTo(minimumArchitecture) >= 0)
+                .toList();
+        ArchitectureType architecture = architectures.get(random.nextInt(architectures.size()));
+
+        Map<String, Integer> arguments = new TreeMap<>();
+        for (String argumentName : new TreeSet<>(program.arguments().keySet())) {
+            arguments.put(argumentName, random.nextInt(config.maxArgumentValue() + 1));
+        }
+        Map<String, String> query = Map.of(
+                PROGRAM_NAME_PARAM, programName,
+                EXPAND_LEVEL_PARAM, String.valueOf(expandLevel),
+                ARCHITECTURE_TYPE_PARAM, architecture.getSymbol());
+        return new RunSettings(query, arguments);
+    }
+
+    private int randomExpandLevel(@NotNull String programName) {
+        Integer maxExpandLevel = maxExpandLevels.get(programName);
+        if (maxExpandLevel == null) {
+            LoadTestClient.Response response = client.get(PROGRAM_INFO_PATH,
+                    Map.of(PROGRAM_NAME_PARAM, programName, INFO_PARAM, MAX_EXPAND_LEVEL_INFO));
+            maxExpandLevel = response.isSuccessful() ? parse(response.body(), Integer.class) : null;
+            if (maxExpandLevel == null) {
+                return 0;
+            }
+            maxExpandLevels.put(programName, maxExpandLevel);
+        }
+        return random.nextInt(maxExpandLevel + 1);
+    }
+
+    /**
+     * Gets a program at an expand level, like the client showing its instructions.
+     *
+     * @param useCache true to use the copy the user already has, like the client does before a run
+     * @return the program, null if it could not be read
+     */
+    private @Nullable ProgramDTO getProgramAtLevel(@NotNull String programName, int expandLevel, boolean useCache) {
+        String cacheKey = programName + '@' + expandLevel;
+        if (useCache && programsByLevel.containsKey(cacheKey)) {
+            return programsByLevel.get(cacheKey);
+        }
+        LoadTestClient.Response response = client.get(PROGRAM_INFO_PATH, Map.of(PROGRAM_NAME_PARAM, programName,
+                INFO_PARAM, PROGRAM_BY_EXPAND_LEVEL_INFO, EXPAND_LEVEL_PARAM, String.valueOf(expandLevel)));
+        ProgramDTO program = response.isSuccessful() ? parse(response.body(), ProgramDTO.class) : null;
+        if (program != null) {
+            programsByLevel.put(cacheKey, program);
+        }
+        return program;
+    }
+
+    private record RunSettings(@NotNull Map<String, String> query, @NotNull Map<String, Integer> arguments) {
+    }
+    // endregion
+
+    private void think() {
+        if (config.maxThinkMillis() > 0) {
+            LockSupport.parkNanos(random.nextInt(config.maxThinkMillis() + 1) * 1_000_000L);
+        }
+    }
+
+    private static <T> @Nullable T parse(@NotNull String json, @NotNull Class<T> type) {
+        try {
+            return gson.fromJson(json, type);
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+}
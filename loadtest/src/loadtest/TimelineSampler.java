@@ -0,0 +1,110 @@
+package loadtest;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the heap of the server and the throughput of the users periodically during the load phase.
+ * <p>
+ * The heap is read from the server's own {@code /metrics} endpoint, so it is the heap of the server also when the
+ * loaded server runs in another process. these requests are not recorded with the requests of the users.
+ * </p>
+ */
+public class TimelineSampler {
+    private static final String METRICS_PATH = "/metrics";
+    private static final String HEAP_USED_METRIC = "jvm_memory_heap_used_bytes";
+    private static final String HEAP_MAX_METRIC = "jvm_memory_heap_max_bytes";
+
+    private final @NotNull OkHttpClient httpClient;
+    private final @NotNull String baseUrl;
+    private final @NotNull LoadTestRecorder recorder;
+    private final long intervalMillis;
+    private final @NotNull List<LoadTestReport.TimelineSample> samples = new ArrayList<>();
+    private @Nullable ScheduledExecutorService scheduler = null;
+    private long startNanos;
+    private long lastSampleNanos;
+
+    public TimelineSampler(@NotNull OkHttpClient httpClient, @NotNull String baseUrl,
+                           @NotNull LoadTestRecorder recorder, long intervalMillis) {
+        this.httpClient = httpClient;
+        this.baseUrl = baseUrl;
+        this.recorder = recorder;
+        this.intervalMillis = intervalMillis;
+    }
+
+    public synchronized void start() {
+        startNanos = lastSampleNanos = System.nanoTime();
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("loadtest-sampler").daemon().factory());
+        scheduler.scheduleAtFixedRate(this::sample, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops sampling and takes a last sample of the time since the previous one, unless it is too short to tell.
+     *
+     * @return the samples, in time order
+     */
+    public synchronized @NotNull List<LoadTestReport.TimelineSample> stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            // a last sample of a few milliseconds would only repeat the previous one
+            if (System.nanoTime() - lastSampleNanos >= TimeUnit.MILLISECONDS.toNanos(intervalMillis) / 10) {
+                sample();
+            }
+        }
+        return List.copyOf(samples);
+    }
+
+    private synchronized void sample() {
+        long nowNanos = System.nanoTime();
+        long[] intervalCounts = recorder.takeIntervalCounts();
+        double intervalSeconds = Math.max(1e-9, (nowNanos - lastSampleNanos) / 1e9);
+        lastSampleNanos = nowNanos;
+        long[] heap = readServerHeap();
+        samples.add(new LoadTestReport.TimelineSample(TimeUnit.NANOSECONDS.toMillis(nowNanos - startNanos),
+                heap[0], heap[1], intervalCounts[0], intervalCounts[1], intervalCounts[0] / intervalSeconds));
+    }
+
+    /**
+     * @return the used and the max heap of the server, -1 for a value that could not be read
+     */
+    private long @NotNull [] readServerHeap() {
+        long[] heap = {-1, -1};
+        Request request = new Request.Builder().url(baseUrl + METRICS_PATH).get().build();
+        try (okhttp3.Response response = httpClient.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                return heap;
+            }
+            for (String line : body.string().split("\n")) {
+                if (line.startsWith(HEAP_USED_METRIC + ' ')) {
+                    heap[0] = parseMetricValue(line);
+                } else if (line.startsWith(HEAP_MAX_METRIC + ' ')) {
+                    heap[1] = parseMetricValue(line);
+                }
+            }
+        } catch (IOException e) {
+            // the sample is kept without the heap
+        }
+        return heap;
+    }
+
+    private static long parseMetricValue(@NotNull String line) {
+        try {
+            return (long) Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
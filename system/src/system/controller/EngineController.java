@@ -1,12 +1,16 @@
 package system.controller;
 
+import dto.engine.ExecutionResultStatisticsDTO;
 import dto.engine.FunctionMetadata;
 import dto.engine.ProgramDTO;
+import dto.engine.ProgramPageDTO;
 import dto.engine.ProgramMetadata;
+import dto.server.ChangesDTO;
 import dto.server.SystemResponse;
 import dto.server.UserDTO;
 import engine.utils.ArchitectureType;
 import org.jetbrains.annotations.NotNull;
+import system.http.utils.ServerEventsListener;
 
 import java.io.IOException;
 import java.nio.file.Path;
@@ -20,6 +24,10 @@ public interface EngineController {
 
     void loadProgramFromFile(@NotNull Path xmlFilePath) throws IOException;
 
+    void loadCompiledProgramFromFile(@NotNull Path compiledFilePath) throws IOException;
+
+    void exportProgram(@NotNull String programName, @NotNull Path targetFilePath) throws IOException;
+
     List<ProgramMetadata> getProgramsMetadata() throws IOException;
 
     List<FunctionMetadata> getFunctionsMetadata() throws IOException;
@@ -32,9 +40,27 @@ public interface EngineController {
 
     ProgramDTO getProgramByExpandLevel(int expandLevel);
 
+    ProgramPageDTO getProgramPage(int expandLevel, int offset, int limit, int originalInstructionIndex);
+
     void runLoadedProgram(int expandLevel, @NotNull Map<String, Integer> arguments, ArchitectureType architectureType,
                           @NotNull Consumer<SystemResponse> onResponse);
 
+    void runLoadedProgramBatch(int expandLevel, @NotNull List<Map<String, Integer>> argumentsList,
+                               ArchitectureType architectureType, @NotNull Consumer<SystemResponse> onResult);
+
+    void submitRunJob(int expandLevel, @NotNull Map<String, Integer> arguments, ArchitectureType architectureType,
+                      @NotNull Consumer<SystemResponse> onResponse);
+
+    void getRunJobStatus(@NotNull String jobId, @NotNull Consumer<SystemResponse> onResponse);
+
+    void streamRunJobProgress(@NotNull String jobId, @NotNull Consumer<SystemResponse> onProgress);
+
+    void cancelRunJob(@NotNull String jobId, @NotNull Consumer<SystemResponse> onResponse);
+
+    void subscribeToServerEvents(@NotNull ServerEventsListener listener);
+
+    void unsubscribeFromServerEvents();
+
     void startDebugSession(int expandLevel, @NotNull Map<String, Integer> arguments, ArchitectureType architectureType,
                            @NotNull Consumer<SystemResponse> onResponse);
 
@@ -50,6 +76,15 @@ public interface EngineController {
 
     List<UserDTO> getAllUsersDTO() throws IOException;
 
+    ChangesDTO<ProgramMetadata> getProgramsChangesSince(long sinceVersion) throws IOException;
+
+    ChangesDTO<FunctionMetadata> getFunctionsChangesSince(long sinceVersion) throws IOException;
+
+    ChangesDTO<UserDTO> getUsersChangesSince(long sinceVersion) throws IOException;
+
+    ChangesDTO<ExecutionResultStatisticsDTO> getUserHistoryChangesSince(@NotNull String username, long sinceVersion)
+            throws IOException;
+
     void registerUserAsync(@NotNull String username, @NotNull Consumer<SystemResponse> onResponse);
 
     void setUserCreditsAsync(@NotNull String username, int credits, @NotNull Consumer<SystemResponse> onResponse);
@@ -3,7 +3,13 @@ package system.controller;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
 import dto.engine.*;
+import dto.server.ChangesDTO;
+import dto.server.DashboardSnapshotDTO;
+import dto.server.HistoryAppendedDTO;
+import dto.server.RunJobDTO;
 import dto.server.SystemResponse;
 import dto.server.UserDTO;
 import engine.utils.ArchitectureType;
@@ -12,14 +18,18 @@ import okhttp3.Call;
 import okhttp3.Callback;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
+import okio.BufferedSource;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import system.http.utils.DebugActionCallback;
 import system.http.utils.Endpoints;
 import system.http.utils.Requests;
+import system.http.utils.RunJobCallback;
+import system.http.utils.ServerEventsListener;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
@@ -40,8 +50,11 @@ public class HttpEngineController implements EngineController {
 
     // region private fields and helpers
     @Nullable String loadedProgramName = null;
+    private @Nullable Call serverEventsCall = null;
 
     private static final @NotNull Gson gson = new GsonBuilder().create();
+    private static final @NotNull String SSE_DATA_PREFIX = "data: ";
+    private static final @NotNull String SSE_EVENT_PREFIX = "event: ";
 
     /**
      * Validates and retrieves the body string from the response body.
@@ -56,6 +69,20 @@ public class HttpEngineController implements EngineController {
         return responseBody.string();
     }
 
+    /**
+     * Validates the response body, for reading it as a stream.
+     *
+     * @param responseBody The response body to validate.
+     * @return The response body.
+     * @throws IOException If the response body is null.
+     */
+    public static @NotNull ResponseBody getAndValidateBody(@Nullable ResponseBody responseBody) throws IOException {
+        if (responseBody == null) {
+            throw new IOException("Response body is null");
+        }
+        return responseBody;
+    }
+
     /**
      * Validates and retrieves the SystemResponse from the response body.
      *
@@ -119,6 +146,52 @@ public class HttpEngineController implements EngineController {
         }
     }
 
+    /**
+     * Loads a program from a compiled program file to the server, skipping the XML processing of the server.
+     * this happens <strong>synchronously</strong>.
+     * <p>
+     * call this with 'pulling' threads or async tasks. <strong>NOT THE JAT!</strong>
+     * </p>
+     *
+     * @param compiledFilePath The path to the compiled program file, as exported by {@link #exportProgram}.
+     * @throws IOException If an I/O error occurs or the server rejected the program.
+     */
+    @Override
+    public void loadCompiledProgramFromFile(@NotNull Path compiledFilePath) throws IOException {
+        try (Response response = Requests.uploadCompiledFile(Endpoints.UPLOAD_PROGRAM, compiledFilePath.toFile())) {
+            String message = getAndValidateBodyString(response.body());
+            if (!response.isSuccessful()) {
+                throw new IOException(message);
+            }
+            System.out.println("Compiled program uploaded successfully: " + message);
+        }
+    }
+
+    /**
+     * Saves the compiled form of a program on the server to a file.
+     * this happens <strong>synchronously</strong>.
+     * <p>
+     * call this with 'pulling' threads or async tasks. <strong>NOT THE JAT!</strong>
+     * </p>
+     *
+     * @param programName    The name of the program to export.
+     * @param targetFilePath The file to save the compiled program to.
+     * @throws IOException If an I/O error occurs or the server failed to export the program.
+     */
+    @Override
+    public void exportProgram(@NotNull String programName, @NotNull Path targetFilePath) throws IOException {
+        try (Response response = Requests.exportProgram(Endpoints.EXPORT_PROGRAM, programName)) {
+            ResponseBody body = response.body();
+            if (body == null) {
+                throw new IOException("Empty response from the server");
+            }
+            if (!response.isSuccessful()) {
+                throw new IOException(body.string());
+            }
+            Files.write(targetFilePath, body.bytes());
+        }
+    }
+
     /**
      * Gets the programs metadata from the server.
      * this happens <strong>synchronously</strong>.
@@ -203,8 +276,8 @@ public class HttpEngineController implements EngineController {
                 .getProgramInfo(Endpoints.GET_PROGRAM_INFO, PROGRAM_BY_EXPAND_LEVEL_INFO, programName, expandLevel)) {
 
             if (response.isSuccessful()) {
-                String jsonString = getAndValidateBodyString(response.body());
-                return gson.fromJson(jsonString, ProgramDTO.class);
+                // parsed from the stream, a large expand level is never held as one string
+                return gson.fromJson(getAndValidateBody(response.body()).charStream(), ProgramDTO.class);
             } else {
                 String errorMessage = getAndValidateBodyString(response.body());
                 throw new IOException("Failed to get program by expand level: " + errorMessage);
@@ -214,6 +287,37 @@ public class HttpEngineController implements EngineController {
         }
     }
 
+    /**
+     * Gets a page of the instructions of the loaded program at an expand level.
+     * this happens <strong>synchronously</strong>.
+     * <p>
+     * call this with 'pulling' threads or async tasks. <strong>NOT THE JAT!</strong>
+     * </p>
+     *
+     * @param expandLevel              The expand level of the instructions.
+     * @param offset                   The position of the first instruction of the page.
+     * @param limit                    The maximum number of instructions in the page.
+     * @param originalInstructionIndex Only the instructions expanded from this original instruction,
+     *                                 or -1 for all the instructions.
+     * @return A ProgramPageDTO object holding the instructions of the page.
+     */
+    @Override
+    public ProgramPageDTO getProgramPage(int expandLevel, int offset, int limit, int originalInstructionIndex) {
+        String programName = getAndValidateProgramLoaded();
+        try (Response response = Requests.getProgramPage(Endpoints.GET_PROGRAM_INFO, programName, expandLevel,
+                offset, limit, originalInstructionIndex)) {
+
+            String jsonString = getAndValidateBodyString(response.body());
+            if (response.isSuccessful()) {
+                return gson.fromJson(jsonString, ProgramPageDTO.class);
+            } else {
+                throw new IOException("Failed to get program page: " + jsonString);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * Gets the basic program information from the server.
      * this happens <strong>synchronously</strong>.
@@ -422,6 +526,59 @@ public class HttpEngineController implements EngineController {
 
     // endregion
 
+    // region change feeds
+
+    /**
+     * Gets the programs added or changed since a version of the programs list.
+     * this happens <strong>synchronously</strong>, call this from polling threads, <strong>NOT THE JAT!</strong>
+     *
+     * @param sinceVersion The version the client has, 0 for all programs.
+     * @return The changes and the version to ask from next time. if marked for resync, the entries are all the
+     * programs and replace everything the client has.
+     */
+    @Override
+    public ChangesDTO<ProgramMetadata> getProgramsChangesSince(long sinceVersion) throws IOException {
+        return getChanges(PROGRAMS_FEED, sinceVersion, null, PROGRAMS_CHANGES_TYPE_TOKEN);
+    }
+
+    @Override
+    public ChangesDTO<FunctionMetadata> getFunctionsChangesSince(long sinceVersion) throws IOException {
+        return getChanges(FUNCTIONS_FEED, sinceVersion, null, FUNCTIONS_CHANGES_TYPE_TOKEN);
+    }
+
+    @Override
+    public ChangesDTO<UserDTO> getUsersChangesSince(long sinceVersion) throws IOException {
+        return getChanges(USERS_FEED, sinceVersion, null, USERS_CHANGES_TYPE_TOKEN);
+    }
+
+    /**
+     * Gets the runs a user made since a version of the user's history, the version being the number of runs the
+     * client has. this happens <strong>synchronously</strong>.
+     *
+     * @param username     The user.
+     * @param sinceVersion The number of runs the client has, 0 for the whole history.
+     * @return The new runs and the version to ask from next time.
+     */
+    @Override
+    public ChangesDTO<ExecutionResultStatisticsDTO> getUserHistoryChangesSince(@NotNull String username,
+                                                                              long sinceVersion)
+            throws IOException {
+        return getChanges(HISTORY_FEED, sinceVersion, username, HISTORY_CHANGES_TYPE_TOKEN);
+    }
+
+    private <T> @NotNull ChangesDTO<T> getChanges(@NotNull String feed, long sinceVersion, @Nullable String username,
+                                                  @NotNull TypeToken<ChangesDTO<T>> typeToken) throws IOException {
+        try (Response response = Requests.getChanges(Endpoints.CHANGES, feed, sinceVersion, username)) {
+            if (response.isSuccessful()) {
+                return gson.fromJson(getAndValidateBody(response.body()).charStream(), typeToken);
+            } else {
+                String errorMessage = getAndValidateBodyString(response.body());
+                throw new IOException("Failed to get " + feed + " changes: " + errorMessage);
+            }
+        }
+    }
+    // endregion
+
     // region run and debug methods
 
     /**
@@ -437,8 +594,9 @@ public class HttpEngineController implements EngineController {
                                  ArchitectureType architectureType, @NotNull Consumer<SystemResponse> onResponse) {
         String programName = getAndValidateProgramLoaded();
         String jsonBody = gson.toJson(arguments);
+        // profiled, the profile is shown as the heat of the instructions
         Requests.postRunProgramAsync(Endpoints.RUN_PROGRAM, programName, expandLevel, architectureType, jsonBody,
-                new Callback() {
+                true, new Callback() {
                     @Override
                     public void onFailure(@NotNull Call call, @NotNull IOException e) {
                         SystemResponse systemResponse = SystemResponse.builder()
@@ -471,6 +629,55 @@ public class HttpEngineController implements EngineController {
                 });
     }
 
+    /**
+     * Runs the loaded program once per arguments map <strong>asynchronously</strong>.
+     * the results are read while the server streams them, and the consumer is called once per run,
+     * in the order of the arguments list. if the whole request fails, the consumer is called once with the failure.
+     *
+     * @param expandLevel      The expand level to run the program at.
+     * @param argumentsList    The arguments maps, one per run.
+     * @param architectureType The architecture type to run the program on.
+     * @param onResult         A consumer that will be called with a SystemResponse for every run.
+     */
+    @Override
+    public void runLoadedProgramBatch(int expandLevel, @NotNull List<Map<String, Integer>> argumentsList,
+                                      ArchitectureType architectureType, @NotNull Consumer<SystemResponse> onResult) {
+        String programName = getAndValidateProgramLoaded();
+        String jsonBody = gson.toJson(argumentsList);
+        Requests.postRunProgramBatchAsync(Endpoints.RUN_PROGRAM_BATCH, programName, architectureType, jsonBody,
+                expandLevel,
+                new Callback() {
+                    @Override
+                    public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                        SystemResponse systemResponse = SystemResponse.builder()
+                                .isSuccess(false)
+                                .message("Failed to run program batch: " + e.getMessage())
+                                .build();
+                        onResult.accept(systemResponse);
+                    }
+
+                    @Override
+                    public void onResponse(@NotNull Call call, @NotNull Response response) throws IOException {
+                        try (ResponseBody responseBody = response.body()) {
+                            if (!response.isSuccessful()) {
+                                handelFailedRequest(response, responseBody, onResult);
+                                return;
+                            }
+                            if (responseBody == null) {
+                                throw new IOException("Response body is null");
+                            }
+                            // read the results one by one, as the server writes them
+                            JsonReader jsonReader = new JsonReader(responseBody.charStream());
+                            jsonReader.beginArray();
+                            while (jsonReader.hasNext()) {
+                                onResult.accept(gson.fromJson(jsonReader, SystemResponse.class));
+                            }
+                            jsonReader.endArray();
+                        }
+                    }
+                });
+    }
+
     /**
      * Starts a debug session for the loaded program with the given arguments and expand
      * level <strong>asynchronously</strong>.
@@ -601,4 +808,176 @@ public class HttpEngineController implements EngineController {
 
     }
     // endregion
+
+    // region run job methods
+
+    /**
+     * Submits a run of the loaded program as a job <strong>asynchronously</strong>.
+     * the response holds the submitted job, use its id to follow or cancel it.
+     *
+     * @param expandLevel      The expand level to run the program at.
+     * @param arguments        A map of argument names to their integer values.
+     * @param architectureType The architecture type to run the program on.
+     * @param onResponse       A consumer that will be called with the SystemResponse when the operation is complete.
+     */
+    @Override
+    public void submitRunJob(int expandLevel, @NotNull Map<String, Integer> arguments,
+                             ArchitectureType architectureType, @NotNull Consumer<SystemResponse> onResponse) {
+        String programName = getAndValidateProgramLoaded();
+        String jsonBody = gson.toJson(arguments);
+        Requests.postSubmitRunJobAsync(Endpoints.SUBMIT_RUN_JOB, programName, architectureType, jsonBody,
+                expandLevel, new RunJobCallback(onResponse, "Failed to submit run job"));
+    }
+
+    /**
+     * Retrieves the status, progress and (once done) the result of a run job <strong>asynchronously</strong>.
+     *
+     * @param jobId      The id of the job.
+     * @param onResponse A consumer that will be called with the SystemResponse when the operation is complete.
+     */
+    @Override
+    public void getRunJobStatus(@NotNull String jobId, @NotNull Consumer<SystemResponse> onResponse) {
+        Requests.getRunJobStatusAsync(Endpoints.RUN_JOB_STATUS, jobId,
+                new RunJobCallback(onResponse, "Failed to get run job status"));
+    }
+
+    /**
+     * Streams the progress of a run job <strong>asynchronously</strong>.
+     * the consumer is called for every progress event, and a last time when the job finishes.
+     *
+     * @param jobId      The id of the job.
+     * @param onProgress A consumer that will be called with a SystemResponse holding the job on every event.
+     */
+    @Override
+    public void streamRunJobProgress(@NotNull String jobId, @NotNull Consumer<SystemResponse> onProgress) {
+        Requests.getRunJobStreamAsync(Endpoints.STREAM_RUN_JOB, jobId, new Callback() {
+            @Override
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                SystemResponse systemResponse = SystemResponse.builder()
+                        .isSuccess(false)
+                        .message("Failed to stream run job progress: " + e.getMessage())
+                        .build();
+                onProgress.accept(systemResponse);
+            }
+
+            @Override
+            public void onResponse(@NotNull Call call, @NotNull Response response) throws IOException {
+                try (ResponseBody responseBody = response.body()) {
+                    if (!response.isSuccessful()) {
+                        handelFailedRequest(response, responseBody, onProgress);
+                        return;
+                    }
+                    if (responseBody == null) {
+                        throw new IOException("Response body is null");
+                    }
+                    // server-sent events: only the data lines are needed, the job status tells which event it was
+                    BufferedSource source = responseBody.source();
+                    String line;
+                    while ((line = source.readUtf8Line()) != null) {
+                        if (line.startsWith(SSE_DATA_PREFIX)) {
+                            RunJobDTO runJobDTO = gson.fromJson(line.substring(SSE_DATA_PREFIX.length()),
+                                    RunJobDTO.class);
+                            onProgress.accept(SystemResponse.builder()
+                                    .isSuccess(true)
+                                    .runJobDTO(runJobDTO)
+                                    .build());
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Cancels a run job <strong>asynchronously</strong>.
+     * the credits consumed by the job until it stopped are charged.
+     *
+     * @param jobId      The id of the job.
+     * @param onResponse A consumer that will be called with the SystemResponse when the operation is complete.
+     */
+    @Override
+    public void cancelRunJob(@NotNull String jobId, @NotNull Consumer<SystemResponse> onResponse) {
+        Requests.postCancelRunJobAsync(Endpoints.CANCEL_RUN_JOB, jobId,
+                new RunJobCallback(onResponse, "Failed to cancel run job"));
+    }
+
+    /**
+     * Subscribes to the changes pushed by the server <strong>asynchronously</strong>, replacing the previous
+     * subscription if there is one. the listener first gets a snapshot of everything, then the changes.
+     *
+     * @param listener The listener of the events.
+     */
+    @Override
+    public synchronized void subscribeToServerEvents(@NotNull ServerEventsListener listener) {
+        unsubscribeFromServerEvents();
+        serverEventsCall = Requests.getServerEventsStreamAsync(Endpoints.SERVER_EVENTS, new Callback() {
+            @Override
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                if (!call.isCanceled()) {
+                    listener.onDisconnected("Failed to subscribe to server events: " + e.getMessage());
+                }
+            }
+
+            @Override
+            public void onResponse(@NotNull Call call, @NotNull Response response) {
+                try (ResponseBody responseBody = response.body()) {
+                    if (!response.isSuccessful() || responseBody == null) {
+                        listener.onDisconnected("Failed to subscribe to server events: " + response.code());
+                        return;
+                    }
+                    readServerEvents(responseBody.source(), listener);
+                    listener.onDisconnected("The server closed the events stream");
+                } catch (IOException e) {
+                    if (!call.isCanceled()) {
+                        listener.onDisconnected("Server events stream broke: " + e.getMessage());
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public synchronized void unsubscribeFromServerEvents() {
+        if (serverEventsCall != null) {
+            serverEventsCall.cancel();
+            serverEventsCall = null;
+        }
+    }
+
+    /**
+     * Reads server-sent events until the stream ends, passing each one to the listener.
+     * an event is made of "event:" and "data:" lines and ends with an empty line, other lines are ignored.
+     */
+    private static void readServerEvents(@NotNull BufferedSource source, @NotNull ServerEventsListener listener)
+            throws IOException {
+        String eventName = null;
+        String data = null;
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (line.startsWith(SSE_EVENT_PREFIX)) {
+                eventName = line.substring(SSE_EVENT_PREFIX.length());
+            } else if (line.startsWith(SSE_DATA_PREFIX)) {
+                data = line.substring(SSE_DATA_PREFIX.length());
+            } else if (line.isEmpty()) {
+                if (eventName != null && data != null) {
+                    dispatchServerEvent(eventName, data, listener);
+                }
+                eventName = null;
+                data = null;
+            }
+        }
+    }
+
+    private static void dispatchServerEvent(@NotNull String eventName, @NotNull String data,
+                                            @NotNull ServerEventsListener listener) {
+        switch (eventName) {
+            case SNAPSHOT_EVENT -> listener.onSnapshot(gson.fromJson(data, DashboardSnapshotDTO.class));
+            case PROGRAM_CHANGED_EVENT -> listener.onProgramChanged(gson.fromJson(data, ProgramMetadata.class));
+            case FUNCTION_CHANGED_EVENT -> listener.onFunctionChanged(gson.fromJson(data, FunctionMetadata.class));
+            case USER_CHANGED_EVENT -> listener.onUserChanged(gson.fromJson(data, UserDTO.class));
+            case HISTORY_APPENDED_EVENT -> listener.onHistoryAppended(gson.fromJson(data, HistoryAppendedDTO.class));
+            default -> System.out.println("Ignoring unknown server event: " + eventName);
+        }
+    }
+    // endregion
 }
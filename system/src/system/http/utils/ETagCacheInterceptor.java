@@ -0,0 +1,101 @@
+package system.http.utils;
+
+import okhttp3.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static utils.ServletConstants.ETAG_HEADER;
+import static utils.ServletConstants.IF_NONE_MATCH_HEADER;
+
+/**
+ * Keeps a local copy of every GET response the server tagged with an ETag, and revalidates it on the next
+ * request of the same URL with 'If-None-Match'. when the server answers 304 Not Modified, the local copy is
+ * handed to the caller as a regular 200 response, so the callers do not have to know about the cache.
+ * <p>
+ * The copies are bounded by {@link #maxTotalBytes} and the least recently used ones are dropped first.
+ * bodies larger than {@link #maxEntryBytes} are passed through without being kept.
+ * </p>
+ */
+public class ETagCacheInterceptor implements Interceptor {
+    private final long maxTotalBytes;
+    private final long maxEntryBytes;
+    private long totalBytes = 0;
+    private final @NotNull LinkedHashMap<String, CachedBody> cachedBodies = new LinkedHashMap<>(16, 0.75f, true);
+
+    public ETagCacheInterceptor(long maxTotalBytes, long maxEntryBytes) {
+        this.maxTotalBytes = maxTotalBytes;
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    @Override
+    public @NotNull Response intercept(@NotNull Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!request.method().equals("GET")) {
+            return chain.proceed(request);
+        }
+
+        String cacheKey = request.url().toString();
+        CachedBody cachedBody = get(cacheKey);
+        if (cachedBody != null) {
+            request = request.newBuilder()
+                    .header(IF_NONE_MATCH_HEADER, cachedBody.eTag())
+                    .build();
+        }
+
+        Response response = chain.proceed(request);
+        if (response.code() == 304 && cachedBody != null) {
+            response.close();
+            return response.newBuilder()
+                    .code(200)
+                    .message("OK")
+                    .body(ResponseBody.create(cachedBody.body(), cachedBody.mediaType()))
+                    .build();
+        }
+
+        String eTag = response.header(ETAG_HEADER);
+        ResponseBody responseBody = response.body();
+        if (!response.isSuccessful() || eTag == null || responseBody == null ||
+                responseBody.contentLength() > maxEntryBytes) {
+            return response;
+        }
+        byte[] bytes = responseBody.bytes();
+        MediaType mediaType = responseBody.contentType();
+        if (bytes.length <= maxEntryBytes) {
+            put(cacheKey, new CachedBody(eTag, bytes, mediaType));
+        }
+        return response.newBuilder()
+                .body(ResponseBody.create(bytes, mediaType))
+                .build();
+    }
+
+    public synchronized void clear() {
+        cachedBodies.clear();
+        totalBytes = 0;
+    }
+
+    private synchronized @Nullable CachedBody get(@NotNull String cacheKey) {
+        return cachedBodies.get(cacheKey);
+    }
+
+    private synchronized void put(@NotNull String cacheKey, @NotNull CachedBody cachedBody) {
+        CachedBody previous = cachedBodies.put(cacheKey, cachedBody);
+        if (previous != null) {
+            totalBytes -= previous.body().length;
+        }
+        totalBytes += cachedBody.body().length;
+
+        var iterator = cachedBodies.entrySet().iterator();
+        while (totalBytes > maxTotalBytes && iterator.hasNext()) {
+            Map.Entry<String, CachedBody> eldest = iterator.next();
+            totalBytes -= eldest.getValue().body().length;
+            iterator.remove();
+        }
+    }
+
+    private record CachedBody(@NotNull String eTag, byte @NotNull [] body, @Nullable MediaType mediaType) {
+    }
+}
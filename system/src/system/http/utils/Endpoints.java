@@ -4,7 +4,9 @@ public class Endpoints {
     private static final String BASE_URL = "http://localhost:8080/engineWeb_Web";
     //    private static final String BASE_URL = "http://localhost:8080/engineWeb_Web_exploded";
     public static final String UPLOAD_PROGRAM = BASE_URL + "/uploadProgram";
+    public static final String EXPORT_PROGRAM = BASE_URL + "/exportProgram";
     public static final String RUN_PROGRAM = BASE_URL + "/runProgram";
+    public static final String RUN_PROGRAM_BATCH = BASE_URL + "/runProgram/batch";
     public static final String GET_SYSTEM_INFO = BASE_URL + "/systemInfo";
     public static final String GET_PROGRAM_INFO = BASE_URL + "/programInfo";
     public static final String START_DEBUG_PROGRAM = BASE_URL + "/debugger/start";
@@ -13,5 +15,11 @@ public class Endpoints {
     public static final String GET_USER_EXECUTION_HISTORY = BASE_URL + "/user/ExecutionStatistics";
     public static final String REGISTER_USER = BASE_URL + "/users/register";
     public static final String UPDATE_USER_INFO = BASE_URL + "/updateUserInfo";
+    public static final String SUBMIT_RUN_JOB = BASE_URL + "/jobs/submit";
+    public static final String RUN_JOB_STATUS = BASE_URL + "/jobs/status";
+    public static final String STREAM_RUN_JOB = BASE_URL + "/jobs/stream";
+    public static final String CANCEL_RUN_JOB = BASE_URL + "/jobs/cancel";
+    public static final String SERVER_EVENTS = BASE_URL + "/events";
+    public static final String CHANGES = BASE_URL + "/changes";
 
 }
@@ -5,16 +5,26 @@ import dto.server.UpdateUserInfoBody;
 import engine.utils.ArchitectureType;
 import okhttp3.*;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 
 import static utils.ServletConstants.*;
 
 public class Requests {
     private final static SimpleCookieManager cookieManager = new SimpleCookieManager();
+    // program info never changes once uploaded, most repeated requests are answered with 304 and a local copy
+    private final static ETagCacheInterceptor eTagCache = new ETagCacheInterceptor(32L * 1024 * 1024,
+            4L * 1024 * 1024);
     private final static OkHttpClient HTTP_CLIENT = new OkHttpClient.Builder()
             .cookieJar(cookieManager)
+            .addInterceptor(eTagCache)
+            .build();
+    // streams stay open for as long as the streamed runs take, so they must not time out between events
+    private final static OkHttpClient STREAMING_HTTP_CLIENT = HTTP_CLIENT.newBuilder()
+            .readTimeout(Duration.ZERO)
             .build();
     private final static Gson gson = new Gson();
 
@@ -50,11 +60,29 @@ public class Requests {
         return call.execute();
     }
 
+    /**
+     * Uploads a compiled program file <strong>synchronously</strong>, the fast alternative to an XML file.
+     *
+     * @param uploadProgram the upload endpoint URL
+     * @param compiledFile  the compiled program file, as exported by a server
+     * @return the response from the server
+     */
+    public static @NotNull Response uploadCompiledFile(String uploadProgram, File compiledFile) throws IOException {
+        Call call = createPostFileUploadCall(uploadProgram, compiledFile, COMPILED_FILE_PART_NAME,
+                COMPILED_PROGRAM_CONTENT_TYPE);
+        return call.execute();
+    }
+
     private static @NotNull Call createPostFileUploadCall(String uploadProgram, File xmlFile) {
-        RequestBody fileBody = RequestBody.create(xmlFile, MediaType.parse("application/xml"));
+        return createPostFileUploadCall(uploadProgram, xmlFile, "xmlFile", "application/xml");
+    }
+
+    private static @NotNull Call createPostFileUploadCall(String uploadProgram, File file, String partName,
+                                                          String contentType) {
+        RequestBody fileBody = RequestBody.create(file, MediaType.parse(contentType));
         MultipartBody requestBody = new MultipartBody.Builder()
                 .setType(MultipartBody.FORM)
-                .addFormDataPart("xmlFile", xmlFile.getName(), fileBody)
+                .addFormDataPart(partName, file.getName(), fileBody)
                 .build();
 
         Request request = new Request.Builder()
@@ -65,6 +93,26 @@ public class Requests {
         return HTTP_CLIENT.newCall(request);
     }
 
+    /**
+     * Downloads the compiled form of a program <strong>synchronously</strong>.
+     *
+     * @param serverEndpoint the export endpoint URL
+     * @param programName    the name of the program
+     * @return the response from the server, its body is the compiled program
+     */
+    public static @NotNull Response exportProgram(@NotNull String serverEndpoint, @NotNull String programName)
+            throws IOException {
+        HttpUrl url = safeUrlBuilder(serverEndpoint)
+                .addQueryParameter(PROGRAM_NAME_PARAM, programName)
+                .build();
+
+        Request request = new Request.Builder()
+                .url(url)
+                .build();
+
+        return HTTP_CLIENT.newCall(request).execute();
+    }
+
     /**
      * Retrieves system information <strong>synchronously</strong> from the specified server endpoint.
      *
@@ -150,6 +198,69 @@ public class Requests {
         return call.execute();
     }
 
+    /**
+     * Retrieves a page of the instructions of a program <strong>synchronously</strong>.
+     *
+     * @param serverEndpoint           The server endpoint URL from which to retrieve the page.
+     * @param programName              The name of the program.
+     * @param expandLevel              The expand level of the instructions.
+     * @param offset                   The position of the first instruction of the page.
+     * @param limit                    The maximum number of instructions in the page.
+     * @param originalInstructionIndex The original instruction to filter by, or -1 for no filter.
+     * @return The response from the server.
+     */
+    public static @NotNull Response getProgramPage(@NotNull String serverEndpoint,
+                                                   @NotNull String programName,
+                                                   int expandLevel,
+                                                   int offset,
+                                                   int limit,
+                                                   int originalInstructionIndex)
+            throws IOException {
+        HttpUrl.Builder urlBuilder = safeUrlBuilder(serverEndpoint)
+                .addQueryParameter(INFO_PARAM, PROGRAM_PAGE_INFO)
+                .addQueryParameter(PROGRAM_NAME_PARAM, programName)
+                .addQueryParameter(EXPAND_LEVEL_PARAM, String.valueOf(expandLevel))
+                .addQueryParameter(OFFSET_PARAM, String.valueOf(offset))
+                .addQueryParameter(LIMIT_PARAM, String.valueOf(limit));
+        if (originalInstructionIndex >= 0) {
+            urlBuilder.addQueryParameter(ORIGINAL_INDEX_PARAM, String.valueOf(originalInstructionIndex));
+        }
+
+        Request request = new Request.Builder()
+                .url(urlBuilder.build())
+                .build();
+
+        return HTTP_CLIENT.newCall(request).execute();
+    }
+
+    /**
+     * Retrieves the changes of a collection since a version <strong>synchronously</strong>.
+     *
+     * @param serverEndpoint The server endpoint URL from which to retrieve the changes.
+     * @param feed           The collection to retrieve the changes of.
+     * @param sinceVersion   The version the client has, 0 for the whole collection.
+     * @param username       The user whose history to retrieve the changes of, only for the history feed.
+     * @return The response from the server.
+     */
+    public static @NotNull Response getChanges(@NotNull String serverEndpoint,
+                                               @NotNull String feed,
+                                               long sinceVersion,
+                                               @Nullable String username)
+            throws IOException {
+        HttpUrl.Builder urlBuilder = safeUrlBuilder(serverEndpoint)
+                .addQueryParameter(FEED_PARAM, feed)
+                .addQueryParameter(SINCE_VERSION_PARAM, String.valueOf(sinceVersion));
+        if (username != null) {
+            urlBuilder.addQueryParameter(USERNAME_PARAM, username);
+        }
+
+        Request request = new Request.Builder()
+                .url(urlBuilder.build())
+                .build();
+
+        return HTTP_CLIENT.newCall(request).execute();
+    }
+
     /**
      * Constructs a Call object to retrieve program information.
      *
@@ -203,15 +314,21 @@ public class Requests {
      * @param jsonArguments            The JSON string containing the arguments for the program.
      * @param callback                 The callback to handle the response or failure.
      * @param expandLevel              The level of detail to expand in the response.
+     * @param profile                  Whether the server should profile the run and return where it spent its
+     *                                 cycles.
      */
     public static void postRunProgramAsync(@NotNull String serverEndpoint,
                                            @NotNull String currentLoadedProgramName,
                                            int expandLevel,
                                            @NotNull ArchitectureType architectureType,
                                            @NotNull String jsonArguments,
+                                           boolean profile,
                                            @NotNull Callback callback) {
-        postRunOrDebugProgramAsync(serverEndpoint, currentLoadedProgramName, architectureType, jsonArguments, callback
-                , expandLevel);
+        Request request = buildRunOrDebugProgramRequest(serverEndpoint, currentLoadedProgramName, architectureType,
+                jsonArguments, expandLevel, profile);
+
+        Call call = HTTP_CLIENT.newCall(request);
+        call.enqueue(callback);
     }
 
     /**
@@ -233,6 +350,49 @@ public class Requests {
         postRunOrDebugProgramAsync(serverEndpoint, programName, architectureType, jsonArguments, callback, expandLevel);
     }
 
+    /**
+     * Sends a POST request to run a program over a batch of arguments <strong>asynchronously</strong>.
+     * the results are streamed back while the batch runs, so the call does not time out between results.
+     *
+     * @param serverEndpoint       The server endpoint URL.
+     * @param programName          The name of the program to run.
+     * @param architectureType     The architecture type to run the program on.
+     * @param jsonArgumentsList    The JSON string containing the list of arguments maps, one per run.
+     * @param expandLevel          The level of detail to expand in the response.
+     * @param callback             The callback to handle the response or failure.
+     */
+    public static void postRunProgramBatchAsync(@NotNull String serverEndpoint,
+                                                @NotNull String programName,
+                                                @NotNull ArchitectureType architectureType,
+                                                @NotNull String jsonArgumentsList,
+                                                int expandLevel,
+                                                @NotNull Callback callback) {
+        Request request = buildRunOrDebugProgramRequest(serverEndpoint, programName, architectureType,
+                jsonArgumentsList, expandLevel);
+
+        Call call = STREAMING_HTTP_CLIENT.newCall(request);
+        call.enqueue(callback);
+    }
+
+    /**
+     * Sends a POST request to submit a program run as a job <strong>asynchronously</strong>.
+     *
+     * @param serverEndpoint   The server endpoint URL.
+     * @param programName      The name of the program to run.
+     * @param architectureType The architecture type to run the program on.
+     * @param jsonArguments    The JSON string containing the arguments for the program.
+     * @param expandLevel      The level of detail to expand in the response.
+     * @param callback         The callback to handle the response or failure.
+     */
+    public static void postSubmitRunJobAsync(@NotNull String serverEndpoint,
+                                             @NotNull String programName,
+                                             @NotNull ArchitectureType architectureType,
+                                             @NotNull String jsonArguments,
+                                             int expandLevel,
+                                             @NotNull Callback callback) {
+        postRunOrDebugProgramAsync(serverEndpoint, programName, architectureType, jsonArguments, callback, expandLevel);
+    }
+
     /**
      * Sends a POST request to run or debug a program <strong>asynchronously</strong>.
      *
@@ -267,17 +427,46 @@ public class Requests {
                                                             @NotNull String currentLoadedProgramName,
                                                             @NotNull ArchitectureType architectureType,
                                                             @NotNull String jsonArguments, int expandLevel) {
-        HttpUrl url = safeUrlBuilder(serverEndpoint)
+        Request request = buildRunOrDebugProgramRequest(serverEndpoint, currentLoadedProgramName, architectureType,
+                jsonArguments, expandLevel);
+
+        return HTTP_CLIENT.newCall(request);
+    }
+
+    /**
+     * Constructs the POST request to run or debug a program.
+     *
+     * @param serverEndpoint           The server endpoint URL.
+     * @param currentLoadedProgramName The name of the currently loaded program.
+     * @param jsonArguments            The JSON string containing the arguments for the program.
+     * @param expandLevel              The level of detail to expand in the response.
+     * @return The constructed Request object.
+     */
+    private static @NotNull Request buildRunOrDebugProgramRequest(@NotNull String serverEndpoint,
+                                                                  @NotNull String currentLoadedProgramName,
+                                                                  @NotNull ArchitectureType architectureType,
+                                                                  @NotNull String jsonArguments, int expandLevel) {
+        return buildRunOrDebugProgramRequest(serverEndpoint, currentLoadedProgramName, architectureType,
+                jsonArguments, expandLevel, false);
+    }
+
+    private static @NotNull Request buildRunOrDebugProgramRequest(@NotNull String serverEndpoint,
+                                                                  @NotNull String currentLoadedProgramName,
+                                                                  @NotNull ArchitectureType architectureType,
+                                                                  @NotNull String jsonArguments, int expandLevel,
+                                                                  boolean profile) {
+        HttpUrl.Builder urlBuilder = safeUrlBuilder(serverEndpoint)
                 .addQueryParameter(PROGRAM_NAME_PARAM, currentLoadedProgramName)
                 .addQueryParameter(EXPAND_LEVEL_PARAM, String.valueOf(expandLevel))
-                .addQueryParameter(ARCHITECTURE_TYPE_PARAM, architectureType.getSymbol())
-                .build();
+                .addQueryParameter(ARCHITECTURE_TYPE_PARAM, architectureType.getSymbol());
+        if (profile) {
+            urlBuilder.addQueryParameter(PROFILE_PARAM, String.valueOf(true));
+        }
+        HttpUrl url = urlBuilder.build();
 
         System.out.println("about to send request to: " + url);
 
-        Request request = getPostJsonRequest(jsonArguments, url);
-
-        return HTTP_CLIENT.newCall(request);
+        return getPostJsonRequest(jsonArguments, url);
     }
 
     /**
@@ -323,6 +512,94 @@ public class Requests {
         call.enqueue(callback);
     }
 
+    /**
+     * Retrieves the status of a run job <strong>asynchronously</strong>.
+     *
+     * @param serverEndpoint The server endpoint URL.
+     * @param jobId          The id of the job.
+     * @param callback       The callback to handle the response or failure.
+     */
+    public static void getRunJobStatusAsync(@NotNull String serverEndpoint,
+                                            @NotNull String jobId,
+                                            @NotNull Callback callback) {
+        HttpUrl url = safeUrlBuilder(serverEndpoint)
+                .addQueryParameter(JOB_ID_PARAM, jobId)
+                .build();
+
+        Request request = new Request.Builder()
+                .url(url)
+                .build();
+
+        Call call = HTTP_CLIENT.newCall(request);
+        call.enqueue(callback);
+    }
+
+    /**
+     * Opens the progress stream of a run job <strong>asynchronously</strong>.
+     * the callback gets the response once the stream is open, and reads the events from its body until the job
+     * finishes.
+     *
+     * @param serverEndpoint The server endpoint URL.
+     * @param jobId          The id of the job.
+     * @param callback       The callback to handle the response or failure.
+     */
+    public static void getRunJobStreamAsync(@NotNull String serverEndpoint,
+                                            @NotNull String jobId,
+                                            @NotNull Callback callback) {
+        HttpUrl url = safeUrlBuilder(serverEndpoint)
+                .addQueryParameter(JOB_ID_PARAM, jobId)
+                .build();
+
+        Request request = new Request.Builder()
+                .url(url)
+                .header("Accept", EVENT_STREAM_CONTENT_TYPE)
+                .build();
+
+        Call call = STREAMING_HTTP_CLIENT.newCall(request);
+        call.enqueue(callback);
+    }
+
+    /**
+     * Opens the stream of the server events <strong>asynchronously</strong>.
+     * the callback gets the response once the stream is open, and reads the events from its body until the stream
+     * is closed.
+     *
+     * @param serverEndpoint The server endpoint URL.
+     * @param callback       The callback to handle the response or failure.
+     * @return The call of the stream, to cancel it when the events are no longer needed.
+     */
+    public static @NotNull Call getServerEventsStreamAsync(@NotNull String serverEndpoint,
+                                                           @NotNull Callback callback) {
+        Request request = new Request.Builder()
+                .url(serverEndpoint)
+                .header("Accept", EVENT_STREAM_CONTENT_TYPE)
+                .build();
+
+        Call call = STREAMING_HTTP_CLIENT.newCall(request);
+        call.enqueue(callback);
+        return call;
+    }
+
+    /**
+     * Sends a POST request to cancel a run job <strong>asynchronously</strong>.
+     *
+     * @param serverEndpoint The server endpoint URL.
+     * @param jobId          The id of the job.
+     * @param callback       The callback to handle the response or failure.
+     */
+    public static void postCancelRunJobAsync(@NotNull String serverEndpoint,
+                                             @NotNull String jobId,
+                                             @NotNull Callback callback) {
+        HttpUrl url = safeUrlBuilder(serverEndpoint)
+                .addQueryParameter(JOB_ID_PARAM, jobId)
+                .build();
+
+        Request request = getPostNoBody(url);
+
+        Call call = HTTP_CLIENT.newCall(request);
+        call.enqueue(callback);
+    }
+
     /**
      * Retrieves user statistics <strong>asynchronously</strong> from the specified server endpoint.
      *
@@ -0,0 +1,52 @@
+package system.http.utils;
+
+import dto.server.SystemResponse;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+import static system.controller.HttpEngineController.getAndValidateBodySystemResponse;
+import static system.controller.HttpEngineController.handelFailedRequest;
+
+/**
+ * Callback for the run job endpoints (submit, status and cancel), which all answer with a
+ * {@link SystemResponse} holding the job.
+ */
+public class RunJobCallback implements Callback {
+    private final @NotNull Consumer<SystemResponse> onResponse;
+    private final @NotNull String failureMessage;
+
+    /**
+     * @param onResponse     the consumer of the response
+     * @param failureMessage the message to report when the request could not be sent
+     */
+    public RunJobCallback(@NotNull Consumer<SystemResponse> onResponse, @NotNull String failureMessage) {
+        this.onResponse = onResponse;
+        this.failureMessage = failureMessage;
+    }
+
+    @Override
+    public void onFailure(@NotNull Call call, @NotNull IOException e) {
+        SystemResponse systemResponse = SystemResponse.builder()
+                .isSuccess(false)
+                .message(failureMessage + ": " + e.getMessage())
+                .build();
+        onResponse.accept(systemResponse);
+    }
+
+    @Override
+    public void onResponse(@NotNull Call call, @NotNull Response response) throws IOException {
+        try (ResponseBody responseBody = response.body()) {
+            if (response.isSuccessful()) {
+                onResponse.accept(getAndValidateBodySystemResponse(responseBody));
+            } else {
+                handelFailedRequest(response, responseBody, onResponse);
+            }
+        }
+    }
+}
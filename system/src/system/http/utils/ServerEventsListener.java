@@ -0,0 +1,43 @@
+package system.http.utils;
+
+import dto.engine.FunctionMetadata;
+import dto.engine.ProgramMetadata;
+import dto.server.DashboardSnapshotDTO;
+import dto.server.HistoryAppendedDTO;
+import dto.server.UserDTO;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives the events pushed by the server, see
+ * {@link system.controller.EngineController#subscribeToServerEvents(ServerEventsListener)}.
+ * the methods are called on the thread reading the stream, one at a time in the order the events were sent.
+ */
+public interface ServerEventsListener {
+
+    /**
+     * Called first when the stream opens, and again whenever the client fell behind and missed events.
+     * replaces everything received before.
+     */
+    void onSnapshot(@NotNull DashboardSnapshotDTO snapshot);
+
+    /**
+     * Called when a program is added or its run statistics change.
+     */
+    void onProgramChanged(@NotNull ProgramMetadata programMetadata);
+
+    void onFunctionChanged(@NotNull FunctionMetadata functionMetadata);
+
+    /**
+     * Called when a user registers or any of its details change.
+     */
+    void onUserChanged(@NotNull UserDTO userDTO);
+
+    void onHistoryAppended(@NotNull HistoryAppendedDTO historyAppended);
+
+    /**
+     * Called once when the stream ends, unless it was closed by the client.
+     *
+     * @param message the reason the stream ended
+     */
+    void onDisconnected(@NotNull String message);
+}
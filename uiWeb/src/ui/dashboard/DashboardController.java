@@ -24,14 +24,11 @@ import ui.dashboard.history.table.HistoryPanelController;
 import ui.dashboard.programs.ProgramsPanelController;
 import ui.dashboard.users.UsersPanelController;
 import ui.execution.ExecutionController;
-import ui.refresher.FunctionTableRefresher;
-import ui.refresher.ProgramsTableRefresher;
-import ui.refresher.UserTableRefresher;
+import ui.refresher.DashboardEventsSubscriber;
 import ui.task.program.ProgramTaskController;
 
 import java.io.File;
 import java.net.URL;
-import java.util.Timer;
 
 import static ui.utils.UIUtils.*;
 import static ui.utils.clientConstants.*;
@@ -58,6 +55,9 @@ public class DashboardController {
     private final ListProperty<ExecutionResultStatisticsDTO> userHistoryListProperty =
             new SimpleListProperty<>(FXCollections.observableArrayList());
     private String originalUser = "";
+    // the user whose history is shown in the history panel
+    private volatile String historyUser = null;
+    private DashboardEventsSubscriber eventsSubscriber;
 
     @FXML
     private HBox headerSection;
@@ -119,8 +119,8 @@ public class DashboardController {
                 historyPanelController != null) {
 
             System.out.println("DashboardController: All sub-controllers injected successfully");
-            startRefreshers();
-            System.out.println("DashboardController: Data refreshers started");
+            startEventsSubscriber();
+            System.out.println("DashboardController: Subscribed to server events");
 
             // Bind user selection across panels
             selectedUser.addListener((obs, oldVal, newVal) -> {
@@ -146,20 +146,15 @@ public class DashboardController {
         }
     }
 
-    private void startRefreshers() {
-        ProgramsTableRefresher programsTableRefresher =
-                new ProgramsTableRefresher(engineController, programsMetadataListProperty);
-        FunctionTableRefresher functionTableRefresher =
-                new FunctionTableRefresher(engineController, functionsMetadataListProperty);
-        UserTableRefresher userTableRefresher =
-                new UserTableRefresher(engineController, usersList);
-        Timer programsTimer = new Timer();
-        Timer functionsTimer = new Timer();
-        Timer usersTimer = new Timer();
-        programsTimer.schedule(programsTableRefresher, PROGRAMS_TABLE_REFRESH_RATE, PROGRAMS_TABLE_REFRESH_RATE);
-        functionsTimer.schedule(functionTableRefresher, FUNCTIONS_TABLE_REFRESH_RATE, FUNCTIONS_TABLE_REFRESH_RATE);
-        usersTimer.schedule(userTableRefresher, 0, USERS_TABLE_REFRESH_RATE);
-
+    private void startEventsSubscriber() {
+        eventsSubscriber = new DashboardEventsSubscriber(engineController, programsMetadataListProperty,
+                functionsMetadataListProperty, usersList, userHistoryListProperty, () -> historyUser,
+                () -> {
+                    if (historyUser != null) {
+                        loadUserHistory(historyUser);
+                    }
+                });
+        eventsSubscriber.start();
     }
 
     private void initializeExecutionScreen() {
@@ -375,6 +370,7 @@ public class DashboardController {
      */
     private void loadUserHistory(@NotNull String username) {
         System.out.println("Dashboard: Loading history for user '" + username + "'");
+        historyUser = username;
         engineController.FetchUserExecutionHistoryAsync(username, (response) -> {
             if (response.isSuccess()) {
                 Platform.runLater(() -> userHistoryListProperty.setAll(response.getSafeUserStatisticsDTOList()));
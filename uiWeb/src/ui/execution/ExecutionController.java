@@ -494,6 +494,9 @@ public class ExecutionController {
                     allVariablesDTO.setAll(toVariableDTO(resultDTO.getAllVariablesSorted()));
                     currentCycles.set(resultDTO.cycleCount());
                     availableCredits.set(availableCredits.get() - resultDTO.creditsCost());
+                    if (resultDTO.profile() != null && resultDTO.profile().expandLevel() == currentExpandLevel.get()) {
+                        instructionsTableController.showProfile(resultDTO.profile());
+                    }
                     updatePropertiesAfterExecuting();
                     showSuccess("Program executed successfully.\nOutput = " +
                             resultDTO.output() + "\nTotal Cycles: " + resultDTO.cycleCount() +
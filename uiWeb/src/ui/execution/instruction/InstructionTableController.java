@@ -1,10 +1,12 @@
 package ui.execution.instruction;
 
+import dto.engine.ExecutionProfileDTO;
 import dto.engine.InstructionDTO;
 import engine.utils.ArchitectureType;
 import javafx.animation.FadeTransition;
 import javafx.beans.property.*;
 import javafx.fxml.FXML;
+import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableRow;
 import javafx.scene.control.TableView;
@@ -14,6 +16,7 @@ import ui.utils.AnimatedTableRow;
 import ui.utils.UIUtils;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.regex.Pattern;
 
 public class InstructionTableController {
@@ -21,6 +24,9 @@ public class InstructionTableController {
     private boolean isDerivedMap = false;
     private @Nullable String currentHighlightedVariable = null;
     private int highlightedInstructionIndex = -1;
+    // the profile of the last run, shown in the heat column, or null if there is none
+    private @Nullable ExecutionProfileDTO shownProfile = null;
+    private double shownProfileMaxCyclesShare = 0;
 
     @FXML
     private TableView<InstructionDTO> instructionTable;
@@ -36,6 +42,8 @@ public class InstructionTableController {
     private TableColumn<InstructionDTO, Number> cyclesColumn;
     @FXML
     public TableColumn<InstructionDTO, String> architectureTypeColumn;
+    @FXML
+    private TableColumn<InstructionDTO, Number> heatColumn;
 
     @FXML
     private BooleanProperty animationsEnabledProperty = new SimpleBooleanProperty(true);
@@ -61,6 +69,9 @@ public class InstructionTableController {
                 new ReadOnlyIntegerWrapper(cellData.getValue().cycles()));
         architectureTypeColumn.setCellValueFactory(cellData ->
                 new ReadOnlyStringWrapper(cellData.getValue().architectureType().getSymbol()));
+        heatColumn.setCellValueFactory(cellData -> new ReadOnlyDoubleWrapper(
+                shownProfile == null ? 0 : shownProfile.cyclesShareOf(cellData.getValue().index())));
+        heatColumn.setCellFactory(column -> new HeatCell());
     }
 
     public void initializeMainInstructionTable(@NotNull ListProperty<InstructionDTO> instructions,
@@ -137,6 +148,26 @@ public class InstructionTableController {
         clearSelectionHighlight();
         clearAllDebugHighlighting();
         clearArchitectureHighlighting();
+        clearProfile();
+    }
+
+    /**
+     * Shows where a run spent its cycles as a heat column, the hotter the row the more cycles its instruction used.
+     * the profile must be of the expand level shown in the table.
+     */
+    public void showProfile(@NotNull ExecutionProfileDTO profile) {
+        shownProfile = profile;
+        shownProfileMaxCyclesShare = profile.maxCyclesShare();
+        heatColumn.setVisible(true);
+        instructionTable.refresh();
+    }
+
+    public void clearProfile() {
+        if (shownProfile != null) {
+            shownProfile = null;
+            heatColumn.setVisible(false);
+            instructionTable.refresh();
+        }
     }
 
     private void updateRowHighlighting(@NotNull TableRow<InstructionDTO> row, @Nullable InstructionDTO item) {
@@ -233,4 +264,27 @@ public class InstructionTableController {
         this.currentSelectedArchitectureType = null;
         instructionTable.refresh();
     }
-}
\ No newline at end of file
+
+    /**
+     * Shows the part of the run's cycles an instruction used, and how many times it was executed,
+     * over a background as strong as the share relative to the hottest instruction.
+     */
+    private class HeatCell extends TableCell<InstructionDTO, Number> {
+        @Override
+        protected void updateItem(Number cyclesShare, boolean empty) {
+            super.updateItem(cyclesShare, empty);
+            InstructionDTO instruction = getTableRow() == null ? null : getTableRow().getItem();
+            if (empty || cyclesShare == null || instruction == null || shownProfile == null) {
+                setText(null);
+                setStyle("");
+                return;
+            }
+            long executions = shownProfile.executionsOf(instruction.index());
+            setText(executions == 0 ? "-" : String.format("%.1f%% (%d×)", cyclesShare.doubleValue() * 100,
+                    executions));
+            double heat = shownProfileMaxCyclesShare == 0 ? 0 : cyclesShare.doubleValue() / shownProfileMaxCyclesShare;
+            setStyle(heat == 0 ? "" : String.format(Locale.ROOT, "-fx-background-color: rgba(230, 80, 30, %.2f);",
+                    0.15 + 0.7 * heat));
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package ui.refresher;
+
+import dto.engine.ExecutionResultStatisticsDTO;
+import dto.engine.FunctionMetadata;
+import dto.engine.ProgramMetadata;
+import dto.server.DashboardSnapshotDTO;
+import dto.server.HistoryAppendedDTO;
+import dto.server.UserDTO;
+import javafx.application.Platform;
+import javafx.beans.property.ListProperty;
+import org.jetbrains.annotations.NotNull;
+import system.controller.EngineController;
+import system.http.utils.ServerEventsListener;
+
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static ui.utils.clientConstants.EVENTS_RECONNECT_DELAY;
+
+/**
+ * Keeps the dashboard tables up to date from the events pushed by the server, instead of re-downloading the
+ * full lists on a timer. every event updates only the entry it describes.
+ * if the stream breaks, it resubscribes after {@link ui.utils.clientConstants#EVENTS_RECONNECT_DELAY} ms and
+ * starts over from the snapshot the server sends.
+ */
+public class DashboardEventsSubscriber implements ServerEventsListener {
+    private final EngineController httpController;
+    private final ListProperty<ProgramMetadata> programsInUI;
+    private final ListProperty<FunctionMetadata> functionsInUI;
+    private final ListProperty<UserDTO> usersInUI;
+    private final ListProperty<ExecutionResultStatisticsDTO> historyInUI;
+    private final Supplier<String> historyUser;
+    private final Runnable onResync;
+    private final Timer reconnectTimer = new Timer("server-events-reconnect", true);
+    private volatile boolean stopped = false;
+
+    /**
+     * @param httpController the controller to subscribe with
+     * @param programsInUI   the programs table
+     * @param functionsInUI  the functions table
+     * @param usersInUI      the users table
+     * @param historyInUI    the history table
+     * @param historyUser    the user whose history is shown in the history table
+     * @param onResync       called after a snapshot, to reload what the events do not cover (the shown history)
+     */
+    public DashboardEventsSubscriber(@NotNull EngineController httpController,
+                                     @NotNull ListProperty<ProgramMetadata> programsInUI,
+                                     @NotNull ListProperty<FunctionMetadata> functionsInUI,
+                                     @NotNull ListProperty<UserDTO> usersInUI,
+                                     @NotNull ListProperty<ExecutionResultStatisticsDTO> historyInUI,
+                                     @NotNull Supplier<String> historyUser,
+                                     @NotNull Runnable onResync) {
+        this.httpController = httpController;
+        this.programsInUI = programsInUI;
+        this.functionsInUI = functionsInUI;
+        this.usersInUI = usersInUI;
+        this.historyInUI = historyInUI;
+        this.historyUser = historyUser;
+        this.onResync = onResync;
+    }
+
+    public void start() {
+        stopped = false;
+        httpController.subscribeToServerEvents(this);
+    }
+
+    public void stop() {
+        stopped = true;
+        reconnectTimer.cancel();
+        httpController.unsubscribeFromServerEvents();
+    }
+
+    @Override
+    public void onSnapshot(@NotNull DashboardSnapshotDTO snapshot) {
+        Platform.runLater(() -> {
+            programsInUI.setAll(snapshot.programs());
+            functionsInUI.setAll(snapshot.functions());
+            usersInUI.setAll(snapshot.users());
+            onResync.run();
+        });
+    }
+
+    @Override
+    public void onProgramChanged(@NotNull ProgramMetadata programMetadata) {
+        Platform.runLater(() -> upsert(programsInUI, programMetadata, ProgramMetadata::name));
+    }
+
+    @Override
+    public void onFunctionChanged(@NotNull FunctionMetadata functionMetadata) {
+        Platform.runLater(() -> upsert(functionsInUI, functionMetadata, FunctionMetadata::name));
+    }
+
+    @Override
+    public void onUserChanged(@NotNull UserDTO userDTO) {
+        Platform.runLater(() -> upsert(usersInUI, userDTO, UserDTO::name));
+    }
+
+    @Override
+    public void onHistoryAppended(@NotNull HistoryAppendedDTO historyAppended) {
+        Platform.runLater(() -> {
+            if (!historyAppended.username().equals(historyUser.get())) {
+                return;
+            }
+            // a run may already be in the table if the history was reloaded after it was published
+            int lastRunNumber = historyInUI.isEmpty() ? 0 : historyInUI.getLast().runNumber();
+            for (ExecutionResultStatisticsDTO executionResult : historyAppended.executionResults()) {
+                if (executionResult.runNumber() > lastRunNumber) {
+                    historyInUI.add(executionResult);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onDisconnected(@NotNull String message) {
+        System.err.println("Dashboard: " + message);
+        if (stopped) {
+            return;
+        }
+        reconnectTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                if (!stopped) {
+                    httpController.subscribeToServerEvents(DashboardEventsSubscriber.this);
+                }
+            }
+        }, EVENTS_RECONNECT_DELAY);
+    }
+
+    /**
+     * Replaces the entry with the same name, or adds the entry at the end if there is none.
+     */
+    private static <T> void upsert(@NotNull List<T> entries, @NotNull T entry, @NotNull Function<T, String> nameOf) {
+        String name = nameOf.apply(entry);
+        for (int i = 0; i < entries.size(); i++) {
+            if (nameOf.apply(entries.get(i)).equals(name)) {
+                if (!entries.get(i).equals(entry)) {
+                    entries.set(i, entry);
+                }
+                return;
+            }
+        }
+        entries.add(entry);
+    }
+}
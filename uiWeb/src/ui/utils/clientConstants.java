@@ -1,9 +1,7 @@
 package ui.utils;
 
 public class clientConstants {
-    public static final int PROGRAMS_TABLE_REFRESH_RATE = 2000;
-    public static final int FUNCTIONS_TABLE_REFRESH_RATE = 2500;
-    public static final int USERS_TABLE_REFRESH_RATE = 5000;
+    public static final int EVENTS_RECONNECT_DELAY = 2000;
     public static final String TASK_PATH = "/ui/task/program/ProgramTask.fxml";
     public static final String EXECUTION_PATH = "/ui/execution/Execution.fxml";
     public static final String DASHBOARD_PATH = "/ui/dashboard/Dashboard.fxml";